@@ -8,11 +8,21 @@
 
 package org.dive4elements.artifactdatabase;
 
+import org.dive4elements.artifacts.common.utils.Config;
+import org.dive4elements.artifacts.common.utils.LimitedInputStream;
 import org.dive4elements.artifacts.common.utils.XMLUtils;
 import org.dive4elements.artifacts.common.utils.StringUtils;
 
 import org.dive4elements.artifactdatabase.Backend.PersistentArtifact;
 
+import org.dive4elements.artifactdatabase.jfr.FlightEvents;
+
+import org.dive4elements.artifactdatabase.jmx.ManagementBeans;
+
+import org.dive4elements.artifactdatabase.metrics.Gauge;
+import org.dive4elements.artifactdatabase.metrics.Metrics;
+import org.dive4elements.artifactdatabase.metrics.RequestTimings;
+
 import org.dive4elements.artifacts.Artifact;
 import org.dive4elements.artifacts.ArtifactCollection;
 import org.dive4elements.artifacts.ArtifactCollectionFactory;
@@ -27,26 +37,46 @@ import org.dive4elements.artifacts.CollectionItem;
 import org.dive4elements.artifacts.GlobalContext;
 import org.dive4elements.artifacts.Hook;
 import org.dive4elements.artifacts.Message;
+import org.dive4elements.artifacts.PreferredLocale;
 import org.dive4elements.artifacts.Service;
 import org.dive4elements.artifacts.ServiceFactory;
 import org.dive4elements.artifacts.User;
 import org.dive4elements.artifacts.UserFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+import java.sql.Timestamp;
+
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
 import javax.xml.xpath.XPathConstants;
 
 import org.apache.commons.codec.binary.Base64;
@@ -58,6 +88,7 @@ import org.apache.logging.log4j.LogManager;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
 /**
  * The core implementation of artifact database. This layer exposes
@@ -182,6 +213,72 @@ implements   ArtifactDatabase,
         "Invalid artifact";
 
 
+    /**
+     * Error message issued if the cursor of a paged listing
+     * is malformed.
+     */
+    public static final String INVALID_CURSOR =
+        "Invalid cursor";
+
+    /**
+     * Error message issued if the backend failed to fetch
+     * the page of a listing.
+     */
+    public static final String LISTING_FAILED =
+        "Listing failed";
+
+    /**
+     * Directory inside an archive of exported collections.
+     */
+    public static final String EXPORT_DIRECTORY = "export";
+
+    /**
+     * Manifest describing the collections of an export archive.
+     */
+    public static final String EXPORT_MANIFEST = "manifest.xml";
+
+    /**
+     * Directory of the exported artifacts inside the export directory.
+     */
+    public static final String EXPORT_ARTIFACTS = "artifacts";
+
+    /**
+     * File extension of the exported artifacts.
+     */
+    public static final String EXPORT_ARTIFACT_SUFFIX = ".bin";
+
+    /** XPath to the collections in the manifest of an export.*/
+    public static final String XPATH_EXPORT_COLLECTIONS =
+        "/art:export/art:collection";
+
+    /** XPath to the items of a collection in the manifest.*/
+    public static final String XPATH_EXPORT_ITEMS = "art:item";
+
+    /** XPath to the attribute of a collection or an item in the manifest.*/
+    public static final String XPATH_EXPORT_ATTRIBUTE = "art:attribute/*";
+
+    /** XPath to the max. number of entries of an imported archive.*/
+    public static final String XPATH_IMPORT_MAX_ENTRIES =
+        "/artifact-database/import/@max-entries";
+
+    /** XPath to the max. size (in bytes) of an imported archive.*/
+    public static final String XPATH_IMPORT_MAX_SIZE =
+        "/artifact-database/import/@max-size";
+
+    /** Default max. number of entries of an imported archive.*/
+    public static final int DEFAULT_IMPORT_MAX_ENTRIES = 100000;
+
+    /** Default max. size of an imported archive: 1 GiB.*/
+    public static final long DEFAULT_IMPORT_MAX_SIZE = 1024L*1024L*1024L;
+
+    /** XPath to the max. number of elements of a streamed listing.*/
+    public static final String XPATH_LISTING_MAX_PAGE =
+        "/artifact-database/listings/@max-page";
+
+    /** Default max. number of elements of a streamed listing.*/
+    public static final int DEFAULT_LISTING_MAX_PAGE = 1000;
+
+
     // User constants
 
     /**
@@ -311,10 +408,39 @@ implements   ArtifactDatabase,
                 callMeta,
                 artifact);
 
+            Object event = FlightEvents.beginCall();
             try {
-                artifact.getArtifact().out(type, format, output, cc);
+                Artifact art = artifact.getArtifact();
+
+                String key = outputCache.key(
+                    artifact, type, format, callMeta);
+
+                if (key == null) {
+                    art.out(type, format, output, cc);
+                    return;
+                }
+
+                if (outputCache.serve(key, output)) {
+                    return;
+                }
+
+                OutputCache.Recorder recorder =
+                    outputCache.record(key, output);
+                try {
+                    art.out(type, format, recorder, cc);
+                    recorder.commit(
+                        Collections.singleton(art.identifier()));
+                }
+                finally {
+                    recorder.abort();
+                }
             }
             finally {
+                FlightEvents.endCall(
+                    event,
+                    "out",
+                    factoryName(artifact),
+                    artifact.getArtifact().identifier());
                 cc.postCall();
             }
         }
@@ -379,13 +505,65 @@ implements   ArtifactDatabase,
                 callMeta,
                 collection);
 
+            Object event = FlightEvents.beginCall();
             try {
-                collection.out(type, format, output, cc);
+                String key = outputCache.key(
+                    collection.identifier(), collectionHash(collection),
+                    type, format, callMeta);
+
+                if (key == null) {
+                    collection.out(type, format, output, cc);
+                    return;
+                }
+
+                if (outputCache.serve(key, output)) {
+                    return;
+                }
+
+                OutputCache.Recorder recorder =
+                    outputCache.record(key, output);
+                try {
+                    collection.out(type, format, recorder, cc);
+                    recorder.commit(dependencies(cc));
+                }
+                finally {
+                    recorder.abort();
+                }
             }
             finally {
+                FlightEvents.endCall(
+                    event,
+                    "collection-out",
+                    collectionFactory.getName(),
+                    collection.identifier());
                 cc.postCall();
             }
         }
+
+        /**
+         * The output depends on the collection and its artifacts.
+         * If the out() call loaded the artifacts through the call
+         * context they are reused, else they are listed.
+         */
+        protected Set<String> dependencies(CollectionCallContext cc) {
+            Set<String> dependencies = new HashSet<String>();
+            dependencies.add(collection.identifier());
+
+            Set<String> loaded = cc.getLoadedArtifactIdentifiers();
+            if (loaded != null) {
+                dependencies.addAll(loaded);
+                return dependencies;
+            }
+
+            CollectionItem [] items =
+                backend.listCollectionArtifacts(collection.identifier());
+            if (items != null) {
+                for (CollectionItem item: items) {
+                    dependencies.add(item.getArtifactIdentifier());
+                }
+            }
+            return dependencies;
+        }
     } // class DeferredCollectionOutputImpl
 
     /**
@@ -432,6 +610,22 @@ implements   ArtifactDatabase,
      */
     protected byte []     exportSecret;
 
+    /**
+     * Max. number of entries of an archive of imported collections.
+     */
+    protected int         importMaxEntries = DEFAULT_IMPORT_MAX_ENTRIES;
+
+    /**
+     * Max. extracted size of an archive of imported collections.
+     */
+    protected long        importMaxSize = DEFAULT_IMPORT_MAX_SIZE;
+
+    /**
+     * Max. number of elements of a streamed listing. Values <= 0
+     * mean no limit.
+     */
+    protected int         listingMaxPage = DEFAULT_LISTING_MAX_PAGE;
+
     /**
      * A set of ids of artifact which currently running in background.
      * This artifacts should not be removed from the database by the
@@ -463,12 +657,30 @@ implements   ArtifactDatabase,
      */
     protected List<Hook> postDescribeHooks;
 
+    /**
+     * Executes the asynchronous hooks. null if there are none.
+     */
+    protected HookExecutor hookExecutor;
+
     protected List<LifetimeListener> lifetimeListeners;
 
+    /**
+     * Cache of the describe documents of the artifacts of the
+     * factories which enabled it.
+     */
+    protected DescribeCache describeCache;
+
+    /**
+     * Cache of the results of the out() calls.
+     */
+    protected OutputCache outputCache;
+
     /**
      * Default constructor.
      */
     public ArtifactDatabaseImpl() {
+        describeCache = new DescribeCache();
+        outputCache   = new OutputCache();
     }
 
     /**
@@ -497,6 +709,8 @@ implements   ArtifactDatabase,
 
         setupArtifactCollectionFactory(bootstrap);
         setupArtifactFactories(bootstrap);
+        setupDescribeCache();
+        setupOutputCache();
         setupServices(bootstrap);
         setupUserFactory(bootstrap);
         setupCallContextListener(bootstrap);
@@ -508,7 +722,111 @@ implements   ArtifactDatabase,
 
         exportSecret = bootstrap.getExportSecret();
 
+        setupImportLimits();
+        setupListingLimit();
+
         wireWithBackend(backend, bootstrap);
+
+        setupHookExecutor();
+
+        registerGauges();
+    }
+
+    /**
+     * Registers the gauges of the background jobs and the caches
+     * to be reported by the metrics.
+     */
+    protected void registerGauges() {
+        Metrics.help("d4e_background_jobs",
+            "Artifacts with running background jobs.");
+        Metrics.help("d4e_cache_hits_total", "Cache hits.");
+        Metrics.help("d4e_cache_misses_total", "Cache misses.");
+        Metrics.help("d4e_cache_evictions_total", "Evicted cache entries.");
+        Metrics.help("d4e_cache_invalidations_total",
+            "Invalidated cache entries.");
+        Metrics.help("d4e_cache_entries", "Entries of the cache.");
+        Metrics.help("d4e_cache_memory_bytes",
+            "Bytes of the cached results held in memory.");
+        Metrics.help("d4e_cache_disk_bytes",
+            "Bytes of the cached results spilled to disk.");
+
+        Metrics.gauge("d4e_background_jobs", null, new Gauge() {
+            @Override
+            public double value() {
+                return getBackgroundJobCount();
+            }
+        });
+
+        String describe = Metrics.labels("cache", "describe");
+        String output   = Metrics.labels("cache", "output");
+
+        Metrics.gauge("d4e_cache_hits_total", describe, new Gauge() {
+            @Override
+            public double value() {
+                return describeCache.getHits();
+            }
+        });
+        Metrics.gauge("d4e_cache_misses_total", describe, new Gauge() {
+            @Override
+            public double value() {
+                return describeCache.getMisses();
+            }
+        });
+        Metrics.gauge("d4e_cache_evictions_total", describe, new Gauge() {
+            @Override
+            public double value() {
+                return describeCache.getEvictions();
+            }
+        });
+        Metrics.gauge("d4e_cache_invalidations_total", describe, new Gauge() {
+            @Override
+            public double value() {
+                return describeCache.getInvalidations();
+            }
+        });
+        Metrics.gauge("d4e_cache_entries", describe, new Gauge() {
+            @Override
+            public double value() {
+                return describeCache.getEntries();
+            }
+        });
+
+        Metrics.gauge("d4e_cache_hits_total", output, new Gauge() {
+            @Override
+            public double value() {
+                return outputCache.getHits();
+            }
+        });
+        Metrics.gauge("d4e_cache_misses_total", output, new Gauge() {
+            @Override
+            public double value() {
+                return outputCache.getMisses();
+            }
+        });
+        Metrics.gauge("d4e_cache_evictions_total", output, new Gauge() {
+            @Override
+            public double value() {
+                return outputCache.getEvictions();
+            }
+        });
+        Metrics.gauge("d4e_cache_invalidations_total", output, new Gauge() {
+            @Override
+            public double value() {
+                return outputCache.getInvalidations();
+            }
+        });
+        Metrics.gauge("d4e_cache_memory_bytes", output, new Gauge() {
+            @Override
+            public double value() {
+                return outputCache.getMemoryBytes();
+            }
+        });
+        Metrics.gauge("d4e_cache_disk_bytes", output, new Gauge() {
+            @Override
+            public double value() {
+                return outputCache.getDiskBytes();
+            }
+        });
     }
 
     public CallContext.Listener getCallContextListener() {
@@ -568,6 +886,85 @@ implements   ArtifactDatabase,
         }
     }
 
+    /**
+     * Creates the cache of the describe documents for the
+     * factories which enabled it in the configuration.
+     */
+    protected void setupDescribeCache() {
+        String [] names = new String[factoryNamesAndDescription.length];
+        for (int i = 0; i < names.length; ++i) {
+            names[i] = factoryNamesAndDescription[i][0];
+        }
+        describeCache = new DescribeCache(names);
+    }
+
+    public DescribeCache getDescribeCache() {
+        return describeCache;
+    }
+
+    /**
+     * Creates the cache of the out() results if it is enabled
+     * in the configuration.
+     */
+    protected void setupOutputCache() {
+        outputCache = new OutputCache(Config.getConfig());
+    }
+
+    /**
+     * Reads the limits of the archives of imported collections
+     * from the configuration.
+     */
+    protected void setupImportLimits() {
+        String value = Config.getStringXPath(XPATH_IMPORT_MAX_ENTRIES);
+        if (value != null && (value = value.trim()).length() > 0) {
+            try {
+                importMaxEntries = Integer.parseInt(value);
+            }
+            catch (NumberFormatException nfe) {
+                logger.warn("Invalid max. number of import entries: "
+                    + value);
+            }
+        }
+
+        value = Config.getStringXPath(XPATH_IMPORT_MAX_SIZE);
+        if (value != null && (value = value.trim()).length() > 0) {
+            try {
+                importMaxSize = Long.parseLong(value);
+            }
+            catch (NumberFormatException nfe) {
+                logger.warn("Invalid max. size of imports: " + value);
+            }
+        }
+    }
+
+    /**
+     * Reads the max. number of elements of a streamed listing
+     * from the configuration.
+     */
+    protected void setupListingLimit() {
+        String value = Config.getStringXPath(XPATH_LISTING_MAX_PAGE);
+        if (value != null && (value = value.trim()).length() > 0) {
+            try {
+                listingMaxPage = Integer.parseInt(value);
+            }
+            catch (NumberFormatException nfe) {
+                logger.warn("Invalid max. page size of listings: " + value);
+            }
+        }
+    }
+
+    public OutputCache getOutputCache() {
+        return outputCache;
+    }
+
+    /**
+     * Drops all entries of the describe and the output cache.
+     */
+    public void clearCaches() {
+        describeCache.clear();
+        outputCache.clear();
+    }
+
     /**
      * Used to extract the callContextListener from the bootstrap.
      *
@@ -584,6 +981,29 @@ implements   ArtifactDatabase,
         setPostDescribeHook(bootstrap.getPostDescribeHooks());
     }
 
+    /**
+     * Creates the executor of the asynchronous hooks if there
+     * are any. Needs the backend.
+     */
+    protected void setupHookExecutor() {
+        if (hasAsyncHooks(postFeedHooks)
+        ||  hasAsyncHooks(postAdvanceHooks)
+        ||  hasAsyncHooks(postDescribeHooks)) {
+            hookExecutor = new HookExecutor(this, backend);
+        }
+    }
+
+    protected static boolean hasAsyncHooks(List<Hook> hooks) {
+        if (hooks != null) {
+            for (Hook hook: hooks) {
+                if (hook instanceof AsyncHook) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     protected void setupBackendListeners(FactoryBootstrap bootstrap) {
         logger.debug("setupBackendListeners");
         List<BackendListener> bls = bootstrap.getBackendListeners();
@@ -650,6 +1070,14 @@ implements   ArtifactDatabase,
             this.backend = backend;
             backend.setFactoryLookup(this);
             setupBackendListeners(bootstrap);
+            if (describeCache != null && describeCache.isEnabled()) {
+                // Drop cached documents of stored or removed artifacts.
+                backend.addListener(describeCache);
+            }
+            if (outputCache != null && outputCache.isEnabled()) {
+                // Drop cached results of stored or removed objects.
+                backend.addListener(outputCache);
+            }
         }
     }
 
@@ -747,6 +1175,15 @@ implements   ArtifactDatabase,
         }
     }
 
+    /**
+     * @return The number of artifacts with running background jobs.
+     */
+    public int getBackgroundJobCount() {
+        synchronized (backgroundIds) {
+            return backgroundIds.size();
+        }
+    }
+
     /**
      * Returns the background <i>Message</i>s for a specific Artifact or
      * Collection.
@@ -799,6 +1236,8 @@ implements   ArtifactDatabase,
             throw new ArtifactDatabaseException(NO_SUCH_FACTORY);
         }
 
+        RequestTimings.tag(factoryName, "create");
+
         Artifact artifact = factory.createArtifact(
             backend.newIdentifier(),
             context,
@@ -828,112 +1267,270 @@ implements   ArtifactDatabase,
             callMeta,
             persistentArtifact);
 
+        List<Hook> deferred;
+        Document   res;
         try {
-            Document res = artifact.describe(data, cc);
-
-            if (postDescribeHooks != null) {
-                for (Hook hook: postDescribeHooks) {
-                    hook.execute(artifact, cc, res);
-                }
+            Object event = enterCall();
+            try {
+                res = artifact.describe(data, cc);
             }
-            return res;
+            finally {
+                exitCall(event, "describe", factoryName, artifact.identifier());
+            }
+
+            deferred = runHooks(postDescribeHooks, artifact, cc, res);
         }
         finally {
             cc.postCall();
         }
-    }
-
-
-    public Artifact getRawArtifact(String identifier)
-    throws ArtifactDatabaseException
-    {
-        PersistentArtifact artifact = backend.getArtifact(identifier);
-
-        if (artifact == null) {
-            throw new ArtifactDatabaseException(NO_SUCH_ARTIFACT);
-        }
 
-        return artifact.getArtifact();
+        submitHooks(deferred, artifact.identifier(), callMeta, res);
+        return res;
     }
 
 
-    public Document describe(
-        String   identifier,
-        Document data,
-        CallMeta callMeta
-    )
-    throws ArtifactDatabaseException
-    {
-        // TODO: Handle background tasks
-        PersistentArtifact artifact = backend.getArtifact(identifier);
-
-        if (artifact == null) {
-            throw new ArtifactDatabaseException(NO_SUCH_ARTIFACT);
+    /**
+     * Runs the hooks after a call of an artifact. The time needed
+     * is recorded as the hooks phase of the request.
+     * Asynchronous hooks are not run but returned. They have to be
+     * handed over to #submitHooks() after the call context has
+     * stored the artifact.
+     * @param hooks The hooks. May be null.
+     * @param artifact The called artifact.
+     * @param cc The context of the call.
+     * @param result The result document of the call.
+     * @return The asynchronous hooks or null if there are none.
+     */
+    protected List<Hook> runHooks(
+        List<Hook>  hooks,
+        Artifact    artifact,
+        CallContext cc,
+        Document    result
+    ) {
+        if (hooks == null || hooks.isEmpty()) {
+            return null;
         }
-
-        ArtifactCallContext cc = new ArtifactCallContext(
-            ArtifactDatabaseImpl.this,
-            CallContext.TOUCH,
-            callMeta,
-            artifact);
-
+        List<Hook> deferred = null;
+        RequestTimings.enter(RequestTimings.HOOKS);
         try {
-            Artifact art = artifact.getArtifact();
-            Document res = art.describe(data, cc);
-
-            if (postDescribeHooks != null) {
-                for (Hook hook: postDescribeHooks) {
-                    hook.execute(art, cc, res);
+            for (Hook hook: hooks) {
+                if (hook instanceof AsyncHook && hookExecutor != null) {
+                    if (deferred == null) {
+                        deferred = new ArrayList<Hook>(hooks.size());
+                    }
+                    deferred.add(((AsyncHook)hook).getHook());
+                }
+                else {
+                    hook.execute(artifact, cc, result);
                 }
             }
-
-            return res;
         }
         finally {
-            cc.postCall();
+            RequestTimings.exit();
         }
+        return deferred;
     }
 
-    public Document advance(
-        String   identifier,
-        Document target,
-        CallMeta callMeta
-    )
-    throws ArtifactDatabaseException
-    {
-        // TODO: Handle background tasks
-        PersistentArtifact artifact = backend.getArtifact(identifier);
-
-        if (artifact == null) {
-            throw new ArtifactDatabaseException(NO_SUCH_ARTIFACT);
+    /**
+     * Schedules the asynchronous hooks returned by #runHooks().
+     * Called after the call context has stored the artifact, so the
+     * hooks load its new state from the backend.
+     * @param hooks The hooks. May be null.
+     * @param identifier The identifier of the called artifact.
+     * @param callMeta The meta information of the call.
+     * @param result The result document of the call.
+     */
+    protected void submitHooks(
+        List<Hook> hooks,
+        String     identifier,
+        CallMeta   callMeta,
+        Document   result
+    ) {
+        if (hooks == null) {
+            return;
         }
-
-        ArtifactCallContext cc = new ArtifactCallContext(
-            ArtifactDatabaseImpl.this,
-            CallContext.STORE,
-            callMeta,
-            artifact);
-
+        RequestTimings.enter(RequestTimings.HOOKS);
         try {
-            Artifact art = artifact.getArtifact();
-            Document res = art.advance(target, cc);
-
-            if (postAdvanceHooks != null) {
-                for (Hook hook: postAdvanceHooks) {
-                    hook.execute(art, cc, res);
-                }
+            for (Hook hook: hooks) {
+                hookExecutor.submit(hook, identifier, callMeta, result);
             }
-
-            return res;
         }
         finally {
-            cc.postCall();
+            RequestTimings.exit();
         }
     }
 
-    public Document feed(String identifier, Document data, CallMeta callMeta)
-        throws ArtifactDatabaseException
+    /**
+     * Tags the current request with the factory of an artifact
+     * and the performed action.
+     */
+    protected static void tag(PersistentArtifact artifact, String action) {
+        RequestTimings.tag(factoryName(artifact), action);
+    }
+
+    protected static String factoryName(PersistentArtifact artifact) {
+        ArtifactFactory factory = artifact.getFactory();
+        return factory != null ? factory.getName() : null;
+    }
+
+    /**
+     * Enters the call of an artifact, a collection or a service.
+     * @return The flight recorder event of the call or null.
+     */
+    protected static Object enterCall() {
+        RequestTimings.enter(RequestTimings.CALL);
+        return FlightEvents.beginCall();
+    }
+
+    /**
+     * Leaves the call entered by #enterCall().
+     * @param event The flight recorder event of the call.
+     * @param action The called method.
+     * @param factory The name of the factory or service.
+     * @param identifier The identifier of the called object.
+     */
+    protected static void exitCall(
+        Object event,
+        String action,
+        String factory,
+        String identifier
+    ) {
+        FlightEvents.endCall(event, action, factory, identifier);
+        RequestTimings.exit();
+    }
+
+    /**
+     * Computes a strong entity tag for a describe document from
+     * the hash of the described object and the languages of the
+     * call meta as the documents are localized.
+     * @param hash The hash of the artifact or collection.
+     * @param callMeta The meta information of the call.
+     * @return The entity tag or null if no hash is given.
+     */
+    protected static String entityTag(String hash, CallMeta callMeta) {
+        if (hash == null) {
+            return null;
+        }
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            logger.error(nsae.getLocalizedMessage(), nsae);
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(hash);
+
+        PreferredLocale [] languages = callMeta != null
+            ? callMeta.getLanguages()
+            : null;
+
+        if (languages != null) {
+            for (PreferredLocale pl: languages) {
+                sb.append('|').append(pl.getLocale())
+                  .append(';').append(pl.getQuality());
+            }
+        }
+
+        try {
+            md.update(sb.toString().getBytes("UTF-8"));
+        }
+        catch (UnsupportedEncodingException uee) {
+            logger.error(uee.getLocalizedMessage(), uee);
+            return null;
+        }
+
+        return Hex.encodeHexString(md.digest());
+    }
+
+    /**
+     * Builds the hash of a collection from its own hash and the
+     * digest of its items stored in the database as the collection
+     * loaded from the backend does not hold its artifacts.
+     * @param collection The collection.
+     * @return The hash or null if the items cannot be digested.
+     */
+    protected String collectionHash(ArtifactCollection collection) {
+        String items = backend.getCollectionItemsDigest(
+            collection.identifier());
+        return items != null
+            ? collection.hash() + '|' + items
+            : null;
+    }
+
+    public Artifact getRawArtifact(String identifier)
+    throws ArtifactDatabaseException
     {
+        PersistentArtifact artifact = backend.getArtifact(identifier);
+
+        if (artifact == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_ARTIFACT);
+        }
+
+        return artifact.getArtifact();
+    }
+
+
+    public Map<String, Artifact> getRawArtifacts(
+        Collection<String> identifiers
+    )
+    throws ArtifactDatabaseException
+    {
+        Map<String, Artifact> artifacts =
+            new LinkedHashMap<String, Artifact>();
+
+        for (Map.Entry<String, PersistentArtifact> entry:
+            backend.getArtifacts(identifiers).entrySet()
+        ) {
+            artifacts.put(entry.getKey(), entry.getValue().getArtifact());
+        }
+
+        return artifacts;
+    }
+
+
+    public Map<String, Artifact> getRawCollectionArtifacts(
+        String collectionId
+    )
+    throws ArtifactDatabaseException
+    {
+        CollectionItem [] items = backend.listCollectionArtifacts(collectionId);
+
+        if (items == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_COLLECTION);
+        }
+
+        List<String> identifiers = new ArrayList<String>(items.length);
+        for (CollectionItem item: items) {
+            identifiers.add(item.getArtifactIdentifier());
+        }
+
+        return getRawArtifacts(identifiers);
+    }
+
+
+    public Document describe(
+        String   identifier,
+        Document data,
+        CallMeta callMeta
+    )
+    throws ArtifactDatabaseException
+    {
+        return describe(identifier, data, callMeta, null);
+    }
+
+    public Document describe(
+        String    identifier,
+        Document  data,
+        CallMeta  callMeta,
+        Validator validator
+    )
+    throws ArtifactDatabaseException
+    {
+        long generation = describeCache.generation(identifier);
+
         // TODO: Handle background tasks
         PersistentArtifact artifact = backend.getArtifact(identifier);
 
@@ -941,27 +1538,138 @@ implements   ArtifactDatabase,
             throw new ArtifactDatabaseException(NO_SUCH_ARTIFACT);
         }
 
+        tag(artifact, "describe");
+
+        ArtifactCallContext cc = new ArtifactCallContext(
+            ArtifactDatabaseImpl.this,
+            CallContext.TOUCH,
+            callMeta,
+            artifact);
+
+        List<Hook> deferred;
+        Document   res;
+        try {
+            // A revalidated describe is an access, too.
+            if (validator != null && validator.isValid(
+                entityTag(artifact.getDigest(), callMeta))
+            ) {
+                return null;
+            }
+
+            String cacheKey = describeCache.key(artifact, data, callMeta);
+
+            res = describeCache.get(artifact, cacheKey);
+            if (res != null) {
+                return res;
+            }
+
+            Artifact art = artifact.getArtifact();
+            Object event = enterCall();
+            try {
+                res = art.describe(data, cc);
+            }
+            finally {
+                exitCall(event, "describe", factoryName(artifact), identifier);
+            }
+
+            deferred = runHooks(postDescribeHooks, art, cc, res);
+
+            describeCache.put(artifact, cacheKey, res, generation);
+        }
+        finally {
+            cc.postCall();
+        }
+
+        submitHooks(deferred, identifier, callMeta, res);
+        return res;
+    }
+
+    public Document advance(
+        String   identifier,
+        Document target,
+        CallMeta callMeta
+    )
+    throws ArtifactDatabaseException
+    {
+        // TODO: Handle background tasks
+        PersistentArtifact artifact = backend.getArtifact(identifier);
+
+        if (artifact == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_ARTIFACT);
+        }
+
+        tag(artifact, "advance");
+
         ArtifactCallContext cc = new ArtifactCallContext(
             ArtifactDatabaseImpl.this,
             CallContext.STORE,
             callMeta,
             artifact);
 
+        describeCache.invalidate(identifier);
+
+        List<Hook> deferred;
+        Document   res;
         try {
             Artifact art = artifact.getArtifact();
-            Document res = art.feed(data, cc);
+            Object event = enterCall();
+            try {
+                res = art.advance(target, cc);
+            }
+            finally {
+                exitCall(event, "advance", factoryName(artifact), identifier);
+            }
 
-            if (postFeedHooks != null) {
-                for (Hook hook: postFeedHooks) {
-                    hook.execute(art, cc, res);
-                }
+            deferred = runHooks(postAdvanceHooks, art, cc, res);
+        }
+        finally {
+            cc.postCall();
+        }
+
+        submitHooks(deferred, identifier, callMeta, res);
+        return res;
+    }
+
+    public Document feed(String identifier, Document data, CallMeta callMeta)
+        throws ArtifactDatabaseException
+    {
+        // TODO: Handle background tasks
+        PersistentArtifact artifact = backend.getArtifact(identifier);
+
+        if (artifact == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_ARTIFACT);
+        }
+
+        tag(artifact, "feed");
+
+        ArtifactCallContext cc = new ArtifactCallContext(
+            ArtifactDatabaseImpl.this,
+            CallContext.STORE,
+            callMeta,
+            artifact);
+
+        describeCache.invalidate(identifier);
+
+        List<Hook> deferred;
+        Document   res;
+        try {
+            Artifact art = artifact.getArtifact();
+            Object event = enterCall();
+            try {
+                res = art.feed(data, cc);
+            }
+            finally {
+                exitCall(event, "feed", factoryName(artifact), identifier);
             }
 
-            return res;
+            deferred = runHooks(postFeedHooks, art, cc, res);
         }
         finally {
             cc.postCall();
         }
+
+        submitHooks(deferred, identifier, callMeta, res);
+        return res;
     }
 
     public DeferredOutput out(
@@ -988,14 +1696,62 @@ implements   ArtifactDatabase,
             throw new ArtifactDatabaseException(NO_SUCH_ARTIFACT);
         }
 
+        // The out() call itself is part of the response phase.
+        tag(artifact, "out");
+
         return new DeferredOutputImpl(artifact, type, format, callMeta);
     }
 
     public Document exportArtifact(String artifact, CallMeta callMeta)
         throws ArtifactDatabaseException
+    {
+        String [] factoryName = new String[1];
+
+        byte [] bytes = exportBytes(artifact, factoryName);
+
+        return createExportDocument(
+            factoryName[0],
+            bytes,
+            exportSecret);
+    }
+
+    public DeferredOutput exportArtifactStream(
+        String   artifact,
+        CallMeta callMeta
+    )
+    throws ArtifactDatabaseException
     {
         final String [] factoryName = new String[1];
 
+        final byte [] bytes = exportBytes(artifact, factoryName);
+
+        return new DeferredOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                BinaryExport.write(
+                    new DataOutputStream(output),
+                    factoryName[0],
+                    bytes,
+                    exportSecret);
+            }
+        };
+    }
+
+    /**
+     * Loads an artifact and serializes it again after it was
+     * cleaned up for the export.
+     * @param artifact The identifier of the artifact.
+     * @param factoryName Receives the name of the artifact's factory.
+     * @return The serialized artifact.
+     * @throws ArtifactDatabaseException Thrown if the artifact
+     * does not exist.
+     */
+    protected byte [] exportBytes(
+        String          artifact,
+        final String [] factoryName
+    )
+    throws ArtifactDatabaseException
+    {
         byte [] bytes = (byte [])backend.loadArtifact(
             artifact,
             new Backend.ArtifactLoader() {
@@ -1020,10 +1776,7 @@ implements   ArtifactDatabase,
             throw new ArtifactDatabaseException(NO_SUCH_ARTIFACT);
         }
 
-        return createExportDocument(
-            factoryName[0],
-            bytes,
-            exportSecret);
+        return bytes;
     }
 
     /**
@@ -1099,83 +1852,636 @@ implements   ArtifactDatabase,
             XPATH_IMPORT_CHECKSUM,
             ArtifactNamespaceContext.INSTANCE);
 
-        byte [] checksum;
+        byte [] checksum;
+
+        if (checksumString == null
+        || (checksumString = checksumString.trim()).length() == 0
+        || (checksum = StringUtils.decodeHex(checksumString)) == null
+        ) {
+            throw new ArtifactDatabaseException(INVALID_CHECKSUM);
+        }
+
+        checksumString = null;
+
+        String dataString = XMLUtils.xpathString(
+            input,
+            XPATH_IMPORT_DATA,
+            ArtifactNamespaceContext.INSTANCE);
+
+        if (dataString == null
+        || (dataString = dataString.trim()).length() == 0) {
+            throw new ArtifactDatabaseException(NO_DATA);
+        }
+
+        byte [] data = Base64.decodeBase64(dataString);
+
+        dataString = null;
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            logger.error(nsae.getLocalizedMessage(), nsae);
+            return XMLUtils.newDocument();
+        }
+
+        md.update(data);
+        md.update(exportSecret);
+
+        byte [] digest = md.digest();
+
+        if (!Arrays.equals(checksum, digest)) {
+            throw new ArtifactDatabaseException(CHECKSUM_MISMATCH);
+        }
+
+        return importArtifact(factory, data, input, callMeta);
+    }
+
+    public Document importArtifactStream(InputStream input, CallMeta callMeta)
+        throws ArtifactDatabaseException
+    {
+        BinaryExport.Entry entry;
+        try {
+            entry = BinaryExport.read(new DataInputStream(input), exportSecret);
+        }
+        catch (IOException ioe) {
+            logger.warn(ioe.getLocalizedMessage(), ioe);
+            throw new ArtifactDatabaseException(NO_DATA);
+        }
+
+        ArtifactFactory factory = getArtifactFactory(entry.getFactoryName());
+
+        if (factory == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_FACTORY);
+        }
+
+        return importArtifact(
+            factory, entry.getData(), XMLUtils.newDocument(), callMeta);
+    }
+
+    /**
+     * Revives a validated exported artifact, stores it under
+     * a new identifier and describes it.
+     * @param factory The factory of the artifact.
+     * @param data The serialized artifact.
+     * @param input The document passed to the describe() call.
+     * @param callMeta The meta information of the import.
+     * @return The describe document of the imported artifact.
+     * @throws ArtifactDatabaseException Thrown if the artifact
+     * cannot be revived or stored.
+     */
+    protected Document importArtifact(
+        ArtifactFactory factory,
+        byte []         data,
+        Document        input,
+        CallMeta        callMeta
+    )
+    throws ArtifactDatabaseException
+    {
+        ArtifactSerializer serializer = factory.getSerializer();
+
+        Artifact artifact = serializer.fromBytes(data); data = null;
+
+        if (artifact == null) {
+            throw new ArtifactDatabaseException(INVALID_ARTIFACT);
+        }
+
+        artifact.setIdentifier(backend.newIdentifier());
+        PersistentArtifact persistentArtifact;
+
+        try {
+            persistentArtifact = backend.storeOrReplace(
+                artifact,
+                factory,
+                factory.timeToLiveUntouched(artifact, context));
+        }
+        catch (Exception e) {
+            logger.error(e.getLocalizedMessage(), e);
+            throw new ArtifactDatabaseException(CREATION_FAILED);
+        }
+
+        ArtifactCallContext cc = new ArtifactCallContext(
+            ArtifactDatabaseImpl.this,
+            CallContext.NOTHING,
+            callMeta,
+            persistentArtifact);
+
+        try {
+            return artifact.describe(input, cc);
+        }
+        finally {
+            cc.postCall();
+        }
+    }
+
+    public DeferredOutput exportUserCollections(
+        final String user,
+        CallMeta     callMeta
+    )
+    throws ArtifactDatabaseException
+    {
+        UserFactory factory = getUserFactory();
+
+        if (factory == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_FACTORY);
+        }
+
+        if (backend.getUser(user, factory, context) == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_USER);
+        }
+
+        final List<Backend.ExportRow> rows = exportRows(user, null);
+
+        return new DeferredOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                writeCollectionsArchive(user, rows, output);
+            }
+        };
+    }
+
+    public DeferredOutput exportCollection(
+        final String collection,
+        CallMeta     callMeta
+    )
+    throws ArtifactDatabaseException
+    {
+        ArtifactCollectionFactory acf = getArtifactCollectionFactory();
+        UserFactory               uf  = getUserFactory();
+
+        if (acf == null || uf == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_FACTORY);
+        }
+
+        if (backend.getCollection(collection, acf, uf, context) == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_COLLECTION);
+        }
+
+        final List<Backend.ExportRow> rows = exportRows(null, collection);
+
+        return new DeferredOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                writeCollectionsArchive(null, rows, output);
+            }
+        };
+    }
+
+    /**
+     * Fetches the rows of an export before the archive is written
+     * so no database connection is held while the response is
+     * written and backend errors are reported before it is committed.
+     * @param user The identifier of the user or null.
+     * @param collection The identifier of the collection if user is null.
+     * @return The rows of the exported collections and their items.
+     * @throws ArtifactDatabaseException Thrown if the rows cannot
+     * be fetched.
+     */
+    protected List<Backend.ExportRow> exportRows(
+        String user,
+        String collection
+    )
+    throws ArtifactDatabaseException
+    {
+        final List<Backend.ExportRow> rows = new ArrayList<Backend.ExportRow>();
+
+        boolean success = backend.exportCollections(
+            user,
+            collection,
+            new Backend.Visitor<Backend.ExportRow>() {
+                public boolean visit(Backend.ExportRow row) {
+                    rows.add(row);
+                    return true;
+                }
+            });
+
+        if (!success) {
+            throw new ArtifactDatabaseException(INTERNAL_ERROR);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Writes the collections of a user or a single collection as
+     * a zip archive directly to the output. The manifest is streamed
+     * into the first entry. The artifacts follow as one entry each,
+     * loaded in chunks of Backend.MAX_ARTIFACTS_PER_QUERY.
+     * @param user The identifier of the user or null.
+     * @param rows The rows of the exported collections.
+     * @param output The stream to write the archive to.
+     * @throws IOException Thrown if the export failed.
+     */
+    protected void writeCollectionsArchive(
+        String                  user,
+        List<Backend.ExportRow> rows,
+        OutputStream            output
+    )
+    throws IOException
+    {
+        ZipOutputStream zip = new ZipOutputStream(output);
+
+        zip.putNextEntry(
+            new ZipEntry(EXPORT_DIRECTORY + '/' + EXPORT_MANIFEST));
+        new ExportManifest(user, rows).write(zip);
+        zip.closeEntry();
+
+        Set<String> exported = new LinkedHashSet<String>();
+        for (Backend.ExportRow row: rows) {
+            if (row.getArtifactIdentifier() != null) {
+                exported.add(row.getArtifactIdentifier());
+            }
+        }
+
+        List<String> chunk = new ArrayList<String>(
+            Math.min(exported.size(), Backend.MAX_ARTIFACTS_PER_QUERY));
+
+        for (String identifier: exported) {
+            chunk.add(identifier);
+            if (chunk.size() == Backend.MAX_ARTIFACTS_PER_QUERY) {
+                writeExportedArtifacts(chunk, zip);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            writeExportedArtifacts(chunk, zip);
+        }
+
+        zip.finish();
+    }
+
+    /**
+     * Streams the manifest of an export archive. The rows of a
+     * collection are consecutive so each collection element is
+     * closed when the next collection starts.
+     */
+    protected static class ExportManifest
+    extends                DeferredListing
+    {
+        protected String                  user;
+        protected List<Backend.ExportRow> rows;
+
+        public ExportManifest(String user, List<Backend.ExportRow> rows) {
+            this.user = user;
+            this.rows = rows;
+        }
+
+        @Override
+        protected boolean writeListing() throws XMLStreamException {
+            startElement("export");
+            addAttr("version", String.valueOf(BinaryExport.VERSION));
+            if (user != null) {
+                addAttr("user", user);
+            }
+
+            String current = null;
+
+            for (Backend.ExportRow row: rows) {
+                if (!row.getCollectionIdentifier().equals(current)) {
+                    if (current != null) {
+                        endElement();
+                    }
+                    current = row.getCollectionIdentifier();
+                    startElement("collection");
+                    addAttr("uuid", current);
+                    addAttr("name", row.getCollectionName());
+                    writeTimes(
+                        row.getCollectionCreation(),
+                        row.getCollectionTTL());
+                    writeAttribute(row.getCollectionAttribute());
+                }
+
+                String artifact = row.getArtifactIdentifier();
+                if (artifact == null) { // empty collection
+                    continue;
+                }
+
+                startElement("item");
+                addAttr("uuid", artifact);
+                addAttr("factory", row.getFactoryName());
+                writeTimes(row.getItemCreation(), row.getArtifactTTL());
+                writeAttribute(row.getItemAttribute());
+                endElement();
+            }
+
+            if (current != null) {
+                endElement();
+            }
+
+            endElement();
+            return true;
+        }
+
+        protected void writeTimes(Timestamp creation, Long ttl)
+        throws XMLStreamException
+        {
+            if (creation != null) {
+                addAttr("creation", String.valueOf(creation.getTime()));
+            }
+            if (ttl != null) {
+                addAttr("ttl", String.valueOf(ttl));
+            }
+        }
+
+        protected void writeAttribute(byte [] data)
+        throws XMLStreamException
+        {
+            if (data == null) {
+                return;
+            }
+            Document attribute = XMLUtils.fromByteArray(data, true);
+            if (attribute == null || attribute.getDocumentElement() == null) {
+                return;
+            }
+            startElement("attribute");
+            writeNode(attribute.getDocumentElement());
+            endElement();
+        }
+    } // class ExportManifest
+
+    /**
+     * Loads a chunk of exported artifacts and writes each of
+     * them as an entry of the archive.
+     */
+    protected void writeExportedArtifacts(
+        List<String>    identifiers,
+        ZipOutputStream zip
+    )
+    throws IOException
+    {
+        Map<String, PersistentArtifact> loaded =
+            backend.getArtifacts(identifiers);
+
+        for (String identifier: identifiers) {
+            PersistentArtifact artifact = loaded.get(identifier);
+            if (artifact == null) {
+                throw new IOException("Cannot load artifact " + identifier);
+            }
+            zip.putNextEntry(new ZipEntry(
+                EXPORT_DIRECTORY + '/' + EXPORT_ARTIFACTS + '/'
+                + identifier + EXPORT_ARTIFACT_SUFFIX));
+            writeExportedArtifact(zip, artifact);
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * Cleans up an artifact like #exportBytes(String, String [])
+     * and writes it in the binary export format. The stream is
+     * not closed.
+     */
+    protected void writeExportedArtifact(
+        OutputStream       output,
+        PersistentArtifact persistentArtifact
+    )
+    throws IOException
+    {
+        ArtifactFactory factory  = persistentArtifact.getFactory();
+        Artifact        artifact = persistentArtifact.getArtifact();
+
+        artifact.cleanup(context);
+
+        BinaryExport.write(
+            new DataOutputStream(output),
+            factory.getName(),
+            factory.getSerializer().toBytes(artifact),
+            exportSecret);
+    }
+
+    /**
+     * Imports the collections of an archive. The archive is read
+     * as it arrives. Its size, the number of its entries and their
+     * extracted size are limited by the 'import' settings of the
+     * configuration. All artifacts are read and validated before
+     * the import is written to the database in a single transaction.
+     */
+    public Document importCollections(
+        String      user,
+        InputStream input,
+        CallMeta    callMeta
+    )
+    throws ArtifactDatabaseException
+    {
+        UserFactory userFactory = getUserFactory();
+
+        if (userFactory == null || collectionFactory == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_FACTORY);
+        }
+
+        if (backend.getUser(user, userFactory, context) == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_USER);
+        }
+
+        String manifestName = EXPORT_DIRECTORY + '/' + EXPORT_MANIFEST;
+        String artifactsDir = EXPORT_DIRECTORY + '/' + EXPORT_ARTIFACTS + '/';
+
+        List<Backend.ImportCollection> collections = null;
+
+        Map<String, BinaryExport.Entry> artifacts =
+            new HashMap<String, BinaryExport.Entry>();
+
+        try {
+            ZipInputStream zip = new ZipInputStream(
+                new LimitedInputStream(input, importMaxSize));
+
+            // Counts the extracted bytes of all entries.
+            InputStream content = new LimitedInputStream(zip, importMaxSize);
+
+            byte [] buffer = new byte[BinaryExport.CHUNK_SIZE];
+
+            int     count = 0;
+            ZipEntry entry;
+
+            while ((entry = zip.getNextEntry()) != null) {
+                if (++count > importMaxEntries) {
+                    throw new IOException(
+                        "Archive has more than " + importMaxEntries
+                        + " entries");
+                }
+
+                String name = entry.getName();
 
-        if (checksumString == null
-        || (checksumString = checksumString.trim()).length() == 0
-        || (checksum = StringUtils.decodeHex(checksumString)) == null
-        ) {
-            throw new ArtifactDatabaseException(INVALID_CHECKSUM);
-        }
+                if (name.equals(manifestName)) {
+                    ByteArrayOutputStream manifest =
+                        new ByteArrayOutputStream();
+                    int n;
+                    while ((n = content.read(buffer)) >= 0) {
+                        manifest.write(buffer, 0, n);
+                    }
 
-        checksumString = null;
+                    Document document = XMLUtils.parseDocument(
+                        new ByteArrayInputStream(manifest.toByteArray()));
 
-        String dataString = XMLUtils.xpathString(
-            input,
-            XPATH_IMPORT_DATA,
-            ArtifactNamespaceContext.INSTANCE);
+                    if (document == null) {
+                        throw new ArtifactDatabaseException(NO_DATA);
+                    }
 
-        if (dataString == null
-        || (dataString = dataString.trim()).length() == 0) {
+                    collections = readManifest(document);
+                }
+                else if (name.startsWith(artifactsDir)
+                && name.endsWith(EXPORT_ARTIFACT_SUFFIX)) {
+                    String identifier = name.substring(
+                        artifactsDir.length(),
+                        name.length() - EXPORT_ARTIFACT_SUFFIX.length());
+
+                    BinaryExport.Entry artifact = BinaryExport.read(
+                        new DataInputStream(content), exportSecret);
+
+                    if (getArtifactFactory(artifact.getFactoryName())
+                        == null) {
+                        logger.warn("No such factory: "
+                            + artifact.getFactoryName());
+                        throw new ArtifactDatabaseException(NO_SUCH_FACTORY);
+                    }
+
+                    artifacts.put(identifier, artifact);
+                }
+
+                // Skipped data counts, too.
+                while (content.read(buffer) >= 0) {
+                }
+            }
+        }
+        catch (IOException ioe) {
+            logger.warn(ioe.getLocalizedMessage(), ioe);
             throw new ArtifactDatabaseException(NO_DATA);
         }
 
-        byte [] data = Base64.decodeBase64(dataString);
-
-        dataString = null;
-
-        MessageDigest md;
-        try {
-            md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        if (collections == null) {
+            throw new ArtifactDatabaseException(NO_DATA);
         }
-        catch (NoSuchAlgorithmException nsae) {
-            logger.error(nsae.getLocalizedMessage(), nsae);
-            return XMLUtils.newDocument();
+
+        if (!backend.importCollections(
+            user, collections, artifacts, collectionFactory, context)
+        ) {
+            throw new ArtifactDatabaseException(COLLECTION_CREATION_FAILED);
         }
 
-        md.update(data);
-        md.update(exportSecret);
+        Document result = XMLUtils.newDocument();
 
-        byte [] digest = md.digest();
+        XMLUtils.ElementCreator ec = new XMLUtils.ElementCreator(
+            result,
+            ArtifactNamespaceContext.NAMESPACE_URI,
+            ArtifactNamespaceContext.NAMESPACE_PREFIX);
 
-        if (!Arrays.equals(checksum, digest)) {
-            throw new ArtifactDatabaseException(CHECKSUM_MISMATCH);
+        Element imported = ec.create("imported");
+        result.appendChild(imported);
+
+        for (Backend.ImportCollection collection: collections) {
+            Element element = ec.create("collection");
+            ec.addAttr(element, "uuid", collection.getIdentifier(), true);
+            ec.addAttr(element, "items",
+                String.valueOf(collection.getItems().size()), true);
+            imported.appendChild(element);
         }
 
-        ArtifactSerializer serializer = factory.getSerializer();
+        return result;
+    }
 
-        Artifact artifact = serializer.fromBytes(data); data = null;
+    /**
+     * Reads the collections and their items from the manifest
+     * of an export archive.
+     */
+    protected static List<Backend.ImportCollection> readManifest(
+        Document manifest
+    )
+    throws ArtifactDatabaseException
+    {
+        NodeList nodes = (NodeList)XMLUtils.xpath(
+            manifest,
+            XPATH_EXPORT_COLLECTIONS,
+            XPathConstants.NODESET,
+            ArtifactNamespaceContext.INSTANCE);
 
-        if (artifact == null) {
-            throw new ArtifactDatabaseException(INVALID_ARTIFACT);
+        if (nodes == null) {
+            throw new ArtifactDatabaseException(NO_DATA);
         }
 
-        artifact.setIdentifier(backend.newIdentifier());
-        PersistentArtifact persistentArtifact;
+        List<Backend.ImportCollection> collections =
+            new ArrayList<Backend.ImportCollection>(nodes.getLength());
+
+        for (int i = 0, N = nodes.getLength(); i < N; ++i) {
+            Node node = nodes.item(i);
+
+            Backend.ImportCollection collection =
+                new Backend.ImportCollection(
+                    manifestString(node, "@art:uuid"),
+                    manifestString(node, "@art:name"),
+                    manifestTime(node),
+                    manifestLong(node, "@art:ttl"),
+                    manifestAttribute(node));
+
+            NodeList items = (NodeList)XMLUtils.xpath(
+                node,
+                XPATH_EXPORT_ITEMS,
+                XPathConstants.NODESET,
+                ArtifactNamespaceContext.INSTANCE);
+
+            for (int j = 0, M = items != null ? items.getLength() : 0;
+                j < M; ++j
+            ) {
+                Node item = items.item(j);
+                collection.addItem(new Backend.ImportItem(
+                    manifestString(item, "@art:uuid"),
+                    manifestLong(item, "@art:ttl"),
+                    manifestTime(item),
+                    manifestAttribute(item)));
+            }
 
-        try {
-            persistentArtifact = backend.storeOrReplace(
-                artifact,
-                factory,
-                factory.timeToLiveUntouched(artifact, context));
-        }
-        catch (Exception e) {
-            logger.error(e.getLocalizedMessage(), e);
-            throw new ArtifactDatabaseException(CREATION_FAILED);
+            collections.add(collection);
         }
 
-        ArtifactCallContext cc = new ArtifactCallContext(
-            ArtifactDatabaseImpl.this,
-            CallContext.NOTHING,
-            callMeta,
-            persistentArtifact);
+        return collections;
+    }
+
+    protected static String manifestString(Node node, String xpath) {
+        String value = XMLUtils.xpathString(
+            node, xpath, ArtifactNamespaceContext.INSTANCE);
+        return value != null && (value = value.trim()).length() > 0
+            ? value
+            : null;
+    }
 
+    protected static Long manifestLong(Node node, String xpath)
+    throws ArtifactDatabaseException
+    {
+        String value = manifestString(node, xpath);
+        if (value == null) {
+            return null;
+        }
         try {
-            return artifact.describe(input, cc);
+            return Long.valueOf(value);
         }
-        finally {
-            cc.postCall();
+        catch (NumberFormatException nfe) {
+            throw new ArtifactDatabaseException(NO_DATA);
+        }
+    }
+
+    protected static Timestamp manifestTime(Node node)
+    throws ArtifactDatabaseException
+    {
+        Long creation = manifestLong(node, "@art:creation");
+        return new Timestamp(creation != null
+            ? creation
+            : System.currentTimeMillis());
+    }
+
+    protected static Document manifestAttribute(Node node) {
+        Node attribute = (Node)XMLUtils.xpath(
+            node,
+            XPATH_EXPORT_ATTRIBUTE,
+            XPathConstants.NODE,
+            ArtifactNamespaceContext.INSTANCE);
+
+        if (attribute == null) {
+            return null;
         }
+
+        Document document = XMLUtils.newDocument();
+        document.appendChild(document.importNode(attribute, true));
+        return document;
     }
 
     public String [][] serviceNamesAndDescriptions() {
@@ -1195,7 +2501,15 @@ implements   ArtifactDatabase,
             throw new ArtifactDatabaseException(NO_SUCH_SERVICE);
         }
 
-        return service.process(input, context, callMeta);
+        RequestTimings.tag(serviceName, "service");
+
+        Object event = enterCall();
+        try {
+            return service.process(input, context, callMeta);
+        }
+        finally {
+            exitCall(event, "process", serviceName, null);
+        }
     }
 
     // User API
@@ -1203,6 +2517,18 @@ implements   ArtifactDatabase,
     /** Returns user(s) elements. */
     public Document listUsers(CallMeta callMeta)
         throws ArtifactDatabaseException
+    {
+        return listUsers(0, null, callMeta);
+    }
+
+    /**
+     * Returns a page of user elements.
+     * @param limit Max. number of users. Values <= 0 mean no limit.
+     * @param after The cursor of the last user of the previous page
+     * or null to start at the beginning.
+     */
+    public Document listUsers(int limit, String after, CallMeta callMeta)
+        throws ArtifactDatabaseException
     {
         UserFactory factory = getUserFactory();
 
@@ -1210,7 +2536,9 @@ implements   ArtifactDatabase,
             throw new ArtifactDatabaseException(NO_SUCH_FACTORY);
         }
 
-        User [] users = backend.getUsers(factory, context);
+        Backend.Page page = newPage(limit, after, false);
+
+        User [] users = backend.getUsers(factory, context, page);
 
         if (users != null) {
             logger.debug(users.length + " users found in the backend.");
@@ -1245,9 +2573,126 @@ implements   ArtifactDatabase,
             }
         }
 
+        appendNext(ec, root, page);
+
         return result;
     }
 
+    /**
+     * Creates the page of a listing and checks its cursor.
+     * @param withCreation true if the cursor has to contain a creation
+     * time.
+     */
+    protected static Backend.Page newPage(
+        int     limit,
+        String  after,
+        boolean withCreation
+    )
+    throws ArtifactDatabaseException
+    {
+        Backend.Page page = new Backend.Page(limit, after);
+        if (!page.isValid(withCreation)) {
+            throw new ArtifactDatabaseException(INVALID_CURSOR);
+        }
+        return page;
+    }
+
+    /**
+     * Creates the page of a streamed listing. The page is fetched
+     * completely before it is written, so its size is capped by
+     * the configured max. page size. A 'next' cursor is written
+     * if the listing is longer.
+     * @param withCreation true if the cursor has to contain a creation
+     * time.
+     */
+    protected Backend.Page newStreamPage(
+        int     limit,
+        String  after,
+        boolean withCreation
+    )
+    throws ArtifactDatabaseException
+    {
+        if (listingMaxPage > 0 && (limit <= 0 || limit > listingMaxPage)) {
+            limit = listingMaxPage;
+        }
+        return newPage(limit, after, withCreation);
+    }
+
+    /**
+     * Appends a 'next' element with the cursor of the following page
+     * to a listing if there may be more elements to fetch.
+     */
+    protected static void appendNext(
+        XMLUtils.ElementCreator ec,
+        Element                 root,
+        Backend.Page            page
+    ) {
+        String next = page.getNext();
+        if (next != null) {
+            Element ne = ec.create("next");
+            ec.addAttr(ne, "after", next, true);
+            root.appendChild(ne);
+        }
+    }
+
+    /**
+     * Streaming variant of #listUsers(int, String, CallMeta). The users
+     * are written directly to the output stream with StAX. At most
+     * 'listings/@max-page' users are returned per call.
+     */
+    public DeferredOutput streamUsers(
+        int      limit,
+        String   after,
+        CallMeta callMeta
+    )
+        throws ArtifactDatabaseException
+    {
+        final UserFactory factory = getUserFactory();
+
+        if (factory == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_FACTORY);
+        }
+
+        final Backend.Page page = newStreamPage(limit, after, false);
+
+        // Fetch the page before the response is committed so that
+        // no connection is held while writing to the client.
+        final User [] users = backend.getUsers(factory, context, page);
+
+        if (users == null) {
+            throw new ArtifactDatabaseException(LISTING_FAILED);
+        }
+
+        return new DeferredListing() {
+            @Override
+            protected boolean writeListing() throws XMLStreamException {
+                startElement("users");
+
+                for (User user: users) {
+                    startElement("user");
+                    addAttr("uuid", user.identifier());
+                    addAttr("name", user.getName());
+                    startElement("account");
+                    addAttr("name", user.getAccount());
+                    endElement();
+
+                    Document role = user.getRole();
+
+                    if (role != null) {
+                        writeNode(role.getFirstChild());
+                    }
+
+                    endElement();
+                }
+
+                writeNext(page.getNext());
+                endElement();
+
+                return true;
+            }
+        };
+    }
+
     /** Search for a user. */
     public Document findUser(Document data, CallMeta callMeta)
         throws ArtifactDatabaseException
@@ -1452,6 +2897,24 @@ implements   ArtifactDatabase,
 
     public Document listCollections(String userId, CallMeta callMeta)
         throws ArtifactDatabaseException
+    {
+        return listCollections(userId, 0, null, callMeta);
+    }
+
+    /**
+     * Returns a page of the collections of a user ordered by
+     * creation time.
+     * @param limit Max. number of collections. Values <= 0 mean no limit.
+     * @param after The cursor of the last collection of the previous
+     * page or null to start at the beginning.
+     */
+    public Document listCollections(
+        String   userId,
+        int      limit,
+        String   after,
+        CallMeta callMeta
+    )
+        throws ArtifactDatabaseException
     {
         ArtifactCollectionFactory acf = getArtifactCollectionFactory();
         UserFactory               uf  = getUserFactory();
@@ -1460,13 +2923,16 @@ implements   ArtifactDatabase,
             throw new ArtifactDatabaseException(NO_SUCH_FACTORY);
         }
 
+        Backend.Page page = newPage(limit, after, true);
+
         logger.debug("Fetch the list of collection for user: " + userId);
 
         ArtifactCollection [] ac = backend.listCollections(
             userId,
             null, // XXX: fetch from REST
             acf, uf,
-            context);
+            context,
+            page);
 
         Document result = XMLUtils.newDocument();
 
@@ -1502,9 +2968,75 @@ implements   ArtifactDatabase,
             root.appendChild(collection);
         }
 
+        appendNext(ec, root, page);
+
         return result;
     }
 
+    /**
+     * Streaming variant of #listCollections(String, int, String, CallMeta).
+     * The collections are written directly to the output stream with
+     * StAX. At most 'listings/@max-page' collections are returned
+     * per call.
+     */
+    public DeferredOutput streamCollections(
+        final String userId,
+        int          limit,
+        String       after,
+        CallMeta     callMeta
+    )
+        throws ArtifactDatabaseException
+    {
+        final ArtifactCollectionFactory acf = getArtifactCollectionFactory();
+        final UserFactory               uf  = getUserFactory();
+
+        if (acf == null || uf == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_FACTORY);
+        }
+
+        final Backend.Page page = newStreamPage(limit, after, true);
+
+        logger.debug("Stream the list of collection for user: " + userId);
+
+        // Fetch the page before the response is committed so that
+        // no connection is held while writing to the client.
+        final ArtifactCollection [] collections = backend.listCollections(
+            userId,
+            null, // XXX: fetch from REST
+            acf, uf,
+            context,
+            page);
+
+        if (collections == null) {
+            throw new ArtifactDatabaseException(LISTING_FAILED);
+        }
+
+        return new DeferredListing() {
+            @Override
+            protected boolean writeListing() throws XMLStreamException {
+                startElement("artifact-collections");
+
+                for (ArtifactCollection c: collections) {
+                    Date creationTime = c.getCreationTime();
+
+                    startElement("artifact-collection");
+                    addAttr("name", c.getName());
+                    addAttr("uuid", c.identifier());
+                    addAttr("ttl",  String.valueOf(c.getTTL()));
+                    addAttr("creation", creationTime != null
+                        ? Long.toString(creationTime.getTime())
+                        : "");
+                    endElement();
+                }
+
+                writeNext(page.getNext());
+                endElement();
+
+                return true;
+            }
+        };
+    }
+
     public Document createCollection(String ownerId, Document data,
         CallMeta callMeta)
         throws ArtifactDatabaseException
@@ -1583,6 +3115,16 @@ implements   ArtifactDatabase,
 
     public Document describeCollection(String collectionId, CallMeta callMeta)
         throws ArtifactDatabaseException
+    {
+        return describeCollection(collectionId, callMeta, null);
+    }
+
+    public Document describeCollection(
+        String    collectionId,
+        CallMeta  callMeta,
+        Validator validator
+    )
+    throws ArtifactDatabaseException
     {
         logger.debug("Describe collection: " + collectionId);
         ArtifactCollectionFactory acf = getArtifactCollectionFactory();
@@ -1611,7 +3153,21 @@ implements   ArtifactDatabase,
             c);
 
         try {
-            return c.describe(cc);
+            if (validator != null
+            && validator.isValid(entityTag(collectionHash(c), callMeta))) {
+                return null;
+            }
+
+            RequestTimings.tag(acf.getName(), "collection-describe");
+
+            Object event = enterCall();
+            try {
+                return c.describe(cc);
+            }
+            finally {
+                exitCall(
+                    event, "collection-describe", acf.getName(), collectionId);
+            }
         }
         finally {
             cc.postCall();
@@ -1776,7 +3332,32 @@ implements   ArtifactDatabase,
     public Document listCollectionArtifacts(String collectionId,
         CallMeta callMeta) throws ArtifactDatabaseException
     {
-        CollectionItem[] items = backend.listCollectionArtifacts(collectionId);
+        return listCollectionArtifacts(collectionId, 0, null, callMeta);
+    }
+
+    /**
+     * Returns a page of the items of a collection ordered by the
+     * time they were added to the collection.
+     * @param limit Max. number of items. Values <= 0 mean no limit.
+     * @param after The cursor of the last item of the previous page
+     * or null to start at the beginning.
+     */
+    public Document listCollectionArtifacts(
+        String   collectionId,
+        int      limit,
+        String   after,
+        CallMeta callMeta
+    )
+        throws ArtifactDatabaseException
+    {
+        Backend.Page page = newPage(limit, after, true);
+
+        CollectionItem[] items =
+            backend.listCollectionArtifacts(collectionId, page);
+
+        if (items == null) {
+            throw new ArtifactDatabaseException(NO_SUCH_COLLECTION);
+        }
 
         Document result = XMLUtils.newDocument();
 
@@ -1808,11 +3389,71 @@ implements   ArtifactDatabase,
         }
 
         root.appendChild(ac);
+        appendNext(ec, root, page);
         result.appendChild(root);
 
         return result;
     }
 
+    /**
+     * Streaming variant of
+     * #listCollectionArtifacts(String, int, String, CallMeta).
+     * The items are written directly to the output stream with StAX.
+     * At most 'listings/@max-page' items are returned per call.
+     */
+    public DeferredOutput streamCollectionArtifacts(
+        final String collectionId,
+        int          limit,
+        String       after,
+        CallMeta     callMeta
+    )
+        throws ArtifactDatabaseException
+    {
+        if (!backend.isValidIdentifier(collectionId)) {
+            throw new ArtifactDatabaseException(NO_SUCH_COLLECTION);
+        }
+
+        final Backend.Page page = newStreamPage(limit, after, true);
+
+        // Fetch the page before the response is committed so that
+        // no connection is held while writing to the client.
+        final CollectionItem [] items =
+            backend.listCollectionArtifacts(collectionId, page);
+
+        if (items == null) {
+            throw new ArtifactDatabaseException(LISTING_FAILED);
+        }
+
+        return new DeferredListing() {
+            @Override
+            protected boolean writeListing() throws XMLStreamException {
+                startElement("result");
+                startElement("artifact-collection");
+                addAttr("uuid", collectionId);
+
+                for (CollectionItem item: items) {
+                    startElement("collection-item");
+                    addAttr("uuid", item.getArtifactIdentifier());
+                    startElement("attribute");
+
+                    Document attribute = item.getAttribute();
+                    if (attribute != null) {
+                        writeNode(attribute.getFirstChild());
+                    }
+
+                    endElement();
+                    endElement();
+                }
+
+                endElement();
+                writeNext(page.getNext());
+                endElement();
+
+                return true;
+            }
+        };
+    }
+
     public Document setCollectionTTL(String uuid, Document doc, CallMeta meta)
     throws ArtifactDatabaseException
     {
@@ -1932,6 +3573,8 @@ implements   ArtifactDatabase,
             throw new ArtifactDatabaseException(NO_SUCH_COLLECTION);
         }
 
+        RequestTimings.tag(acf.getName(), "collection-out");
+
         return new DeferredCollectionOutputImpl(c, type, format, callMeta);
     }
 
@@ -1961,24 +3604,44 @@ implements   ArtifactDatabase,
     }
 
     public void start() {
-        if (lifetimeListeners == null || lifetimeListeners.isEmpty()) {
-            return;
+        ManagementBeans.register(this, backend);
+
+        if (lifetimeListeners != null && !lifetimeListeners.isEmpty()) {
+            for (LifetimeListener ltl: lifetimeListeners) {
+                ltl.systemUp(context);
+            }
+
+            logger.debug("all lifetime listeners started");
         }
 
-        for (LifetimeListener ltl: lifetimeListeners) {
-            ltl.systemUp(context);
+        Runtime.getRuntime().addShutdownHook(
+            new Thread("artifact-database-shutdown") {
+                @Override
+                public void run() {
+                    shutdown();
+                }
+            });
+    }
+
+    /**
+     * Shuts the database down: the queued asynchronous hooks are
+     * executed and the queued notifications of the asynchronous
+     * backend listeners are delivered before the lifetime listeners
+     * are told that the system goes down.
+     * Called by the shutdown hook registered in #start().
+     */
+    public void shutdown() {
+        if (hookExecutor != null) {
+            hookExecutor.shutdown(HookExecutor.SHUTDOWN_TIMEOUT);
         }
 
-        logger.debug("all lifetime listeners started");
+        backend.shutdownListeners(AsyncBackendListener.SHUTDOWN_TIMEOUT);
 
-        Runtime.getRuntime().addShutdownHook(new Thread() {
-            @Override
-            public void run() {
-                for (LifetimeListener ltl: lifetimeListeners) {
-                    ltl.systemDown(context);
-                }
+        if (lifetimeListeners != null) {
+            for (LifetimeListener ltl: lifetimeListeners) {
+                ltl.systemDown(context);
             }
-        });
+        }
     }
     
     @Override
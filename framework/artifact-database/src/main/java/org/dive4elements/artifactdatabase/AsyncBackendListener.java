@@ -0,0 +1,647 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase;
+
+import org.dive4elements.artifactdatabase.metrics.Gauge;
+import org.dive4elements.artifactdatabase.metrics.Histogram;
+import org.dive4elements.artifactdatabase.metrics.Metrics;
+
+import org.dive4elements.artifacts.Artifact;
+import org.dive4elements.artifacts.ArtifactCollection;
+import org.dive4elements.artifacts.ArtifactCollectionFactory;
+import org.dive4elements.artifacts.ArtifactSerializer;
+import org.dive4elements.artifacts.GlobalContext;
+import org.dive4elements.artifacts.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.w3c.dom.Document;
+
+/**
+ * Decouples a backend listener from the threads changing the
+ * backend. The notifications are put into a bounded queue and
+ * handed over to the wrapped listener by a consumer thread of
+ * its own in the order they were made. It is enabled per listener
+ * in the configuration:
+ * <pre>
+ * &lt;backend-listeners&gt;
+ *   &lt;listener async="true" queue-size="1024"
+ *             backpressure="block"&gt;...&lt;/listener&gt;
+ * &lt;/backend-listeners&gt;
+ * </pre>
+ * If the queue is full the backpressure policy decides what happens
+ * with a new notification: 'block' waits for free space, 'drop'
+ * discards it and 'caller-runs' delivers it in the notifying thread
+ * after the notifications queued before it.
+ * <br>
+ * The Backend hands over the serialized artifacts and copies of the
+ * created collections, so the listener does not observe later
+ * modifications. Documents and identifier lists are copied, too.
+ * The queued notifications are delivered when the database
+ * shuts down (see #shutdown(long)).
+ */
+public class AsyncBackendListener
+implements   BackendListener
+{
+    private static Logger logger =
+        LogManager.getLogger(AsyncBackendListener.class);
+
+    public static final String BLOCK       = "block";
+    public static final String DROP        = "drop";
+    public static final String CALLER_RUNS = "caller-runs";
+
+    public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    /**
+     * Max. time (in ms) to wait for the delivery of the queued
+     * notifications when the JVM shuts down.
+     */
+    public static final long SHUTDOWN_TIMEOUT = 5000L;
+
+    /**
+     * Max. time (in ms) the consumer waits for a notification
+     * before it looks again.
+     */
+    public static final long POLL_INTERVAL = 1000L;
+
+    /**
+     * Histogram of the times the notifications wait in the queue.
+     */
+    public static final String LAG_HISTOGRAM = "d4e_listener_lag_seconds";
+
+    /**
+     * Histogram of the times the listener needs for a notification.
+     */
+    public static final String DISPATCH_HISTOGRAM = "d4e_listener_seconds";
+
+    public static final String DROPPED_COUNTER = "d4e_listener_dropped_total";
+
+    public static final String FAILED_COUNTER = "d4e_listener_failures_total";
+
+    static {
+        Metrics.help(LAG_HISTOGRAM,
+            "Time the notifications wait in the queue of a listener.");
+        Metrics.help(DISPATCH_HISTOGRAM,
+            "Time a listener needs for a notification.");
+        Metrics.help(DROPPED_COUNTER,
+            "Notifications dropped because the queue was full.");
+        Metrics.help(FAILED_COUNTER, "Notifications the listener failed on.");
+        Metrics.help("d4e_listener_queue_length",
+            "Notifications waiting in the queue of a listener.");
+    }
+
+    /**
+     * A queued notification.
+     */
+    protected abstract static class Event {
+
+        protected long enqueued;
+
+        protected abstract void dispatch(BackendListener listener);
+    } // class Event
+
+    protected BackendListener       listener;
+    protected BlockingQueue<Event>  queue;
+    protected String                backpressure;
+
+    protected Thread                consumer;
+
+    /**
+     * Held while a notification is taken from the queue and
+     * delivered. The caller-runs policy takes it to deliver the
+     * queued notifications before its own. Fair so the notifying
+     * thread is not overtaken by the consumer again and again.
+     */
+    protected ReentrantLock         dispatchLock;
+
+    protected volatile boolean      stopped;
+
+    /**
+     * Number of notifications which are queued or being delivered.
+     * Guarded by this.
+     */
+    protected long                  pending;
+
+    protected Histogram             lag;
+    protected Histogram             dispatched;
+    protected LongAdder             dropped;
+    protected LongAdder             failed;
+
+    public AsyncBackendListener(BackendListener listener) {
+        this(listener, DEFAULT_QUEUE_SIZE, BLOCK);
+    }
+
+    public AsyncBackendListener(
+        BackendListener listener,
+        int             queueSize,
+        String          backpressure
+    ) {
+        if (!BLOCK.equals(backpressure)
+        &&  !DROP.equals(backpressure)
+        &&  !CALLER_RUNS.equals(backpressure)) {
+            logger.warn("unknown backpressure policy '" + backpressure
+                + "'. Using '" + BLOCK + "'");
+            backpressure = BLOCK;
+        }
+
+        this.listener     = listener;
+        this.queue        = new ArrayBlockingQueue<Event>(
+            Math.max(1, queueSize));
+        this.backpressure = backpressure;
+        this.dispatchLock = new ReentrantLock(true);
+
+        String labels = Metrics.labels(
+            "listener", listener.getClass().getName());
+
+        lag        = Metrics.histogram(LAG_HISTOGRAM, labels);
+        dispatched = Metrics.histogram(DISPATCH_HISTOGRAM, labels);
+        dropped    = Metrics.counter(DROPPED_COUNTER, labels);
+        failed     = Metrics.counter(FAILED_COUNTER, labels);
+
+        Metrics.gauge("d4e_listener_queue_length", labels, new Gauge() {
+            @Override
+            public double value() {
+                return getQueueLength();
+            }
+        });
+    }
+
+    public BackendListener getListener() {
+        return listener;
+    }
+
+    public String getBackpressure() {
+        return backpressure;
+    }
+
+    /**
+     * @return The number of queued notifications.
+     */
+    public int getQueueLength() {
+        return queue.size();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Starts the consumer thread if not already running.
+     */
+    public synchronized void start() {
+        if (consumer != null) {
+            return;
+        }
+
+        consumer = new Thread(
+            "backend-listener-" + listener.getClass().getSimpleName()) {
+            @Override
+            public void run() {
+                consume();
+            }
+        };
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Delivers the queued notifications and stops the consumer
+     * thread. Notifications made afterwards are dropped.
+     * Called by the database when it shuts down.
+     * @param timeout Max. time to wait in ms.
+     */
+    public void shutdown(long timeout) {
+        if (!drain(timeout)) {
+            logger.warn("backend listener "
+                + listener.getClass().getName()
+                + " did not finish: " + getQueueLength()
+                + " notifications left");
+        }
+
+        stopped = true;
+
+        Thread c;
+        synchronized (this) {
+            c = consumer;
+        }
+        if (c != null) {
+            c.interrupt();
+        }
+    }
+
+    protected void consume() {
+        for (;;) {
+            try {
+                dispatchLock.lockInterruptibly();
+                try {
+                    // The lock is held while waiting. This only
+                    // delays a caller-runs delivery if the queue is
+                    // empty, and then there is none.
+                    Event event = queue.poll(
+                        POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (event != null) {
+                        deliver(event);
+                    }
+                }
+                finally {
+                    dispatchLock.unlock();
+                }
+            }
+            catch (InterruptedException ie) {
+                logger.debug("backend listener consumer interrupted");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands a notification over to the listener.
+     * Must be called with the dispatch lock held.
+     */
+    protected void deliver(Event event) {
+        long start = System.nanoTime();
+        lag.record(start - event.enqueued);
+        try {
+            event.dispatch(listener);
+        }
+        catch (RuntimeException re) {
+            failed.increment();
+            logger.error(re.getLocalizedMessage(), re);
+        }
+        finally {
+            dispatched.record(System.nanoTime() - start);
+            done();
+        }
+    }
+
+    /**
+     * Delivers the notifications queued so far and then the given
+     * one in the calling thread.
+     */
+    protected void runInCaller(Event event) {
+        dispatchLock.lock();
+        try {
+            // Only the ones which are already queued. Notifications
+            // made concurrently must not keep this thread busy.
+            for (int n = queue.size(); n > 0; --n) {
+                Event queued = queue.poll();
+                if (queued == null) {
+                    break;
+                }
+                deliver(queued);
+            }
+            deliver(event);
+        }
+        finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    protected synchronized void done() {
+        if (--pending == 0L) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until all queued notifications are delivered.
+     * @param timeout Max. time to wait in ms.
+     * @return true if all notifications were delivered.
+     */
+    public synchronized boolean drain(long timeout) {
+        long end = System.currentTimeMillis() + timeout;
+        while (pending > 0L) {
+            long left = end - System.currentTimeMillis();
+            if (left <= 0L) {
+                return false;
+            }
+            try {
+                wait(left);
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void submit(Event event) {
+        if (stopped) {
+            dropped.increment();
+            return;
+        }
+
+        synchronized (this) {
+            ++pending;
+        }
+        event.enqueued = System.nanoTime();
+
+        if (queue.offer(event)) {
+            return;
+        }
+
+        if (BLOCK.equals(backpressure)) {
+            try {
+                queue.put(event);
+                return;
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        else if (CALLER_RUNS.equals(backpressure)) {
+            runInCaller(event);
+            return;
+        }
+
+        dropped.increment();
+        done();
+
+        // Log the 1st, 2nd, 4th, 8th ... drop only.
+        long n = dropped.sum();
+        if ((n & (n - 1L)) == 0L) {
+            logger.warn("queue of backend listener "
+                + listener.getClass().getName() + " is full. "
+                + n + " notifications dropped so far.");
+        }
+    }
+
+    protected static Document copy(Document document) {
+        return document != null
+            ? (Document)document.cloneNode(true)
+            : null;
+    }
+
+    protected static List<String> copy(List<String> identifiers) {
+        return identifiers != null
+            ? new ArrayList<String>(identifiers)
+            : null;
+    }
+
+    /**
+     * Creates a copy of a collection which can be handed over to
+     * the consumer thread.
+     * @param collection The collection to copy.
+     * @param factory The factory which created the collection.
+     * @param context The context of the factory.
+     * @return The copy or the given collection if the factory
+     * failed to create one.
+     */
+    public static ArtifactCollection snapshot(
+        ArtifactCollection        collection,
+        ArtifactCollectionFactory factory,
+        Object                    context
+    ) {
+        if (collection == null || factory == null) {
+            return collection;
+        }
+
+        ArtifactCollection copy = factory.createCollection(
+            collection.identifier(),
+            collection.getName(),
+            collection.getCreationTime(),
+            collection.getTTL(),
+            copy(collection.getAttribute()),
+            context);
+
+        if (copy == null) {
+            return collection;
+        }
+
+        copy.setUser(collection.getUser());
+        return copy;
+    }
+
+    @Override
+    public void setup(GlobalContext globalContext) {
+        listener.setup(globalContext);
+        start();
+    }
+
+    @Override
+    public void createdArtifact(
+        final Artifact artifact,
+        final Backend  backend
+    ) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.createdArtifact(artifact, backend);
+            }
+        });
+    }
+
+    /**
+     * Notifies about a created artifact by its serialized form.
+     * The artifact is revived in the consumer thread.
+     */
+    public void createdArtifact(
+        final ArtifactSerializer serializer,
+        final byte []            bytes,
+        final Backend            backend
+    ) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.createdArtifact(serializer.fromBytes(bytes), backend);
+            }
+        });
+    }
+
+    @Override
+    public void storedArtifact(
+        final Artifact artifact,
+        final Backend  backend
+    ) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.storedArtifact(artifact, backend);
+            }
+        });
+    }
+
+    /**
+     * Notifies about a stored artifact by its serialized form.
+     * The artifact is revived in the consumer thread.
+     */
+    public void storedArtifact(
+        final ArtifactSerializer serializer,
+        final byte []            bytes,
+        final Backend            backend
+    ) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.storedArtifact(serializer.fromBytes(bytes), backend);
+            }
+        });
+    }
+
+    @Override
+    public void createdUser(final User user, final Backend backend) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.createdUser(user, backend);
+            }
+        });
+    }
+
+    @Override
+    public void deletedUser(final String identifier, final Backend backend) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.deletedUser(identifier, backend);
+            }
+        });
+    }
+
+    @Override
+    public void createdCollection(
+        final ArtifactCollection collection,
+        final Backend            backend
+    ) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.createdCollection(collection, backend);
+            }
+        });
+    }
+
+    @Override
+    public void deletedCollection(
+        final String  identifier,
+        final Backend backend
+    ) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.deletedCollection(identifier, backend);
+            }
+        });
+    }
+
+    @Override
+    public void changedCollectionAttribute(
+        final String   identifier,
+        Document       document,
+        final Backend  backend
+    ) {
+        final Document attribute = copy(document);
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.changedCollectionAttribute(identifier, attribute, backend);
+            }
+        });
+    }
+
+    @Override
+    public void changedCollectionItemAttribute(
+        final String   collectionId,
+        final String   artifactId,
+        Document       document,
+        final Backend  backend
+    ) {
+        final Document attribute = copy(document);
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.changedCollectionItemAttribute(
+                    collectionId, artifactId, attribute, backend);
+            }
+        });
+    }
+
+    @Override
+    public void addedArtifactToCollection(
+        final String  artifactId,
+        final String  collectionId,
+        final Backend backend
+    ) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.addedArtifactToCollection(artifactId, collectionId, backend);
+            }
+        });
+    }
+
+    @Override
+    public void removedArtifactFromCollection(
+        final String  artifactId,
+        final String  collectionId,
+        final Backend backend
+    ) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.removedArtifactFromCollection(
+                    artifactId, collectionId, backend);
+            }
+        });
+    }
+
+    @Override
+    public void setCollectionName(
+        final String collectionId,
+        final String name
+    ) {
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.setCollectionName(collectionId, name);
+            }
+        });
+    }
+
+    @Override
+    public void killedCollections(
+        List<String>  identifiers,
+        final Backend backend
+    ) {
+        final List<String> ids = copy(identifiers);
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.killedCollections(ids, backend);
+            }
+        });
+    }
+
+    @Override
+    public void killedArtifacts(
+        List<String>  identifiers,
+        final Backend backend
+    ) {
+        final List<String> ids = copy(identifiers);
+        submit(new Event() {
+            @Override
+            protected void dispatch(BackendListener l) {
+                l.killedArtifacts(ids, backend);
+            }
+        });
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase;
+
+import org.dive4elements.artifacts.Artifact;
+import org.dive4elements.artifacts.CallContext;
+import org.dive4elements.artifacts.Hook;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Marks a hook which is declared to run asynchronously:
+ * <pre>
+ * &lt;hook applies="post-feed" class="..." async="true"/&gt;
+ * </pre>
+ * The artifact database does not execute it inline but hands it
+ * over to its HookExecutor together with a copy of the result
+ * document and the identifier of the artifact once the call has
+ * stored the artifact. The hook is then executed with the artifact
+ * freshly fetched from the backend and a call context of its own,
+ * so values put into the context of the original call are not
+ * visible to it.
+ */
+public class AsyncHook
+implements   Hook
+{
+    protected Hook hook;
+
+    public AsyncHook(Hook hook) {
+        this.hook = hook;
+    }
+
+    public Hook getHook() {
+        return hook;
+    }
+
+    @Override
+    public void setup(Node config) {
+        hook.setup(config);
+    }
+
+    @Override
+    public void execute(
+        Artifact    artifact,
+        CallContext context,
+        Document    document
+    ) {
+        hook.execute(artifact, context, document);
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
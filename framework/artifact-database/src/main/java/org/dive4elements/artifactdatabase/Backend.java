@@ -24,17 +24,47 @@ import org.dive4elements.artifacts.common.utils.LRUCache;
 import org.dive4elements.artifactdatabase.db.SQLExecutor;
 import org.dive4elements.artifactdatabase.db.SQL;
 
+import org.dive4elements.artifactdatabase.jfr.FlightEvents;
+
+import org.dive4elements.artifactdatabase.metrics.Metrics;
+import org.dive4elements.artifactdatabase.metrics.RequestTimings;
+
+import java.nio.charset.StandardCharsets;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.codec.binary.Hex;
+
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -56,6 +86,11 @@ implements   DatabaseCleaner.ArtifactReviver
      */
     public String SQL_NEXT_ID;
 
+    /**
+     * The SQL statement to create a block of new artifact ids.
+     */
+    public String SQL_NEXT_IDS;
+
     /**
      * The SQL statement to insert an artifact into the database.
      */
@@ -79,6 +114,18 @@ implements   DatabaseCleaner.ArtifactReviver
      */
     public String SQL_LOAD_BY_GID;
 
+    /**
+     * The SQL statement to load several artifacts by their
+     * identifiers from the database. The placeholder $GIDS$
+     * is replaced by the bind parameters of the identifiers.
+     */
+    public String SQL_LOAD_BY_GIDS;
+
+    /**
+     * The bind parameter of a single identifier in SQL_LOAD_BY_GIDS.
+     */
+    public String SQL_LOAD_BY_GIDS_PARAM;
+
     /**
      * The SQL statement to get the database id of an artifact
      * identified by the identifier.
@@ -101,6 +148,8 @@ implements   DatabaseCleaner.ArtifactReviver
     public String SQL_USERS_DELETE_ID;
     public String SQL_USERS_DELETE_COLLECTIONS;
     public String SQL_USERS_SELECT_ALL;
+    public String SQL_USERS_SELECT_PAGE_FIRST;
+    public String SQL_USERS_SELECT_PAGE_AFTER;
     public String SQL_USERS_COLLECTIONS;
     public String SQL_USERS_COLLECTION_IDS;
     public String SQL_USERS_DELETE_ALL_COLLECTIONS;
@@ -111,9 +160,14 @@ implements   DatabaseCleaner.ArtifactReviver
     public String SQL_OUTDATE_ARTIFACTS_USER;
     public String SQL_DELETE_USER_COLLECTION_ITEMS;
     public String SQL_COLLECTIONS_NEXT_ID;
+    public String SQL_COLLECTIONS_NEXT_IDS;
     public String SQL_COLLECTIONS_INSERT;
     public String SQL_COLLECTIONS_SELECT_USER;
     public String SQL_COLLECTIONS_SELECT_ALL;
+    public String SQL_COLLECTIONS_SELECT_USER_PAGE_FIRST;
+    public String SQL_COLLECTIONS_SELECT_USER_PAGE_AFTER;
+    public String SQL_COLLECTIONS_SELECT_ALL_PAGE_FIRST;
+    public String SQL_COLLECTIONS_SELECT_ALL_PAGE_AFTER;
     public String SQL_COLLECTIONS_SELECT_GID;
     public String SQL_COLLECTIONS_CREATION_TIME;
     public String SQL_COLLECTIONS_ID_BY_GID;
@@ -122,6 +176,7 @@ implements   DatabaseCleaner.ArtifactReviver
     public String SQL_DELETE_COLLECTION;
     public String SQL_COLLECTION_CHECK_ARTIFACT;
     public String SQL_COLLECTION_ITEMS_ID_NEXTVAL;
+    public String SQL_COLLECTION_ITEMS_ID_NEXTVALS;
     public String SQL_COLLECTION_ITEMS_INSERT;
     public String SQL_COLLECTION_GET_ATTRIBUTE;
     public String SQL_COLLECTION_SET_ATTRIBUTE;
@@ -133,9 +188,49 @@ implements   DatabaseCleaner.ArtifactReviver
     public String SQL_COLLECTION_ITEM_DELETE;
     public String SQL_COLLECTIONS_TOUCH_BY_ID;
     public String SQL_COLLECTION_ITEMS_LIST_GID;
+    public String SQL_COLLECTION_ITEMS_DIGEST;
+    public String SQL_COLLECTION_ITEMS_LIST_GID_PAGE_FIRST;
+    public String SQL_COLLECTION_ITEMS_LIST_GID_PAGE_AFTER;
+    public String SQL_COLLECTIONS_INSERT_IMPORT;
+    public String SQL_COLLECTION_ITEMS_INSERT_IMPORT;
+    public String SQL_COLLECTIONS_EXPORT_USER;
+    public String SQL_COLLECTIONS_EXPORT_GID;
     public String SQL_ALL_ARTIFACTS;
     public String SQL_FIND_USER_BY_ARTIFACT;
 
+    /**
+     * Number of rows fetched at once when traversing large listings.
+     */
+    public static final int LISTING_FETCH_SIZE = 256;
+
+    /**
+     * Max. number of artifacts loaded with a single query
+     * by #getArtifacts(Collection).
+     */
+    public static final int MAX_ARTIFACTS_PER_QUERY = 500;
+
+    /**
+     * Number of rows collected before a batch is sent to the
+     * database by #importCollections.
+     */
+    public static final int IMPORT_BATCH_SIZE = 50;
+
+    /**
+     * Counter of the bytes written and read by the serializers.
+     */
+    public static final String SERIALIZER_BYTES =
+        "d4e_serializer_bytes_total";
+
+    static {
+        Metrics.help(SERIALIZER_BYTES,
+            "Bytes written and read by the artifact serializers.");
+    }
+
+    /**
+     * Threads to deserialize several loaded artifacts in parallel.
+     */
+    private static ExecutorService deserializers;
+
     /** The singleton.*/
     protected static Backend instance;
 
@@ -160,6 +255,13 @@ implements   DatabaseCleaner.ArtifactReviver
      */
     protected FactoryLookup   factoryLookup;
 
+    /**
+     * Number of artifacts created, stored and touched since start.
+     */
+    protected LongAdder artifactsCreated;
+    protected LongAdder artifactsStored;
+    protected LongAdder artifactsTouched;
+
     /**
      * Little helper interface to decouple the ArtifactDatabase
      * from the Backend. A ArtifactDatabase should depend on a
@@ -177,6 +279,280 @@ implements   DatabaseCleaner.ArtifactReviver
 
     } // interface FactoryLookup
 
+    /**
+     * Callback to process the rows of a listing one by one while
+     * the underlying result set is traversed. This allows streaming
+     * of large listings without collecting them in memory first.
+     */
+    public interface Visitor<T> {
+
+        /**
+         * Called for each element of the listing.
+         * @param element The current element.
+         * @return true if the traversal should go on else false.
+         */
+        boolean visit(T element);
+
+    } // interface Visitor
+
+    /**
+     * Describes a window of a listing: at most 'limit' elements
+     * following the keyset cursor 'after'. Collections and collection
+     * items are ordered by (creation, gid) and their cursors are of
+     * the form 'creation-millis.nanos:gid'. The nanos are the full
+     * fractional second of the creation timestamp so that rows
+     * created in the same millisecond are not skipped. Users have no creation time so
+     * they are ordered by gid and their cursor is the gid alone.
+     * After the traversal #getNext() returns the cursor of the
+     * following page or null if the listing is exhausted.
+     */
+    public static final class Page
+    {
+        private int       limit;
+        private String    after;
+        private Timestamp afterCreation;
+        private String    afterIdentifier;
+        private String    next;
+
+        /**
+         * @param limit Max. number of elements. Values <= 0 mean
+         * no limit.
+         * @param after The cursor after which the page starts or null
+         * to start at the beginning.
+         */
+        public Page(int limit, String after) {
+            this.limit = limit;
+            this.after = after;
+
+            if (after != null) {
+                int idx = after.indexOf(':');
+                if (idx < 0) {
+                    afterIdentifier = after;
+                }
+                else {
+                    afterCreation   = parseCreation(after.substring(0, idx));
+                    afterIdentifier = after.substring(idx + 1);
+                }
+            }
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public String getAfter() {
+            return after;
+        }
+
+        public String getNext() {
+            return next;
+        }
+
+        /**
+         * Checks if the cursor is well formed.
+         * @param withCreation true if the cursor has to contain
+         * a creation time.
+         */
+        public boolean isValid(boolean withCreation) {
+            return after == null
+                || (StringUtils.checkUUID(afterIdentifier)
+                    && (!withCreation || afterCreation != null));
+        }
+
+        /**
+         * Returns true if the whole listing is requested.
+         */
+        public boolean isUnbounded() {
+            return limit <= 0 && after == null;
+        }
+
+        protected int effectiveLimit() {
+            return limit > 0 ? limit : Integer.MAX_VALUE;
+        }
+
+        /**
+         * Records the cursor of the last visited element. If the page
+         * is full it becomes the cursor of the next page.
+         */
+        protected void visited(int count, String cursor) {
+            next = limit > 0 && count >= limit ? cursor : null;
+        }
+
+        protected static Timestamp parseCreation(String creation) {
+            try {
+                int dot = creation.indexOf('.');
+                if (dot < 0) {
+                    return new Timestamp(Long.parseLong(creation));
+                }
+                int nanos = Integer.parseInt(creation.substring(dot + 1));
+                if (nanos < 0 || nanos > 999999999) {
+                    logger.debug("Invalid cursor nanos: '" + creation + "'");
+                    return null;
+                }
+                Timestamp timestamp = new Timestamp(
+                    Long.parseLong(creation.substring(0, dot)));
+                timestamp.setNanos(nanos);
+                return timestamp;
+            }
+            catch (NumberFormatException nfe) {
+                logger.debug("Invalid cursor: '" + creation + "'");
+            }
+            return null;
+        }
+
+        public Timestamp getAfterCreation() {
+            return afterCreation;
+        }
+
+        public String getAfterIdentifier() {
+            return afterIdentifier;
+        }
+
+        /**
+         * Builds the cursor of an element of a listing.
+         * @param creation The creation time of the element as read
+         * from the database. It has to be the full timestamp including
+         * the nanos.
+         * @param identifier The identifier of the element.
+         */
+        public static String cursor(Timestamp creation, String identifier) {
+            return creation.getTime() + "." + creation.getNanos()
+                + ":" + identifier;
+        }
+    } // class Page
+
+    /**
+     * A row of the export of collections: a collection together
+     * with one of its items. The item part is null if the
+     * collection has no items. The attributes are the compressed
+     * database representations. The serialized artifacts are not
+     * part of the rows. They are fetched afterwards in chunks
+     * with #getArtifacts(Collection).
+     */
+    public static final class ExportRow
+    {
+        private String    collectionIdentifier;
+        private String    collectionName;
+        private Timestamp collectionCreation;
+        private Long      collectionTTL;
+        private byte []   collectionAttribute;
+        private String    artifactIdentifier;
+        private String    factoryName;
+        private Long      artifactTTL;
+        private Timestamp itemCreation;
+        private byte []   itemAttribute;
+
+        private ExportRow() {
+        }
+
+        public String getCollectionIdentifier() {
+            return collectionIdentifier;
+        }
+
+        public String getCollectionName() {
+            return collectionName;
+        }
+
+        public Timestamp getCollectionCreation() {
+            return collectionCreation;
+        }
+
+        public Long getCollectionTTL() {
+            return collectionTTL;
+        }
+
+        public byte [] getCollectionAttribute() {
+            return collectionAttribute;
+        }
+
+        public String getArtifactIdentifier() {
+            return artifactIdentifier;
+        }
+
+        public String getFactoryName() {
+            return factoryName;
+        }
+
+        public Long getArtifactTTL() {
+            return artifactTTL;
+        }
+
+        public Timestamp getItemCreation() {
+            return itemCreation;
+        }
+
+        public byte [] getItemAttribute() {
+            return itemAttribute;
+        }
+    } // class ExportRow
+
+    /**
+     * An item of an imported collection.
+     */
+    public static final class ImportItem
+    {
+        private String    artifactIdentifier;
+        private Long      artifactTTL;
+        private Timestamp creation;
+        private Document  attribute;
+
+        public ImportItem(
+            String    artifactIdentifier,
+            Long      artifactTTL,
+            Timestamp creation,
+            Document  attribute
+        ) {
+            this.artifactIdentifier = artifactIdentifier;
+            this.artifactTTL        = artifactTTL;
+            this.creation           = creation;
+            this.attribute          = attribute;
+        }
+
+        public String getArtifactIdentifier() {
+            return artifactIdentifier;
+        }
+    } // class ImportItem
+
+    /**
+     * A collection to be imported with its items.
+     */
+    public static final class ImportCollection
+    {
+        private String           identifier;
+        private String           name;
+        private Timestamp        creation;
+        private Long             ttl;
+        private Document         attribute;
+        private List<ImportItem> items;
+
+        public ImportCollection(
+            String    identifier,
+            String    name,
+            Timestamp creation,
+            Long      ttl,
+            Document  attribute
+        ) {
+            this.identifier = identifier;
+            this.name       = name;
+            this.creation   = creation;
+            this.ttl        = ttl;
+            this.attribute  = attribute;
+            items           = new ArrayList<ImportItem>();
+        }
+
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        public void addItem(ImportItem item) {
+            items.add(item);
+        }
+
+        public List<ImportItem> getItems() {
+            return items;
+        }
+    } // class ImportCollection
+
     /**
      * Inner class that brigdes between the persisten form of the
      * artifact and the living one inside the artifact database.
@@ -189,7 +565,10 @@ implements   DatabaseCleaner.ArtifactReviver
         private int                id;
         private Artifact           artifact;
         private ArtifactSerializer serializer;
+        private ArtifactFactory    factory;
         private Long               ttl;
+        private byte []            bytes;
+        private String             digest;
 
         /**
          * Cronstructor to create a persistent artifact.
@@ -211,6 +590,24 @@ implements   DatabaseCleaner.ArtifactReviver
             this.ttl        = ttl;
         }
 
+        /**
+         * Cronstructor to create a persistent artifact which
+         * remembers the factory which created it.
+         * @param artifact The living artifact.
+         * @param factory  The factory which created the artifact.
+         * @param ttl The time to life of the artifact.
+         * @param id The database id of the artifact.
+         */
+        public PersistentArtifact(
+            Artifact        artifact,
+            ArtifactFactory factory,
+            Long            ttl,
+            int             id
+        ) {
+            this(artifact, factory.getSerializer(), ttl, id);
+            this.factory = factory;
+        }
+
         public int getId() {
             return id;
         }
@@ -232,6 +629,14 @@ implements   DatabaseCleaner.ArtifactReviver
             return serializer;
         }
 
+        /**
+         * Returns the factory which created the artifact.
+         * @return The factory or null if it is not known.
+         */
+        public ArtifactFactory getFactory() {
+            return factory;
+        }
+
         /**
          * The time to life of the artifact.
          * @return The time to live.
@@ -240,6 +645,31 @@ implements   DatabaseCleaner.ArtifactReviver
             return ttl;
         }
 
+        /**
+         * Returns a digest of the serialized artifact as it was
+         * loaded from or last written to the database. It changes
+         * whenever the stored state of the artifact changes.
+         * @return The hex encoded digest or null if the stored
+         * form of the artifact is not known.
+         */
+        public String getDigest() {
+            if (digest == null && bytes != null) {
+                digest = Backend.digest(bytes);
+                bytes  = null;
+            }
+            return digest;
+        }
+
+        /**
+         * Remembers the serialized form of the artifact in the
+         * database to build the digest from it on demand.
+         * @param bytes The stored bytes.
+         */
+        protected void setStored(byte [] bytes) {
+            this.bytes  = bytes;
+            this.digest = null;
+        }
+
         /**
          * Stores the living artifact back into the database.
          */
@@ -265,7 +695,10 @@ implements   DatabaseCleaner.ArtifactReviver
      * Default constructor
      */
     public Backend() {
-        listeners = new CopyOnWriteArrayList<BackendListener>();
+        listeners        = new CopyOnWriteArrayList<BackendListener>();
+        artifactsCreated = new LongAdder();
+        artifactsStored  = new LongAdder();
+        artifactsTouched = new LongAdder();
     }
 
     public Backend(DBConfig config) {
@@ -308,10 +741,13 @@ implements   DatabaseCleaner.ArtifactReviver
 
     protected void setupSQL(SQL sql) {
         SQL_NEXT_ID = sql.get("artifacts.id.nextval");
+        SQL_NEXT_IDS = sql.get("artifacts.id.nextvals");
         SQL_INSERT = sql.get("artifacts.insert");
         SQL_UPDATE = sql.get("artifacts.update");
         SQL_TOUCH = sql.get("artifacts.touch");
         SQL_LOAD_BY_GID = sql.get("artifacts.select.gid");
+        SQL_LOAD_BY_GIDS = sql.get("artifacts.select.gids");
+        SQL_LOAD_BY_GIDS_PARAM = sql.get("artifacts.select.gids.param");
         SQL_GET_ID = sql.get("artifacts.get.id");
         SQL_REPLACE = sql.get("artifacts.replace");
         SQL_USERS_NEXT_ID = sql.get("users.id.nextval");
@@ -322,6 +758,8 @@ implements   DatabaseCleaner.ArtifactReviver
         SQL_USERS_DELETE_ID = sql.get("users.delete.id");
         SQL_USERS_DELETE_COLLECTIONS = sql.get("users.delete.collections");
         SQL_USERS_SELECT_ALL = sql.get("users.select.all");
+        SQL_USERS_SELECT_PAGE_FIRST = sql.get("users.select.page.first");
+        SQL_USERS_SELECT_PAGE_AFTER = sql.get("users.select.page.after");
         SQL_USERS_COLLECTIONS = sql.get("users.collections");
         SQL_USERS_COLLECTION_IDS = sql.get("users.collection.ids");
         SQL_USERS_DELETE_ALL_COLLECTIONS =
@@ -336,9 +774,18 @@ implements   DatabaseCleaner.ArtifactReviver
         SQL_DELETE_USER_COLLECTION_ITEMS =
             sql.get("delete.user.collection.items");
         SQL_COLLECTIONS_NEXT_ID = sql.get("collections.id.nextval");
+        SQL_COLLECTIONS_NEXT_IDS = sql.get("collections.id.nextvals");
         SQL_COLLECTIONS_INSERT = sql.get("collections.insert");
         SQL_COLLECTIONS_SELECT_USER = sql.get("collections.select.user");
         SQL_COLLECTIONS_SELECT_ALL = sql.get("collections.select.all");
+        SQL_COLLECTIONS_SELECT_USER_PAGE_FIRST =
+            sql.get("collections.select.user.page.first");
+        SQL_COLLECTIONS_SELECT_USER_PAGE_AFTER =
+            sql.get("collections.select.user.page.after");
+        SQL_COLLECTIONS_SELECT_ALL_PAGE_FIRST =
+            sql.get("collections.select.all.page.first");
+        SQL_COLLECTIONS_SELECT_ALL_PAGE_AFTER =
+            sql.get("collections.select.all.page.after");
         SQL_COLLECTIONS_SELECT_GID = sql.get("collections.select.by.gid");
         SQL_COLLECTIONS_CREATION_TIME = sql.get("collection.creation.time");
         SQL_COLLECTIONS_OLDEST_ARTIFACT = sql.get("collections.artifacts.oldest");
@@ -348,6 +795,8 @@ implements   DatabaseCleaner.ArtifactReviver
         SQL_COLLECTION_CHECK_ARTIFACT = sql.get("collection.check.artifact");
         SQL_COLLECTION_ITEMS_ID_NEXTVAL =
             sql.get("collection.items.id.nextval");
+        SQL_COLLECTION_ITEMS_ID_NEXTVALS =
+            sql.get("collection.items.id.nextvals");
         SQL_COLLECTION_ITEMS_INSERT = sql.get("collection.items.insert");
         SQL_COLLECTION_GET_ATTRIBUTE = sql.get("collection.get.attribute");
         SQL_COLLECTION_SET_ATTRIBUTE = sql.get("collection.set.attribute");
@@ -362,6 +811,16 @@ implements   DatabaseCleaner.ArtifactReviver
         SQL_COLLECTION_ITEM_DELETE = sql.get("collection.item.delete");
         SQL_COLLECTIONS_TOUCH_BY_ID = sql.get("collections.touch.by.id");
         SQL_COLLECTION_ITEMS_LIST_GID = sql.get("collection.items.list.gid");
+        SQL_COLLECTION_ITEMS_DIGEST = sql.get("collection.items.digest");
+        SQL_COLLECTION_ITEMS_LIST_GID_PAGE_FIRST =
+            sql.get("collection.items.list.gid.page.first");
+        SQL_COLLECTION_ITEMS_LIST_GID_PAGE_AFTER =
+            sql.get("collection.items.list.gid.page.after");
+        SQL_COLLECTIONS_INSERT_IMPORT = sql.get("collections.insert.import");
+        SQL_COLLECTION_ITEMS_INSERT_IMPORT =
+            sql.get("collection.items.insert.import");
+        SQL_COLLECTIONS_EXPORT_USER = sql.get("collections.export.user");
+        SQL_COLLECTIONS_EXPORT_GID = sql.get("collections.export.gid");
         SQL_ALL_ARTIFACTS = sql.get("all.artifacts");
         SQL_FIND_USER_BY_ARTIFACT = sql.get("find.user.by.artifact");        
     }
@@ -393,6 +852,62 @@ implements   DatabaseCleaner.ArtifactReviver
         this.cleaner = cleaner;
     }
 
+    /**
+     * @return The database cleaner or null if it is not set.
+     */
+    public DatabaseCleaner getCleaner() {
+        return cleaner;
+    }
+
+    /**
+     * @return The number of listeners notified about changes.
+     */
+    public int getListenerCount() {
+        return listeners.size();
+    }
+
+    /**
+     * Delivers the queued notifications of the asynchronous
+     * listeners and stops them. Called when the database
+     * shuts down.
+     * @param timeout Max. time to wait in ms for each listener.
+     */
+    public void shutdownListeners(long timeout) {
+        for (BackendListener listener: listeners) {
+            if (listener instanceof AsyncBackendListener) {
+                ((AsyncBackendListener)listener).shutdown(timeout);
+            }
+        }
+    }
+
+    /**
+     * Waits until the asynchronous listeners have delivered
+     * their queued notifications.
+     * @param timeout Max. time to wait in ms for each listener.
+     * @return true if all notifications were delivered.
+     */
+    public boolean drainListeners(long timeout) {
+        boolean drained = true;
+        for (BackendListener listener: listeners) {
+            if (listener instanceof AsyncBackendListener) {
+                drained &= ((AsyncBackendListener)listener).drain(timeout);
+            }
+        }
+        return drained;
+    }
+
+    public long getArtifactsCreated() {
+        return artifactsCreated.sum();
+    }
+
+    public long getArtifactsStored() {
+        return artifactsStored.sum();
+    }
+
+    public long getArtifactsTouched() {
+        return artifactsTouched.sum();
+    }
+
     /**
      * Returns a new unique identifier to external identify
      * the artifact across the system. This implementation
@@ -427,7 +942,7 @@ implements   DatabaseCleaner.ArtifactReviver
     {
         return new PersistentArtifact(
             artifact,
-            factory.getSerializer(),
+            factory,
             ttl,
             insertDatabase(artifact, factory, ttl));
     }
@@ -452,7 +967,7 @@ implements   DatabaseCleaner.ArtifactReviver
     {
         return new PersistentArtifact(
             artifact,
-            factory.getSerializer(),
+            factory,
             ttl,
             storeOrReplaceDatabase(artifact, factory, ttl));
     }
@@ -483,7 +998,9 @@ implements   DatabaseCleaner.ArtifactReviver
      * to be able to write back a modifaction later or null
      * if no artifact is found for this identifier.
      */
-    public PersistentArtifact getArtifact(String identifer) {
+    public PersistentArtifact getArtifact(final String identifer) {
+
+        final Object event = FlightEvents.beginBackend();
 
         return (PersistentArtifact)loadArtifact(
             identifer,
@@ -495,15 +1012,303 @@ implements   DatabaseCleaner.ArtifactReviver
                     byte []         bytes,
                     int             id
                 ) {
-                    ArtifactSerializer serializer = factory.getSerializer();
+                    Artifact artifact;
+                    RequestTimings.enter(RequestTimings.LOAD_DESERIALIZE);
+                    try {
+                        artifact = fromBytes(factory, bytes);
+                    }
+                    finally {
+                        RequestTimings.exit();
+                    }
+
+                    FlightEvents.endBackend(
+                        event,
+                        "load",
+                        factory.getName(),
+                        identifer,
+                        bytes != null ? bytes.length : 0L);
+
+                    if (artifact == null) {
+                        return null;
+                    }
+
+                    PersistentArtifact pa =
+                        new PersistentArtifact(artifact, factory, ttl, id);
+                    pa.setStored(bytes);
+                    return pa;
+                }
+            });
+    }
 
-                    Artifact artifact = serializer.fromBytes(bytes);
+    /**
+     * Fetches several artifacts from the database. The raw data
+     * of the artifacts is loaded with one query (per
+     * MAX_ARTIFACTS_PER_QUERY identifiers) and the artifacts are
+     * deserialized in parallel.
+     * @param identifiers The identifiers of the artifacts.
+     * @return Persistent wrappers around the found artifacts keyed
+     * by their identifiers in the order of the given identifiers.
+     * Artifacts which are not found are missing in the map.
+     */
+    public Map<String, PersistentArtifact> getArtifacts(
+        Collection<String> identifiers
+    ) {
+        Map<String, PersistentArtifact> artifacts =
+            new LinkedHashMap<String, PersistentArtifact>();
 
-                    return artifact == null
-                        ? null
-                        : new PersistentArtifact(artifact, serializer, ttl, id);
+        if (factoryLookup == null) {
+            logger.error("factory lookup == null");
+            return artifacts;
+        }
+
+        // filter out duplicates and invalid identifiers
+        Set<String> gids = new LinkedHashSet<String>();
+        for (String identifier: identifiers) {
+            if (isValidIdentifier(identifier)) {
+                gids.add(identifier);
+            }
+        }
+
+        if (gids.isEmpty()) {
+            return artifacts;
+        }
+
+        List<RawArtifact> raws = new ArrayList<RawArtifact>(gids.size());
+
+        List<String> chunk = new ArrayList<String>(MAX_ARTIFACTS_PER_QUERY);
+
+        RequestTimings.enter(RequestTimings.LOAD_SQL);
+        try {
+            for (String gid: gids) {
+                chunk.add(gid);
+                if (chunk.size() == MAX_ARTIFACTS_PER_QUERY) {
+                    if (!loadRawArtifacts(chunk, raws)) {
+                        return artifacts;
+                    }
+                    chunk.clear();
+                }
+            }
+
+            if (!chunk.isEmpty() && !loadRawArtifacts(chunk, raws)) {
+                return artifacts;
+            }
+        }
+        finally {
+            RequestTimings.exit();
+        }
+
+        Map<String, PersistentArtifact> loaded;
+        RequestTimings.enter(RequestTimings.LOAD_DESERIALIZE);
+        try {
+            loaded = deserialize(raws);
+        }
+        finally {
+            RequestTimings.exit();
+        }
+
+        for (String gid: gids) {
+            PersistentArtifact artifact = loaded.get(gid.toLowerCase());
+            if (artifact != null) {
+                artifacts.put(gid, artifact);
+            }
+        }
+
+        return artifacts;
+    }
+
+    /**
+     * The raw database data of an artifact.
+     */
+    private static final class RawArtifact {
+
+        String          gid;
+        int             id;
+        Long            ttl;
+        ArtifactFactory factory;
+        byte []         bytes;
+
+        RawArtifact() {
+        }
+    } // class RawArtifact
+
+    private boolean loadRawArtifacts(
+        final List<String>      gids,
+        final List<RawArtifact> raws
+    ) {
+        StringBuilder params = new StringBuilder();
+        for (int i = 0, N = gids.size(); i < N; ++i) {
+            if (i > 0) {
+                params.append(", ");
+            }
+            params.append(SQL_LOAD_BY_GIDS_PARAM);
+        }
+
+        final String query = SQL_LOAD_BY_GIDS.replace(
+            "$GIDS$", params.toString());
+
+        SQLExecutor.Instance exec =
+            sqlExecutor.new Instance("artifacts.select.gids") {
+            public boolean doIt() throws SQLException {
+                prepareStatement(query);
+
+                int idx = 1;
+                for (String gid: gids) {
+                    stmnt.setString(idx++, gid);
+                }
+
+                result = executeQuery();
+
+                while (next()) {
+                    RawArtifact raw = new RawArtifact();
+                    // uuids are returned in lower case
+                    raw.gid = result.getString(1).toLowerCase();
+                    raw.id  = result.getInt(2);
+                    long ttlX = result.getLong(3);
+                    raw.ttl = result.wasNull() ? null : ttlX;
+
+                    String factoryName = result.getString(4);
+
+                    raw.factory = factoryLookup
+                        .getArtifactFactory(factoryName);
+
+                    if (raw.factory == null) {
+                        logger.error(
+                            "factory '" + factoryName + "' not found");
+                        continue;
+                    }
+
+                    raw.bytes = result.getBytes(5);
+                    raws.add(raw);
+                }
+                return true;
+            }
+        };
+
+        return exec.runRead();
+    }
+
+    private static synchronized ExecutorService getDeserializers() {
+        if (deserializers == null) {
+            deserializers = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    private int count;
+                    @Override
+                    public synchronized Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(
+                            runnable, "artifact-deserializer-" + ++count);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+        return deserializers;
+    }
+
+    private PersistentArtifact deserialize(RawArtifact raw) {
+        Object event = FlightEvents.beginBackend();
+
+        Artifact artifact = fromBytes(raw.factory, raw.bytes);
+
+        FlightEvents.endBackend(
+            event,
+            "load",
+            raw.factory.getName(),
+            raw.gid,
+            raw.bytes != null ? raw.bytes.length : 0L);
+
+        if (artifact == null) {
+            return null;
+        }
+
+        PersistentArtifact pa =
+            new PersistentArtifact(artifact, raw.factory, raw.ttl, raw.id);
+        pa.setStored(raw.bytes);
+        return pa;
+    }
+
+    private Map<String, PersistentArtifact> deserialize(
+        List<RawArtifact> raws
+    ) {
+        Map<String, PersistentArtifact> artifacts =
+            new HashMap<String, PersistentArtifact>();
+
+        if (raws.size() == 1) {
+            RawArtifact raw = raws.get(0);
+            PersistentArtifact artifact = deserialize(raw);
+            if (artifact != null) {
+                artifacts.put(raw.gid, artifact);
+            }
+            return artifacts;
+        }
+
+        List<Callable<PersistentArtifact>> jobs =
+            new ArrayList<Callable<PersistentArtifact>>(raws.size());
+
+        for (final RawArtifact raw: raws) {
+            jobs.add(new Callable<PersistentArtifact>() {
+                @Override
+                public PersistentArtifact call() {
+                    return deserialize(raw);
                 }
             });
+        }
+
+        List<Future<PersistentArtifact>> futures;
+        try {
+            futures = getDeserializers().invokeAll(jobs);
+        }
+        catch (InterruptedException ie) {
+            logger.warn("interrupted while deserializing artifacts. "
+                + "Deserializing them in the calling thread.");
+            Thread.currentThread().interrupt();
+            futures = null;
+        }
+
+        for (int i = 0, N = raws.size(); i < N; ++i) {
+            RawArtifact raw = raws.get(i);
+            PersistentArtifact artifact = futures != null
+                ? deserialized(futures.get(i), raw)
+                : deserialize(raw);
+            if (artifact != null) {
+                artifacts.put(raw.gid, artifact);
+            }
+        }
+
+        return artifacts;
+    }
+
+    /**
+     * Fetches the result of a parallel deserialization. Failures
+     * are propagated like those of a single load.
+     * @param future The completed deserialization.
+     * @param raw The raw artifact to deserialize in the calling
+     * thread if the deserialization did not complete.
+     */
+    private PersistentArtifact deserialized(
+        Future<PersistentArtifact> future,
+        RawArtifact                raw
+    ) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return deserialize(raw);
+        }
+        catch (CancellationException ce) {
+            return deserialize(raw);
+        }
+        catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
+        }
     }
 
     /**
@@ -533,9 +1338,9 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_LOAD_BY_GID);
                 stmnt.setString(1, identifer);
 
-                result = stmnt.executeQuery();
+                result = executeQuery();
 
-                if (!result.next()) {
+                if (!next()) {
                     return false;
                 }
 
@@ -560,7 +1365,13 @@ implements   DatabaseCleaner.ArtifactReviver
             }
         };
 
-        return exec.runRead() ? loaded[0] : null;
+        RequestTimings.enter(RequestTimings.LOAD_SQL);
+        try {
+            return exec.runRead() ? loaded[0] : null;
+        }
+        finally {
+            RequestTimings.exit();
+        }
     }
 
     /**
@@ -591,9 +1402,7 @@ implements   DatabaseCleaner.ArtifactReviver
             return null;
         }
 
-        ArtifactSerializer serializer = factory.getSerializer();
-
-        return serializer.fromBytes(bytes);
+        return fromBytes(factory, bytes);
     }
 
     /**
@@ -619,14 +1428,20 @@ implements   DatabaseCleaner.ArtifactReviver
         final int     [] id     = new int[1];
         final boolean [] stored = new boolean[1];
 
+        Object event = FlightEvents.beginBackend();
+
+        // Serialize before the connection is borrowed so that
+        // a slow serializer does not hold it.
+        final byte [] data = serialize(factory, artifact);
+
         SQLExecutor.Instance exec = sqlExecutor.new Instance() {
             public boolean doIt() throws SQLException {
 
                 prepareStatement(SQL_GET_ID);
                 stmnt.setString(1, uuid);
-                result = stmnt.executeQuery();
+                result = executeQuery();
 
-                Integer ID = result.next()
+                Integer ID = next()
                     ? Integer.valueOf(result.getInt(1))
                     : null;
 
@@ -643,26 +1458,25 @@ implements   DatabaseCleaner.ArtifactReviver
                     }
 
                     stmnt.setString(2, factory.getName());
-                    stmnt.setBytes(
-                        3,
-                        factory.getSerializer().toBytes(artifact));
+                    stmnt.setBytes(3, data);
                     id[0] = ID.intValue();
                     stmnt.setInt(4, id[0]);
                 }
                 else { // new artifact
                     prepareStatement(SQL_NEXT_ID);
-                    result = stmnt.executeQuery();
+                    result = executeQuery();
 
-                    if (!result.next()) {
+                    if (!next()) {
                         logger.error("No id generated");
                         return false;
                     }
 
+                    id[0] = result.getInt(1);
+
                     reset();
 
                     prepareStatement(SQL_INSERT);
 
-                    id[0] = result.getInt(1);
                     stmnt.setInt(1, id[0]);
                     stmnt.setString(2, uuid);
                     if (ttl == null) {
@@ -673,26 +1487,27 @@ implements   DatabaseCleaner.ArtifactReviver
                     }
 
                     stmnt.setString(4, factory.getName());
-
-                    stmnt.setBytes(
-                        5,
-                        factory.getSerializer().toBytes(artifact));
+                    stmnt.setBytes(5, data);
                 }
-                stmnt.execute();
+                execute();
                 conn.commit();
                 return true;
             }
         };
 
-        if (!exec.runWrite()) {
+        boolean success = runStore(exec);
+        FlightEvents.endBackend(
+            event, "store", factory.getName(), uuid, data.length);
+
+        if (!success) {
             throw new RuntimeException("failed insert artifact into database");
         }
 
         if (stored[0]) {
-            fireStoredArtifact(artifact);
+            fireStoredArtifact(artifact, factory.getSerializer(), data);
         }
         else {
-            fireCreatedArtifact(artifact);
+            fireCreatedArtifact(artifact, factory.getSerializer(), data);
         }
 
         return id[0];
@@ -712,13 +1527,17 @@ implements   DatabaseCleaner.ArtifactReviver
     ) {
         final int [] id = new int[1];
 
+        Object event = FlightEvents.beginBackend();
+
+        final byte [] data = serialize(factory, artifact);
+
         SQLExecutor.Instance exec = sqlExecutor.new Instance() {
             @Override
             public boolean doIt() throws SQLException {
                 prepareStatement(SQL_NEXT_ID);
-                result = stmnt.executeQuery();
+                result = executeQuery();
 
-                if (!result.next()) {
+                if (!next()) {
                     logger.error("No id generated");
                     return false;
                 }
@@ -739,30 +1558,51 @@ implements   DatabaseCleaner.ArtifactReviver
                 }
 
                 stmnt.setString(4, factory.getName());
+                stmnt.setBytes(5, data);
 
-                stmnt.setBytes(
-                    5,
-                    factory.getSerializer().toBytes(artifact));
-
-                stmnt.execute();
+                execute();
 
                 conn.commit();
                 return true;
             }
         };
 
-        if (!exec.runWrite()) {
+        boolean success = runStore(exec);
+        FlightEvents.endBackend(
+            event, "create", factory.getName(), artifact.identifier(),
+            data.length);
+
+        if (!success) {
             throw new RuntimeException("failed insert artifact into database");
         }
 
-        fireCreatedArtifact(artifact);
+        fireCreatedArtifact(artifact, factory.getSerializer(), data);
 
         return id[0];
     }
 
-    protected void fireCreatedArtifact(Artifact artifact) {
+    /**
+     * Notifies the listeners about a created artifact. The
+     * asynchronous listeners get the serialized form instead of
+     * the living artifact.
+     * @param artifact The created artifact.
+     * @param serializer The serializer of the artifact.
+     * @param bytes The serialized artifact as stored.
+     */
+    protected void fireCreatedArtifact(
+        Artifact           artifact,
+        ArtifactSerializer serializer,
+        byte []            bytes
+    ) {
+        artifactsCreated.increment();
         for (BackendListener listener: listeners) {
-            listener.createdArtifact(artifact, this);
+            if (bytes != null && listener instanceof AsyncBackendListener) {
+                ((AsyncBackendListener)listener)
+                    .createdArtifact(serializer, bytes, this);
+            }
+            else {
+                listener.createdArtifact(artifact, this);
+            }
         }
     }
 
@@ -772,15 +1612,28 @@ implements   DatabaseCleaner.ArtifactReviver
      * @param artifact The persistent wrapper around the living artifact.
      */
     public void touch(final PersistentArtifact artifact) {
-        sqlExecutor.new Instance() {
+        Object event = FlightEvents.beginBackend();
+
+        boolean success = sqlExecutor.new Instance() {
             public boolean doIt() throws SQLException {
                 prepareStatement(SQL_TOUCH);
                 stmnt.setInt(1, artifact.getId());
-                stmnt.execute();
+                execute();
                 conn.commit();
                 return true;
             }
         }.runWrite();
+
+        if (success) {
+            artifactsTouched.increment();
+        }
+
+        FlightEvents.endBackend(
+            event,
+            "touch",
+            factoryName(artifact),
+            artifact.getArtifact().identifier(),
+            0L);
     }
 
     /**
@@ -789,30 +1642,154 @@ implements   DatabaseCleaner.ArtifactReviver
      * artifact.
      */
     public void store(final PersistentArtifact artifact) {
-        boolean success = sqlExecutor.new Instance() {
+        final String factoryName = factoryName(artifact);
+
+        Object event = FlightEvents.beginBackend();
+
+        final byte [] bytes = serialize(
+            artifact.getSerializer(),
+            factoryName,
+            artifact.getArtifact());
+
+        boolean success = runStore(sqlExecutor.new Instance() {
             public boolean doIt() throws SQLException {
                 prepareStatement(SQL_UPDATE);
                 stmnt.setInt(2, artifact.getId());
-
-                byte [] bytes = artifact
-                    .getSerializer()
-                    .toBytes(artifact.getArtifact());
-
                 stmnt.setBytes(1, bytes);
-                stmnt.execute();
+                execute();
                 conn.commit();
                 return true;
             }
-        }.runWrite();
+        });
+
+        FlightEvents.endBackend(
+            event,
+            "store",
+            factoryName,
+            artifact.getArtifact().identifier(),
+            bytes.length);
 
         if (success) {
-            fireStoredArtifact(artifact.getArtifact());
+            artifact.setStored(bytes);
+            fireStoredArtifact(
+                artifact.getArtifact(), artifact.getSerializer(), bytes);
+        }
+    }
+
+    /**
+     * Builds the hex encoded digest of stored artifact data.
+     * @param bytes The serialized artifact.
+     * @return The digest or null if the digest algorithm is
+     * not available.
+     */
+    protected static String digest(byte [] bytes) {
+        try {
+            MessageDigest md = MessageDigest.getInstance(
+                ArtifactDatabaseImpl.DIGEST_ALGORITHM);
+            return Hex.encodeHexString(md.digest(bytes));
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            logger.error(nsae.getLocalizedMessage(), nsae);
+            return null;
+        }
+    }
+
+    protected static String factoryName(PersistentArtifact artifact) {
+        ArtifactFactory factory = artifact.getFactory();
+        return factory != null ? factory.getName() : null;
+    }
+
+    /**
+     * Serializes an artifact to be stored. The time needed is
+     * recorded as the serialize phase of the current request.
+     */
+    protected static byte [] serialize(
+        ArtifactFactory factory,
+        Artifact        artifact
+    ) {
+        return serialize(
+            factory.getSerializer(), factory.getName(), artifact);
+    }
+
+    /**
+     * Serializes an artifact to be stored.
+     * @param serializer The serializer of the artifact.
+     * @param factoryName The name of the factory of the artifact
+     * (may be null).
+     * @param artifact The artifact to serialize.
+     */
+    protected static byte [] serialize(
+        ArtifactSerializer serializer,
+        String             factoryName,
+        Artifact           artifact
+    ) {
+        byte [] bytes;
+        RequestTimings.enter(RequestTimings.STORE_SERIALIZE);
+        try {
+            bytes = serializer.toBytes(artifact);
+        }
+        finally {
+            RequestTimings.exit();
+        }
+        if (bytes != null) {
+            Metrics.counter(SERIALIZER_BYTES, Metrics.labels(
+                "factory",   factoryName,
+                "direction", "out")).add(bytes.length);
+        }
+        return bytes;
+    }
+
+    /**
+     * Deserializes a loaded artifact.
+     */
+    protected static Artifact fromBytes(
+        ArtifactFactory factory,
+        byte []         bytes
+    ) {
+        if (bytes != null) {
+            Metrics.counter(SERIALIZER_BYTES, Metrics.labels(
+                "factory",   factory.getName(),
+                "direction", "in")).add(bytes.length);
+        }
+        return factory.getSerializer().fromBytes(bytes);
+    }
+
+    /**
+     * Runs a write execution which stores artifacts. The time
+     * needed is recorded as the SQL phase of the current request.
+     */
+    protected static boolean runStore(SQLExecutor.Instance exec) {
+        RequestTimings.enter(RequestTimings.STORE_SQL);
+        try {
+            return exec.runWrite();
+        }
+        finally {
+            RequestTimings.exit();
         }
     }
 
-    protected void fireStoredArtifact(Artifact artifact) {
+    /**
+     * Notifies the listeners about a stored artifact. The
+     * asynchronous listeners get the serialized form instead of
+     * the living artifact.
+     * @param artifact The stored artifact.
+     * @param serializer The serializer of the artifact.
+     * @param bytes The serialized artifact as stored.
+     */
+    protected void fireStoredArtifact(
+        Artifact           artifact,
+        ArtifactSerializer serializer,
+        byte []            bytes
+    ) {
+        artifactsStored.increment();
         for (BackendListener listener: listeners) {
-            listener.storedArtifact(artifact, this);
+            if (bytes != null && listener instanceof AsyncBackendListener) {
+                ((AsyncBackendListener)listener)
+                    .storedArtifact(serializer, bytes, this);
+            }
+            else {
+                listener.storedArtifact(artifact, this);
+            }
         }
     }
 
@@ -832,9 +1809,9 @@ implements   DatabaseCleaner.ArtifactReviver
             public boolean doIt() throws SQLException {
 
                 prepareStatement(SQL_USERS_NEXT_ID);
-                result = stmnt.executeQuery();
+                result = executeQuery();
 
-                if (!result.next()) {
+                if (!next()) {
                     return false;
                 }
 
@@ -858,7 +1835,7 @@ implements   DatabaseCleaner.ArtifactReviver
                     stmnt.setBytes(5, roleData);
                 }
 
-                stmnt.execute();
+                execute();
                 conn.commit();
 
                 user[0] = factory.createUser(
@@ -894,9 +1871,9 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_USERS_SELECT_ID_BY_GID);
 
                 stmnt.setString(1, identifier);
-                result = stmnt.executeQuery();
+                result = executeQuery();
 
-                if (!result.next()) { // No such user
+                if (!next()) { // No such user
                     return false;
                 }
 
@@ -909,7 +1886,7 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_OUTDATE_ARTIFACTS_USER);
                 stmnt.setInt(1, id);
                 stmnt.setInt(2, id);
-                stmnt.execute();
+                execute();
 
                 reset();
 
@@ -917,7 +1894,7 @@ implements   DatabaseCleaner.ArtifactReviver
 
                 prepareStatement(SQL_DELETE_USER_COLLECTION_ITEMS);
                 stmnt.setInt(1, id);
-                stmnt.execute();
+                execute();
 
                 reset();
 
@@ -925,7 +1902,7 @@ implements   DatabaseCleaner.ArtifactReviver
 
                 prepareStatement(SQL_USERS_DELETE_COLLECTIONS);
                 stmnt.setInt(1, id);
-                stmnt.execute();
+                execute();
 
                 reset();
 
@@ -933,7 +1910,7 @@ implements   DatabaseCleaner.ArtifactReviver
 
                 prepareStatement(SQL_USERS_DELETE_ID);
                 stmnt.setInt(1, id);
-                stmnt.execute();
+                execute();
 
                 conn.commit();
                 return true;
@@ -971,8 +1948,8 @@ implements   DatabaseCleaner.ArtifactReviver
             public boolean doIt() throws SQLException {
                 prepareStatement(SQL_USERS_SELECT_GID);
                 stmnt.setString(1, identifier);
-                result = stmnt.executeQuery();
-                if (!result.next()) { // no such user
+                result = executeQuery();
+                if (!next()) { // no such user
                     return false;
                 }
                 // omit id
@@ -1010,8 +1987,8 @@ implements   DatabaseCleaner.ArtifactReviver
             public boolean doIt() throws SQLException {
                 prepareStatement(SQL_USERS_SELECT_ACCOUNT);
                 stmnt.setString(1, account);
-                result = stmnt.executeQuery();
-                if (!result.next()) { // no such user
+                result = executeQuery();
+                if (!next()) { // no such user
                     logger.debug("No user found.");
                     return false;
                 }
@@ -1047,11 +2024,11 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(Backend.this.SQL_FIND_USER_BY_ARTIFACT);
                 this.stmnt.setString(1, artifactGid);
 
-                this.result = this.stmnt.executeQuery();
+                this.result = executeQuery();
 
                 // final HashMap<String, LazyBackendUser> users = new HashMap<String, LazyBackendUser>();
 
-                while (this.result.next()) {
+                while (this.next()) {
                     // final String userIdentifier = this.result.getString(1);
                     final String userName = this.result.getString(2);
 
@@ -1071,18 +2048,78 @@ implements   DatabaseCleaner.ArtifactReviver
         return null;
     }    
 
-    public User [] getUsers(
-        final UserFactory factory,
-        final Object      context
+    public User [] getUsers(
+        final UserFactory factory,
+        final Object      context
+    ) {
+        return getUsers(factory, context, null);
+    }
+
+    public User [] getUsers(
+        final UserFactory factory,
+        final Object      context,
+        final Page        page
+    ) {
+        final ArrayList<User> users = new ArrayList<User>();
+
+        return visitUsers(factory, context, page, new Visitor<User>() {
+            public boolean visit(User user) {
+                users.add(user);
+                return true;
+            }
+        })
+            ? users.toArray(new User[users.size()])
+            : null;
+    }
+
+    public boolean visitUsers(
+        final UserFactory   factory,
+        final Object        context,
+        final Visitor<User> visitor
+    ) {
+        return visitUsers(factory, context, null, visitor);
+    }
+
+    /**
+     * Traverses the users row by row using a database cursor.
+     * @param factory The factory to create the users.
+     * @param context The global context.
+     * @param page The window of the listing to traverse. null means
+     * all users.
+     * @param visitor The callback which is called for each user.
+     * @return true if the traversal succeeded else false.
+     */
+    public boolean visitUsers(
+        final UserFactory   factory,
+        final Object        context,
+        final Page          page,
+        final Visitor<User> visitor
     ) {
-        final ArrayList<User> users = new ArrayList<User>();
+        if (page != null && !page.isValid(false)) {
+            logger.debug("Invalid cursor: '" + page.getAfter() + "'");
+            return false;
+        }
 
         SQLExecutor.Instance exec = sqlExecutor.new Instance() {
             public boolean doIt() throws SQLException {
-                prepareStatement(SQL_USERS_SELECT_ALL);
-                result = stmnt.executeQuery();
+                if (page == null || page.isUnbounded()) {
+                    prepareListing(this, SQL_USERS_SELECT_ALL);
+                }
+                else if (page.getAfter() == null) {
+                    prepareListing(this, SQL_USERS_SELECT_PAGE_FIRST);
+                    stmnt.setInt(1, page.effectiveLimit());
+                }
+                else {
+                    prepareListing(this, SQL_USERS_SELECT_PAGE_AFTER);
+                    stmnt.setString(1, page.afterIdentifier);
+                    stmnt.setInt(2, page.effectiveLimit());
+                }
+                result = executeQuery();
 
-                while (result.next()) {
+                int    count  = 0;
+                String cursor = null;
+
+                while (next()) {
                     // omit id
                     String  identifier = result.getString(2);
                     String  name       = result.getString(3);
@@ -1092,15 +2129,41 @@ implements   DatabaseCleaner.ArtifactReviver
                     Document role = XMLUtils.fromByteArray(roleData, true);
                     User user = factory.createUser(
                         identifier, name, account, role, context);
-                    users.add(user);
+
+                    ++count;
+                    cursor = identifier;
+
+                    if (!visitor.visit(user)) {
+                        cursor = null;
+                        break;
+                    }
+                }
+
+                if (page != null) {
+                    page.visited(count, cursor);
                 }
                 return true;
             }
         };
 
-        return exec.runRead()
-            ? users.toArray(new User[users.size()])
-            : null;
+        return exec.runRead();
+    }
+
+    /**
+     * Prepares a statement for a potentially large listing.
+     * The auto commit mode is switched off and a fetch size is set
+     * to enable the JDBC drivers to use server side cursors
+     * instead of materializing the whole result set.
+     */
+    protected static void prepareListing(
+        SQLExecutor.Instance exec,
+        String               query
+    )
+    throws SQLException
+    {
+        exec.conn.setAutoCommit(false);
+        exec.prepareStatement(query);
+        exec.stmnt.setFetchSize(LISTING_FETCH_SIZE);
     }
 
     public ArtifactCollection createCollection(
@@ -1129,9 +2192,9 @@ implements   DatabaseCleaner.ArtifactReviver
                 // fetch owner id
                 prepareStatement(SQL_USERS_SELECT_ID_BY_GID);
                 stmnt.setString(1, ownerIdentifier);
-                result = stmnt.executeQuery();
+                result = executeQuery();
 
-                if (!result.next()) { // no such user
+                if (!next()) { // no such user
                     return false;
                 }
 
@@ -1140,9 +2203,9 @@ implements   DatabaseCleaner.ArtifactReviver
 
                 // fetch new collection seq number.
                 prepareStatement(SQL_COLLECTIONS_NEXT_ID);
-                result = stmnt.executeQuery();
+                result = executeQuery();
 
-                if (!result.next()) { // no identifier generated
+                if (!next()) { // no identifier generated
                     return false;
                 }
 
@@ -1175,7 +2238,7 @@ implements   DatabaseCleaner.ArtifactReviver
                     stmnt.setBytes(6, data);
                 }
 
-                stmnt.execute();
+                execute();
                 conn.commit();
 
                 reset();
@@ -1187,11 +2250,11 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_COLLECTIONS_CREATION_TIME);
                 stmnt.setInt(1, id);
 
-                result = stmnt.executeQuery();
+                result = executeQuery();
 
                 Date creationTime = null;
 
-                if (result.next()) {
+                if (next()) {
                     Timestamp timestamp = result.getTimestamp(1);
                     creationTime = new Date(timestamp.getTime());
                 }
@@ -1211,15 +2274,36 @@ implements   DatabaseCleaner.ArtifactReviver
         boolean success = exec.runWrite();
 
         if (success) {
-            fireCreatedCollection(collection[0]);
+            fireCreatedCollection(collection[0], factory, context);
             return collection[0];
         }
         return null;
     }
 
-    protected void fireCreatedCollection(ArtifactCollection collection) {
+    /**
+     * Notifies the listeners about a created collection. The
+     * asynchronous listeners get a copy of the collection.
+     * @param collection The created collection.
+     * @param factory The factory which created the collection.
+     * @param context The context of the factory.
+     */
+    protected void fireCreatedCollection(
+        ArtifactCollection        collection,
+        ArtifactCollectionFactory factory,
+        Object                    context
+    ) {
+        ArtifactCollection snapshot = null;
         for (BackendListener listener: listeners) {
-            listener.createdCollection(collection, this);
+            if (listener instanceof AsyncBackendListener) {
+                if (snapshot == null) {
+                    snapshot = AsyncBackendListener.snapshot(
+                        collection, factory, context);
+                }
+                listener.createdCollection(snapshot, this);
+            }
+            else {
+                listener.createdCollection(collection, this);
+            }
         }
     }
 
@@ -1242,8 +2326,8 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_COLLECTIONS_SELECT_GID);
                 stmnt.setString(1, collectionId);
 
-                result = stmnt.executeQuery();
-                if (!result.next()) {
+                result = executeQuery();
+                if (!next()) {
                     logger.debug("No such collection");
                     return false;
                 }
@@ -1287,38 +2371,129 @@ implements   DatabaseCleaner.ArtifactReviver
         final ArtifactCollectionFactory collectionFactory,
         final UserFactory               userFactory,
         final Object                    context
+    ) {
+        return listCollections(
+            ownerIdentifier, data, collectionFactory, userFactory,
+            context, null);
+    }
+
+    public ArtifactCollection [] listCollections(
+        final String                    ownerIdentifier,
+        final Document                  data,
+        final ArtifactCollectionFactory collectionFactory,
+        final UserFactory               userFactory,
+        final Object                    context,
+        final Page                      page
+    ) {
+        final ArrayList<ArtifactCollection> collections =
+            new ArrayList<ArtifactCollection>();
+
+        return visitCollections(
+            ownerIdentifier,
+            data,
+            collectionFactory,
+            userFactory,
+            context,
+            page,
+            new Visitor<ArtifactCollection>() {
+                public boolean visit(ArtifactCollection collection) {
+                    collections.add(collection);
+                    return true;
+                }
+            })
+            ? collections.toArray(new ArtifactCollection[collections.size()])
+            : null;
+    }
+
+    public boolean visitCollections(
+        final String                      ownerIdentifier,
+        final Document                    data,
+        final ArtifactCollectionFactory   collectionFactory,
+        final UserFactory                 userFactory,
+        final Object                      context,
+        final Visitor<ArtifactCollection> visitor
+    ) {
+        return visitCollections(
+            ownerIdentifier, data, collectionFactory, userFactory,
+            context, null, visitor);
+    }
+
+    /**
+     * Traverses the collections of a user (or all collections if
+     * no owner is given) row by row using a database cursor.
+     * @param page The window of the listing to traverse. null means
+     * all collections.
+     * @return true if the traversal succeeded else false.
+     */
+    public boolean visitCollections(
+        final String                      ownerIdentifier,
+        final Document                    data,
+        final ArtifactCollectionFactory   collectionFactory,
+        final UserFactory                 userFactory,
+        final Object                      context,
+        final Page                        page,
+        final Visitor<ArtifactCollection> visitor
     ) {
         if (ownerIdentifier != null
         && !isValidIdentifier(ownerIdentifier)) {
             logger.debug("Invalid owner id: '" + ownerIdentifier + "'");
-            return null;
+            return false;
         }
 
-        final ArrayList<ArtifactCollection> collections =
-            new ArrayList<ArtifactCollection>();
+        if (page != null && !page.isValid(true)) {
+            logger.debug("Invalid cursor: '" + page.getAfter() + "'");
+            return false;
+        }
 
         SQLExecutor.Instance exec = sqlExecutor.new Instance() {
 
             public boolean doIt() throws SQLException {
 
-                if (ownerIdentifier != null) {
-                    prepareStatement(SQL_COLLECTIONS_SELECT_USER);
-                    stmnt.setString(1, ownerIdentifier);
+                int idx = 1;
+
+                if (page == null || page.isUnbounded()) {
+                    if (ownerIdentifier != null) {
+                        prepareListing(this, SQL_COLLECTIONS_SELECT_USER);
+                        stmnt.setString(idx++, ownerIdentifier);
+                    }
+                    else {
+                        prepareListing(this, SQL_COLLECTIONS_SELECT_ALL);
+                    }
                 }
                 else {
-                    prepareStatement(SQL_COLLECTIONS_SELECT_ALL);
+                    if (ownerIdentifier != null) {
+                        prepareListing(this, page.getAfter() == null
+                            ? SQL_COLLECTIONS_SELECT_USER_PAGE_FIRST
+                            : SQL_COLLECTIONS_SELECT_USER_PAGE_AFTER);
+                        stmnt.setString(idx++, ownerIdentifier);
+                    }
+                    else {
+                        prepareListing(this, page.getAfter() == null
+                            ? SQL_COLLECTIONS_SELECT_ALL_PAGE_FIRST
+                            : SQL_COLLECTIONS_SELECT_ALL_PAGE_AFTER);
+                    }
+                    if (page.getAfter() != null) {
+                        stmnt.setTimestamp(idx++, page.afterCreation);
+                        stmnt.setTimestamp(idx++, page.afterCreation);
+                        stmnt.setString(idx++, page.afterIdentifier);
+                    }
+                    stmnt.setInt(idx++, page.effectiveLimit());
                 }
 
-                result = stmnt.executeQuery();
+                result = executeQuery();
 
                 HashMap<String, LazyBackendUser> users =
                     new HashMap<String, LazyBackendUser>();
 
-                while (result.next()) {
+                int    count  = 0;
+                String cursor = null;
+
+                while (next()) {
                     String collectionIdentifier = result.getString(1);
                     String collectionName       = result.getString(2);
+                    Timestamp creation          = result.getTimestamp(3);
                     Date   creationTime         =
-                        new Date(result.getTimestamp(3).getTime());
+                        new Date(creation.getTime());
                     String userIdentifier       = result.getString(4);
                     long   ttl                  = result.getLong(5);
 
@@ -1342,15 +2517,23 @@ implements   DatabaseCleaner.ArtifactReviver
                         collection.setUser(user);
                     }
 
-                    collections.add(collection);
+                    ++count;
+                    cursor = Page.cursor(creation, collectionIdentifier);
+
+                    if (!visitor.visit(collection)) {
+                        cursor = null;
+                        break;
+                    }
+                }
+
+                if (page != null) {
+                    page.visited(count, cursor);
                 }
                 return true;
             }
         };
 
-        return exec.runRead()
-            ? collections.toArray(new ArtifactCollection[collections.size()])
-            : null;
+        return exec.runRead();
     }
 
 
@@ -1367,8 +2550,8 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_COLLECTIONS_OLDEST_ARTIFACT);
                 stmnt.setString(1, collectionId);
                 stmnt.setMaxRows(1); //
-                result = stmnt.executeQuery();
-                if (!result.next()) {
+                result = executeQuery();
+                if (!next()) {
                     logger.debug("No such collection: " + collectionId);
                     return false;
                 }
@@ -1393,8 +2576,8 @@ implements   DatabaseCleaner.ArtifactReviver
                 // fetch collection id
                 prepareStatement(SQL_COLLECTIONS_ID_BY_GID);
                 stmnt.setString(1, collectionId);
-                result = stmnt.executeQuery();
-                if (!result.next()) {
+                result = executeQuery();
+                if (!next()) {
                     logger.debug("No such collection: " + collectionId);
                     return false;
                 }
@@ -1407,19 +2590,19 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_OUTDATE_ARTIFACTS_COLLECTION);
                 stmnt.setInt(1, id);
                 stmnt.setInt(2, id);
-                stmnt.execute();
+                execute();
                 reset();
 
                 // delete the collection items
                 prepareStatement(SQL_DELETE_COLLECTION_ITEMS);
                 stmnt.setInt(1, id);
-                stmnt.execute();
+                execute();
                 reset();
 
                 // delete the collection
                 prepareStatement(SQL_DELETE_COLLECTION);
                 stmnt.setInt(1, id);
-                stmnt.execute();
+                execute();
                 conn.commit();
                 return true;
             }
@@ -1450,8 +2633,8 @@ implements   DatabaseCleaner.ArtifactReviver
             public boolean doIt() throws SQLException {
                 prepareStatement(SQL_COLLECTION_GET_ATTRIBUTE);
                 stmnt.setString(1, collectionId);
-                result = stmnt.executeQuery();
-                if (!result.next()) {
+                result = executeQuery();
+                if (!next()) {
                     logger.debug("No such collection.");
                     return false;
                 }
@@ -1466,6 +2649,60 @@ implements   DatabaseCleaner.ArtifactReviver
             : null;
     }
 
+    /**
+     * Builds a digest over the stored items of a collection: the
+     * identifiers and attributes of the items and the digests of
+     * the stored artifacts. It changes whenever an item is added,
+     * removed or modified.
+     * @param collectionId The identifier of the collection.
+     * @return The hex encoded digest or null if it cannot be built.
+     */
+    public String getCollectionItemsDigest(final String collectionId) {
+        if (!isValidIdentifier(collectionId)) {
+            logger.debug("collection id is not valid: " + collectionId);
+            return null;
+        }
+
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(
+                ArtifactDatabaseImpl.DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            logger.error(nsae.getLocalizedMessage(), nsae);
+            return null;
+        }
+
+        SQLExecutor.Instance exec = sqlExecutor.new Instance() {
+            public boolean doIt() throws SQLException {
+                prepareStatement(SQL_COLLECTION_ITEMS_DIGEST);
+                stmnt.setString(1, collectionId);
+                result = executeQuery();
+                while (next()) {
+                    update(md, result.getString(1));
+                    byte [] attribute = result.getBytes(2);
+                    if (attribute != null) {
+                        md.update(attribute);
+                    }
+                    md.update((byte)0);
+                    update(md, result.getString(3));
+                }
+                return true;
+            }
+        };
+
+        return exec.runRead()
+            ? Hex.encodeHexString(md.digest())
+            : null;
+    }
+
+    private static void update(MessageDigest md, String value) {
+        if (value != null) {
+            md.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        md.update((byte)0);
+    }
+
     public boolean setCollectionAttribute(
         final String   collectionId,
         Document       attribute
@@ -1489,13 +2726,13 @@ implements   DatabaseCleaner.ArtifactReviver
                     stmnt.setBytes(1, data);
                 }
                 stmnt.setString(2, collectionId);
-                stmnt.execute();
+                execute();
                 reset();
 
                 // touch the collection
                 prepareStatement(SQL_COLLECTIONS_TOUCH_BY_GID);
                 stmnt.setString(1, collectionId);
-                stmnt.execute();
+                execute();
 
                 conn.commit();
                 return true;
@@ -1538,8 +2775,8 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_COLLECTION_ITEM_GET_ATTRIBUTE);
                 stmnt.setString(1, collectionId);
                 stmnt.setString(2, artifactId);
-                result = stmnt.executeQuery();
-                if (!result.next()) {
+                result = executeQuery();
+                if (!next()) {
                     logger.debug("No such collection item");
                     return false;
                 }
@@ -1582,13 +2819,13 @@ implements   DatabaseCleaner.ArtifactReviver
                 }
                 stmnt.setString(2, collectionId);
                 stmnt.setString(3, artifactId);
-                stmnt.execute();
+                execute();
                 reset();
 
                 // touch the collection
                 prepareStatement(SQL_COLLECTIONS_TOUCH_BY_GID);
                 stmnt.setString(1, collectionId);
-                stmnt.execute();
+                execute();
 
                 conn.commit();
                 return true;
@@ -1636,8 +2873,8 @@ implements   DatabaseCleaner.ArtifactReviver
                 // fetch artifact id
                 prepareStatement(SQL_GET_ID);
                 stmnt.setString(1, artifactId);
-                result = stmnt.executeQuery();
-                if (!result.next()) {
+                result = executeQuery();
+                if (!next()) {
                     logger.debug("No such artifact: " + artifactId);
                     return false;
                 }
@@ -1647,8 +2884,8 @@ implements   DatabaseCleaner.ArtifactReviver
                 // fetch collection id
                 prepareStatement(SQL_COLLECTIONS_ID_BY_GID);
                 stmnt.setString(1, collectionId);
-                result = stmnt.executeQuery();
-                if (!result.next()) {
+                result = executeQuery();
+                if (!next()) {
                     logger.debug("No such collection: " + collectionId);
                 }
                 int cid = result.getInt(1);
@@ -1658,8 +2895,8 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_COLLECTION_CHECK_ARTIFACT);
                 stmnt.setInt(1, aid);
                 stmnt.setInt(2, cid);
-                result = stmnt.executeQuery();
-                if (result.next()) {
+                result = executeQuery();
+                if (next()) {
                     logger.debug("artifact already in collection");
                     return false;
                 }
@@ -1667,8 +2904,8 @@ implements   DatabaseCleaner.ArtifactReviver
 
                 // fetch fresh id for new collection item
                 prepareStatement(SQL_COLLECTION_ITEMS_ID_NEXTVAL);
-                result = stmnt.executeQuery();
-                if (!result.next()) {
+                result = executeQuery();
+                if (!next()) {
                     logger.debug("no collection item id generated");
                     return false;
                 }
@@ -1687,7 +2924,7 @@ implements   DatabaseCleaner.ArtifactReviver
                 else {
                     stmnt.setBytes(4, data);
                 }
-                stmnt.execute();
+                execute();
                 conn.commit();
 
                 return true;
@@ -1712,6 +2949,327 @@ implements   DatabaseCleaner.ArtifactReviver
         }
     }
 
+    /**
+     * Traverses the collections of a user or a single collection
+     * together with their items for an export. The rows of a
+     * collection are consecutive and its items are ordered by
+     * their creation time. The serialized artifacts are not loaded
+     * so the visitor is not meant to do expensive work while the
+     * rows are read.
+     * @param userIdentifier The identifier of the user whose
+     * collections are exported or null.
+     * @param collectionIdentifier The identifier of the exported
+     * collection if userIdentifier is null.
+     * @param visitor The visitor called for each row.
+     * @return true if the traversal succeeded else false.
+     */
+    public boolean exportCollections(
+        final String             userIdentifier,
+        final String             collectionIdentifier,
+        final Visitor<ExportRow> visitor
+    ) {
+        final String identifier = userIdentifier != null
+            ? userIdentifier
+            : collectionIdentifier;
+
+        if (!isValidIdentifier(identifier)) {
+            logger.debug("Invalid export id: '" + identifier + "'");
+            return false;
+        }
+
+        SQLExecutor.Instance exec = sqlExecutor.new Instance() {
+            public boolean doIt() throws SQLException {
+                prepareListing(this, userIdentifier != null
+                    ? SQL_COLLECTIONS_EXPORT_USER
+                    : SQL_COLLECTIONS_EXPORT_GID);
+                stmnt.setString(1, identifier);
+                result = executeQuery();
+
+                while (next()) {
+                    ExportRow row = new ExportRow();
+                    row.collectionIdentifier = result.getString(1);
+                    row.collectionName       = result.getString(2);
+                    row.collectionCreation   = result.getTimestamp(3);
+                    long ttl = result.getLong(4);
+                    row.collectionTTL        = result.wasNull() ? null : ttl;
+                    row.collectionAttribute  = result.getBytes(5);
+                    row.artifactIdentifier   = result.getString(6);
+                    if (row.artifactIdentifier != null) {
+                        row.factoryName   = result.getString(7);
+                        ttl = result.getLong(8);
+                        row.artifactTTL   = result.wasNull() ? null : ttl;
+                        row.itemCreation  = result.getTimestamp(9);
+                        row.itemAttribute = result.getBytes(10);
+                    }
+                    if (!visitor.visit(row)) {
+                        break;
+                    }
+                }
+                return true;
+            }
+        };
+
+        return exec.runRead();
+    }
+
+    /**
+     * Imports collections with their items and artifacts for a user
+     * in a single transaction. The ids of the rows are allocated
+     * in one block per table and the rows are written with batched
+     * inserts. The collections and artifacts keep their identifiers
+     * so references between them stay valid. If one of the
+     * identifiers is already in use the whole import is rolled back.
+     * @param ownerIdentifier The identifier of the user owning
+     * the imported collections.
+     * @param collections The collections to import.
+     * @param artifacts The read and validated artifacts of the import
+     * keyed by their identifiers. All artifacts referenced by the
+     * items have to be present.
+     * @param collectionFactory The factory to create the collection
+     * objects passed to the listeners.
+     * @param context The global context.
+     * @return true if the import succeeded else false.
+     */
+    public boolean importCollections(
+        final String                          ownerIdentifier,
+        final List<ImportCollection>          collections,
+        final Map<String, BinaryExport.Entry> artifacts,
+        final ArtifactCollectionFactory       collectionFactory,
+        final Object                          context
+    ) {
+        if (!isValidIdentifier(ownerIdentifier)) {
+            logger.debug("Invalid owner id: '" + ownerIdentifier + "'");
+            return false;
+        }
+
+        // artifacts may be shared by several collections
+        final Set<String> artifactGids = new HashSet<String>();
+        int itemCount = 0;
+
+        for (ImportCollection collection: collections) {
+            if (!isValidIdentifier(collection.identifier)
+            || collection.name == null) {
+                logger.debug("Invalid collection: '"
+                    + collection.identifier + "'");
+                return false;
+            }
+            for (ImportItem item: collection.items) {
+                if (!isValidIdentifier(item.artifactIdentifier)) {
+                    logger.debug("Invalid artifact id: '"
+                        + item.artifactIdentifier + "'");
+                    return false;
+                }
+                if (!artifacts.containsKey(item.artifactIdentifier)) {
+                    logger.warn("Missing artifact: "
+                        + item.artifactIdentifier);
+                    return false;
+                }
+                artifactGids.add(item.artifactIdentifier);
+                ++itemCount;
+            }
+        }
+
+        final int items = itemCount;
+
+        SQLExecutor.Instance exec = sqlExecutor.new Instance("collections.import") {
+
+            PreparedStatement insertCollection;
+            PreparedStatement insertArtifact;
+            PreparedStatement insertItem;
+
+            int pending;
+
+            /**
+             * Allocates a block of ids with a single query.
+             */
+            int [] nextIds(String query, int n) throws SQLException {
+                int [] ids = new int[n];
+                if (n == 0) {
+                    return ids;
+                }
+                PreparedStatement ps = prepare(query);
+                try {
+                    ps.setInt(1, n);
+                    ResultSet rs = executeQuery(ps);
+                    try {
+                        int i = 0;
+                        while (i < n && next(rs)) {
+                            ids[i++] = rs.getInt(1);
+                        }
+                        if (i < n) {
+                            throw new SQLException(
+                                "only " + i + " of " + n + " ids generated");
+                        }
+                    }
+                    finally {
+                        rs.close();
+                    }
+                }
+                finally {
+                    ps.close();
+                }
+                return ids;
+            }
+
+            void added() throws SQLException {
+                if (++pending >= IMPORT_BATCH_SIZE) {
+                    flush();
+                }
+            }
+
+            void flush() throws SQLException {
+                // Order matters: the items reference the others.
+                executeBatch(insertCollection);
+                executeBatch(insertArtifact);
+                executeBatch(insertItem);
+                pending = 0;
+            }
+
+            @Override
+            public void close() {
+                PreparedStatement [] statements = {
+                    insertCollection, insertArtifact, insertItem };
+                for (PreparedStatement ps: statements) {
+                    if (ps != null) {
+                        try { ps.close(); }
+                        catch (SQLException sqle) {}
+                    }
+                }
+                super.close();
+            }
+
+            public boolean doIt() throws SQLException {
+                // fetch owner id
+                prepareStatement(SQL_USERS_SELECT_ID_BY_GID);
+                stmnt.setString(1, ownerIdentifier);
+                result = executeQuery();
+
+                if (!next()) { // no such user
+                    logger.debug("No such user: " + ownerIdentifier);
+                    conn.rollback();
+                    return false;
+                }
+
+                int ownerId = result.getInt(1);
+                reset();
+
+                int [] collectionIds = nextIds(
+                    SQL_COLLECTIONS_NEXT_IDS, collections.size());
+                int [] artifactIds = nextIds(
+                    SQL_NEXT_IDS, artifactGids.size());
+                int [] itemIds = nextIds(
+                    SQL_COLLECTION_ITEMS_ID_NEXTVALS, items);
+
+                int nextCollection = 0;
+                int nextArtifact   = 0;
+                int nextItem       = 0;
+
+                insertCollection = prepare(SQL_COLLECTIONS_INSERT_IMPORT);
+                insertArtifact   = prepare(SQL_INSERT);
+                insertItem       = prepare(SQL_COLLECTION_ITEMS_INSERT_IMPORT);
+
+                Map<String, Integer> inserted =
+                    new HashMap<String, Integer>();
+
+                for (ImportCollection collection: collections) {
+                    int cid = collectionIds[nextCollection++];
+
+                    insertCollection.setInt(1, cid);
+                    insertCollection.setString(2, collection.identifier);
+                    insertCollection.setString(3, collection.name);
+                    insertCollection.setInt(4, ownerId);
+                    insertCollection.setTimestamp(5, collection.creation);
+                    if (collection.ttl == null) {
+                        insertCollection.setNull(6, Types.BIGINT);
+                    }
+                    else {
+                        insertCollection.setLong(6, collection.ttl);
+                    }
+                    byte [] data = XMLUtils.toByteArray(
+                        collection.attribute, true);
+                    if (data == null) {
+                        insertCollection.setNull(7, Types.BINARY);
+                    }
+                    else {
+                        insertCollection.setBytes(7, data);
+                    }
+                    insertCollection.addBatch();
+                    added();
+
+                    for (ImportItem item: collection.items) {
+                        Integer aid = inserted.get(item.artifactIdentifier);
+
+                        if (aid == null) {
+                            BinaryExport.Entry entry =
+                                artifacts.get(item.artifactIdentifier);
+
+                            aid = artifactIds[nextArtifact++];
+                            inserted.put(item.artifactIdentifier, aid);
+
+                            insertArtifact.setInt(1, aid);
+                            insertArtifact.setString(2, item.artifactIdentifier);
+                            if (item.artifactTTL == null) {
+                                insertArtifact.setNull(3, Types.BIGINT);
+                            }
+                            else {
+                                insertArtifact.setLong(3, item.artifactTTL);
+                            }
+                            insertArtifact.setString(4, entry.getFactoryName());
+                            insertArtifact.setBytes(5, entry.getData());
+                            insertArtifact.addBatch();
+                            added();
+                        }
+
+                        insertItem.setInt(1, itemIds[nextItem++]);
+                        insertItem.setInt(2, cid);
+                        insertItem.setInt(3, aid);
+                        data = XMLUtils.toByteArray(item.attribute, true);
+                        if (data == null) {
+                            insertItem.setNull(4, Types.BINARY);
+                        }
+                        else {
+                            insertItem.setBytes(4, data);
+                        }
+                        insertItem.setTimestamp(5, item.creation);
+                        insertItem.addBatch();
+                        added();
+                    }
+                }
+
+                flush();
+                conn.commit();
+
+                return true;
+            }
+        };
+
+        if (!exec.runWrite()) {
+            return false;
+        }
+
+        for (ImportCollection c: collections) {
+            ArtifactCollection collection = collectionFactory.createCollection(
+                c.identifier,
+                c.name,
+                c.creation != null ? new Date(c.creation.getTime()) : null,
+                c.ttl != null ? c.ttl.longValue() : 0L,
+                c.attribute,
+                context);
+
+            if (collection != null) {
+                collection.setUser(new DefaultUser(ownerIdentifier));
+                fireCreatedCollection(collection, collectionFactory, context);
+            }
+
+            for (ImportItem item: c.items) {
+                fireAddedArtifactToCollection(
+                    item.artifactIdentifier, c.identifier);
+            }
+        }
+
+        return true;
+    }
+
     public boolean removeCollectionArtifact(
         final String collectionId,
         final String artifactId
@@ -1728,8 +3286,8 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_COLLECTION_ITEM_ID_CID_AID);
                 stmnt.setString(1, collectionId);
                 stmnt.setString(2, artifactId);
-                result = stmnt.executeQuery();
-                if (!result.next()) {
+                result = executeQuery();
+                if (!next()) {
                     logger.debug("No such collection item");
                     return false;
                 }
@@ -1743,19 +3301,19 @@ implements   DatabaseCleaner.ArtifactReviver
                 stmnt.setInt(1, aid);
                 stmnt.setInt(2, cid);
                 stmnt.setInt(3, aid);
-                stmnt.execute();
+                execute();
                 reset();
 
                 // delete collection item
                 prepareStatement(SQL_COLLECTION_ITEM_DELETE);
                 stmnt.setInt(1, id);
-                stmnt.execute();
+                execute();
                 reset();
 
                 // touch collection
                 prepareStatement(SQL_COLLECTIONS_TOUCH_BY_ID);
                 stmnt.setInt(1, cid);
-                stmnt.execute();
+                execute();
 
                 conn.commit();
                 return true;
@@ -1781,34 +3339,116 @@ implements   DatabaseCleaner.ArtifactReviver
 
     public CollectionItem [] listCollectionArtifacts(
         final String collectionId
+    ) {
+        return listCollectionArtifacts(collectionId, null);
+    }
+
+    public CollectionItem [] listCollectionArtifacts(
+        final String collectionId,
+        final Page   page
+    ) {
+        final ArrayList<CollectionItem> collectionItems =
+            new ArrayList<CollectionItem>();
+
+        return visitCollectionArtifacts(
+            collectionId,
+            page,
+            new Visitor<CollectionItem>() {
+                public boolean visit(CollectionItem item) {
+                    collectionItems.add(item);
+                    return true;
+                }
+            })
+            ? collectionItems.toArray(
+                new CollectionItem[collectionItems.size()])
+            : null;
+    }
+
+    public boolean visitCollectionArtifacts(
+        final String                  collectionId,
+        final Visitor<CollectionItem> visitor
+    ) {
+        return visitCollectionArtifacts(collectionId, null, visitor);
+    }
+
+    /**
+     * Traverses the items of a collection row by row using a
+     * database cursor.
+     * @param collectionId The identifier of the collection.
+     * @param page The window of the listing to traverse. null means
+     * all items.
+     * @param visitor The callback which is called for each item.
+     * @return true if the traversal succeeded else false.
+     */
+    public boolean visitCollectionArtifacts(
+        final String                  collectionId,
+        final Page                    page,
+        final Visitor<CollectionItem> visitor
     ) {
         if (!isValidIdentifier(collectionId)) {
             logger.debug("Invalid collection id: '" + collectionId + "'");
-            return null;
+            return false;
         }
 
-        final ArrayList<CollectionItem> collectionItems =
-            new ArrayList<CollectionItem>();
+        if (page != null && !page.isValid(true)) {
+            logger.debug("Invalid cursor: '" + page.getAfter() + "'");
+            return false;
+        }
 
         SQLExecutor.Instance exec = sqlExecutor.new Instance() {
             public boolean doIt() throws SQLException {
-                prepareStatement(SQL_COLLECTION_ITEMS_LIST_GID);
-                stmnt.setString(1, collectionId);
-                result = stmnt.executeQuery();
-                while (result.next()) {
+                boolean paged = page != null && !page.isUnbounded();
+
+                if (!paged) {
+                    prepareListing(this, SQL_COLLECTION_ITEMS_LIST_GID);
+                    stmnt.setString(1, collectionId);
+                }
+                else if (page.getAfter() == null) {
+                    prepareListing(
+                        this, SQL_COLLECTION_ITEMS_LIST_GID_PAGE_FIRST);
+                    stmnt.setString(1, collectionId);
+                    stmnt.setInt(2, page.effectiveLimit());
+                }
+                else {
+                    prepareListing(
+                        this, SQL_COLLECTION_ITEMS_LIST_GID_PAGE_AFTER);
+                    stmnt.setString(1, collectionId);
+                    stmnt.setTimestamp(2, page.afterCreation);
+                    stmnt.setTimestamp(3, page.afterCreation);
+                    stmnt.setString(4, page.afterIdentifier);
+                    stmnt.setInt(5, page.effectiveLimit());
+                }
+                result = executeQuery();
+
+                int    count  = 0;
+                String cursor = null;
+
+                while (next()) {
+                    String artifactIdentifier = result.getString(1);
                     CollectionItem item = new DefaultCollectionItem(
-                        result.getString(1),
+                        artifactIdentifier,
                         result.getBytes(2));
-                    collectionItems.add(item);
+
+                    ++count;
+                    if (paged) {
+                        cursor = Page.cursor(
+                            result.getTimestamp(3), artifactIdentifier);
+                    }
+
+                    if (!visitor.visit(item)) {
+                        cursor = null;
+                        break;
+                    }
+                }
+
+                if (page != null) {
+                    page.visited(count, cursor);
                 }
                 return true;
             }
         };
 
-        return exec.runRead()
-            ? collectionItems.toArray(
-                new CollectionItem[collectionItems.size()])
-            : null;
+        return exec.runRead();
     }
 
 
@@ -1828,7 +3468,7 @@ implements   DatabaseCleaner.ArtifactReviver
                     stmnt.setLong(1, ttl);
                 }
                 stmnt.setString(2, uuid);
-                stmnt.execute();
+                execute();
                 conn.commit();
 
                 return true;
@@ -1848,7 +3488,7 @@ implements   DatabaseCleaner.ArtifactReviver
                 prepareStatement(SQL_UPDATE_COLLECTION_NAME);
                 stmnt.setString(1, name);
                 stmnt.setString(2, uuid);
-                stmnt.execute();
+                execute();
                 conn.commit();
 
                 return true;
@@ -1885,8 +3525,8 @@ implements   DatabaseCleaner.ArtifactReviver
                     new LRUCache<String, Artifact>(200);
 
                 prepareStatement(SQL_ALL_ARTIFACTS);
-                result = stmnt.executeQuery();
-                while (result.next()) {
+                result = executeQuery();
+                while (next()) {
                     String userId         = result.getString("u_gid");
                     String collectionId   = result.getString("c_gid");
                     String collectionName = result.getString("c_name");
@@ -1918,7 +3558,7 @@ implements   DatabaseCleaner.ArtifactReviver
 
                     byte [] bytes = result.getBytes("data");
 
-                    artifact = factory.getSerializer().fromBytes(bytes);
+                    artifact = fromBytes(factory, bytes);
 
                     if (artifact != null) {
                         alc.artifactLoaded(
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase;
+
+import org.dive4elements.artifacts.ArtifactDatabaseException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Binary wire format of exported artifacts. It is the streamed
+ * counterpart of the XML export document: the artifact bytes are
+ * written as they are instead of being Base64 encoded into a text
+ * node and the checksum is computed while the bytes pass by.
+ * An exported artifact consists of
+ * <ol>
+ * <li>the magic bytes 'D4EA' and a version byte,</li>
+ * <li>the factory name (modified UTF-8),</li>
+ * <li>the length of the artifact data (long) and the data itself,</li>
+ * <li>the length of the checksum (short) and the checksum.</li>
+ * </ol>
+ * The checksum is the same as the one of the XML export:
+ * a SHA-1 digest of the artifact data followed by the export secret.
+ */
+public final class BinaryExport
+{
+    private static Logger logger = LogManager.getLogger(BinaryExport.class);
+
+    /**
+     * Media type of a binary exported artifact.
+     */
+    public static final String MEDIA_TYPE = "application/octet-stream";
+
+    public static final byte [] MAGIC = { 'D', '4', 'E', 'A' };
+
+    public static final byte VERSION = 1;
+
+    /**
+     * Size of the chunks in which the data is written and read.
+     */
+    public static final int CHUNK_SIZE = 64*1024;
+
+    /**
+     * A read artifact.
+     */
+    public static final class Entry {
+
+        private String  factoryName;
+        private byte [] data;
+
+        public Entry(String factoryName, byte [] data) {
+            this.factoryName = factoryName;
+            this.data        = data;
+        }
+
+        public String getFactoryName() {
+            return factoryName;
+        }
+
+        public byte [] getData() {
+            return data;
+        }
+    } // class Entry
+
+    private BinaryExport() {
+    }
+
+    protected static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance(
+                ArtifactDatabaseImpl.DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            logger.error(nsae.getLocalizedMessage(), nsae);
+            throw new IOException(nsae.getMessage());
+        }
+    }
+
+    /**
+     * Writes an exported artifact.
+     * @param out The stream to write to.
+     * @param factoryName The name of the factory of the artifact.
+     * @param data The serialized artifact.
+     * @param secret The export secret.
+     * @throws IOException Thrown if writing failed.
+     */
+    public static void write(
+        DataOutputStream out,
+        String           factoryName,
+        byte []          data,
+        byte []          secret
+    )
+    throws IOException
+    {
+        MessageDigest md = newDigest();
+
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(factoryName);
+        out.writeLong(data.length);
+
+        for (int ofs = 0; ofs < data.length; ofs += CHUNK_SIZE) {
+            int len = Math.min(CHUNK_SIZE, data.length - ofs);
+            md.update(data, ofs, len);
+            out.write(data, ofs, len);
+        }
+
+        md.update(secret);
+        byte [] checksum = md.digest();
+
+        out.writeShort(checksum.length);
+        out.write(checksum);
+        out.flush();
+    }
+
+    /**
+     * Reads an exported artifact and validates its checksum.
+     * @param in The stream to read from.
+     * @param secret The export secret.
+     * @return The read artifact.
+     * @throws IOException Thrown if reading failed.
+     * @throws ArtifactDatabaseException Thrown if the data is
+     * not an exported artifact or the checksum does not match.
+     */
+    public static Entry read(DataInputStream in, byte [] secret)
+    throws IOException, ArtifactDatabaseException
+    {
+        byte [] magic = new byte[MAGIC.length];
+        try {
+            in.readFully(magic);
+        }
+        catch (EOFException eofe) {
+            throw new ArtifactDatabaseException(ArtifactDatabaseImpl.NO_DATA);
+        }
+
+        if (!MessageDigest.isEqual(magic, MAGIC) || in.readByte() != VERSION) {
+            throw new ArtifactDatabaseException(
+                ArtifactDatabaseImpl.INVALID_ARTIFACT);
+        }
+
+        String factoryName = in.readUTF();
+
+        long length = in.readLong();
+        if (length <= 0L || length > Integer.MAX_VALUE - 8) {
+            throw new ArtifactDatabaseException(
+                ArtifactDatabaseImpl.NO_DATA);
+        }
+
+        MessageDigest md = newDigest();
+
+        // Do not trust the announced length for the allocation
+        // but grow the buffer while the data actually arrives.
+        byte [] data = new byte[(int)Math.min(length, CHUNK_SIZE)];
+
+        for (int pos = 0; pos < length;) {
+            if (pos == data.length) {
+                byte [] tmp = new byte[(int)Math.min(length, 2L*data.length)];
+                System.arraycopy(data, 0, tmp, 0, pos);
+                data = tmp;
+            }
+            int n = in.read(data, pos, Math.min(CHUNK_SIZE, data.length - pos));
+            if (n < 0) {
+                throw new EOFException();
+            }
+            md.update(data, pos, n);
+            pos += n;
+        }
+
+        md.update(secret);
+        byte [] digest = md.digest();
+
+        int checksumLength = in.readUnsignedShort();
+        if (checksumLength != digest.length) {
+            throw new ArtifactDatabaseException(
+                ArtifactDatabaseImpl.INVALID_CHECKSUM);
+        }
+
+        byte [] checksum = new byte[checksumLength];
+        in.readFully(checksum);
+
+        if (!MessageDigest.isEqual(checksum, digest)) {
+            throw new ArtifactDatabaseException(
+                ArtifactDatabaseImpl.CHECKSUM_MISMATCH);
+        }
+
+        return new Entry(factoryName, data);
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -7,12 +7,18 @@
  */
 package org.dive4elements.artifactdatabase;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import org.dive4elements.artifacts.Artifact;
 import org.dive4elements.artifacts.ArtifactCollection;
+import org.dive4elements.artifacts.ArtifactDatabaseException;
 import org.dive4elements.artifacts.CallMeta;
 import org.dive4elements.artifacts.Message;
 
@@ -32,6 +38,12 @@ public class CollectionCallContext extends AbstractCallContext {
      */
     protected ArtifactCollection collection;
 
+    /**
+     * The artifacts of the collection once loaded by
+     * #getCollectionArtifacts().
+     */
+    protected Map<String, Artifact> collectionArtifacts;
+
 
     public CollectionCallContext(
         ArtifactDatabaseImpl artifactDatabase,
@@ -72,6 +84,46 @@ public class CollectionCallContext extends AbstractCallContext {
     }
 
 
+    /**
+     * @return The collection this context is created for.
+     */
+    public ArtifactCollection getCollection() {
+        return collection;
+    }
+
+
+    /**
+     * Loads all artifacts of the collection with a constant number
+     * of database queries instead of one query per artifact.
+     * They are loaded once per call context.
+     * @return The artifacts keyed by their identifiers in the order
+     * of the collection. The map is a copy owned by the caller.
+     * @throws ArtifactDatabaseException Thrown if the collection
+     * does not exist.
+     */
+    public Map<String, Artifact> getCollectionArtifacts()
+    throws ArtifactDatabaseException
+    {
+        if (collectionArtifacts == null) {
+            collectionArtifacts =
+                database.getRawCollectionArtifacts(collection.identifier());
+        }
+        return new LinkedHashMap<String, Artifact>(collectionArtifacts);
+    }
+
+
+    /**
+     * @return The identifiers of the artifacts loaded by
+     * #getCollectionArtifacts() or null if they were not loaded
+     * with this context.
+     */
+    public Set<String> getLoadedArtifactIdentifiers() {
+        return collectionArtifacts != null
+            ? Collections.unmodifiableSet(collectionArtifacts.keySet())
+            : null;
+    }
+
+
     public Long getTimeToLive() {
         log.debug("CollectionCallContext.getTimeToLive - NOT IMPLEMENTED");
         return null;
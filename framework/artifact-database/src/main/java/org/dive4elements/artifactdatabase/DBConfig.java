@@ -5,8 +5,13 @@ import org.dive4elements.artifacts.common.utils.Config;
 import org.dive4elements.artifactdatabase.db.SQL;
 import org.dive4elements.artifactdatabase.db.DBConnection;
 
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
 public class DBConfig
 {
+    private static Logger logger = LogManager.getLogger(DBConfig.class);
+
     /**
      * XPath to access the database driver within the global configuration.
      */
@@ -28,6 +33,41 @@ public class DBConfig
     public static final String DB_PASSWORD =
         "/artifact-database/database/password/text()";
 
+    /**
+     * XPath to access the max. number of concurrent database
+     * executions within the global configuration.
+     */
+    public static final String DB_MAX_CONCURRENCY =
+        "/artifact-database/database/max-concurrency/text()";
+
+    /**
+     * XPath to access the time in ms after which executions of
+     * statements are logged as slow within the global configuration.
+     */
+    public static final String DB_SLOW_QUERY_THRESHOLD =
+        "/artifact-database/database/slow-query-threshold/text()";
+
+    /**
+     * XPath to access the time in ms after which borrowed connections
+     * are reported as leaked within the global configuration.
+     */
+    public static final String DB_LEAK_THRESHOLD =
+        "/artifact-database/database/leak-threshold/text()";
+
+    /**
+     * XPath to figure out if the stacks of the borrowers of
+     * connections should be captured to report leaks.
+     */
+    public static final String DB_LEAK_STACKS =
+        "/artifact-database/database/leak-threshold/@stacks";
+
+    /**
+     * XPath to access the time in ms after which write transactions
+     * are logged as long running within the global configuration.
+     */
+    public static final String DB_TRANSACTION_THRESHOLD =
+        "/artifact-database/database/transaction-threshold/text()";
+
     private static DBConfig instance;
 
     private DBConnection dbConnection;
@@ -75,9 +115,56 @@ public class DBConfig
         DBConnection dbConnection = new DBConnection(
             driver, url, user, password);
 
+        String maxConcurrency = Config.getStringXPath(DB_MAX_CONCURRENCY);
+
+        if (maxConcurrency != null && maxConcurrency.length() > 0) {
+            try {
+                dbConnection.setMaxConcurrency(
+                    Integer.parseInt(maxConcurrency.trim()));
+            }
+            catch (NumberFormatException nfe) {
+                logger.error("max-concurrency is not a valid number: "
+                    + maxConcurrency);
+            }
+        }
+
+        dbConnection.setSlowQueryThreshold(getThreshold(
+            DB_SLOW_QUERY_THRESHOLD,
+            "slow-query-threshold",
+            dbConnection.getSlowQueryThreshold()));
+
+        dbConnection.setLeakThreshold(getThreshold(
+            DB_LEAK_THRESHOLD,
+            "leak-threshold",
+            dbConnection.getLeakThreshold()));
+
+        dbConnection.setCaptureLeakStacks(Boolean.valueOf(
+            Config.getStringXPath(DB_LEAK_STACKS, "false").trim()));
+
+        dbConnection.setTransactionThreshold(getThreshold(
+            DB_TRANSACTION_THRESHOLD,
+            "transaction-threshold",
+            dbConnection.getTransactionThreshold()));
+
         SQL sql = new SQL(driver);
 
         return new DBConfig(dbConnection, sql);
     }
+
+    private static long getThreshold(String xpath, String name, long def) {
+        String value = Config.getStringXPath(xpath);
+
+        if (value == null || (value = value.trim()).length() == 0) {
+            return def;
+        }
+
+        try {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException nfe) {
+            logger.error(name + " is not a valid number: " + value);
+        }
+        return def;
+    }
 }
 // vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -16,6 +16,10 @@ import org.dive4elements.artifacts.Artifact;
 import org.dive4elements.artifactdatabase.db.SQL;
 import org.dive4elements.artifactdatabase.db.SQLExecutor;
 
+import org.dive4elements.artifactdatabase.jfr.FlightEvents;
+
+import org.dive4elements.artifactdatabase.metrics.Metrics;
+
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -26,6 +30,8 @@ import java.util.Set;
 import java.util.HashSet;
 import java.util.Collections;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -80,6 +86,22 @@ extends      Thread
 
     public static final Set<Integer> EMPTY_IDS = Collections.emptySet();
 
+    /**
+     * Histogram of the durations of the cleanups.
+     */
+    public static final String RUN_HISTOGRAM = "d4e_cleaner_run_seconds";
+
+    /**
+     * Counter of the removed artifacts and collections.
+     */
+    public static final String DELETED_COUNTER = "d4e_cleaner_deleted_total";
+
+    static {
+        Metrics.help(RUN_HISTOGRAM, "Duration of the cleanups.");
+        Metrics.help(DELETED_COUNTER,
+            "Artifacts and collections removed by the cleaner.");
+    }
+
     /**
      * The SQL statement to select the outdated artifacts.
      */
@@ -95,6 +117,11 @@ extends      Thread
      */
     public String SQL_DELETE_ARTIFACT;
 
+    /**
+     * The SQL statement to count the outdated artifacts.
+     */
+    public String SQL_OUTDATED_COUNT;
+
     /**
      * XPath to figure out how long the cleaner should sleep between
      * cleanups. This is stored in the global configuration.
@@ -137,6 +164,29 @@ extends      Thread
 
     protected SQLExecutor sqlExecutor;
 
+    /**
+     * Number of cleanups done since start.
+     */
+    protected AtomicLong runs = new AtomicLong();
+
+    /**
+     * Number of artifacts and collections removed since start.
+     */
+    protected AtomicLong totalDeletedArtifacts   = new AtomicLong();
+    protected AtomicLong totalDeletedCollections = new AtomicLong();
+
+    /**
+     * Start (ms since epoch) and duration (ms) of the last cleanup.
+     */
+    protected volatile long lastRun;
+    protected volatile long lastRunDuration;
+
+    /**
+     * Outdated artifacts found at the start of the last cleanup.
+     * -1 if there was no cleanup yet or counting failed.
+     */
+    protected volatile long backlog = -1L;
+
     /**
      * Default constructor.
      */
@@ -170,6 +220,7 @@ extends      Thread
         SQL_DELETE_COLLECTION             = sql.get("delete.collection");
         SQL_DELETE_ARTIFACT               = sql.get("artifacts.delete");
         SQL_COLLECTION_ITEMS_ARTIFACT_IDS = sql.get("collection.items.artifact.id");
+        SQL_OUTDATED_COUNT                = sql.get("artifacts.outdated.count");
     }
 
     /**
@@ -193,6 +244,88 @@ extends      Thread
         }
     }
 
+    /**
+     * @return The nap time between cleanups in ms.
+     */
+    public long getConfiguredSleepTime() {
+        return sleepTime;
+    }
+
+    public long getRuns() {
+        return runs.get();
+    }
+
+    public long getDeletedArtifacts() {
+        return totalDeletedArtifacts.get();
+    }
+
+    public long getDeletedCollections() {
+        return totalDeletedCollections.get();
+    }
+
+    /**
+     * @return The start of the last cleanup in ms since epoch
+     * or 0 if there was no cleanup yet.
+     */
+    public long getLastRun() {
+        return lastRun;
+    }
+
+    /**
+     * @return The duration of the last cleanup in ms.
+     */
+    public long getLastRunDuration() {
+        return lastRunDuration;
+    }
+
+    /**
+     * @return The number of outdated artifacts found at the start
+     * of the last cleanup or -1 if it is not known.
+     */
+    public long getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Counts the outdated artifacts waiting to be removed. Like in
+     * a cleanup artifacts which are part of collections or currently
+     * locked are not counted, because they are still kept alive by
+     * their collections or are used at the moment.
+     * @return The number of outdated artifacts or -1 if counting
+     * failed.
+     */
+    public long countOutdated() {
+        final long [] count = { -1L };
+
+        final Set<Integer> lockedIds = lockedIdsProvider != null
+            ? lockedIdsProvider.getLockedIds()
+            : EMPTY_IDS;
+
+        final String questionMarks = lockedIds.isEmpty()
+            ? "-666" // XXX: A bit hackish.
+            : StringUtils.repeat('?', lockedIds.size(), ',');
+
+        SQLExecutor.Instance exec =
+            sqlExecutor.new Instance("artifacts.outdated.count") {
+            @Override
+            public boolean doIt() throws SQLException {
+                prepareStatement(SQL_OUTDATED_COUNT.replace(
+                    "$LOCKED_IDS$", questionMarks));
+                int idx = 1;
+                for (Integer id: lockedIds) {
+                    stmnt.setInt(idx++, id);
+                }
+                result = executeQuery();
+                if (next()) {
+                    count[0] = result.getLong(1);
+                }
+                return true;
+            }
+        };
+
+        return exec.runRead() ? count[0] : -1L;
+    }
+
     /**
      * Fetches the sleep time from the global configuration.
      * @return the time to sleep between database cleanups in ms.
@@ -255,6 +388,13 @@ extends      Thread
     protected void cleanup() {
         logger.info("database cleanup");
 
+        lastRun = System.currentTimeMillis();
+        long start = System.nanoTime();
+
+        Object event = FlightEvents.beginCleanup();
+
+        backlog = countOutdated();
+
         final Set<Integer> lockedIds = lockedIdsProvider != null
             ? lockedIdsProvider.getLockedIds()
             : EMPTY_IDS;
@@ -266,7 +406,7 @@ extends      Thread
         final List<String> deletedCollections = new ArrayList<String>();
         final List<String> deletedArtifacts   = new ArrayList<String>();
 
-        SQLExecutor.Instance exec = sqlExecutor.new Instance() {
+        SQLExecutor.Instance exec = sqlExecutor.new Instance("cleanup") {
 
             @Override
             public boolean doIt() throws SQLException {
@@ -280,23 +420,25 @@ extends      Thread
                     new HashSet<Integer>();
 
                 try {
-                    collectionItems = conn.prepareStatement(
+                    collectionItems = prepare(
                         SQL_COLLECTION_ITEMS_ARTIFACT_IDS);
 
-                    result = collectionItems.executeQuery();
+                    result = executeQuery(collectionItems);
 
-                    while (result.next()) {
+                    while (next(result)) {
                         collectionItemsIds.add(result.getInt(1));
                     }
                     result.close(); result = null;
 
-                    fetchIds = conn.prepareStatement(
-                        SQL_OUTDATED.replace("$LOCKED_IDS$", questionMarks));
+                    fetchIds = prepare(
+                        SQL_OUTDATED.replace("$LOCKED_IDS$", questionMarks),
+                        "artifacts.outdated");
 
                     // Fetch ids of outdated collections
-                    stmnt = conn.prepareStatement(
+                    stmnt = prepare(
                         SQL_OUTDATED_COLLECTIONS.replace(
-                            "$LOCKED_IDS$", questionMarks));
+                            "$LOCKED_IDS$", questionMarks),
+                        "collections.outdated");
 
                     // fill in the locked ids
                     int idx = 1;
@@ -307,8 +449,8 @@ extends      Thread
                     }
 
                     ArrayList<IdIdentifier> cs = new ArrayList<IdIdentifier>();
-                    result = stmnt.executeQuery();
-                    while (result.next()) {
+                    result = executeQuery(stmnt);
+                    while (next(result)) {
                         cs.add(new IdIdentifier(
                             result.getInt(1),
                             result.getString(2)));
@@ -318,22 +460,22 @@ extends      Thread
                     stmnt.close();  stmnt  = null;
 
                     // delete collection items
-                    stmnt = conn.prepareStatement(SQL_DELETE_COLLECTION_ITEMS);
+                    stmnt = prepare(SQL_DELETE_COLLECTION_ITEMS);
 
                     for (IdIdentifier id: cs) {
                         logger.debug("Mark collection for deletion: " + id.id);
                         stmnt.setInt(1, id.id);
-                        stmnt.execute();
+                        execute(stmnt);
                     }
 
                     stmnt.close(); stmnt = null;
 
                     // delete collections
-                    stmnt = conn.prepareStatement(SQL_DELETE_COLLECTION);
+                    stmnt = prepare(SQL_DELETE_COLLECTION);
 
                     for (IdIdentifier id: cs) {
                         stmnt.setInt(1, id.id);
-                        stmnt.execute();
+                        execute(stmnt);
                         deletedCollections.add(id.identifier);
                     }
 
@@ -343,16 +485,16 @@ extends      Thread
                     cs = null;
 
                     // remove artifacts
-                    stmnt = conn.prepareStatement(SQL_DELETE_ARTIFACT);
+                    stmnt = prepare(SQL_DELETE_ARTIFACT);
 
                     for (;;) {
                         List<IdData> ids = new ArrayList<IdData>();
 
-                        result = fetchIds.executeQuery();
+                        result = executeQuery(fetchIds);
 
                         int total = 0;
 
-                        while (result.next()) {
+                        while (next(result)) {
                             total++;
                             int id = result.getInt(1);
                             if (!collectionItemsIds.contains(id)) {
@@ -384,7 +526,7 @@ extends      Thread
                                 + idData.id + ") for deletion.");
 
                             stmnt.setInt(1, idData.id);
-                            stmnt.execute();
+                            execute(stmnt);
                             conn.commit();
 
                             try {
@@ -437,6 +579,22 @@ extends      Thread
             reviver.killedArtifacts(deletedArtifacts);
         }
 
+        long duration = System.nanoTime() - start;
+
+        runs.incrementAndGet();
+        totalDeletedCollections.addAndGet(deletedCollections.size());
+        totalDeletedArtifacts.addAndGet(deletedArtifacts.size());
+        lastRunDuration = duration / 1000000L;
+
+        FlightEvents.endCleanup(
+            event, deletedArtifacts.size(), deletedCollections.size());
+
+        Metrics.histogram(RUN_HISTOGRAM, null).record(duration);
+        Metrics.counter(DELETED_COUNTER, Metrics.labels("type", "collection"))
+            .add(deletedCollections.size());
+        Metrics.counter(DELETED_COUNTER, Metrics.labels("type", "artifact"))
+            .add(deletedArtifacts.size());
+
         if (logger.isDebugEnabled()) {
             logger.debug(
                 "collections removed: " + deletedCollections.size());
@@ -10,12 +10,19 @@ package org.dive4elements.artifactdatabase;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import java.nio.charset.StandardCharsets;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.codec.binary.Hex;
+
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -24,6 +31,7 @@ import org.w3c.dom.Document;
 import org.dive4elements.artifacts.Artifact;
 import org.dive4elements.artifacts.ArtifactCollection;
 import org.dive4elements.artifacts.ArtifactCollectionFactory;
+import org.dive4elements.artifacts.ArtifactDatabaseException;
 import org.dive4elements.artifacts.CallContext;
 import org.dive4elements.artifacts.User;
 
@@ -228,14 +236,61 @@ implements   ArtifactCollection
 
 
     /**
-     * Internal hash of this collection.
+     * Internal hash of this collection. It is a digest of the
+     * identifier, name, creation time, ttl and attribute of the
+     * collection and of the identifiers and attributes of the
+     * artifacts held in memory. The stored items of a collection are
+     * covered by Backend#getCollectionItemsDigest(String).
      * @return Returns hash that should stay the same if the internal
      *         value has not changed. Useful for caching
      */
     public String hash() {
         logger.debug("DefaultArtifactCollection.hash");
 
-        return String.valueOf(hashCode());
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(
+                ArtifactDatabaseImpl.DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            logger.error(nsae.getLocalizedMessage(), nsae);
+            return String.valueOf(hashCode());
+        }
+
+        update(md, identifier);
+        update(md, name);
+        update(md, creationTime != null
+            ? String.valueOf(creationTime.getTime())
+            : null);
+        update(md, String.valueOf(ttl));
+        update(md, attribute);
+
+        if (artifacts != null) {
+            for (Artifact artifact: artifacts) {
+                String id = artifact.identifier();
+                update(md, id);
+                update(md, attributes != null ? attributes.get(id) : null);
+            }
+        }
+
+        return Hex.encodeHexString(md.digest());
+    }
+
+    private static void update(MessageDigest md, String value) {
+        if (value != null) {
+            md.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        md.update((byte)0);
+    }
+
+    private static void update(MessageDigest md, Document document) {
+        byte [] bytes = document != null
+            ? XMLUtils.toByteArray(document)
+            : null;
+        if (bytes != null) {
+            md.update(bytes);
+        }
+        md.update((byte)0);
     }
 
 
@@ -288,6 +343,11 @@ implements   ArtifactCollection
 
     /**
      * Returns a list of artifacts that are stored in this collection.
+     * If called with the CollectionCallContext of this collection
+     * the stored artifacts are loaded with a constant number of
+     * database queries (see CollectionCallContext#getCollectionArtifacts()).
+     * The artifacts added to this instance which are not stored yet
+     * are appended.
      *
      * @param context The CallContext.
      *
@@ -296,7 +356,27 @@ implements   ArtifactCollection
     public Artifact[] getArtifacts(CallContext context) {
         logger.debug("DefaultArtifactCollection.getArtifacts");
 
-        return (Artifact[]) artifacts.toArray();
+        if (context instanceof CollectionCallContext
+        && ((CollectionCallContext)context).getCollection() == this) {
+            try {
+                Map<String, Artifact> loaded =
+                    ((CollectionCallContext)context).getCollectionArtifacts();
+
+                for (Artifact artifact: artifacts) {
+                    if (!loaded.containsKey(artifact.identifier())) {
+                        loaded.put(artifact.identifier(), artifact);
+                    }
+                }
+
+                return loaded.values().toArray(new Artifact[loaded.size()]);
+            }
+            catch (ArtifactDatabaseException adbe) {
+                logger.warn("cannot load artifacts of collection '"
+                    + identifier + "': " + adbe.getMessage());
+            }
+        }
+
+        return artifacts.toArray(new Artifact[artifacts.size()]);
     }
 
 
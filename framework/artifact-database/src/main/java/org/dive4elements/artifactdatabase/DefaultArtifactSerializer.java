@@ -11,6 +11,8 @@ package org.dive4elements.artifactdatabase;
 import org.dive4elements.artifacts.Artifact;
 import org.dive4elements.artifacts.ArtifactSerializer;
 
+import org.dive4elements.artifactdatabase.jfr.FlightEvents;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -58,12 +60,15 @@ implements   ArtifactSerializer
 
         ObjectInputStream ois = null;
 
+        Object event = FlightEvents.beginSerializer();
+        Artifact artifact = null;
+
         try {
             ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
             GZIPInputStream      gis = new GZIPInputStream(bis);
                                  ois = getObjectInputStream(gis);
 
-            return (Artifact)ois.readObject();
+            return artifact = (Artifact)ois.readObject();
         }
         catch (IOException ioe) {
             logger.error(ioe.getLocalizedMessage(), ioe);
@@ -79,12 +84,18 @@ implements   ArtifactSerializer
                 try { ois.close(); }
                 catch (IOException ioe) { }
             }
+            FlightEvents.endSerializer(
+                event,
+                "deserialize",
+                artifact != null ? artifact.getClass().getName() : null,
+                bytes.length);
         }
 
         return null;
     }
 
     public byte [] toBytes(Artifact artifact) {
+        Object event = FlightEvents.beginSerializer();
         try {
             ByteArrayOutputStream bos = new ByteArrayOutputStream();
             GZIPOutputStream      gos = new GZIPOutputStream(bos);
@@ -94,7 +105,15 @@ implements   ArtifactSerializer
             oos.flush();
             oos.close();
 
-            return bos.toByteArray();
+            byte [] bytes = bos.toByteArray();
+
+            FlightEvents.endSerializer(
+                event,
+                "serialize",
+                artifact.getClass().getName(),
+                bytes.length);
+
+            return bytes;
         }
         catch (IOException ioe) {
             logger.error(ioe.getLocalizedMessage(), ioe);
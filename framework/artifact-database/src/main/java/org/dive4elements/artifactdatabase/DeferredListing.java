@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase;
+
+import org.dive4elements.artifacts.ArtifactDatabase.DeferredOutput;
+import org.dive4elements.artifacts.ArtifactNamespaceContext;
+
+import org.dive4elements.artifacts.common.utils.XMLUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.w3c.dom.Node;
+
+/**
+ * Base class for listings (users, collections, collection items)
+ * which are written directly to the output stream with StAX
+ * instead of building a DOM document first. The elements of the
+ * listing have to be fetched from the {@link Backend} before the
+ * listing is created, so that no database connection is held
+ * while the response is written and backend errors are reported
+ * before the response is committed.
+ */
+public abstract class DeferredListing
+implements            DeferredOutput
+{
+    private static Logger logger = LogManager.getLogger(DeferredListing.class);
+
+    /** The encoding of the written documents. */
+    public static final String ENCODING = "UTF-8";
+
+    /** The writer of the current write() call. */
+    protected XMLStreamWriter writer;
+
+    public DeferredListing() {
+    }
+
+    public void write(OutputStream output) throws IOException {
+
+        XMLOutputFactory factory = XMLOutputFactory.newInstance();
+        factory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+
+        try {
+            writer = factory.createXMLStreamWriter(output, ENCODING);
+            try {
+                writer.writeStartDocument(ENCODING, "1.0");
+                if (!writeListing()) {
+                    throw new IOException("Writing listing failed");
+                }
+                writer.writeEndDocument();
+                writer.flush();
+            }
+            finally {
+                writer.close();
+                writer = null;
+            }
+        }
+        catch (XMLStreamException xse) {
+            logger.error(xse.getLocalizedMessage(), xse);
+            throw new IOException(xse.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Writes the body of the listing to the #writer.
+     * @return true if the listing was written successfully else false.
+     * @throws XMLStreamException Thrown if writing failed.
+     */
+    protected abstract boolean writeListing() throws XMLStreamException;
+
+    /**
+     * Opens an element in the artifact namespace.
+     * @param name The local name of the element.
+     */
+    protected void startElement(String name) throws XMLStreamException {
+        writer.writeStartElement(
+            ArtifactNamespaceContext.NAMESPACE_PREFIX,
+            name,
+            ArtifactNamespaceContext.NAMESPACE_URI);
+    }
+
+    /**
+     * Closes the current element.
+     */
+    protected void endElement() throws XMLStreamException {
+        writer.writeEndElement();
+    }
+
+    /**
+     * Adds an attribute in the artifact namespace to the current element.
+     * @param name  The local name of the attribute.
+     * @param value The value of the attribute. null is written as
+     * an empty string.
+     */
+    protected void addAttr(String name, String value)
+    throws XMLStreamException
+    {
+        writer.writeAttribute(
+            ArtifactNamespaceContext.NAMESPACE_PREFIX,
+            ArtifactNamespaceContext.NAMESPACE_URI,
+            name,
+            value != null ? value : "");
+    }
+
+    /**
+     * Writes a 'next' element with the cursor of the following page
+     * if there may be more elements to fetch.
+     * @param cursor The cursor of the next page or null.
+     */
+    protected void writeNext(String cursor) throws XMLStreamException {
+        if (cursor != null) {
+            startElement("next");
+            addAttr("after", cursor);
+            endElement();
+        }
+    }
+
+    /**
+     * Embeds a DOM node into the listing.
+     * @param node The node to be written.
+     */
+    protected void writeNode(Node node) throws XMLStreamException {
+        XMLUtils.toStream(node, writer);
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
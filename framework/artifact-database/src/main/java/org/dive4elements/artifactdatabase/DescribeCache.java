@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase;
+
+import org.dive4elements.artifactdatabase.Backend.PersistentArtifact;
+
+import org.dive4elements.artifacts.Artifact;
+import org.dive4elements.artifacts.ArtifactFactory;
+import org.dive4elements.artifacts.CallMeta;
+
+import org.dive4elements.artifacts.common.utils.Config;
+import org.dive4elements.artifacts.common.utils.XMLUtils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.xml.xpath.XPathConstants;
+
+import org.apache.commons.codec.binary.Hex;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.w3c.dom.Document;
+
+/**
+ * Opt-in cache of the documents returned by the describe() calls
+ * of artifacts. An artifact factory enables the cache for its
+ * artifacts with the 'describe-cache' attribute in the configuration
+ * giving the max. number of cached documents:
+ * <pre>
+ * &lt;artifact-factory name="..." describe-cache="500" ...&gt;
+ * </pre>
+ * The documents are stored in serialized form in a bounded LRU
+ * per factory. They are keyed by the identifier of the artifact
+ * and the digest of its stored form, the languages of the call and
+ * a digest of the input document. Entries of an artifact are dropped
+ * when the artifact is fed, advanced, stored or removed from the
+ * database.
+ * <br>
+ * To keep a describe running concurrently to an invalidation from
+ * storing its outdated document afterwards, every invalidation
+ * bumps a generation counter of the identifier. A describe reads
+ * the generation before it loads the artifact (#generation(String))
+ * and its document is only stored if the generation is unchanged.
+ * The counters are striped by the hash code of the identifier so
+ * their number is bounded. A collision only costs a cache miss.
+ */
+public class DescribeCache
+extends      DefaultBackendListener
+{
+    private static Logger logger = LogManager.getLogger(DescribeCache.class);
+
+    /**
+     * XPath to figure out the size of the cache of a factory.
+     */
+    public static final String XPATH_SIZE =
+        "/artifact-database/factories/artifact-factories" +
+        "/artifact-factory[@name=$name]/@describe-cache";
+
+    /**
+     * The cached describe documents of the artifacts of one factory.
+     */
+    public static class Region
+    {
+        /**
+         * The documents in access order (LRU first).
+         */
+        protected LinkedHashMap<String, byte []> entries;
+
+        protected int maxEntries;
+
+        protected long evictions;
+
+        public Region(int maxEntries) {
+            this.entries    = new LinkedHashMap<String, byte []>(
+                16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public synchronized long getEvictions() {
+            return evictions;
+        }
+
+        public synchronized byte [] lookup(String key) {
+            return entries.get(key);
+        }
+
+        public synchronized void store(String key, byte [] data) {
+            entries.put(key, data);
+            Iterator<byte []> i = entries.values().iterator();
+            while (entries.size() > maxEntries && i.hasNext()) {
+                i.next();
+                i.remove();
+                ++evictions;
+            }
+        }
+
+        public synchronized int invalidate(String identifier) {
+            String prefix = identifier + '|';
+            int removed = 0;
+            for (Iterator<String> i = entries.keySet().iterator();
+                i.hasNext();
+            ) {
+                if (i.next().startsWith(prefix)) {
+                    i.remove();
+                    ++removed;
+                }
+            }
+            return removed;
+        }
+
+        public synchronized int entries() {
+            return entries.size();
+        }
+
+        public synchronized void clear() {
+            entries.clear();
+        }
+    } // class Region
+
+    /**
+     * Number of the generation counters. Has to be a power of two.
+     */
+    public static final int GENERATIONS = 1024;
+
+    /**
+     * Factory name to region. Only filled in the constructor.
+     */
+    protected Map<String, Region> regions;
+
+    /**
+     * The generation counters of the identifiers.
+     */
+    protected AtomicLongArray generations;
+
+    protected AtomicLong hits;
+    protected AtomicLong misses;
+    protected AtomicLong invalidations;
+
+    public DescribeCache() {
+        regions       = new HashMap<String, Region>();
+        generations   = new AtomicLongArray(GENERATIONS);
+        hits          = new AtomicLong();
+        misses        = new AtomicLong();
+        invalidations = new AtomicLong();
+    }
+
+    /**
+     * Creates a cache for the given factories. Only factories
+     * which are configured to cache their documents get a region.
+     * @param factoryNames The names of the artifact factories.
+     */
+    public DescribeCache(String [] factoryNames) {
+        this();
+
+        Document config = Config.getConfig();
+        if (config == null) {
+            return;
+        }
+
+        Map<String, String> variables = new HashMap<String, String>();
+
+        for (String name: factoryNames) {
+            variables.put("name", name);
+
+            String sizeString = (String)XMLUtils.xpath(
+                config,
+                XPATH_SIZE,
+                XPathConstants.STRING,
+                null,
+                variables);
+
+            if (sizeString == null
+            || (sizeString = sizeString.trim()).length() == 0) {
+                continue;
+            }
+
+            try {
+                int size = Integer.parseInt(sizeString);
+                if (size > 0) {
+                    logger.info("describe cache of factory '"
+                        + name + "': " + size + " entries");
+                    regions.put(name, new Region(size));
+                }
+            }
+            catch (NumberFormatException nfe) {
+                logger.warn("describe-cache of factory '" + name
+                    + "' is not a valid number: " + sizeString);
+            }
+        }
+    }
+
+    /**
+     * @return true if at least one factory caches its documents.
+     */
+    public boolean isEnabled() {
+        return !regions.isEmpty();
+    }
+
+    protected Region getRegion(PersistentArtifact artifact) {
+        ArtifactFactory factory = artifact.getFactory();
+        return factory != null
+            ? regions.get(factory.getName())
+            : null;
+    }
+
+    /**
+     * Builds the cache key of a describe call. It has to be built
+     * once per call and handed to #get(PersistentArtifact, String)
+     * and #put(PersistentArtifact, String, Document, long).
+     * @param artifact The artifact to be described.
+     * @param data The input document of the call.
+     * @param callMeta The meta information of the call.
+     * @return The key or null if the call is not cacheable.
+     */
+    public String key(
+        PersistentArtifact artifact,
+        Document           data,
+        CallMeta           callMeta
+    ) {
+        if (getRegion(artifact) == null) {
+            return null;
+        }
+
+        String tag = ArtifactDatabaseImpl.entityTag(
+            artifact.getDigest(), callMeta);
+        if (tag == null) {
+            return null;
+        }
+
+        String input;
+        if (data == null) {
+            input = "-";
+        }
+        else {
+            byte [] bytes = XMLUtils.toByteArray(data);
+            if (bytes == null) {
+                return null;
+            }
+            try {
+                MessageDigest md = MessageDigest.getInstance(
+                    ArtifactDatabaseImpl.DIGEST_ALGORITHM);
+                input = Hex.encodeHexString(md.digest(bytes));
+            }
+            catch (NoSuchAlgorithmException nsae) {
+                logger.error(nsae.getLocalizedMessage(), nsae);
+                return null;
+            }
+        }
+
+        return artifact.getArtifact().identifier() + '|' + tag + '|' + input;
+    }
+
+    /**
+     * Looks up the describe document of an artifact.
+     * @param artifact The artifact to be described.
+     * @param key The key built by #key(PersistentArtifact, Document,
+     * CallMeta).
+     * @return A fresh copy of the cached document or null
+     * if it is not cached.
+     */
+    public Document get(PersistentArtifact artifact, String key) {
+        Region region;
+        if (key == null || (region = getRegion(artifact)) == null) {
+            return null;
+        }
+
+        byte [] bytes = region.lookup(key);
+        if (bytes == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        long h = hits.incrementAndGet();
+        if (logger.isDebugEnabled()) {
+            logger.debug("describe cache hit (" + h + " hits, "
+                + misses.get() + " misses): " + key);
+        }
+
+        return XMLUtils.fromByteArray(bytes);
+    }
+
+    protected static int stripe(String identifier) {
+        int h = identifier.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATIONS - 1);
+    }
+
+    /**
+     * Returns the current generation of an identifier. Has to be
+     * called before the artifact to be described is loaded.
+     * @param identifier The identifier of the artifact.
+     * @return The generation to be passed to
+     * #put(PersistentArtifact, String, Document, long).
+     */
+    public long generation(String identifier) {
+        return identifier != null
+            ? generations.get(stripe(identifier))
+            : 0L;
+    }
+
+    /**
+     * Stores the describe document of an artifact.
+     * @param artifact The described artifact.
+     * @param key The key built by #key(PersistentArtifact, Document,
+     * CallMeta).
+     * @param result The document returned by the describe() call.
+     * @param generation The generation of the identifier read before
+     * the artifact was loaded. If the artifact was invalidated since
+     * the document is not stored.
+     */
+    public void put(
+        PersistentArtifact artifact,
+        String             key,
+        Document           result,
+        long               generation
+    ) {
+        Region region;
+        if (key == null || result == null
+        || (region = getRegion(artifact)) == null) {
+            return;
+        }
+
+        byte [] bytes = XMLUtils.toByteArray(result);
+        if (bytes == null) {
+            return;
+        }
+
+        int stripe = stripe(artifact.getArtifact().identifier());
+
+        // Checked under the lock of the region: an invalidation bumps
+        // the generation before it takes the lock to drop the entries.
+        synchronized (region) {
+            if (generations.get(stripe) == generation) {
+                region.store(key, bytes);
+            }
+            else if (logger.isDebugEnabled()) {
+                logger.debug("describe cache: outdated document not stored: "
+                    + key);
+            }
+        }
+    }
+
+    /**
+     * Drops all cached documents of an artifact.
+     * @param identifier The identifier of the artifact.
+     */
+    public void invalidate(String identifier) {
+        if (identifier == null) {
+            return;
+        }
+        generations.incrementAndGet(stripe(identifier));
+        for (Region region: regions.values()) {
+            int removed = region.invalidate(identifier);
+            if (removed > 0) {
+                invalidations.addAndGet(removed);
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public long getEvictions() {
+        long evictions = 0L;
+        for (Region region: regions.values()) {
+            evictions += region.getEvictions();
+        }
+        return evictions;
+    }
+
+    public int getEntries() {
+        int entries = 0;
+        for (Region region: regions.values()) {
+            entries += region.entries();
+        }
+        return entries;
+    }
+
+    /**
+     * Drops all cached documents.
+     */
+    public void clear() {
+        for (Region region: regions.values()) {
+            region.clear();
+        }
+    }
+
+    @Override
+    public void storedArtifact(Artifact artifact, Backend backend) {
+        invalidate(artifact.identifier());
+    }
+
+    @Override
+    public void killedArtifacts(List<String> identifiers, Backend backend) {
+        for (String identifier: identifiers) {
+            invalidate(identifier);
+        }
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -523,6 +523,11 @@ public class FactoryBootstrap
                 BackendListener listener =
                     (BackendListener)clazz.newInstance();
 
+                if (Boolean.valueOf(
+                    Config.getStringXPath(node, "@async"))) {
+                    listener = asyncBackendListener(listener, node);
+                }
+
                 bls.add(listener);
             }
             catch (ClassNotFoundException cnfe) {
@@ -542,6 +547,35 @@ public class FactoryBootstrap
         backendListeners = bls;
     }
 
+    protected static BackendListener asyncBackendListener(
+        BackendListener listener,
+        Node            node
+    ) {
+        int queueSize = AsyncBackendListener.DEFAULT_QUEUE_SIZE;
+
+        String qs = Config.getStringXPath(node, "@queue-size");
+        if (qs != null && (qs = qs.trim()).length() > 0) {
+            try {
+                queueSize = Integer.parseInt(qs);
+            }
+            catch (NumberFormatException nfe) {
+                logger.warn("queue-size is not a valid number: " + qs);
+            }
+        }
+
+        String backpressure = Config.getStringXPath(node, "@backpressure");
+        if (backpressure == null
+        || (backpressure = backpressure.trim()).length() == 0) {
+            backpressure = AsyncBackendListener.BLOCK;
+        }
+
+        logger.info("backend listener " + listener.getClass().getName()
+            + " is asynchronous (queue size: " + queueSize
+            + ", backpressure: " + backpressure + ")");
+
+        return new AsyncBackendListener(listener, queueSize, backpressure);
+    }
+
     protected void loadHooks() {
         logger.info("loading hooks");
 
@@ -565,6 +599,13 @@ public class FactoryBootstrap
             }
 
             Hook     hook  = loadHook(cfg);
+
+            if (hook != null && Boolean.valueOf(
+                Config.getStringXPath(cfg, "@async"))) {
+                logger.info("hook " + hook.getClass().getName()
+                    + " is asynchronous");
+                hook = new AsyncHook(hook);
+            }
             String[] apply = applies.split(",");
 
             for (String a: apply) {
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase;
+
+import org.dive4elements.artifactdatabase.Backend.PersistentArtifact;
+
+import org.dive4elements.artifactdatabase.metrics.Gauge;
+import org.dive4elements.artifactdatabase.metrics.Metrics;
+
+import org.dive4elements.artifacts.CallContext;
+import org.dive4elements.artifacts.CallMeta;
+import org.dive4elements.artifacts.Hook;
+
+import org.dive4elements.artifacts.common.utils.Config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.w3c.dom.Document;
+
+/**
+ * Executes the asynchronous hooks (see AsyncHook) in a pool of
+ * daemon threads. Its size and the capacity of its queue are
+ * configured with
+ * <pre>
+ * &lt;hooks threads="2" queue-size="1000"&gt;...&lt;/hooks&gt;
+ * </pre>
+ * If the queue is full or the executor is shut down the hook is
+ * executed in the calling thread.
+ */
+public class HookExecutor
+{
+    private static Logger logger = LogManager.getLogger(HookExecutor.class);
+
+    public static final String XPATH_THREADS =
+        "/artifact-database/hooks/@threads";
+
+    public static final String XPATH_QUEUE_SIZE =
+        "/artifact-database/hooks/@queue-size";
+
+    public static final int DEFAULT_THREADS    = 2;
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    /**
+     * Max. time (in ms) to wait for the queued hooks when the
+     * database shuts down.
+     */
+    public static final long SHUTDOWN_TIMEOUT = 5000L;
+
+    /**
+     * Histogram of the times the hooks wait in the queue.
+     */
+    public static final String LAG_HISTOGRAM = "d4e_hook_lag_seconds";
+
+    /**
+     * Histogram of the execution times of the asynchronous hooks.
+     */
+    public static final String EXECUTION_HISTOGRAM = "d4e_hook_seconds";
+
+    public static final String REJECTED_COUNTER = "d4e_hook_rejected_total";
+
+    public static final String FAILED_COUNTER = "d4e_hook_failures_total";
+
+    static {
+        Metrics.help(LAG_HISTOGRAM,
+            "Time the asynchronous hooks wait in the queue.");
+        Metrics.help(EXECUTION_HISTOGRAM,
+            "Execution time of the asynchronous hooks.");
+        Metrics.help(REJECTED_COUNTER,
+            "Asynchronous hooks run inline because the queue was full.");
+        Metrics.help(FAILED_COUNTER, "Failed asynchronous hooks.");
+        Metrics.help("d4e_hook_queue_length",
+            "Asynchronous hooks waiting for execution.");
+        Metrics.help("d4e_hook_active",
+            "Asynchronous hooks currently executed.");
+    }
+
+    protected ArtifactDatabaseImpl db;
+    protected Backend              backend;
+
+    protected ThreadPoolExecutor   executor;
+
+    public HookExecutor(ArtifactDatabaseImpl db, Backend backend) {
+        this(
+            db,
+            backend,
+            getInt(XPATH_THREADS,    DEFAULT_THREADS),
+            getInt(XPATH_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+    }
+
+    public HookExecutor(
+        ArtifactDatabaseImpl db,
+        Backend              backend,
+        int                  threads,
+        int                  queueSize
+    ) {
+        this.db      = db;
+        this.backend = backend;
+
+        threads   = Math.max(1, threads);
+        queueSize = Math.max(1, queueSize);
+
+        logger.info("asynchronous hooks: " + threads
+            + " threads, queue size " + queueSize);
+
+        final AtomicInteger count = new AtomicInteger();
+
+        executor = new ThreadPoolExecutor(
+            threads, threads,
+            60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(queueSize),
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(
+                        runnable, "hook-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            },
+            new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(
+                    Runnable           runnable,
+                    ThreadPoolExecutor executor
+                ) {
+                    if (executor.isShutdown()) {
+                        logger.debug("hooks shut down. Running hook inline.");
+                    }
+                    else {
+                        Metrics.counter(REJECTED_COUNTER, null).increment();
+                        logger.warn("hook queue is full. Running hook inline.");
+                    }
+                    runnable.run();
+                }
+            });
+        executor.allowCoreThreadTimeOut(true);
+
+        Metrics.gauge("d4e_hook_queue_length", null, new Gauge() {
+            @Override
+            public double value() {
+                return getQueueLength();
+            }
+        });
+        Metrics.gauge("d4e_hook_active", null, new Gauge() {
+            @Override
+            public double value() {
+                return getActiveCount();
+            }
+        });
+    }
+
+    protected static int getInt(String xpath, int def) {
+        String value = Config.getStringXPath(xpath);
+        if (value == null || (value = value.trim()).length() == 0) {
+            return def;
+        }
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException nfe) {
+            logger.warn("'" + xpath + "' is not a valid number: " + value);
+        }
+        return def;
+    }
+
+    /**
+     * Schedules the execution of a hook.
+     * @param hook The hook to execute.
+     * @param identifier The identifier of the called artifact.
+     * @param callMeta The meta information of the original call.
+     * @param result The result document of the call. A copy
+     * of it is handed over to the hook.
+     */
+    public void submit(
+        final Hook     hook,
+        final String   identifier,
+        final CallMeta callMeta,
+        Document       result
+    ) {
+        final Document snapshot = result != null
+            ? (Document)result.cloneNode(true)
+            : null;
+
+        final long enqueued = System.nanoTime();
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                Metrics.histogram(LAG_HISTOGRAM, null)
+                    .record(start - enqueued);
+                try {
+                    execute(hook, identifier, callMeta, snapshot);
+                }
+                catch (RuntimeException re) {
+                    Metrics.counter(FAILED_COUNTER, null).increment();
+                    logger.error(re.getLocalizedMessage(), re);
+                }
+                finally {
+                    Metrics.histogram(EXECUTION_HISTOGRAM, Metrics.labels(
+                        "hook", hook.getClass().getName()))
+                        .record(System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    protected void execute(
+        Hook     hook,
+        String   identifier,
+        CallMeta callMeta,
+        Document result
+    ) {
+        PersistentArtifact artifact = backend.getArtifact(identifier);
+
+        if (artifact == null) {
+            logger.warn("artifact '" + identifier
+                + "' vanished before its hook was executed");
+            return;
+        }
+
+        ArtifactCallContext cc = new ArtifactCallContext(
+            db,
+            CallContext.NOTHING,
+            callMeta,
+            artifact);
+
+        try {
+            hook.execute(artifact.getArtifact(), cc, result);
+        }
+        finally {
+            cc.postCall();
+        }
+    }
+
+    /**
+     * @return The number of hooks waiting for execution.
+     */
+    public int getQueueLength() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The number of hooks currently executed.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Stops accepting new hooks and waits until the queued
+     * ones are executed.
+     * @param timeout Max. time to wait in ms.
+     * @return true if all hooks were executed.
+     */
+    public boolean shutdown(long timeout) {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        logger.warn("asynchronous hooks did not finish: "
+            + getQueueLength() + " hooks left");
+        return false;
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
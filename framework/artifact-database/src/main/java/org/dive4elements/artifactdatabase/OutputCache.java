@@ -0,0 +1,818 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase;
+
+import org.dive4elements.artifacts.Artifact;
+import org.dive4elements.artifacts.CallMeta;
+
+import org.dive4elements.artifactdatabase.Backend.PersistentArtifact;
+
+import org.dive4elements.artifacts.common.utils.Config;
+import org.dive4elements.artifacts.common.utils.XMLUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.binary.Hex;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.w3c.dom.Document;
+
+/**
+ * Cache of the results of the out() calls of artifacts and
+ * collections. The results are keyed by the identifier, the hash and
+ * the languages of the call, the output type and a digest of the
+ * format document. Small results are kept in memory, larger ones
+ * are spilled to files in a directory below the configuration
+ * directory and are served with FileChannel.transferTo().
+ * Both the memory and the directory are bounded and the least
+ * recently used results are evicted first. A result is dropped if
+ * one of the artifacts or the collection it depends on is stored
+ * or removed. A result recorded while one of its dependencies was
+ * invalidated is not put into the cache: the cache logs the most
+ * recent invalidations and a recorder remembers the position in this
+ * log when it starts. On commit the invalidations logged since then
+ * are checked against the dependencies of the result.
+ * The cache is configured below /artifact-database/output-cache
+ * and is disabled by default.
+ */
+public class OutputCache
+extends      DefaultBackendListener
+{
+    private static Logger logger = LogManager.getLogger(OutputCache.class);
+
+    public static final String XPATH_ENABLED =
+        "/artifact-database/output-cache/@enabled";
+
+    public static final String XPATH_MEMORY_THRESHOLD =
+        "/artifact-database/output-cache/memory-threshold/text()";
+
+    public static final String XPATH_MAX_MEMORY =
+        "/artifact-database/output-cache/max-memory/text()";
+
+    public static final String XPATH_DIRECTORY =
+        "/artifact-database/output-cache/directory/text()";
+
+    public static final String XPATH_MAX_DISK =
+        "/artifact-database/output-cache/max-disk/text()";
+
+    /**
+     * Results larger than this are spilled to disk: 64KB.
+     */
+    public static final long DEFAULT_MEMORY_THRESHOLD = 64L*1024L;
+
+    /**
+     * Default max. size of all results in memory: 32MB.
+     */
+    public static final long DEFAULT_MAX_MEMORY = 32L*1024L*1024L;
+
+    /**
+     * Default max. size of all results on disk: 512MB.
+     */
+    public static final long DEFAULT_MAX_DISK = 512L*1024L*1024L;
+
+    public static final String DEFAULT_DIRECTORY =
+        Config.CONFIG_DIR_PLACEHOLDER + "/output-cache";
+
+    /**
+     * Prefix of the files holding spilled results.
+     */
+    public static final String FILE_PREFIX = "out-";
+
+    public static final String FILE_SUFFIX = ".cache";
+
+    /**
+     * Number of invalidations kept to check committed results
+     * against. Results taking longer than this number of
+     * invalidations to record are not cached.
+     */
+    public static final int INVALIDATION_LOG = 256;
+
+    /**
+     * A cached result. Either data or file is set.
+     */
+    protected static final class Entry {
+
+        protected String      key;
+        protected Set<String> dependencies;
+        protected byte []     data;
+        protected File        file;
+        protected long        size;
+
+        protected Entry(String key, Set<String> dependencies) {
+            this.key          = key;
+            this.dependencies = dependencies;
+        }
+
+        protected boolean dependsOn(String identifier) {
+            return dependencies.contains(identifier);
+        }
+    } // class Entry
+
+    /**
+     * Writes the result of an out() call to the client and records
+     * a copy of it for the cache at the same time.
+     */
+    public class Recorder
+    extends      OutputStream
+    {
+        protected String                key;
+        protected OutputStream          out;
+        protected ByteArrayOutputStream buffer;
+        protected File                  file;
+        protected OutputStream          fileOut;
+        protected long                  size;
+        protected boolean               failed;
+        protected boolean               done;
+
+        /** Number of invalidations when the recording started. */
+        protected long                  generation;
+
+        protected Recorder(String key, OutputStream out, long generation) {
+            this.key        = key;
+            this.out        = out;
+            this.generation = generation;
+            buffer          = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            record(new byte [] { (byte)b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte [] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            record(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        /**
+         * Checks if the next len bytes can be recorded and spills
+         * the recorded bytes to disk if they grow too large.
+         * Failing to record does not affect the output to the client.
+         */
+        protected boolean prepare(int len) {
+            if (failed || done) {
+                return false;
+            }
+
+            size += len;
+
+            if (directory == null ? size > memoryThreshold : size > maxDisk) {
+                discard();
+                return false;
+            }
+
+            if (fileOut == null && size > memoryThreshold) {
+                try {
+                    file = File.createTempFile(
+                        FILE_PREFIX, FILE_SUFFIX, directory);
+                    fileOut = new BufferedOutputStream(
+                        new FileOutputStream(file));
+                    buffer.writeTo(fileOut);
+                    buffer = null;
+                }
+                catch (IOException ioe) {
+                    logger.error("cannot spill output to disk: "
+                        + ioe.getLocalizedMessage());
+                    discard();
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        protected void record(byte [] b, int off, int len) {
+            if (!prepare(len)) {
+                return;
+            }
+            if (fileOut == null) {
+                buffer.write(b, off, len);
+                return;
+            }
+            try {
+                fileOut.write(b, off, len);
+            }
+            catch (IOException ioe) {
+                logger.error("cannot spill output to disk: "
+                    + ioe.getLocalizedMessage());
+                discard();
+            }
+        }
+
+        protected void discard() {
+            failed = true;
+            buffer = null;
+            if (fileOut != null) {
+                try {
+                    fileOut.close();
+                }
+                catch (IOException ioe) {
+                    logger.warn(ioe.getLocalizedMessage());
+                }
+                fileOut = null;
+            }
+            if (file != null) {
+                if (!file.delete()) {
+                    logger.warn("cannot delete '" + file + "'");
+                }
+                file = null;
+            }
+        }
+
+        /**
+         * Puts the recorded result into the cache unless one of
+         * its dependencies was invalidated while it was recorded.
+         * @param dependencies The identifiers of the artifacts and
+         * collections the result depends on.
+         */
+        public void commit(Set<String> dependencies) {
+            if (failed || done) {
+                return;
+            }
+            done = true;
+
+            Entry entry = new Entry(key, dependencies);
+            entry.size  = size;
+
+            if (fileOut != null) {
+                try {
+                    fileOut.close();
+                }
+                catch (IOException ioe) {
+                    logger.error(ioe.getLocalizedMessage(), ioe);
+                    failed = true;
+                    discard();
+                    return;
+                }
+                fileOut    = null;
+                entry.file = file;
+                file       = null;
+            }
+            else {
+                entry.data = buffer.toByteArray();
+                buffer     = null;
+            }
+
+            if (!add(entry, generation)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("output cache: outdated result not stored: "
+                        + key);
+                }
+                deleteFiles(Collections.singletonList(entry));
+            }
+        }
+
+        /**
+         * Throws away the recorded result. Nothing happens if the
+         * result was already committed.
+         */
+        public void abort() {
+            if (!done) {
+                done = true;
+                discard();
+            }
+        }
+    } // class Recorder
+
+    protected boolean enabled;
+
+    protected long memoryThreshold;
+    protected long maxMemory;
+    protected long maxDisk;
+
+    protected File directory;
+
+    /**
+     * Key to entry in access order.
+     */
+    protected LinkedHashMap<String, Entry> entries;
+
+    protected long memoryBytes;
+    protected long diskBytes;
+
+    /**
+     * Ring of the identifiers of the most recent invalidations.
+     * Guarded by entries.
+     */
+    protected String [] invalidationLog;
+
+    /**
+     * Number of invalidations so far. Guarded by entries.
+     */
+    protected long invalidationCount;
+
+    protected AtomicLong hits;
+    protected AtomicLong misses;
+    protected AtomicLong evictions;
+    protected AtomicLong invalidations;
+
+    public OutputCache() {
+        entries         = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        invalidationLog = new String[INVALIDATION_LOG];
+        hits            = new AtomicLong();
+        misses          = new AtomicLong();
+        evictions       = new AtomicLong();
+        invalidations   = new AtomicLong();
+    }
+
+    /**
+     * Creates an output cache configured by the given document.
+     * @param config The global configuration.
+     */
+    public OutputCache(Document config) {
+        this();
+
+        if (config == null) {
+            return;
+        }
+
+        String enabledString =
+            XMLUtils.xpathString(config, XPATH_ENABLED, null);
+
+        if (enabledString == null
+        || !Boolean.valueOf(enabledString.trim())) {
+            return;
+        }
+
+        memoryThreshold = getLong(
+            config, XPATH_MEMORY_THRESHOLD, DEFAULT_MEMORY_THRESHOLD);
+        maxMemory = getLong(config, XPATH_MAX_MEMORY, DEFAULT_MAX_MEMORY);
+        maxDisk   = getLong(config, XPATH_MAX_DISK,   DEFAULT_MAX_DISK);
+
+        String directoryString =
+            XMLUtils.xpathString(config, XPATH_DIRECTORY, null);
+
+        if (directoryString == null
+        || (directoryString = directoryString.trim()).length() == 0) {
+            directoryString = DEFAULT_DIRECTORY;
+        }
+
+        directory = setupDirectory(
+            new File(Config.replaceConfigDir(directoryString)));
+
+        if (directory == null) {
+            logger.warn("output cache is restricted to memory");
+            maxDisk = 0L;
+        }
+
+        enabled = true;
+
+        logger.info("output cache: memory threshold " + memoryThreshold
+            + ", max memory " + maxMemory + ", max disk " + maxDisk
+            + ", directory " + directory);
+    }
+
+    protected static long getLong(Document config, String xpath, long def) {
+        String value = XMLUtils.xpathString(config, xpath, null);
+        if (value != null && (value = value.trim()).length() > 0) {
+            try {
+                return Long.parseLong(value);
+            }
+            catch (NumberFormatException nfe) {
+                logger.warn("'" + value + "' is not a valid number.");
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Creates the spill directory if needed and removes the
+     * results of a former run.
+     */
+    protected static File setupDirectory(File dir) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            logger.error("cannot create output cache directory '"
+                + dir + "'");
+            return null;
+        }
+
+        File [] files = dir.listFiles();
+        if (files != null) {
+            for (File file: files) {
+                String name = file.getName();
+                if (name.startsWith(FILE_PREFIX)
+                && name.endsWith(FILE_SUFFIX)
+                && !file.delete()) {
+                    logger.warn("cannot delete '" + file + "'");
+                }
+            }
+        }
+
+        return dir;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the cache key of an out() call.
+     * @return The key or null if the cache is disabled or the
+     * result is not cacheable.
+     */
+    public String key(
+        String   identifier,
+        String   hash,
+        String   type,
+        Document format,
+        CallMeta callMeta
+    ) {
+        if (!enabled) {
+            return null;
+        }
+
+        String tag = ArtifactDatabaseImpl.entityTag(hash, callMeta);
+        if (tag == null) {
+            return null;
+        }
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(
+                ArtifactDatabaseImpl.DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            logger.error(nsae.getLocalizedMessage(), nsae);
+            return null;
+        }
+
+        if (format != null) {
+            byte [] bytes = XMLUtils.toByteArray(format);
+            if (bytes == null) {
+                return null;
+            }
+            md.update(bytes);
+        }
+
+        return identifier + '|' + tag + '|' + type
+            + '|' + Hex.encodeHexString(md.digest());
+    }
+
+    /**
+     * Builds the cache key of an artifact's out() call from the
+     * digest of the stored artifact.
+     */
+    public String key(
+        PersistentArtifact artifact,
+        String             type,
+        Document           format,
+        CallMeta           callMeta
+    ) {
+        return key(
+            artifact.getArtifact().identifier(), artifact.getDigest(),
+            type, format, callMeta);
+    }
+
+    /**
+     * Writes a cached result to the given stream.
+     * @param key The key of the result.
+     * @param out The stream to write to.
+     * @return true if the result was found in the cache and was
+     * written, false if it is not cached.
+     * @throws IOException Thrown if writing to the stream failed.
+     */
+    public boolean serve(String key, OutputStream out) throws IOException {
+        byte []         data = null;
+        FileInputStream in   = null;
+        long            size = 0L;
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.data != null) {
+                    data = entry.data;
+                }
+                else {
+                    // Open the file while holding the lock so that
+                    // the result is still readable if it gets evicted.
+                    try {
+                        in   = new FileInputStream(entry.file);
+                        size = entry.size;
+                    }
+                    catch (IOException ioe) {
+                        logger.warn(ioe.getLocalizedMessage());
+                        remove(entry);
+                    }
+                }
+            }
+        }
+
+        if (data == null && in == null) {
+            misses.incrementAndGet();
+            return false;
+        }
+
+        hits.incrementAndGet();
+
+        if (data != null) {
+            out.write(data);
+            return true;
+        }
+
+        try {
+            FileChannel          channel = in.getChannel();
+            WritableByteChannel  target  = Channels.newChannel(out);
+            long                 pos     = 0L;
+            while (pos < size) {
+                long n = channel.transferTo(pos, size - pos, target);
+                if (n <= 0L) {
+                    break;
+                }
+                pos += n;
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates a stream which writes to the given stream and records
+     * the written bytes for the cache.
+     * @param key The key of the result.
+     * @param out The stream to write to.
+     * @return The recording stream.
+     */
+    public Recorder record(String key, OutputStream out) {
+        long generation;
+        synchronized (entries) {
+            generation = invalidationCount;
+        }
+        return new Recorder(key, out, generation);
+    }
+
+    /**
+     * Checks if one of the dependencies of an entry was invalidated
+     * since the given generation. Has to be called with the lock
+     * of entries held.
+     */
+    protected boolean outdated(Entry entry, long generation) {
+        if (invalidationCount - generation > INVALIDATION_LOG) {
+            // The log does not reach back far enough.
+            return true;
+        }
+        for (long i = generation; i < invalidationCount; ++i) {
+            if (entry.dependsOn(
+                invalidationLog[(int)(i % INVALIDATION_LOG)])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Puts an entry into the cache.
+     * @param entry The entry.
+     * @param generation The number of invalidations when the
+     * result of the entry started to be recorded.
+     * @return false if the entry is outdated and was not added.
+     */
+    protected boolean add(Entry entry, long generation) {
+        List<Entry> evicted = new ArrayList<Entry>();
+
+        synchronized (entries) {
+            if (outdated(entry, generation)) {
+                return false;
+            }
+
+            Entry old = entries.remove(entry.key);
+            if (old != null) {
+                evicted.add(old);
+                account(old, -1L);
+            }
+
+            entries.put(entry.key, entry);
+            account(entry, 1L);
+
+            // Evict the least recently used results of the
+            // storage which exceeds its limit.
+            for (Iterator<Entry> i = entries.values().iterator();
+                i.hasNext() && (memoryBytes > maxMemory || diskBytes > maxDisk);
+            ) {
+                Entry eldest = i.next();
+                if (eldest.file != null
+                    ? diskBytes   <= maxDisk
+                    : memoryBytes <= maxMemory) {
+                    continue;
+                }
+                i.remove();
+                account(eldest, -1L);
+                evicted.add(eldest);
+                evictions.incrementAndGet();
+            }
+        }
+
+        deleteFiles(evicted);
+        return true;
+    }
+
+    protected void account(Entry entry, long sign) {
+        if (entry.file != null) {
+            diskBytes += sign*entry.size;
+        }
+        else {
+            memoryBytes += sign*entry.size;
+        }
+    }
+
+    protected void remove(Entry entry) {
+        if (entries.remove(entry.key) != null) {
+            account(entry, -1L);
+            if (entry.file != null && !entry.file.delete()) {
+                logger.warn("cannot delete '" + entry.file + "'");
+            }
+        }
+    }
+
+    protected static void deleteFiles(List<Entry> entries) {
+        for (Entry entry: entries) {
+            if (entry.file != null && !entry.file.delete()) {
+                logger.warn("cannot delete '" + entry.file + "'");
+            }
+        }
+    }
+
+    /**
+     * Drops all results depending on the given artifact or collection.
+     * @param identifier The identifier of the artifact or collection.
+     */
+    public void invalidate(String identifier) {
+        if (!enabled || identifier == null) {
+            return;
+        }
+
+        List<Entry> removed = new ArrayList<Entry>();
+
+        synchronized (entries) {
+            invalidationLog[(int)(invalidationCount % INVALIDATION_LOG)] =
+                identifier;
+            ++invalidationCount;
+
+            for (Iterator<Entry> i = entries.values().iterator(); i.hasNext();) {
+                Entry entry = i.next();
+                if (entry.dependsOn(identifier)) {
+                    i.remove();
+                    account(entry, -1L);
+                    removed.add(entry);
+                }
+            }
+        }
+
+        if (!removed.isEmpty()) {
+            invalidations.addAndGet(removed.size());
+            deleteFiles(removed);
+        }
+    }
+
+    /**
+     * Drops all cached results.
+     */
+    public void clear() {
+        List<Entry> removed;
+        synchronized (entries) {
+            removed = new ArrayList<Entry>(entries.values());
+            entries.clear();
+            memoryBytes = 0L;
+            diskBytes   = 0L;
+        }
+        deleteFiles(removed);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public long getMemoryBytes() {
+        synchronized (entries) {
+            return memoryBytes;
+        }
+    }
+
+    public long getDiskBytes() {
+        synchronized (entries) {
+            return diskBytes;
+        }
+    }
+
+    @Override
+    public void storedArtifact(Artifact artifact, Backend backend) {
+        invalidate(artifact.identifier());
+    }
+
+    @Override
+    public void killedArtifacts(List<String> identifiers, Backend backend) {
+        for (String identifier: identifiers) {
+            invalidate(identifier);
+        }
+    }
+
+    @Override
+    public void deletedCollection(String identifier, Backend backend) {
+        invalidate(identifier);
+    }
+
+    @Override
+    public void killedCollections(List<String> identifiers, Backend backend) {
+        for (String identifier: identifiers) {
+            invalidate(identifier);
+        }
+    }
+
+    @Override
+    public void changedCollectionAttribute(
+        String   identifier,
+        Document document,
+        Backend  backend
+    ) {
+        invalidate(identifier);
+    }
+
+    @Override
+    public void changedCollectionItemAttribute(
+        String   collectionId,
+        String   artifactId,
+        Document document,
+        Backend  backend
+    ) {
+        invalidate(collectionId);
+    }
+
+    @Override
+    public void addedArtifactToCollection(
+        String  artifactId,
+        String  collectionId,
+        Backend backend
+    ) {
+        invalidate(collectionId);
+    }
+
+    @Override
+    public void removedArtifactFromCollection(
+        String  artifactId,
+        String  collectionId,
+        Backend backend
+    ) {
+        invalidate(collectionId);
+    }
+
+    @Override
+    public void setCollectionName(String collectionId, String name) {
+        invalidate(collectionId);
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
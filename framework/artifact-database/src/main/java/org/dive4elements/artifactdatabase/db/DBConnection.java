@@ -4,8 +4,6 @@ import javax.sql.DataSource;
 
 import java.io.File;
 
-import org.apache.commons.pool.ObjectPool;
-
 import org.apache.commons.pool.impl.GenericObjectPool;
 
 import org.apache.commons.dbcp.DriverManagerConnectionFactory;
@@ -14,6 +12,9 @@ import org.apache.commons.dbcp.PoolingDataSource;
 
 import org.dive4elements.artifacts.common.utils.Config;
 
+import org.dive4elements.artifactdatabase.metrics.Gauge;
+import org.dive4elements.artifactdatabase.metrics.Metrics;
+
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -27,6 +28,17 @@ public class DBConnection
     public static final String DEFAULT_DATABASE_FILE = "artifacts.db";
     public static final String DEFAULT_URL           = getDefaultURL();
 
+    /**
+     * Statements running longer than this (in ms) are logged.
+     */
+    public static final long DEFAULT_SLOW_QUERY_THRESHOLD = 1000L;
+
+    /**
+     * Write transactions holding their connection longer than
+     * this (in ms) are logged.
+     */
+    public static final long DEFAULT_TRANSACTION_THRESHOLD = 2000L;
+
     public static final String getDefaultURL() {
         File configDir = Config.getConfigDirectory();
         File databaseFile = new File(configDir, DEFAULT_DATABASE_FILE);
@@ -35,11 +47,25 @@ public class DBConnection
 
     protected DataSource dataSource;
 
+    /**
+     * The pool of the connections. null before the data source
+     * is created.
+     */
+    protected volatile GenericObjectPool pool;
+
     protected String driver;
     protected String url;
     protected String user;
     protected String password;
 
+    protected int    maxConcurrency;
+
+    protected long   slowQueryThreshold = DEFAULT_SLOW_QUERY_THRESHOLD;
+
+    protected long    leakThreshold        = -1L;
+    protected boolean captureLeakStacks;
+    protected long    transactionThreshold = DEFAULT_TRANSACTION_THRESHOLD;
+
     public DBConnection() {
     }
 
@@ -79,6 +105,88 @@ public class DBConnection
         this.driver = driver;
     }
 
+    /**
+     * @return The max. number of concurrent database executions.
+     * Values &lt;= 0 mean unbounded.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Bounds the max. number of concurrent database executions
+     * to the max. number of pooled connections. If no limit is
+     * configured or it is larger the limit is set to the size
+     * of the pool. Has to be called before the SQLExecutor using
+     * this connection is created.
+     */
+    public void limitConcurrencyToPool() {
+        int maxActive = getMaxActive();
+        if (maxActive <= 0) {
+            // Unbounded pool.
+            return;
+        }
+        if (maxConcurrency <= 0 || maxConcurrency > maxActive) {
+            log.info("limiting concurrent database executions to "
+                + maxActive + " (max. pooled connections)");
+            maxConcurrency = maxActive;
+        }
+    }
+
+    /**
+     * @return The time in ms after which the executions of
+     * statements are logged as slow. Negative values mean
+     * that slow statements are not logged.
+     */
+    public long getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public void setSlowQueryThreshold(long slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    /**
+     * @return The time in ms after which borrowed connections
+     * are reported as leaked. Negative values (the default) turn
+     * the detection off.
+     */
+    public long getLeakThreshold() {
+        return leakThreshold;
+    }
+
+    public void setLeakThreshold(long leakThreshold) {
+        this.leakThreshold = leakThreshold;
+    }
+
+    /**
+     * @return true if the stack of the borrower is captured
+     * when a connection is borrowed to be reported with a leak.
+     */
+    public boolean getCaptureLeakStacks() {
+        return captureLeakStacks;
+    }
+
+    public void setCaptureLeakStacks(boolean captureLeakStacks) {
+        this.captureLeakStacks = captureLeakStacks;
+    }
+
+    /**
+     * @return The time in ms after which write transactions are
+     * logged as long running. Negative values turn the logging off.
+     */
+    public long getTransactionThreshold() {
+        return transactionThreshold;
+    }
+
+    public void setTransactionThreshold(long transactionThreshold) {
+        this.transactionThreshold = transactionThreshold;
+    }
+
     public String getUrl() {
         return url;
     }
@@ -109,14 +217,71 @@ public class DBConnection
             DriverManagerConnectionFactory dmcf =
                 new DriverManagerConnectionFactory(url, user, password);
 
-            ObjectPool cp = new GenericObjectPool();
+            GenericObjectPool cp = new GenericObjectPool();
 
             PoolableConnectionFactory pcf = new PoolableConnectionFactory(
                 dmcf, cp, null, null, false, false);
 
+            pool       = cp;
             dataSource = new PoolingDataSource(cp);
+
+            registerGauges();
         }
         return dataSource;
     }
+
+    protected void registerGauges() {
+        Metrics.help("d4e_db_pool_active", "Borrowed pool connections.");
+        Metrics.help("d4e_db_pool_idle", "Idle pool connections.");
+        Metrics.help("d4e_db_pool_max_active",
+            "Max. number of pool connections.");
+
+        Metrics.gauge("d4e_db_pool_active", null, new Gauge() {
+            @Override
+            public double value() {
+                return getNumActive();
+            }
+        });
+        Metrics.gauge("d4e_db_pool_idle", null, new Gauge() {
+            @Override
+            public double value() {
+                return getNumIdle();
+            }
+        });
+        Metrics.gauge("d4e_db_pool_max_active", null, new Gauge() {
+            @Override
+            public double value() {
+                return getMaxActive();
+            }
+        });
+    }
+
+    /**
+     * @return The number of borrowed connections.
+     */
+    public int getNumActive() {
+        GenericObjectPool p = pool;
+        return p != null ? p.getNumActive() : 0;
+    }
+
+    /**
+     * @return The number of idle connections in the pool.
+     */
+    public int getNumIdle() {
+        GenericObjectPool p = pool;
+        return p != null ? p.getNumIdle() : 0;
+    }
+
+    /**
+     * @return The max. number of borrowed connections.
+     * Negative values mean unbounded. Before the pool is created
+     * the default of the pool is returned.
+     */
+    public int getMaxActive() {
+        GenericObjectPool p = pool;
+        return p != null
+            ? p.getMaxActive()
+            : GenericObjectPool.DEFAULT_MAX_ACTIVE;
+    }
 }
 // vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
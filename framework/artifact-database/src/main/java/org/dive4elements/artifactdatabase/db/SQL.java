@@ -2,6 +2,9 @@ package org.dive4elements.artifactdatabase.db;
 
 import java.util.Properties;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -12,6 +15,13 @@ public class SQL {
 
     private static Logger logger = LogManager.getLogger(SQL.class);
 
+    /**
+     * Maps the statements handed out by #get(String) back to their
+     * keys. Used to label the metrics of the database executions.
+     */
+    private static final ConcurrentMap<String, String> keys =
+        new ConcurrentHashMap<String, String>();
+
     protected Properties statements;
 
     public SQL() {
@@ -104,6 +114,9 @@ public class SQL {
         if (sql == null) {
             logger.error("cannot find SQL for key '" + key + "'");
         }
+        else {
+            keys.putIfAbsent(sql, key);
+        }
 
         if (debug) {
             logger.debug("-> '" + sql + "'");
@@ -111,5 +124,13 @@ public class SQL {
 
         return sql;
     }
+
+    /**
+     * @param sql A statement handed out by #get(String).
+     * @return The key of the statement or null if it is unknown.
+     */
+    public static String keyOf(String sql) {
+        return sql != null ? keys.get(sql) : null;
+    }
 }
 // vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -1,9 +1,24 @@
 package org.dive4elements.artifactdatabase.db;
 
+import org.dive4elements.artifactdatabase.metrics.Gauge;
+import org.dive4elements.artifactdatabase.metrics.Metrics;
+
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 
 import javax.sql.DataSource;
 
@@ -14,16 +29,92 @@ public class SQLExecutor
 {
     private static Logger logger = LogManager.getLogger(SQLExecutor.class);
 
+    /**
+     * Histogram of the durations of the database executions
+     * including the wait for a permit.
+     */
+    public static final String EXECUTION_HISTOGRAM = "d4e_db_seconds";
+
+    /**
+     * Histogram of the times spent waiting for a permit.
+     */
+    public static final String WAIT_HISTOGRAM = "d4e_db_wait_seconds";
+
+    /**
+     * Histogram of the times the connections are held by
+     * the executions.
+     */
+    public static final String HOLD_HISTOGRAM = "d4e_db_hold_seconds";
+
+    /**
+     * Counter of the borrowed connections reported as leaked.
+     */
+    public static final String LEAK_COUNTER = "d4e_db_leaks_total";
+
+    static {
+        Metrics.help(EXECUTION_HISTOGRAM,
+            "Duration of the database executions including the wait.");
+        Metrics.help(WAIT_HISTOGRAM, "Time spent waiting for a permit.");
+        Metrics.help(HOLD_HISTOGRAM, "Time the connections are held.");
+        Metrics.help(LEAK_COUNTER, "Connections reported as leaked.");
+        Metrics.help("d4e_db_held_connections",
+            "Connections currently held by executions.");
+        Metrics.help("d4e_db_queue_length",
+            "Executions waiting for a permit.");
+        Metrics.help("d4e_db_available_permits",
+            "Permits available for executions.");
+    }
+
+    public static final String UNKNOWN_KEY = "unknown";
+
+    /**
+     * Max. length of the statements written to the slow statement log.
+     */
+    public static final int MAX_LOG_LENGTH = 1000;
+
     public class Instance {
 
         public Connection        conn;
         public PreparedStatement stmnt;
         public ResultSet         result;
 
+        /**
+         * The key the metrics of this execution are labelled with.
+         * If null the key of the first prepared statement is used.
+         */
+        protected String         key;
+
+        /**
+         * The thread holding the connection, the time (ns) it was
+         * borrowed and optionally where it was borrowed.
+         */
+        protected volatile Thread borrower;
+        protected volatile long   borrowed;
+        protected Throwable       borrowSite;
+        protected boolean         leakReported;
+
+        /**
+         * The statistics of the statements prepared by this execution.
+         */
+        protected Map<Statement, StatementStatistics> tracked;
+
+        /**
+         * The result set whose rows are counted by #next(ResultSet),
+         * the statistics to add them to and the rows counted so far.
+         */
+        protected ResultSet           counting;
+        protected StatementStatistics countingStats;
+        protected long                counted;
+
         public Instance() {
         }
 
+        public Instance(String key) {
+            this.key = key;
+        }
+
         public void reset() throws SQLException {
+            flushRows();
             if (result != null) {
                 result.close();
                 result = null;
@@ -36,10 +127,203 @@ public class SQLExecutor
 
         public PreparedStatement prepareStatement(String query)
         throws SQLException {
-            return stmnt = conn.prepareStatement(query);
+            String queryKey = SQL.keyOf(query);
+            if (key == null) {
+                key = queryKey;
+            }
+            return stmnt = track(
+                conn.prepareStatement(query),
+                queryKey != null ? queryKey : key);
+        }
+
+        /**
+         * Prepares an additional statement which is recorded like
+         * the one of #prepareStatement(String) but has to be
+         * closed by the caller.
+         * @param query The SQL of the statement.
+         * @param queryKey The SQL key of the statement. If null
+         * the key is looked up by the SQL.
+         * @return The prepared statement.
+         */
+        public PreparedStatement prepare(String query, String queryKey)
+        throws SQLException {
+            if (queryKey == null) {
+                queryKey = SQL.keyOf(query);
+            }
+            return track(conn.prepareStatement(query), queryKey);
+        }
+
+        public PreparedStatement prepare(String query)
+        throws SQLException {
+            return prepare(query, null);
+        }
+
+        /**
+         * Registers a statement so its executions are recorded
+         * in the statistics of its SQL key.
+         */
+        protected PreparedStatement track(
+            PreparedStatement ps,
+            String            queryKey
+        ) {
+            if (tracked == null) {
+                tracked = new IdentityHashMap<Statement, StatementStatistics>();
+            }
+            tracked.put(ps, getStatistics(
+                queryKey != null ? queryKey : UNKNOWN_KEY));
+            return ps;
+        }
+
+        protected StatementStatistics statisticsOf(Statement s) {
+            StatementStatistics stats = tracked != null
+                ? tracked.get(s)
+                : null;
+            return stats != null
+                ? stats
+                : getStatistics(key != null ? key : UNKNOWN_KEY);
+        }
+
+        /**
+         * Records an execution of a statement and logs it
+         * if it was slow.
+         * @param s The executed statement.
+         * @param start The start of the execution (ns).
+         * @param rows The number of modified rows or -1 if unknown.
+         */
+        protected void executed(Statement s, long start, long rows) {
+            long nanos = System.nanoTime() - start;
+            StatementStatistics stats = statisticsOf(s);
+            stats.executed(nanos, rows);
+            if (slowThreshold >= 0L && nanos > slowThreshold) {
+                logSlowStatement(stats.getKey(), s, nanos, rows);
+            }
+        }
+
+        public ResultSet executeQuery() throws SQLException {
+            return executeQuery(stmnt);
+        }
+
+        public ResultSet executeQuery(PreparedStatement ps)
+        throws SQLException {
+            long start = System.nanoTime();
+            ResultSet rs = ps.executeQuery();
+            executed(ps, start, -1L);
+            return rs;
+        }
+
+        public boolean execute() throws SQLException {
+            return execute(stmnt);
+        }
+
+        public boolean execute(PreparedStatement ps) throws SQLException {
+            long start = System.nanoTime();
+            boolean hasResult = ps.execute();
+            executed(ps, start, hasResult ? -1L : ps.getUpdateCount());
+            return hasResult;
+        }
+
+        public int [] executeBatch(PreparedStatement ps)
+        throws SQLException {
+            long start = System.nanoTime();
+            int [] counts = ps.executeBatch();
+            long rows = 0L;
+            for (int count: counts) {
+                if (count > 0) {
+                    rows += count;
+                }
+            }
+            executed(ps, start, rows);
+            return counts;
+        }
+
+        /**
+         * Moves the result of this execution to its next row
+         * and counts the row.
+         */
+        public boolean next() throws SQLException {
+            return next(result);
+        }
+
+        /**
+         * Moves a result set to its next row and counts the row
+         * for the statement the result set was fetched from.
+         */
+        public boolean next(ResultSet rs) throws SQLException {
+            if (rs != counting) {
+                flushRows();
+                counting      = rs;
+                countingStats = statisticsOf(rs.getStatement());
+            }
+            if (rs.next()) {
+                ++counted;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Adds the rows counted by #next(ResultSet) to the
+         * statistics of their statement.
+         */
+        protected void flushRows() {
+            if (countingStats != null) {
+                countingStats.fetched(counted);
+            }
+            counting      = null;
+            countingStats = null;
+            counted       = 0L;
+        }
+
+        protected void record(String mode, long start) {
+            Metrics.histogram(EXECUTION_HISTOGRAM, Metrics.labels(
+                "key",  key != null ? key : UNKNOWN_KEY,
+                "mode", mode)).record(System.nanoTime() - start);
+        }
+
+        /**
+         * Borrows a connection from the pool and registers it as
+         * held by the current thread.
+         */
+        protected void borrow() throws SQLException {
+            DataSource dataSource = dbConnection.getDataSource();
+            conn         = dataSource.getConnection();
+            borrower     = Thread.currentThread();
+            borrowed     = System.nanoTime();
+            borrowSite   = captureLeakStacks
+                ? new Throwable("connection borrowed here")
+                : null;
+            leakReported = false;
+            held.add(this);
+        }
+
+        /**
+         * Closes the statement and gives back the connection.
+         * @param write true if the connection was used for
+         * a write transaction.
+         */
+        protected void giveBack(boolean write) {
+            close();
+            if (!held.remove(this)) {
+                return;
+            }
+            long hold = System.nanoTime() - borrowed;
+            Metrics.histogram(HOLD_HISTOGRAM, Metrics.labels(
+                "mode", write ? "write" : "read")).record(hold);
+
+            if (write
+            && transactionThreshold >= 0L && hold > transactionThreshold) {
+                logger.warn("transaction '"
+                    + (key != null ? key : UNKNOWN_KEY)
+                    + "' held its connection for "
+                    + (hold / 1000000L) + "ms");
+            }
+            borrower   = null;
+            borrowSite = null;
         }
 
         public void close() {
+            flushRows();
+            tracked = null;
             if (result != null) {
                 try { result.close(); }
                 catch (SQLException sqle) {}
@@ -55,9 +339,12 @@ public class SQLExecutor
         }
 
         public boolean runWriteNoRollback() {
-            DataSource dataSource = dbConnection.getDataSource();
+            long start = System.nanoTime();
+            if (!acquire()) {
+                return false;
+            }
             try {
-                conn = dataSource.getConnection();
+                borrow();
                 try {
                     conn.setAutoCommit(false);
                     return doIt();
@@ -70,15 +357,20 @@ public class SQLExecutor
                 logger.error(sqle.getLocalizedMessage(), sqle);
             }
             finally {
-                close();
+                giveBack(true);
+                release();
+                record("write", start);
             }
             return false;
         }
 
         public boolean runWrite() {
-            DataSource dataSource = dbConnection.getDataSource();
+            long start = System.nanoTime();
+            if (!acquire()) {
+                return false;
+            }
             try {
-                conn = dataSource.getConnection();
+                borrow();
                 try {
                     conn.setAutoCommit(false);
                     return doIt();
@@ -92,22 +384,29 @@ public class SQLExecutor
                 logger.error(sqle.getLocalizedMessage(), sqle);
             }
             finally {
-                close();
+                giveBack(true);
+                release();
+                record("write", start);
             }
             return false;
         }
 
         public boolean runRead() {
-            DataSource dataSource = dbConnection.getDataSource();
+            long start = System.nanoTime();
+            if (!acquire()) {
+                return false;
+            }
             try {
-                conn = dataSource.getConnection();
+                borrow();
                 return doIt();
             }
             catch (SQLException sqle) {
                 logger.error(sqle.getLocalizedMessage(), sqle);
             }
             finally {
-                close();
+                giveBack(false);
+                release();
+                record("read", start);
             }
             return false;
         }
@@ -117,14 +416,260 @@ public class SQLExecutor
         }
     } // class Instance
 
+    /**
+     * Nesting depth of the executions of the current thread.
+     * Only the outermost execution takes a permit so nested
+     * executions cannot deadlock on the permits.
+     */
+    private static final ThreadLocal<int []> DEPTH =
+        new ThreadLocal<int []>() {
+            @Override
+            protected int [] initialValue() {
+                return new int[1];
+            }
+        };
+
     protected DBConnection           dbConnection;
 
+    /**
+     * The executions currently holding a connection.
+     */
+    protected Set<Instance>          held =
+        ConcurrentHashMap.<Instance>newKeySet();
+
+    /**
+     * Connections held longer (in ns) are reported as leaked.
+     * Negative values disable the detection.
+     */
+    protected long                   leakThreshold = -1L;
+
+    protected boolean                captureLeakStacks;
+
+    /**
+     * Write transactions holding their connection longer (in ns)
+     * are logged. Negative values disable the logging.
+     */
+    protected long                   transactionThreshold = -1L;
+
+    /**
+     * Periodically looks for leaked connections.
+     */
+    protected Timer                  leakDetector;
+
+    /**
+     * The statistics of the statements per SQL key.
+     */
+    protected ConcurrentMap<String, StatementStatistics> statistics =
+        new ConcurrentHashMap<String, StatementStatistics>();
+
+    /**
+     * Executions of statements taking longer (in ns) are logged.
+     * Negative values disable the logging.
+     */
+    protected long                   slowThreshold = -1L;
+
+    /**
+     * Bounds the number of concurrent database executions.
+     * null if the concurrency is not bounded.
+     */
+    protected Semaphore              permits;
+
     public SQLExecutor() {
     }
 
     public SQLExecutor(DBConnection dbConnection) {
         this();
         this.dbConnection = dbConnection;
+
+        int maxConcurrency = dbConnection.getMaxConcurrency();
+        if (maxConcurrency > 0) {
+            logger.info("max. concurrent database executions: "
+                + maxConcurrency);
+            permits = new Semaphore(maxConcurrency, true);
+        }
+
+        long slow = dbConnection.getSlowQueryThreshold();
+        if (slow >= 0L) {
+            logger.info("log statements slower than " + slow + "ms");
+            slowThreshold = slow * 1000000L;
+        }
+
+        long tx = dbConnection.getTransactionThreshold();
+        if (tx >= 0L) {
+            transactionThreshold = tx * 1000000L;
+        }
+
+        long leak = dbConnection.getLeakThreshold();
+        if (leak >= 0L) {
+            logger.info("report connections held longer than " + leak + "ms");
+            leakThreshold     = leak * 1000000L;
+            captureLeakStacks = dbConnection.getCaptureLeakStacks();
+            startLeakDetector(Math.max(1000L, leak / 4L));
+        }
+
+        Metrics.gauge("d4e_db_held_connections", null, new Gauge() {
+            @Override
+            public double value() {
+                return getHeldConnections();
+            }
+        });
+        Metrics.gauge("d4e_db_queue_length", null, new Gauge() {
+            @Override
+            public double value() {
+                return getQueueLength();
+            }
+        });
+        Metrics.gauge("d4e_db_available_permits", null, new Gauge() {
+            @Override
+            public double value() {
+                return getAvailablePermits();
+            }
+        });
+    }
+
+    protected void startLeakDetector(long period) {
+        leakDetector = new Timer("sql-leak-detector", true);
+        leakDetector.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                detectLeaks();
+            }
+        }, period, period);
+    }
+
+    /**
+     * Reports the connections which are held longer than the
+     * leak threshold. Each borrow is only reported once.
+     */
+    protected void detectLeaks() {
+        long now = System.nanoTime();
+        for (Instance instance: held) {
+            Thread borrower = instance.borrower;
+            long   hold     = now - instance.borrowed;
+            if (instance.leakReported
+            || borrower == null
+            || hold <= leakThreshold) {
+                continue;
+            }
+            instance.leakReported = true;
+            Metrics.counter(LEAK_COUNTER, null).increment();
+
+            String key = instance.key != null ? instance.key : UNKNOWN_KEY;
+
+            Throwable current = new Throwable(
+                "thread '" + borrower.getName() + "' currently at");
+            current.setStackTrace(borrower.getStackTrace());
+
+            Throwable site = instance.borrowSite;
+            if (site != null) {
+                current.initCause(site);
+            }
+
+            logger.warn("possible connection leak: '" + key
+                + "' held by thread '" + borrower.getName()
+                + "' for " + (hold / 1000000L) + "ms", current);
+        }
+    }
+
+    /**
+     * @return The number of connections currently held
+     * by executions.
+     */
+    public int getHeldConnections() {
+        return held.size();
+    }
+
+    /**
+     * Returns the statistics of the statements of a SQL key.
+     * They are created on first use.
+     */
+    public StatementStatistics getStatistics(String key) {
+        StatementStatistics stats = statistics.get(key);
+        if (stats == null) {
+            StatementStatistics old = statistics.putIfAbsent(
+                key, stats = new StatementStatistics(key));
+            if (old != null) {
+                stats = old;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return The statistics of all executed statements
+     * ordered by their SQL keys.
+     */
+    public Map<String, StatementStatistics> getStatistics() {
+        return new TreeMap<String, StatementStatistics>(statistics);
+    }
+
+    /**
+     * Logs a slow execution. The drivers describe their prepared
+     * statements including the bind parameters.
+     */
+    protected static void logSlowStatement(
+        String    key,
+        Statement s,
+        long      nanos,
+        long      rows
+    ) {
+        String statement = s.toString();
+        if (statement.length() > MAX_LOG_LENGTH) {
+            statement = statement.substring(0, MAX_LOG_LENGTH) + "...";
+        }
+        logger.warn("slow statement '" + key + "' took "
+            + (nanos / 1000000L) + "ms"
+            + (rows >= 0L ? " (" + rows + " rows)" : "")
+            + ": " + statement);
+    }
+
+    /**
+     * Waits for a permit to access the database.
+     * @return true if the permit was granted, false if the
+     * waiting thread was interrupted.
+     */
+    protected boolean acquire() {
+        int [] depth = DEPTH.get();
+        if (permits != null && depth[0] == 0) {
+            long start = System.nanoTime();
+            try {
+                permits.acquire();
+                Metrics.histogram(WAIT_HISTOGRAM, null)
+                    .record(System.nanoTime() - start);
+            }
+            catch (InterruptedException ie) {
+                logger.warn("interrupted while waiting for database access");
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        ++depth[0];
+        return true;
+    }
+
+    /**
+     * Gives back the permit taken by #acquire().
+     */
+    protected void release() {
+        int [] depth = DEPTH.get();
+        if (--depth[0] == 0 && permits != null) {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return The number of executions waiting for database access.
+     */
+    public int getQueueLength() {
+        return permits != null ? permits.getQueueLength() : 0;
+    }
+
+    /**
+     * @return The number of free permits or -1 if the
+     * concurrency is not bounded.
+     */
+    public int getAvailablePermits() {
+        return permits != null ? permits.availablePermits() : -1;
     }
 
     public DBConnection getDBConnection() {
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.db;
+
+import org.dive4elements.artifactdatabase.metrics.Gauge;
+import org.dive4elements.artifactdatabase.metrics.Histogram;
+import org.dive4elements.artifactdatabase.metrics.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated executions of the statement of one SQL key: number of
+ * executions, total and max. execution time and the number of rows
+ * returned or modified. The values are backed by the metrics
+ * registry so they are reported by the metrics resource, too.
+ */
+public class StatementStatistics
+{
+    public static final String TIME_HISTOGRAM = "d4e_sql_seconds";
+    public static final String ROWS_COUNTER   = "d4e_sql_rows_total";
+    public static final String MAX_GAUGE      = "d4e_sql_max_seconds";
+
+    static {
+        Metrics.help(TIME_HISTOGRAM, "Execution time of the SQL statements.");
+        Metrics.help(ROWS_COUNTER, "Rows read or changed by the SQL statements.");
+        Metrics.help(MAX_GAUGE, "Max. execution time of the SQL statements.");
+    }
+
+    protected String    key;
+    protected Histogram times;
+    protected LongAdder rows;
+
+    public StatementStatistics(String key) {
+        this.key = key;
+
+        String labels = Metrics.labels("key", key);
+
+        times = Metrics.histogram(TIME_HISTOGRAM, labels);
+        rows  = Metrics.counter(ROWS_COUNTER, labels);
+
+        Metrics.gauge(MAX_GAUGE, labels, new Gauge() {
+            @Override
+            public double value() {
+                return times.getMax()*1e-9;
+            }
+        });
+    }
+
+    /**
+     * Records an execution.
+     * @param nanos The duration of the execution in ns.
+     * @param rowCount The number of affected rows or -1 if unknown.
+     */
+    public void executed(long nanos, long rowCount) {
+        times.record(nanos);
+        if (rowCount > 0L) {
+            rows.add(rowCount);
+        }
+    }
+
+    /**
+     * Adds the number of rows fetched from a result set.
+     */
+    public void fetched(long rowCount) {
+        if (rowCount > 0L) {
+            rows.add(rowCount);
+        }
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getCount() {
+        return times.getCount();
+    }
+
+    /**
+     * @return The total execution time in ms.
+     */
+    public double getTotalTime() {
+        return times.getSum()*1e-6;
+    }
+
+    /**
+     * @return The max. execution time in ms.
+     */
+    public double getMaxTime() {
+        return times.getMax()*1e-6;
+    }
+
+    /**
+     * @return The mean execution time in ms.
+     */
+    public double getMeanTime() {
+        return times.getMean()*1e-6;
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Call of an artifact, a collection or a service.
+ */
+@Name("org.dive4elements.artifactdatabase.ArtifactCall")
+@Label("Artifact Call")
+@Category({ "Dive4Elements", "Artifact Database" })
+@Description("Call of an artifact, a collection or a service")
+@Enabled(false)
+@StackTrace(false)
+public class ArtifactCallEvent
+extends      Event
+{
+    @Label("Action")
+    public String action;
+
+    @Label("Factory")
+    public String factory;
+
+    @Label("Identifier")
+    public String identifier;
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
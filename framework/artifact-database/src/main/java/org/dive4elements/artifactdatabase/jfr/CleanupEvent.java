@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Run of the database cleaner.
+ */
+@Name("org.dive4elements.artifactdatabase.Cleanup")
+@Label("Database Cleanup")
+@Category({ "Dive4Elements", "Artifact Database" })
+@Description("Removal of outdated artifacts and collections")
+@Enabled(false)
+@StackTrace(false)
+public class CleanupEvent
+extends      Event
+{
+    @Label("Deleted Artifacts")
+    public int deletedArtifacts;
+
+    @Label("Deleted Collections")
+    public int deletedCollections;
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
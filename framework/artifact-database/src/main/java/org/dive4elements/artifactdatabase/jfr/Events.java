@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.jfr;
+
+/**
+ * Creates and commits the events. This class refers to the
+ * jdk.jfr API and is only used by FlightRecorder if the API
+ * is available at runtime.
+ */
+final class Events
+{
+    /**
+     * Instances used to check cheaply if the events are enabled
+     * in a running recording.
+     */
+    private static final ArtifactCallEvent CALL       = new ArtifactCallEvent();
+    private static final BackendEvent      BACKEND    = new BackendEvent();
+    private static final SerializerEvent   SERIALIZER = new SerializerEvent();
+    private static final CleanupEvent      CLEANUP    = new CleanupEvent();
+
+    private Events() {
+    }
+
+    static Object beginCall() {
+        if (!CALL.isEnabled()) {
+            return null;
+        }
+        ArtifactCallEvent event = new ArtifactCallEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endCall(
+        Object event,
+        String action,
+        String factory,
+        String identifier
+    ) {
+        ArtifactCallEvent e = (ArtifactCallEvent)event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.action     = action;
+            e.factory    = factory;
+            e.identifier = identifier;
+            e.commit();
+        }
+    }
+
+    static Object beginBackend() {
+        if (!BACKEND.isEnabled()) {
+            return null;
+        }
+        BackendEvent event = new BackendEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endBackend(
+        Object event,
+        String operation,
+        String factory,
+        String identifier,
+        long   bytes
+    ) {
+        BackendEvent e = (BackendEvent)event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.operation  = operation;
+            e.factory    = factory;
+            e.identifier = identifier;
+            e.bytes      = bytes;
+            e.commit();
+        }
+    }
+
+    static Object beginSerializer() {
+        if (!SERIALIZER.isEnabled()) {
+            return null;
+        }
+        SerializerEvent event = new SerializerEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endSerializer(
+        Object event,
+        String operation,
+        String artifactClass,
+        long   bytes
+    ) {
+        SerializerEvent e = (SerializerEvent)event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.operation     = operation;
+            e.artifactClass = artifactClass;
+            e.bytes         = bytes;
+            e.commit();
+        }
+    }
+
+    static Object beginCleanup() {
+        if (!CLEANUP.isEnabled()) {
+            return null;
+        }
+        CleanupEvent event = new CleanupEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endCleanup(
+        Object event,
+        int    deletedArtifacts,
+        int    deletedCollections
+    ) {
+        CleanupEvent e = (CleanupEvent)event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.deletedArtifacts   = deletedArtifacts;
+            e.deletedCollections = deletedCollections;
+            e.commit();
+        }
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.jfr;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Entry point to emit the Java Flight Recorder events of the
+ * artifact database. The events are disabled by default. To
+ * record them start the JVM with the settings d4e.jfc packaged
+ * in the root of the jar (src/main/resources/d4e.jfc), e.g.
+ * <pre>
+ * unzip -p artifact-database-*.jar d4e.jfc &gt; d4e.jfc
+ * -XX:StartFlightRecording=settings=default,settings=./d4e.jfc,filename=d4e.jfr
+ * </pre>
+ * If the JVM has no flight recorder all methods do nothing.
+ * Usage:
+ * <pre>
+ * Object event = FlightEvents.beginCall();
+ * try {
+ *     ...
+ * }
+ * finally {
+ *     FlightEvents.endCall(event, action, factory, identifier);
+ * }
+ * </pre>
+ * The begin methods return null if the event is not enabled
+ * in a running recording so the overhead is a check of a flag.
+ */
+public final class FlightEvents
+{
+    private static Logger logger = LogManager.getLogger(FlightEvents.class);
+
+    /**
+     * true if the jdk.jfr API is available at runtime.
+     */
+    public static final boolean AVAILABLE = isAvailable();
+
+    private FlightEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        }
+        catch (ClassNotFoundException cnfe) {
+            logger.info("No flight recorder available.");
+        }
+        catch (LinkageError le) {
+            logger.info("No flight recorder available.");
+        }
+        return false;
+    }
+
+    public static Object beginCall() {
+        return AVAILABLE ? Events.beginCall() : null;
+    }
+
+    /**
+     * @param event The event returned by #beginCall().
+     * @param action The called method, e.g. 'describe'.
+     * @param factory The name of the factory of the artifact
+     * or the name of the service.
+     * @param identifier The identifier of the artifact.
+     */
+    public static void endCall(
+        Object event,
+        String action,
+        String factory,
+        String identifier
+    ) {
+        if (event != null) {
+            Events.endCall(event, action, factory, identifier);
+        }
+    }
+
+    public static Object beginBackend() {
+        return AVAILABLE ? Events.beginBackend() : null;
+    }
+
+    /**
+     * @param event The event returned by #beginBackend().
+     * @param operation The operation, e.g. 'load'.
+     * @param factory The name of the factory of the artifact.
+     * @param identifier The identifier of the artifact.
+     * @param bytes The size of the stored or loaded data.
+     */
+    public static void endBackend(
+        Object event,
+        String operation,
+        String factory,
+        String identifier,
+        long   bytes
+    ) {
+        if (event != null) {
+            Events.endBackend(event, operation, factory, identifier, bytes);
+        }
+    }
+
+    public static Object beginSerializer() {
+        return AVAILABLE ? Events.beginSerializer() : null;
+    }
+
+    /**
+     * @param event The event returned by #beginSerializer().
+     * @param operation 'serialize' or 'deserialize'.
+     * @param artifactClass The class name of the artifact.
+     * @param bytes The size of the serialized data.
+     */
+    public static void endSerializer(
+        Object event,
+        String operation,
+        String artifactClass,
+        long   bytes
+    ) {
+        if (event != null) {
+            Events.endSerializer(event, operation, artifactClass, bytes);
+        }
+    }
+
+    public static Object beginCleanup() {
+        return AVAILABLE ? Events.beginCleanup() : null;
+    }
+
+    public static void endCleanup(
+        Object event,
+        int    deletedArtifacts,
+        int    deletedCollections
+    ) {
+        if (event != null) {
+            Events.endCleanup(event, deletedArtifacts, deletedCollections);
+        }
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import jdk.jfr.DataAmount;
+
+/**
+ * Serialization or deserialization of an artifact.
+ */
+@Name("org.dive4elements.artifactdatabase.Serializer")
+@Label("Artifact Serialization")
+@Category({ "Dive4Elements", "Artifact Database" })
+@Description("Serialization or deserialization of an artifact")
+@Enabled(false)
+@StackTrace(false)
+public class SerializerEvent
+extends      Event
+{
+    @Label("Operation")
+    public String operation;
+
+    @Label("Artifact Class")
+    public String artifactClass;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
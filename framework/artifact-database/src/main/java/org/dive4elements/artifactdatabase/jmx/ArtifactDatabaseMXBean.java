@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.jmx;
+
+/**
+ * Management interface of the artifact database.
+ */
+public interface ArtifactDatabaseMXBean
+{
+    /**
+     * @return The number of artifacts with running background jobs.
+     */
+    int getBackgroundJobs();
+
+    /**
+     * @return The number of artifacts locked against removal
+     * by the database cleaner.
+     */
+    int getLockedIds();
+
+    int getDescribeCacheEntries();
+
+    long getDescribeCacheHits();
+
+    long getDescribeCacheMisses();
+
+    long getDescribeCacheEvictions();
+
+    long getOutputCacheHits();
+
+    long getOutputCacheMisses();
+
+    long getOutputCacheEvictions();
+
+    long getOutputCacheMemoryBytes();
+
+    long getOutputCacheDiskBytes();
+
+    /**
+     * Drops all entries of the describe and output caches.
+     */
+    void clearCaches();
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.jmx;
+
+/**
+ * Management interface of the backend.
+ */
+public interface BackendMXBean
+{
+    long getArtifactsCreated();
+
+    long getArtifactsStored();
+
+    long getArtifactsTouched();
+
+    /**
+     * @return The number of listeners notified about changes.
+     */
+    int getListeners();
+
+    /**
+     * Waits up to the given time (ms) per asynchronous listener
+     * until its queued notifications are delivered.
+     * @return true if all notifications were delivered.
+     */
+    boolean drainListeners(long timeout);
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.jmx;
+
+import org.dive4elements.artifactdatabase.db.StatementStatistics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the database connection.
+ */
+public interface DBConnectionMXBean
+{
+    String getDriver();
+
+    String getUrl();
+
+    String getUser();
+
+    int getNumActive();
+
+    int getNumIdle();
+
+    int getMaxActive();
+
+    /**
+     * @return The max. number of concurrent database executions.
+     */
+    int getMaxConcurrency();
+
+    /**
+     * @return The number of executions waiting for database access.
+     */
+    int getQueueLength();
+
+    /**
+     * @return The number of free execution permits or -1 if the
+     * concurrency is not bounded.
+     */
+    int getAvailablePermits();
+
+    /**
+     * @return The number of connections currently held
+     * by executions.
+     */
+    int getHeldConnections();
+
+    /**
+     * @return The execution statistics of the statements
+     * per SQL key.
+     */
+    Map<String, StatementStatistics> getStatements();
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
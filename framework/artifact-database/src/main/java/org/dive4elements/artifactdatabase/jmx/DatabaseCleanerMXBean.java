@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.jmx;
+
+/**
+ * Management interface of the database cleaner.
+ */
+public interface DatabaseCleanerMXBean
+{
+    /**
+     * @return The nap time between cleanups in ms.
+     */
+    long getSleepTime();
+
+    long getRuns();
+
+    long getDeletedArtifacts();
+
+    long getDeletedCollections();
+
+    /**
+     * @return The start of the last cleanup in ms since epoch.
+     */
+    long getLastRun();
+
+    /**
+     * @return The duration of the last cleanup in ms.
+     */
+    long getLastRunDuration();
+
+    /**
+     * @return The number of outdated artifacts found by the
+     * last cleanup or -1 if it is not known.
+     */
+    long getBacklog();
+
+    /**
+     * Wakes up the cleaner to start a cleanup immediately.
+     */
+    void cleanup();
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
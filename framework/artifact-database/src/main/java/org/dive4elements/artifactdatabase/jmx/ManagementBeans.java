@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.jmx;
+
+import org.dive4elements.artifactdatabase.ArtifactDatabaseImpl;
+import org.dive4elements.artifactdatabase.Backend;
+import org.dive4elements.artifactdatabase.DatabaseCleaner;
+
+import org.dive4elements.artifactdatabase.db.DBConnection;
+import org.dive4elements.artifactdatabase.db.SQLExecutor;
+import org.dive4elements.artifactdatabase.db.StatementStatistics;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Registers the MXBeans of the artifact database at the platform
+ * MBean server. They are found below the domain
+ * 'org.dive4elements.artifactdatabase' in tools like jconsole
+ * or VisualVM.
+ */
+public final class ManagementBeans
+{
+    private static Logger logger = LogManager.getLogger(ManagementBeans.class);
+
+    public static final String DOMAIN = "org.dive4elements.artifactdatabase";
+
+    /**
+     * MXBean of the artifact database.
+     */
+    public static class ArtifactDatabaseMonitor
+    implements          ArtifactDatabaseMXBean
+    {
+        protected ArtifactDatabaseImpl database;
+
+        public ArtifactDatabaseMonitor(ArtifactDatabaseImpl database) {
+            this.database = database;
+        }
+
+        @Override
+        public int getBackgroundJobs() {
+            return database.getBackgroundJobCount();
+        }
+
+        @Override
+        public int getLockedIds() {
+            return database.getLockedIds().size();
+        }
+
+        @Override
+        public int getDescribeCacheEntries() {
+            return database.getDescribeCache().getEntries();
+        }
+
+        @Override
+        public long getDescribeCacheHits() {
+            return database.getDescribeCache().getHits();
+        }
+
+        @Override
+        public long getDescribeCacheMisses() {
+            return database.getDescribeCache().getMisses();
+        }
+
+        @Override
+        public long getDescribeCacheEvictions() {
+            return database.getDescribeCache().getEvictions();
+        }
+
+        @Override
+        public long getOutputCacheHits() {
+            return database.getOutputCache().getHits();
+        }
+
+        @Override
+        public long getOutputCacheMisses() {
+            return database.getOutputCache().getMisses();
+        }
+
+        @Override
+        public long getOutputCacheEvictions() {
+            return database.getOutputCache().getEvictions();
+        }
+
+        @Override
+        public long getOutputCacheMemoryBytes() {
+            return database.getOutputCache().getMemoryBytes();
+        }
+
+        @Override
+        public long getOutputCacheDiskBytes() {
+            return database.getOutputCache().getDiskBytes();
+        }
+
+        @Override
+        public void clearCaches() {
+            logger.info("clearing caches via JMX");
+            database.clearCaches();
+        }
+    } // class ArtifactDatabaseMonitor
+
+    /**
+     * MXBean of the backend.
+     */
+    public static class BackendMonitor
+    implements          BackendMXBean
+    {
+        protected Backend backend;
+
+        public BackendMonitor(Backend backend) {
+            this.backend = backend;
+        }
+
+        @Override
+        public long getArtifactsCreated() {
+            return backend.getArtifactsCreated();
+        }
+
+        @Override
+        public long getArtifactsStored() {
+            return backend.getArtifactsStored();
+        }
+
+        @Override
+        public long getArtifactsTouched() {
+            return backend.getArtifactsTouched();
+        }
+
+        @Override
+        public int getListeners() {
+            return backend.getListenerCount();
+        }
+
+        @Override
+        public boolean drainListeners(long timeout) {
+            return backend.drainListeners(timeout);
+        }
+    } // class BackendMonitor
+
+    /**
+     * MXBean of the database cleaner.
+     */
+    public static class DatabaseCleanerMonitor
+    implements          DatabaseCleanerMXBean
+    {
+        protected DatabaseCleaner cleaner;
+
+        public DatabaseCleanerMonitor(DatabaseCleaner cleaner) {
+            this.cleaner = cleaner;
+        }
+
+        @Override
+        public long getSleepTime() {
+            return cleaner.getConfiguredSleepTime();
+        }
+
+        @Override
+        public long getRuns() {
+            return cleaner.getRuns();
+        }
+
+        @Override
+        public long getDeletedArtifacts() {
+            return cleaner.getDeletedArtifacts();
+        }
+
+        @Override
+        public long getDeletedCollections() {
+            return cleaner.getDeletedCollections();
+        }
+
+        @Override
+        public long getLastRun() {
+            return cleaner.getLastRun();
+        }
+
+        @Override
+        public long getLastRunDuration() {
+            return cleaner.getLastRunDuration();
+        }
+
+        @Override
+        public long getBacklog() {
+            return cleaner.getBacklog();
+        }
+
+        @Override
+        public void cleanup() {
+            logger.info("cleanup triggered via JMX");
+            cleaner.wakeup();
+        }
+    } // class DatabaseCleanerMonitor
+
+    /**
+     * MXBean of the database connection.
+     */
+    public static class DBConnectionMonitor
+    implements          DBConnectionMXBean
+    {
+        protected SQLExecutor sqlExecutor;
+
+        public DBConnectionMonitor(SQLExecutor sqlExecutor) {
+            this.sqlExecutor = sqlExecutor;
+        }
+
+        protected DBConnection getDBConnection() {
+            return sqlExecutor.getDBConnection();
+        }
+
+        @Override
+        public String getDriver() {
+            return getDBConnection().getDriver();
+        }
+
+        @Override
+        public String getUrl() {
+            return getDBConnection().getUrl();
+        }
+
+        @Override
+        public String getUser() {
+            return getDBConnection().getUser();
+        }
+
+        @Override
+        public int getNumActive() {
+            return getDBConnection().getNumActive();
+        }
+
+        @Override
+        public int getNumIdle() {
+            return getDBConnection().getNumIdle();
+        }
+
+        @Override
+        public int getMaxActive() {
+            return getDBConnection().getMaxActive();
+        }
+
+        @Override
+        public int getMaxConcurrency() {
+            return getDBConnection().getMaxConcurrency();
+        }
+
+        @Override
+        public int getQueueLength() {
+            return sqlExecutor.getQueueLength();
+        }
+
+        @Override
+        public int getAvailablePermits() {
+            return sqlExecutor.getAvailablePermits();
+        }
+
+        @Override
+        public int getHeldConnections() {
+            return sqlExecutor.getHeldConnections();
+        }
+
+        @Override
+        public Map<String, StatementStatistics> getStatements() {
+            return sqlExecutor.getStatistics();
+        }
+    } // class DBConnectionMonitor
+
+    private ManagementBeans() {
+    }
+
+    /**
+     * Registers a MXBean. An already registered bean of
+     * the same name is replaced.
+     * @param type The type part of the object name.
+     * @param bean The bean to register.
+     */
+    public static void register(String type, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName  name   = new ObjectName(DOMAIN + ":type=" + type);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(bean, name);
+            logger.debug("registered MXBean " + name);
+        }
+        catch (JMException jme) {
+            logger.warn("cannot register MXBean '" + type + "'", jme);
+        }
+    }
+
+    /**
+     * Registers the MXBeans of the artifact database and the
+     * parts of its backend.
+     * @param database The artifact database.
+     * @param backend The backend. May be null.
+     */
+    public static void register(
+        ArtifactDatabaseImpl database,
+        Backend              backend
+    ) {
+        register("ArtifactDatabase", new ArtifactDatabaseMonitor(database));
+
+        if (backend == null) {
+            return;
+        }
+
+        register("Backend", new BackendMonitor(backend));
+
+        DatabaseCleaner cleaner = backend.getCleaner();
+        if (cleaner != null) {
+            register("DatabaseCleaner", new DatabaseCleanerMonitor(cleaner));
+        }
+
+        SQLExecutor sqlExecutor = backend.getSQLExecutor();
+        if (sqlExecutor != null && sqlExecutor.getDBConnection() != null) {
+            register("DBConnection", new DBConnectionMonitor(sqlExecutor));
+        }
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.metrics;
+
+/**
+ * A metric whose value is read from its source when the metrics
+ * are reported, e.g. the size of a pool or a queue.
+ */
+public interface Gauge
+{
+    /**
+     * @return The current value.
+     */
+    double value();
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative long values (e.g. durations
+ * in nanoseconds) in the spirit of HDR histograms: the values are
+ * counted in log-linear buckets. Each power of two is divided into
+ * SUB_BUCKETS buckets so the relative error of the reported
+ * quantiles is below 1/SUB_BUCKETS. A bucket includes its upper
+ * bound, so the powers of two are exact bucket bounds which can be
+ * exported as inclusive ('le') bounds. Values above MAX_VALUE are
+ * counted in the last bucket.
+ */
+public class Histogram
+{
+    public static final int SUB_BITS = 3;
+
+    public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * Exponent of the largest distinguished value (2^40 ns ~ 18 min).
+     */
+    public static final int MAX_EXPONENT = 40;
+
+    public static final long MAX_VALUE = 1L << (MAX_EXPONENT + 1);
+
+    public static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    protected AtomicLongArray counts;
+    protected LongAdder       count;
+    protected LongAdder       sum;
+    protected AtomicLong      max;
+
+    public Histogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        count  = new LongAdder();
+        sum    = new LongAdder();
+        max    = new AtomicLong();
+    }
+
+    /**
+     * @param value The value.
+     * @return The index of the bucket counting the value.
+     */
+    public static int index(long value) {
+        if (value <= 0L) {
+            return 0;
+        }
+        if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        // Shifted by one so the buckets include their upper bounds.
+        long v = value - 1L;
+        if (v < SUB_BUCKETS) {
+            return (int)v + 1;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int sub      = (int)(v >>> (exponent - SUB_BITS)) & (SUB_BUCKETS-1);
+        return (exponent - SUB_BITS + 1)*SUB_BUCKETS + sub + 1;
+    }
+
+    /**
+     * @param index The index of a bucket.
+     * @return The largest value counted in the bucket.
+     */
+    public static long upperBound(int index) {
+        if (index <= SUB_BUCKETS) {
+            return index;
+        }
+        --index;
+        int  exponent = index/SUB_BUCKETS + SUB_BITS - 1;
+        long sub      = index % SUB_BUCKETS;
+        long width    = 1L << (exponent - SUB_BITS);
+        return ((SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width;
+    }
+
+    public void record(long value) {
+        if (value < 0L) {
+            value = 0L;
+        }
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n > 0L ? (double)sum.sum()/n : 0d;
+    }
+
+    /**
+     * @param index The index of a bucket.
+     * @return The number of values counted in the bucket.
+     */
+    public long getBucketCount(int index) {
+        return counts.get(index);
+    }
+
+    /**
+     * @param quantile The quantile in [0, 1].
+     * @return The upper bound of the bucket containing the quantile
+     * (but not more than the max. recorded value) or 0 if no value
+     * was recorded.
+     */
+    public long getQuantile(double quantile) {
+        long total = 0L;
+        for (int i = 0; i < BUCKETS; ++i) {
+            total += counts.get(i);
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+
+        long rank = (long)Math.ceil(Math.min(1d, Math.max(0d, quantile))*total);
+        if (rank < 1L) {
+            rank = 1L;
+        }
+
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; ++i) {
+            if ((seen += counts.get(i)) >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
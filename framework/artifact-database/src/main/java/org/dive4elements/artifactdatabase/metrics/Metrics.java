@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.metrics;
+
+import java.util.Map;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the histograms and counters of the artifact database.
+ * Metrics are identified by a name and a label set formatted like
+ * in the Prometheus exposition format, e.g.
+ * <pre>
+ * request_phase_seconds{phase="call",factory="...",action="describe"}
+ * </pre>
+ * Lookups of existing metrics are lock-free. Histograms with names
+ * ending in '_seconds' record nanoseconds.
+ */
+public final class Metrics
+{
+    private static final ConcurrentMap<String, Histogram> histograms =
+        new ConcurrentSkipListMap<String, Histogram>();
+
+    private static final ConcurrentMap<String, LongAdder> counters =
+        new ConcurrentSkipListMap<String, LongAdder>();
+
+    private static final ConcurrentMap<String, Gauge> gauges =
+        new ConcurrentSkipListMap<String, Gauge>();
+
+    private static final ConcurrentMap<String, String> helps =
+        new ConcurrentHashMap<String, String>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Formats a label set.
+     * @param namesAndValues Alternating label names and values.
+     * Labels with null values are left out.
+     * @return The formatted label set without braces.
+     */
+    public static String labels(String... namesAndValues) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            String value = namesAndValues[i+1];
+            if (value == null) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(namesAndValues[i]).append("=\"");
+            for (int j = 0, N = value.length(); j < N; ++j) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\': sb.append("\\\\"); break;
+                    case '"':  sb.append("\\\""); break;
+                    case '\n': sb.append("\\n");  break;
+                    default:   sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param name The name of the metric.
+     * @param labels The formatted label set or null.
+     * @return The key of the metric in the registry.
+     */
+    public static String key(String name, String labels) {
+        return labels == null || labels.length() == 0
+            ? name
+            : name + '{' + labels + '}';
+    }
+
+    /**
+     * Returns the histogram of a metric. It is created on first use.
+     */
+    public static Histogram histogram(String name, String labels) {
+        String key = key(name, labels);
+        Histogram histogram = histograms.get(key);
+        if (histogram == null) {
+            Histogram old = histograms.putIfAbsent(
+                key, histogram = new Histogram());
+            if (old != null) {
+                histogram = old;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the counter of a metric. It is created on first use.
+     */
+    public static LongAdder counter(String name, String labels) {
+        String key = key(name, labels);
+        LongAdder counter = counters.get(key);
+        if (counter == null) {
+            LongAdder old = counters.putIfAbsent(key, counter = new LongAdder());
+            if (old != null) {
+                counter = old;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Registers a gauge. An already registered gauge of the
+     * same metric is replaced.
+     */
+    public static void gauge(String name, String labels, Gauge gauge) {
+        gauges.put(key(name, labels), gauge);
+    }
+
+    /**
+     * Registers the description of a metric.
+     * @param name The name of the metric (without labels).
+     * @param text The description.
+     */
+    public static void help(String name, String text) {
+        helps.put(name, text);
+    }
+
+    /**
+     * @param name The name of the metric (without labels).
+     * @return The description of the metric or null.
+     */
+    public static String getHelp(String name) {
+        return helps.get(name);
+    }
+
+    /**
+     * @return The histograms ordered by their keys.
+     */
+    public static Map<String, Histogram> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * @return The counters ordered by their keys.
+     */
+    public static Map<String, LongAdder> getCounters() {
+        return counters;
+    }
+
+    /**
+     * @return The gauges ordered by their keys.
+     */
+    public static Map<String, Gauge> getGauges() {
+        return gauges;
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import java.util.Map;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the registered metrics in the text exposition format
+ * of Prometheus (version 0.0.4).
+ * <ul>
+ * <li>Histograms are written with cumulative buckets at every other
+ * power of two. The bounds are inclusive ('le'). Histograms with
+ * names ending in '_seconds' are converted from nanoseconds
+ * to seconds.</li>
+ * <li>Counters are written as counters.</li>
+ * <li>Gauges are written as gauges. Gauges with names ending in
+ * '_total' report monotonic values and are written as counters.</li>
+ * </ul>
+ * Each metric is preceded by its description (see
+ * Metrics#help(String, String)) in a '# HELP' line.
+ */
+public final class PrometheusFormat
+{
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+    public static final String SECONDS_SUFFIX = "_seconds";
+    public static final String TOTAL_SUFFIX   = "_total";
+
+    /**
+     * Exponent of the smallest bucket bound of the seconds
+     * histograms (2^10 ns ~ 1 us).
+     */
+    public static final int MIN_SECONDS_EXPONENT = 10;
+
+    private PrometheusFormat() {
+    }
+
+    protected static String name(String key) {
+        int idx = key.indexOf('{');
+        return idx < 0 ? key : key.substring(0, idx);
+    }
+
+    protected static String labels(String key) {
+        int idx = key.indexOf('{');
+        return idx < 0 ? "" : key.substring(idx + 1, key.length() - 1);
+    }
+
+    protected static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long)value);
+        }
+        return String.valueOf(value);
+    }
+
+    protected static String escapeHelp(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0, N = text.length(); i < N; ++i) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n");  break;
+                default:   sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    protected static void type(
+        Writer out,
+        String name,
+        String type,
+        String last
+    )
+    throws IOException
+    {
+        if (!name.equals(last)) {
+            String help = Metrics.getHelp(name);
+            out.write("# HELP ");
+            out.write(name);
+            out.write(' ');
+            out.write(escapeHelp(help != null ? help : name));
+            out.write('\n');
+            out.write("# TYPE ");
+            out.write(name);
+            out.write(' ');
+            out.write(type);
+            out.write('\n');
+        }
+    }
+
+    protected static void sample(
+        Writer out,
+        String name,
+        String labels,
+        String value
+    )
+    throws IOException
+    {
+        out.write(name);
+        if (labels.length() > 0) {
+            out.write('{');
+            out.write(labels);
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(value);
+        out.write('\n');
+    }
+
+    protected static void writeHistogram(
+        Writer    out,
+        String    name,
+        String    labels,
+        Histogram histogram
+    )
+    throws IOException
+    {
+        boolean seconds = name.endsWith(SECONDS_SUFFIX);
+        double  scale   = seconds ? 1e-9 : 1d;
+
+        String bucket = name + "_bucket";
+        String sep    = labels.length() > 0 ? labels + ',' : "";
+
+        long cumulative = 0L;
+        int  index      = 0;
+
+        for (int exponent = seconds ? MIN_SECONDS_EXPONENT : 0;
+            exponent <= Histogram.MAX_EXPONENT;
+            exponent += 2
+        ) {
+            long bound = 1L << exponent;
+            // The bucket of the bound includes it.
+            for (int end = Histogram.index(bound); index <= end; ++index) {
+                cumulative += histogram.getBucketCount(index);
+            }
+            sample(out, bucket,
+                sep + "le=\"" + format(bound*scale) + '"',
+                String.valueOf(cumulative));
+        }
+
+        for (; index < Histogram.BUCKETS; ++index) {
+            cumulative += histogram.getBucketCount(index);
+        }
+
+        sample(out, bucket, sep + "le=\"+Inf\"", String.valueOf(cumulative));
+        sample(out, name + "_sum", labels, format(histogram.getSum()*scale));
+        sample(out, name + "_count", labels, String.valueOf(cumulative));
+    }
+
+    /**
+     * Writes all registered metrics.
+     * @param out The writer to write to.
+     * @throws IOException Thrown if writing failed.
+     */
+    public static void write(Writer out) throws IOException {
+
+        String last = null;
+        for (Map.Entry<String, Histogram> entry:
+            Metrics.getHistograms().entrySet()
+        ) {
+            String key  = entry.getKey();
+            String name = name(key);
+            type(out, name, "histogram", last);
+            writeHistogram(out, name, labels(key), entry.getValue());
+            last = name;
+        }
+
+        last = null;
+        for (Map.Entry<String, LongAdder> entry:
+            Metrics.getCounters().entrySet()
+        ) {
+            String key  = entry.getKey();
+            String name = name(key);
+            type(out, name, "counter", last);
+            sample(out, name, labels(key),
+                String.valueOf(entry.getValue().sum()));
+            last = name;
+        }
+
+        last = null;
+        for (Map.Entry<String, Gauge> entry:
+            Metrics.getGauges().entrySet()
+        ) {
+            String key  = entry.getKey();
+            String name = name(key);
+            type(out, name,
+                name.endsWith(TOTAL_SUFFIX) ? "counter" : "gauge", last);
+            sample(out, name, labels(key),
+                format(entry.getValue().value()));
+            last = name;
+        }
+
+        out.flush();
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.metrics;
+
+import java.util.Locale;
+
+/**
+ * Records where the time of a request goes. A request is bound
+ * to the current thread by #begin() and released by #end().
+ * In between the instrumented code brackets its phases with
+ * #enter(int) and #exit(). Phases may nest (e.g. an artifact
+ * loaded during the call of another artifact); each phase is
+ * only charged with its own time without the time of the nested
+ * phases. Outside a request all static methods are no-ops.
+ * <p>
+ * The request is tagged with the resource, the factory of the
+ * first artifact or collection it touches and the action performed.
+ * When the request ends the phase times are recorded in the
+ * histograms 'd4e_request_phase_seconds' and the total time in
+ * 'd4e_request_seconds'.
+ */
+public final class RequestTimings
+{
+    /** Parsing the XML document of the request. */
+    public static final int PARSE            = 0;
+    /** Loading artifacts from the database. */
+    public static final int LOAD_SQL         = 1;
+    /** Reviving loaded artifacts. */
+    public static final int LOAD_DESERIALIZE = 2;
+    /** The call of the artifact, collection or service. */
+    public static final int CALL             = 3;
+    /** The hooks run after the call. */
+    public static final int HOOKS            = 4;
+    /** Serializing artifacts to be stored. */
+    public static final int STORE_SERIALIZE  = 5;
+    /** Writing to the database. */
+    public static final int STORE_SQL        = 6;
+    /** Writing the response entity. */
+    public static final int RESPONSE         = 7;
+
+    /** The names of the phases as used in the metrics and headers. */
+    public static final String [] PHASES = {
+        "parse",
+        "load-sql",
+        "load-deserialize",
+        "call",
+        "hooks",
+        "store-serialize",
+        "store-sql",
+        "response"
+    };
+
+    public static final String PHASE_HISTOGRAM = "d4e_request_phase_seconds";
+
+    public static final String REQUEST_HISTOGRAM = "d4e_request_seconds";
+
+    static {
+        Metrics.help(PHASE_HISTOGRAM,
+            "Time spent in the processing phases of the requests.");
+        Metrics.help(REQUEST_HISTOGRAM, "Total time of the requests.");
+    }
+
+    private static final int MAX_DEPTH = 32;
+
+    private static final ThreadLocal<RequestTimings> CURRENT =
+        new ThreadLocal<RequestTimings>();
+
+    private long [] nanos;
+
+    private int    [] stackPhases;
+    private long   [] stackStarts;
+    private long   [] stackChildren;
+    private int       depth;
+
+    private long   started;
+    private long   total;
+
+    private String resource;
+    private String factory;
+    private String action;
+
+    private RequestTimings() {
+        nanos         = new long[PHASES.length];
+        stackPhases   = new int [MAX_DEPTH];
+        stackStarts   = new long[MAX_DEPTH];
+        stackChildren = new long[MAX_DEPTH];
+        started       = System.nanoTime();
+    }
+
+    /**
+     * Binds a new request to the current thread.
+     * @return The timings of the new request.
+     */
+    public static RequestTimings begin() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    /**
+     * @return The timings of the request bound to the current thread
+     * or null if there is none.
+     */
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Creates the timings of a part of this request which is
+     * processed in another thread. The part carries the tags of
+     * this request. It is bound to the worker thread by #attach(),
+     * released by #detach() and its phase times are added to this
+     * request by #merge(). A part is never recorded on its own.
+     * @return The timings of the part.
+     */
+    public RequestTimings fork() {
+        RequestTimings part = new RequestTimings();
+        part.resource = resource;
+        part.factory  = factory;
+        part.action   = action;
+        return part;
+    }
+
+    /**
+     * Binds forked timings to the current thread.
+     * @param timings The timings to bind. May be null.
+     * @return The timings bound before. To be passed to #detach().
+     */
+    public static RequestTimings attach(RequestTimings timings) {
+        RequestTimings previous = CURRENT.get();
+        if (timings != null) {
+            CURRENT.set(timings);
+        }
+        else {
+            CURRENT.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * Restores the binding of the current thread which was
+     * replaced by #attach(RequestTimings).
+     * @param previous The timings returned by #attach(RequestTimings).
+     */
+    public static void detach(RequestTimings previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        }
+        else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Adds the phase times of a forked part to this request.
+     * If this request is not tagged yet it takes the tags of
+     * the part. Parts processed in parallel add up, so the sum
+     * of the phases may exceed the total time of the request.
+     * @param part The forked part. It must not be in use by
+     * another thread any more.
+     */
+    public void merge(RequestTimings part) {
+        for (int i = 0; i < nanos.length; ++i) {
+            nanos[i] += part.nanos[i];
+        }
+        if (action == null) {
+            factory = part.factory;
+            action  = part.action;
+        }
+    }
+
+    /**
+     * Releases the request of the current thread and records
+     * its timings in the histograms.
+     * @return The timings of the released request or null.
+     */
+    public static RequestTimings end() {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            CURRENT.remove();
+            timings.total = System.nanoTime() - timings.started;
+            timings.record();
+        }
+        return timings;
+    }
+
+    /**
+     * Starts a phase of the current request.
+     * Has to be followed by #exit() in a finally block.
+     * @param phase The phase.
+     */
+    public static void enter(int phase) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null && timings.depth < MAX_DEPTH) {
+            int d = timings.depth++;
+            timings.stackPhases  [d] = phase;
+            timings.stackStarts  [d] = System.nanoTime();
+            timings.stackChildren[d] = 0L;
+        }
+        else if (timings != null) {
+            ++timings.depth; // too deep: only count to stay balanced
+        }
+    }
+
+    /**
+     * Ends the innermost phase of the current request.
+     */
+    public static void exit() {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null || timings.depth == 0) {
+            return;
+        }
+        int d = --timings.depth;
+        if (d >= MAX_DEPTH) {
+            return;
+        }
+        long elapsed = System.nanoTime() - timings.stackStarts[d];
+        timings.nanos[timings.stackPhases[d]] +=
+            elapsed - timings.stackChildren[d];
+        if (d > 0) {
+            timings.stackChildren[d-1] += elapsed;
+        }
+    }
+
+    /**
+     * Tags the current request with the resource handling it.
+     */
+    public static void resource(String resource) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null && timings.resource == null) {
+            timings.resource = resource;
+        }
+    }
+
+    /**
+     * Tags the current request with a factory and an action.
+     * Only the first tagging counts so nested calls do not
+     * override the primary target of the request.
+     * @param factory The name of the artifact or collection factory.
+     * @param action The performed action.
+     */
+    public static void tag(String factory, String action) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null && timings.action == null) {
+            timings.factory = factory;
+            timings.action  = action;
+        }
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public String getFactory() {
+        return factory;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * @param phase The phase.
+     * @return The time in nanoseconds spent in the phase so far.
+     */
+    public long getNanos(int phase) {
+        return nanos[phase];
+    }
+
+    /**
+     * @return The total time of the request in nanoseconds.
+     * Only known after #end().
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Records a phase measured outside of the request thread
+     * (e.g. the response written after the request is handled).
+     */
+    public void recordPhase(int phase, long nanos) {
+        Metrics.histogram(PHASE_HISTOGRAM, labels(phase)).record(nanos);
+    }
+
+    private String labels(int phase) {
+        return Metrics.labels(
+            "phase",    PHASES[phase],
+            "resource", resource,
+            "factory",  factory,
+            "action",   action);
+    }
+
+    private void record() {
+        for (int i = 0; i < nanos.length; ++i) {
+            if (nanos[i] > 0L) {
+                recordPhase(i, nanos[i]);
+            }
+        }
+        Metrics.histogram(REQUEST_HISTOGRAM, Metrics.labels(
+            "resource", resource,
+            "factory",  factory,
+            "action",   action)).record(total);
+    }
+
+    /**
+     * @return The phase times in the format of the
+     * 'Server-Timing' HTTP header.
+     */
+    public String toServerTiming() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nanos.length; ++i) {
+            if (nanos[i] > 0L) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(PHASES[i]).append(";dur=")
+                  .append(String.format(Locale.US, "%.3f", nanos[i]/1e6));
+            }
+        }
+        if (total > 0L) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append("total;dur=")
+              .append(String.format(Locale.US, "%.3f", total/1e6));
+        }
+        return sb.toString();
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -13,6 +13,7 @@ import org.dive4elements.artifacts.common.utils.XMLUtils;
 import org.dive4elements.artifacts.ArtifactDatabase;
 import org.dive4elements.artifacts.ArtifactDatabaseException;
 import org.dive4elements.artifacts.ArtifactNamespaceContext;
+import org.dive4elements.artifacts.CallMeta;
 
 import java.io.IOException;
 
@@ -89,6 +90,14 @@ extends      BaseResource
      */
     public static final String DESCRIBE = "describe";
 
+    @Override
+    protected void doInit() throws ResourceException {
+        super.doInit();
+        // Conditional requests are handled by innerGet() itself
+        // before the expensive describe is done.
+        setConditional(false);
+    }
+
     @Override
     protected Representation innerGet()
     throws                   ResourceException
@@ -104,10 +113,18 @@ extends      BaseResource
         ArtifactDatabase db = (ArtifactDatabase)getContext()
             .getAttributes().get("database");
 
+        TagValidator validator = new TagValidator();
+
         try {
-            return new DomRepresentation(
-                MediaType.APPLICATION_XML,
-                db.describe(identifier, null, getCallMeta()));
+            Document description =
+                db.describe(identifier, null, getCallMeta(), validator);
+
+            if (description == null) {
+                return validator.notModified();
+            }
+
+            return validator.tagged(new DomRepresentation(
+                MediaType.APPLICATION_XML, description));
         }
         catch (ArtifactDatabaseException adbe) {
             logger.warn(adbe.getLocalizedMessage(), adbe);
@@ -139,18 +156,7 @@ extends      BaseResource
         Document out = null;
 
         try {
-            if (action.equals(FEED)) {
-                out = db.feed(identifier, source, getCallMeta());
-            }
-            else if (action.equals(ADVANCE)) {
-                out = db.advance(identifier, source, getCallMeta());
-            }
-            else if (action.equals(DESCRIBE)) {
-                out = db.describe(identifier, source, getCallMeta());
-            }
-            else {
-                throw new ArtifactDatabaseException(NO_SUCH_ACTION_MESSAGE);
-            }
+            out = perform(identifier, action, source, db, getCallMeta());
         }
         catch (ArtifactDatabaseException adbe) {
             logger.warn(adbe.getLocalizedMessage(), adbe);
@@ -163,14 +169,47 @@ extends      BaseResource
         return new DomRepresentation(MediaType.APPLICATION_XML, out);
     }
 
+    /**
+     * Performs an action (feed, advance or describe) on the artifact
+     * specified by 'identifier'.
+     *
+     * @param identifier The identifier of the artifact.
+     * @param action The action to be performed.
+     * @param source The input document to further parameterize the
+     * operation.
+     * @param db The artifact database where to find the artifact.
+     * @param meta The meta information of the call.
+     * @return The result document of the action.
+     * @throws ArtifactDatabaseException Thrown if the action is unknown
+     * or failed.
+     */
+    public static Document perform(
+        String           identifier,
+        String           action,
+        Document         source,
+        ArtifactDatabase db,
+        CallMeta         meta
+    )
+    throws ArtifactDatabaseException
+    {
+        if (action.equals(FEED)) {
+            return db.feed(identifier, source, meta);
+        }
+        if (action.equals(ADVANCE)) {
+            return db.advance(identifier, source, meta);
+        }
+        if (action.equals(DESCRIBE)) {
+            return db.describe(identifier, source, meta);
+        }
+        throw new ArtifactDatabaseException(NO_SUCH_ACTION_MESSAGE);
+    }
+
     @Override
     protected Representation innerPost(Representation requestRepr) {
 
         Document inputDocument = null;
         try {
-            DomRepresentation input = new DomRepresentation(requestRepr);
-            input.setNamespaceAware(true);
-            inputDocument = input.getDocument();
+            inputDocument = parseDocument(requestRepr);
         }
         catch (IOException ioe) {
             logger.error(ioe.getMessage());
@@ -25,8 +25,6 @@ import org.restlet.Response;
 import org.restlet.data.MediaType;
 import org.restlet.data.Status;
 
-import org.restlet.ext.xml.DomRepresentation;
-
 import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.Representation;
 
@@ -62,9 +60,7 @@ extends               BaseResource
         Document inputDocument = null;
 
         try {
-            DomRepresentation input = new DomRepresentation(requestRepr);
-            input.setNamespaceAware(true);
-            inputDocument = input.getDocument();
+            inputDocument = parseDocument(requestRepr);
         }
         catch (IOException ioe) {
             logger.error(ioe.getMessage());
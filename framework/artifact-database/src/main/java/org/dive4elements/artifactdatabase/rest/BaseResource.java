@@ -8,13 +8,19 @@
 
 package org.dive4elements.artifactdatabase.rest;
 
+import org.dive4elements.artifactdatabase.ArtifactDatabaseImpl;
 import org.dive4elements.artifactdatabase.DefaultCallMeta;
 import org.dive4elements.artifactdatabase.DefaultPreferredLocale;
 
+import org.dive4elements.artifactdatabase.metrics.RequestTimings;
+
 import org.dive4elements.artifacts.ArtifactDatabase;
+import org.dive4elements.artifacts.ArtifactDatabaseException;
 import org.dive4elements.artifacts.CallMeta;
 import org.dive4elements.artifacts.PreferredLocale;
 
+import java.io.IOException;
+
 import java.util.List;
 
 import org.apache.logging.log4j.Logger;
@@ -23,12 +29,19 @@ import org.apache.logging.log4j.LogManager;
 import org.restlet.data.ClientInfo;
 import org.restlet.data.Language;
 import org.restlet.data.Preference;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+
+import org.restlet.ext.xml.DomRepresentation;
 
+import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.Representation;
 
 import org.restlet.resource.ResourceException;
 import org.restlet.resource.ServerResource;
 
+import org.w3c.dom.Document;
+
 /**
  * Base class for the resources of REST interface of the artifact database.
  * Primarily used to unify the logging.
@@ -39,6 +52,65 @@ extends      ServerResource
 {
     private static Logger logger = LogManager.getLogger(BaseResource.class);
 
+    /** Query parameter to limit the number of elements of a listing. */
+    public static final String PARAM_LIMIT = "limit";
+
+    /** Query parameter with the cursor after which a listing starts. */
+    public static final String PARAM_AFTER = "after";
+
+    /**
+     * Validator which checks the entity tags of documents against
+     * the 'If-None-Match' conditions of the current request.
+     * It remembers the checked tag to attach it to the response.
+     */
+    public class TagValidator
+    implements   ArtifactDatabase.Validator
+    {
+        protected String tag;
+
+        public TagValidator() {
+        }
+
+        @Override
+        public boolean isValid(String tag) {
+            this.tag = tag;
+
+            if (tag == null) {
+                return false;
+            }
+
+            for (Tag noneMatch: getConditions().getNoneMatch()) {
+                if (Tag.ALL.equals(noneMatch)
+                || tag.equals(noneMatch.getName())) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Attaches the checked entity tag to a representation.
+         * @param representation The representation.
+         * @return The tagged representation.
+         */
+        public Representation tagged(Representation representation) {
+            if (tag != null) {
+                representation.setTag(new Tag(tag, false));
+            }
+            return representation;
+        }
+
+        /**
+         * Sets the response status to 304 (Not Modified).
+         * @return An empty representation carrying the entity tag.
+         */
+        public Representation notModified() {
+            getResponse().setStatus(Status.REDIRECTION_NOT_MODIFIED);
+            return tagged(new EmptyRepresentation());
+        }
+    } // class TagValidator
+
     /**
      * Default constructor.
      */
@@ -60,6 +132,7 @@ extends      ServerResource
     protected Representation post(Representation requestRepr)
     throws    ResourceException
     {
+        RequestTimings.resource(getClass().getSimpleName());
         try {
             return innerPost(requestRepr);
         }
@@ -99,6 +172,7 @@ extends      ServerResource
     protected Representation get()
     throws    ResourceException
     {
+        RequestTimings.resource(getClass().getSimpleName());
         try {
             return innerGet();
         }
@@ -125,6 +199,27 @@ extends      ServerResource
         return super.get();
     }
 
+    /**
+     * Parses the XML document of an incoming representation.
+     * The time needed is recorded as the parse phase of the request.
+     * @param requestRepr The incoming representation.
+     * @return The parsed document.
+     * @throws IOException Thrown if the document cannot be read.
+     */
+    protected static Document parseDocument(Representation requestRepr)
+    throws IOException
+    {
+        RequestTimings.enter(RequestTimings.PARSE);
+        try {
+            DomRepresentation input = new DomRepresentation(requestRepr);
+            input.setNamespaceAware(true);
+            return input.getDocument();
+        }
+        finally {
+            RequestTimings.exit();
+        }
+    }
+
     /**
      * Returns meta information (preferred languages et. al.)
      * of the current HTTP request.
@@ -149,6 +244,55 @@ extends      ServerResource
     }
 
 
+    /**
+     * Returns the max. number of elements of a listing requested
+     * by the 'limit' query parameter.
+     * @return the limit or 0 if no or an invalid limit is given.
+     */
+    protected int getLimit() {
+        return parseLimit(getQueryValue(PARAM_LIMIT));
+    }
+
+    /**
+     * Returns the cursor of a listing given by the 'after'
+     * query parameter.
+     * @return the cursor or null if not given.
+     */
+    protected String getAfter() {
+        String after = getQueryValue(PARAM_AFTER);
+        return after != null && after.length() > 0 ? after : null;
+    }
+
+    /**
+     * Parses the limit of a listing.
+     * @return the limit or 0 if the value is missing or invalid.
+     */
+    protected static int parseLimit(String value) {
+        if (value != null && (value = value.trim()).length() > 0) {
+            try {
+                return Math.max(0, Integer.parseInt(value));
+            }
+            catch (NumberFormatException nfe) {
+                logger.warn("Invalid limit: '" + value + "'");
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the status of a response to a failed listing: a failed
+     * backend query is reported as a server error, all other errors
+     * with the given status.
+     */
+    protected static Status listingStatus(
+        ArtifactDatabaseException adbe,
+        Status                    status
+    ) {
+        return ArtifactDatabaseImpl.LISTING_FAILED.equals(adbe.getMessage())
+            ? Status.SERVER_ERROR_INTERNAL
+            : status;
+    }
+
     /**
      * Returns the artifact database stored in the context of the REST
      * application.
@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.rest;
+
+import org.dive4elements.artifactdatabase.metrics.RequestTimings;
+
+import org.dive4elements.artifacts.common.utils.Config;
+import org.dive4elements.artifacts.common.utils.XMLUtils;
+
+import org.dive4elements.artifacts.ArtifactDatabase;
+import org.dive4elements.artifacts.ArtifactDatabaseException;
+import org.dive4elements.artifacts.ArtifactNamespaceContext;
+import org.dive4elements.artifacts.CallMeta;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.xpath.XPathConstants;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.restlet.Response;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+
+import org.restlet.ext.xml.DomRepresentation;
+
+import org.restlet.representation.EmptyRepresentation;
+import org.restlet.representation.Representation;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Resource to perform many describe, feed and advance actions
+ * on (possibly different) artifacts with a single HTTP request.
+ * The incoming document wraps the usual action documents:
+ * <pre>
+ * &lt;art:batch&gt;
+ *   &lt;art:action&gt;&lt;art:type name="feed"/&gt;&lt;art:uuid art:value="..."/&gt;...&lt;/art:action&gt;
+ *   &lt;art:action&gt;&lt;art:type name="describe"/&gt;&lt;art:uuid art:value="..."/&gt;...&lt;/art:action&gt;
+ * &lt;/art:batch&gt;
+ * </pre>
+ * The actions of one artifact are performed sequentially in document
+ * order. The actions of different artifacts are independent and are
+ * performed in parallel on a bounded thread pool.
+ * The result document contains an 'item' element for each action
+ * in document order carrying the status of the action and its
+ * result document.
+ */
+public class BatchResource
+extends      BaseResource
+{
+    private static Logger logger = LogManager.getLogger(BatchResource.class);
+
+    /**
+     * server URL where to reach the resource.
+     */
+    public static final String PATH = "/batch";
+
+    /**
+     * XPath to the actions of the incoming batch document.
+     */
+    public static final String XPATH_ACTIONS = "/art:batch/art:action";
+
+    /**
+     * XPath to the action name relative to an action.
+     */
+    public static final String XPATH_ACTION_NAME = "art:type/@name";
+
+    /**
+     * XPath to the artifact identifier relative to an action.
+     */
+    public static final String XPATH_UUID = "art:uuid/@art:value";
+
+    /**
+     * XPath to figure out the number of threads performing
+     * the batch actions from the global configuration.
+     */
+    public static final String XPATH_THREADS =
+        "/artifact-database/rest-server/batch/threads/text()";
+
+    /**
+     * XPath to figure out the max. number of actions of a batch
+     * from the global configuration.
+     */
+    public static final String XPATH_MAX_ACTIONS =
+        "/artifact-database/rest-server/batch/max-actions/text()";
+
+    public static final int DEFAULT_THREADS     = 8;
+
+    public static final int DEFAULT_MAX_ACTIONS = 1000;
+
+    public static final String NO_BATCH_MESSAGE = "no batch actions given";
+
+    public static final String TOO_MANY_ACTIONS_MESSAGE =
+        "too many batch actions";
+
+    public static final String NO_UUID_MESSAGE = "no artifact given";
+
+    public static final String STATUS_OK    = "ok";
+
+    public static final String STATUS_ERROR = "error";
+
+    private static ExecutorService executor;
+
+    private static int maxActions = -1;
+
+    /**
+     * The outcome of a single action.
+     */
+    protected static final class Outcome {
+
+        protected String   identifier;
+        protected String   action;
+        protected Document result;
+        protected String   error;
+
+        protected Outcome(String identifier, String action) {
+            this.identifier = identifier;
+            this.action     = action;
+        }
+    } // class Outcome
+
+    /**
+     * Performs the actions of one artifact sequentially.
+     */
+    protected static class ArtifactActions
+    implements             Callable<Void>
+    {
+        protected ArtifactDatabase db;
+        protected CallMeta         meta;
+        protected List<Document>   sources;
+        protected List<Outcome>    outcomes;
+
+        /** The timings of this part of the request. May be null. */
+        protected RequestTimings   timings;
+
+        public ArtifactActions(
+            ArtifactDatabase db,
+            CallMeta         meta,
+            RequestTimings   timings
+        ) {
+            this.db      = db;
+            this.meta    = meta;
+            this.timings = timings;
+            sources      = new ArrayList<Document>();
+            outcomes     = new ArrayList<Outcome>();
+        }
+
+        public void add(Document source, Outcome outcome) {
+            sources.add(source);
+            outcomes.add(outcome);
+        }
+
+        @Override
+        public Void call() {
+            RequestTimings previous = RequestTimings.attach(timings);
+            try {
+                perform();
+            }
+            finally {
+                RequestTimings.detach(previous);
+            }
+            return null;
+        }
+
+        protected void perform() {
+            for (int i = 0, N = sources.size(); i < N; ++i) {
+                Outcome outcome = outcomes.get(i);
+                try {
+                    outcome.result = ArtifactResource.perform(
+                        outcome.identifier,
+                        outcome.action,
+                        sources.get(i),
+                        db,
+                        meta);
+                }
+                catch (ArtifactDatabaseException adbe) {
+                    logger.warn(adbe.getLocalizedMessage(), adbe);
+                    outcome.error = adbe.getMessage();
+                }
+                catch (RuntimeException re) {
+                    logger.error(re.getLocalizedMessage(), re);
+                    outcome.error = re.getMessage();
+                }
+            }
+        }
+    } // class ArtifactActions
+
+    public BatchResource() {
+    }
+
+    protected static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            int threads = getConfigInt(XPATH_THREADS, DEFAULT_THREADS);
+            logger.info("batch threads: " + threads);
+            executor = Executors.newFixedThreadPool(
+                threads,
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(
+                            runnable, "batch-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+        return executor;
+    }
+
+    /**
+     * Shuts down the thread pool of the batches. The running
+     * batches are finished. A later batch starts a new pool.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            logger.info("shutting down batch threads");
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    protected static synchronized int getMaxActions() {
+        if (maxActions < 0) {
+            maxActions = getConfigInt(XPATH_MAX_ACTIONS, DEFAULT_MAX_ACTIONS);
+        }
+        return maxActions;
+    }
+
+    protected static int getConfigInt(String xpath, int def) {
+        String value = Config.getStringXPath(xpath);
+        if (value != null && value.length() > 0) {
+            try {
+                int v = Integer.parseInt(value.trim());
+                if (v > 0) {
+                    return v;
+                }
+            }
+            catch (NumberFormatException nfe) {
+                logger.warn("not a valid number: " + value);
+            }
+        }
+        return def;
+    }
+
+    @Override
+    protected Representation innerPost(Representation requestRepr) {
+
+        Document input;
+        try {
+            input = parseDocument(requestRepr);
+        }
+        catch (IOException ioe) {
+            logger.error(ioe.getLocalizedMessage(), ioe);
+            Response response = getResponse();
+            response.setStatus(Status.CLIENT_ERROR_BAD_REQUEST, ioe);
+            return new EmptyRepresentation();
+        }
+
+        NodeList actions = (NodeList)XMLUtils.xpath(
+            input,
+            XPATH_ACTIONS,
+            XPathConstants.NODESET,
+            ArtifactNamespaceContext.INSTANCE);
+
+        if (actions == null || actions.getLength() == 0) {
+            Response response = getResponse();
+            response.setStatus(
+                Status.CLIENT_ERROR_BAD_REQUEST, NO_BATCH_MESSAGE);
+            return new EmptyRepresentation();
+        }
+
+        if (actions.getLength() > getMaxActions()) {
+            Response response = getResponse();
+            response.setStatus(
+                Status.CLIENT_ERROR_REQUEST_ENTITY_TOO_LARGE,
+                TOO_MANY_ACTIONS_MESSAGE);
+            return new EmptyRepresentation();
+        }
+
+        ArtifactDatabase db = (ArtifactDatabase)getContext()
+            .getAttributes().get("database");
+
+        CallMeta meta = getCallMeta();
+
+        RequestTimings timings = RequestTimings.current();
+
+        List<Outcome> outcomes = new ArrayList<Outcome>(actions.getLength());
+
+        Map<String, ArtifactActions> perArtifact =
+            new LinkedHashMap<String, ArtifactActions>();
+
+        for (int i = 0, N = actions.getLength(); i < N; ++i) {
+            Element action = (Element)actions.item(i);
+
+            String identifier = XMLUtils.xpathString(
+                action, XPATH_UUID, ArtifactNamespaceContext.INSTANCE);
+
+            String name = XMLUtils.xpathString(
+                action, XPATH_ACTION_NAME, ArtifactNamespaceContext.INSTANCE);
+
+            Outcome outcome = new Outcome(identifier, name);
+            outcomes.add(outcome);
+
+            if (identifier == null || identifier.length() == 0) {
+                outcome.error = NO_UUID_MESSAGE;
+                continue;
+            }
+
+            if (name == null || name.length() == 0) {
+                outcome.error = ArtifactResource.NO_ACTION_MESSAGE;
+                continue;
+            }
+
+            // Each action gets its own document as the actions
+            // may be processed in parallel.
+            Document source = XMLUtils.newDocument();
+            source.appendChild(source.importNode(action, true));
+
+            ArtifactActions aa = perArtifact.get(identifier);
+            if (aa == null) {
+                perArtifact.put(identifier, aa = new ArtifactActions(
+                    db, meta, timings != null ? timings.fork() : null));
+            }
+            aa.add(source, outcome);
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("batch of " + outcomes.size() + " actions on "
+                + perArtifact.size() + " artifacts");
+        }
+
+        List<Future<Void>> futures =
+            new ArrayList<Future<Void>>(perArtifact.size());
+
+        ExecutorService exec = getExecutor();
+
+        for (ArtifactActions aa: perArtifact.values()) {
+            futures.add(exec.submit(aa));
+        }
+
+        try {
+            for (Future<Void> future: futures) {
+                future.get();
+            }
+            if (timings != null) {
+                for (ArtifactActions aa: perArtifact.values()) {
+                    timings.merge(aa.timings);
+                }
+            }
+        }
+        catch (InterruptedException ie) {
+            logger.warn("batch interrupted");
+            for (Future<Void> future: futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            Response response = getResponse();
+            response.setStatus(Status.SERVER_ERROR_INTERNAL, ie);
+            return new EmptyRepresentation();
+        }
+        catch (ExecutionException ee) {
+            logger.error(ee.getLocalizedMessage(), ee);
+            Response response = getResponse();
+            response.setStatus(Status.SERVER_ERROR_INTERNAL, ee);
+            return new EmptyRepresentation();
+        }
+
+        return new DomRepresentation(
+            MediaType.APPLICATION_XML, createResult(outcomes));
+    }
+
+    protected static Document createResult(List<Outcome> outcomes) {
+        Document document = XMLUtils.newDocument();
+
+        XMLUtils.ElementCreator ec = new XMLUtils.ElementCreator(
+            document,
+            ArtifactNamespaceContext.NAMESPACE_URI,
+            ArtifactNamespaceContext.NAMESPACE_PREFIX);
+
+        Element root = ec.create("batch-result");
+        document.appendChild(root);
+
+        for (Outcome outcome: outcomes) {
+            Element item = ec.create("item");
+
+            if (outcome.identifier != null) {
+                ec.addAttr(item, "uuid", outcome.identifier, true);
+            }
+            if (outcome.action != null) {
+                ec.addAttr(item, "action", outcome.action, true);
+            }
+
+            if (outcome.error != null) {
+                ec.addAttr(item, "status", STATUS_ERROR, true);
+                ec.addAttr(item, "message", outcome.error, true);
+            }
+            else {
+                ec.addAttr(item, "status", STATUS_OK, true);
+                if (outcome.result != null
+                && outcome.result.getDocumentElement() != null) {
+                    item.appendChild(document.importNode(
+                        outcome.result.getDocumentElement(), true));
+                }
+            }
+
+            root.appendChild(item);
+        }
+
+        return document;
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+
+package org.dive4elements.artifactdatabase.rest;
+
+import org.dive4elements.artifacts.ArtifactDatabase;
+import org.dive4elements.artifacts.ArtifactDatabaseException;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.restlet.Request;
+import org.restlet.Response;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+
+import org.restlet.representation.EmptyRepresentation;
+import org.restlet.representation.Representation;
+
+import org.restlet.resource.ResourceException;
+
+/**
+ * Resource to export all collections of a user or a single
+ * collection with their artifacts as a zip archive to be
+ * imported by BulkImportResource later on.
+ */
+public class BulkExportResource
+extends      BaseResource
+{
+    private static Logger logger =
+        LogManager.getLogger(BulkExportResource.class);
+
+    /**
+     * server URL where to reach the resource.
+     */
+    public static final String PATH = "/bulk-export/{type}/{uuid}";
+
+    public static final String TYPE_USER       = "user";
+    public static final String TYPE_COLLECTION = "collection";
+
+    @Override
+    protected Representation innerGet()
+    throws                   ResourceException
+    {
+        Request request = getRequest();
+
+        String type       = (String)request.getAttributes().get("type");
+        String identifier = (String)request.getAttributes().get("uuid");
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("bulk export of " + type + " '" + identifier + "'");
+        }
+
+        ArtifactDatabase db = (ArtifactDatabase)getContext()
+            .getAttributes().get("database");
+
+        Response response = getResponse();
+
+        try {
+            if (TYPE_USER.equals(type)) {
+                return new OutRepresentation(
+                    MediaType.APPLICATION_ZIP,
+                    db.exportUserCollections(identifier, getCallMeta()));
+            }
+
+            if (TYPE_COLLECTION.equals(type)) {
+                return new OutRepresentation(
+                    MediaType.APPLICATION_ZIP,
+                    db.exportCollection(identifier, getCallMeta()));
+            }
+
+            response.setStatus(
+                Status.CLIENT_ERROR_BAD_REQUEST,
+                "unknown export type '" + type + "'");
+        }
+        catch (ArtifactDatabaseException adbe) {
+            logger.warn(adbe.getLocalizedMessage(), adbe);
+            response.setStatus(
+                Status.CLIENT_ERROR_NOT_FOUND, adbe.getMessage());
+        }
+
+        return new EmptyRepresentation();
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
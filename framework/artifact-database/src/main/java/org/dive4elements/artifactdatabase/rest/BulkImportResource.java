@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+
+package org.dive4elements.artifactdatabase.rest;
+
+import org.dive4elements.artifacts.ArtifactDatabase;
+import org.dive4elements.artifacts.ArtifactDatabaseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.restlet.Request;
+import org.restlet.Response;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+
+import org.restlet.ext.xml.DomRepresentation;
+
+import org.restlet.representation.EmptyRepresentation;
+import org.restlet.representation.Representation;
+
+/**
+ * Resource to import a zip archive of collections produced by the
+ * BulkExportResource for the user given in the URL.
+ */
+public class BulkImportResource
+extends      BaseResource
+{
+    private static Logger logger =
+        LogManager.getLogger(BulkImportResource.class);
+
+    /**
+     * server URL where to reach the resource.
+     */
+    public static final String PATH = "/bulk-import/{uuid}";
+
+    @Override
+    protected Representation innerPost(Representation requestRepr) {
+
+        Request request = getRequest();
+
+        String user = (String)request.getAttributes().get("uuid");
+
+        ArtifactDatabase db = (ArtifactDatabase)getContext()
+            .getAttributes().get("database");
+
+        InputStream in;
+        try {
+            in = requestRepr.getStream();
+        }
+        catch (IOException ioe) {
+            logger.error(ioe.getMessage());
+            Response response = getResponse();
+            response.setStatus(Status.CLIENT_ERROR_BAD_REQUEST, ioe);
+            return new EmptyRepresentation();
+        }
+
+        try {
+            return new DomRepresentation(
+                MediaType.APPLICATION_XML,
+                db.importCollections(user, in, getCallMeta()));
+        }
+        catch (ArtifactDatabaseException adbe) {
+            logger.warn(adbe.getLocalizedMessage(), adbe);
+            Response response = getResponse();
+            response.setStatus(
+                Status.CLIENT_ERROR_NOT_FOUND, adbe.getMessage());
+            return new EmptyRepresentation();
+        }
+        finally {
+            try {
+                in.close();
+            }
+            catch (IOException ioe) {
+                logger.warn(ioe.getLocalizedMessage());
+            }
+        }
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -12,14 +12,25 @@ import java.io.ByteArrayInputStream;
 
 import java.nio.ByteBuffer;
 
+import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+
+import org.restlet.data.CharacterSet;
 import org.restlet.data.MediaType;
 
 public class ByteArrayRepresentation
 extends      Representation
 {
+    /**
+     * Character set used if the representation does not specify one.
+     */
+    public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
     protected byte [] data;
 
     public ByteArrayRepresentation(MediaType mediaType, byte [] data) {
@@ -34,12 +45,12 @@ extends      Representation
 
     @Override
     public ReadableByteChannel getChannel() throws IOException {
-        return null;
+        return Channels.newChannel(getStream());
     }
 
     @Override
     public Reader getReader() throws IOException {
-        return new InputStreamReader(getStream());
+        return new InputStreamReader(getStream(), getCharset());
     }
 
     @Override
@@ -49,17 +60,41 @@ extends      Representation
 
     @Override
     public void write(Writer writer) throws IOException {
-        writer.append(ByteBuffer.wrap(data).asCharBuffer());
+        writer.write(new String(data, getCharset()));
     }
 
     @Override
     public void write(WritableByteChannel writableChannel) throws IOException {
-        writableChannel.write(ByteBuffer.wrap(data));
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            writableChannel.write(buffer);
+        }
     }
 
     @Override
     public void write(OutputStream outputStream) throws IOException {
         outputStream.write(data);
     }
+
+    /**
+     * Returns the character set to decode the bytes with.
+     * @return The character set of this representation or UTF-8
+     * if none is given or it is not supported.
+     */
+    protected Charset getCharset() {
+        CharacterSet characterSet = getCharacterSet();
+        if (characterSet != null) {
+            try {
+                return Charset.forName(characterSet.getName());
+            }
+            catch (IllegalCharsetNameException icne) {
+                // fall back to default
+            }
+            catch (UnsupportedCharsetException uce) {
+                // fall back to default
+            }
+        }
+        return DEFAULT_CHARSET;
+    }
 }
 // vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
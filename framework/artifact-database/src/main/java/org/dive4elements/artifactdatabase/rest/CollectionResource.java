@@ -28,6 +28,7 @@ import org.restlet.data.Status;
 import org.restlet.ext.xml.DomRepresentation;
 import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.Representation;
+import org.restlet.resource.ResourceException;
 import org.restlet.Request;
 import org.restlet.Response;
 
@@ -60,6 +61,16 @@ extends      BaseResource
     public static final String XPATH_ARTIFACT =
         "/art:action/art:type/art:artifact/@uuid";
 
+    /**
+     * XPath to figure out the max. number of items of a listing.
+     */
+    public static final String XPATH_LIMIT = "/art:action/art:type/@limit";
+
+    /**
+     * XPath to figure out the cursor after which a listing starts.
+     */
+    public static final String XPATH_AFTER = "/art:action/art:type/@after";
+
     /** Error message if no action was given.*/
     public static final String NO_ACTION_MSG = "no action given";
 
@@ -132,7 +143,14 @@ extends      BaseResource
             else if (action.equals(ACTION_DESCRIBE)) {
                 logger.info("Describe collection '" + identifier + "'");
 
-                out = db.describeCollection(identifier, meta);
+                TagValidator validator = new TagValidator();
+
+                out = db.describeCollection(identifier, meta, validator);
+
+                return out == null
+                    ? validator.notModified()
+                    : validator.tagged(new DomRepresentation(
+                        MediaType.APPLICATION_XML, out));
             }
             else if (action.equals(ACTION_ADD_ARTIFACT)) {
                 String art = getArtifactIdentifier(source);
@@ -148,7 +166,19 @@ extends      BaseResource
             }
             else if (action.equals(ACTION_LIST_ARTIFACTS)) {
                 logger.info("List artifacts of collection '" + identifier +"'");
-                out = db.listCollectionArtifacts(identifier, meta);
+
+                String after = XMLUtils.xpathString(
+                    source, XPATH_AFTER, ArtifactNamespaceContext.INSTANCE);
+
+                return new OutRepresentation(
+                    MediaType.APPLICATION_XML,
+                    db.streamCollectionArtifacts(
+                        identifier,
+                        parseLimit(XMLUtils.xpathString(
+                            source, XPATH_LIMIT,
+                            ArtifactNamespaceContext.INSTANCE)),
+                        after != null && after.length() > 0 ? after : null,
+                        meta));
             }
             else if (action.equals(ACTION_SET_ATTRIBUTE)) {
                 String art = getArtifactIdentifier(source);
@@ -192,7 +222,8 @@ extends      BaseResource
 
             Response response = getResponse();
             response.setStatus(
-                Status.CLIENT_ERROR_BAD_REQUEST, adbe.getMessage());
+                listingStatus(adbe, Status.CLIENT_ERROR_BAD_REQUEST),
+                adbe.getMessage());
             return new EmptyRepresentation();
         }
 
@@ -200,13 +231,20 @@ extends      BaseResource
     }
 
 
+    @Override
+    protected void doInit() throws ResourceException {
+        super.doInit();
+        // The 'If-None-Match' condition of the describe action is
+        // evaluated by dispatch() before the expensive describe is done.
+        setConditional(false);
+    }
+
+
     @Override
     protected Representation innerPost(Representation requestRepr) {
         Document input = null;
         try {
-            DomRepresentation in = new DomRepresentation(requestRepr);
-            in.setNamespaceAware(true);
-            input = in.getDocument();
+            input = parseDocument(requestRepr);
         }
         catch (IOException ioe) {
             logger.error(ioe.getLocalizedMessage(), ioe);
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.rest;
+
+import org.dive4elements.artifacts.common.utils.LimitedInputStream;
+import org.dive4elements.artifacts.common.utils.XMLUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+
+import org.restlet.data.Dimension;
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.data.Preference;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+
+import org.restlet.engine.application.DecodeRepresentation;
+import org.restlet.engine.application.EncodeRepresentation;
+
+import org.restlet.representation.Representation;
+
+import org.restlet.routing.Filter;
+
+import org.w3c.dom.Document;
+
+/**
+ * Filter in front of the REST resources which compresses the
+ * response entities with gzip or deflate if the client announces
+ * support for it via the 'Accept-Encoding' header. Only entities
+ * of the configured media types which are larger than the configured
+ * minimum size are compressed. Entities of unknown size (e.g. streamed
+ * out() results) are always compressed.
+ * Compressed request entities (large feed or import documents)
+ * are transparently decompressed before they reach the resources.
+ * Reading more than the configured max. decoded size from such
+ * an entity fails. Compressed responses carry a weak entity tag
+ * as they are not byte-identical to the uncompressed ones.
+ */
+public class CompressionFilter
+extends      Filter
+{
+    private static Logger logger = LogManager.getLogger(CompressionFilter.class);
+
+    /**
+     * XPath to figure out if compression is enabled. Defaults to true.
+     */
+    public static final String XPATH_ENABLED =
+        "/artifact-database/rest-server/compression/@enabled";
+
+    /**
+     * XPath to figure out the minimal size in bytes of an entity
+     * to be compressed.
+     */
+    public static final String XPATH_MIN_SIZE =
+        "/artifact-database/rest-server/compression/min-size/text()";
+
+    /**
+     * XPath to figure out the white space separated list of media
+     * types which are compressed.
+     */
+    public static final String XPATH_MEDIA_TYPES =
+        "/artifact-database/rest-server/compression/media-types/text()";
+
+    /**
+     * XPath to figure out the max. size in bytes of a decompressed
+     * request entity.
+     */
+    public static final String XPATH_MAX_DECODED_SIZE =
+        "/artifact-database/rest-server/compression/max-decoded-size/text()";
+
+    /**
+     * Default minimal size of compressed entities: 1024 bytes.
+     */
+    public static final long DEFAULT_MIN_SIZE = 1024L;
+
+    /**
+     * Default max. size of a decompressed request entity: 256 MiB.
+     */
+    public static final long DEFAULT_MAX_DECODED_SIZE = 256L*1024L*1024L;
+
+    /**
+     * Media types compressed if nothing else is configured.
+     */
+    public static final String DEFAULT_MEDIA_TYPES =
+        "application/xml text/xml text/plain text/html text/csv " +
+        "application/json";
+
+    /**
+     * The compression settings read from the global configuration.
+     */
+    public static class Settings {
+
+        protected boolean         enabled;
+        protected long            minSize;
+        protected long            maxDecodedSize;
+        protected List<MediaType> mediaTypes;
+
+        public Settings() {
+            enabled        = true;
+            minSize        = DEFAULT_MIN_SIZE;
+            maxDecodedSize = DEFAULT_MAX_DECODED_SIZE;
+            mediaTypes     = parseMediaTypes(DEFAULT_MEDIA_TYPES);
+        }
+
+        public Settings(Document config) {
+            this();
+
+            String enabledString =
+                XMLUtils.xpathString(config, XPATH_ENABLED, null);
+
+            if (enabledString != null && enabledString.length() > 0) {
+                enabled = Boolean.valueOf(enabledString.trim());
+            }
+
+            String minSizeString =
+                XMLUtils.xpathString(config, XPATH_MIN_SIZE, null);
+
+            if (minSizeString != null && minSizeString.length() > 0) {
+                try {
+                    minSize = Long.parseLong(minSizeString.trim());
+                }
+                catch (NumberFormatException nfe) {
+                    logger.warn(
+                        "compression min-size is not a valid number: "
+                        + minSizeString);
+                }
+            }
+
+            String maxDecodedSizeString =
+                XMLUtils.xpathString(config, XPATH_MAX_DECODED_SIZE, null);
+
+            if (maxDecodedSizeString != null
+            && maxDecodedSizeString.length() > 0) {
+                try {
+                    maxDecodedSize = Long.parseLong(
+                        maxDecodedSizeString.trim());
+                }
+                catch (NumberFormatException nfe) {
+                    logger.warn(
+                        "compression max-decoded-size is not a valid number: "
+                        + maxDecodedSizeString);
+                }
+            }
+
+            String mediaTypesString =
+                XMLUtils.xpathString(config, XPATH_MEDIA_TYPES, null);
+
+            if (mediaTypesString != null
+            && mediaTypesString.trim().length() > 0) {
+                mediaTypes = parseMediaTypes(mediaTypesString);
+            }
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public long getMinSize() {
+            return minSize;
+        }
+
+        public long getMaxDecodedSize() {
+            return maxDecodedSize;
+        }
+
+        public List<MediaType> getMediaTypes() {
+            return mediaTypes;
+        }
+
+        protected static List<MediaType> parseMediaTypes(String types) {
+            List<MediaType> mediaTypes = new ArrayList<MediaType>();
+            for (String type: types.trim().split("[\\s,]+")) {
+                if (type.length() > 0) {
+                    mediaTypes.add(MediaType.valueOf(type));
+                }
+            }
+            return mediaTypes;
+        }
+    } // class Settings
+
+    /**
+     * Decodes a request entity up to a max. size. The other
+     * accessors of the decoded content are based on #getStream().
+     */
+    public static class LimitedDecodeRepresentation
+    extends             DecodeRepresentation
+    {
+        protected long maxSize;
+
+        public LimitedDecodeRepresentation(
+            Representation entity,
+            long           maxSize
+        ) {
+            super(entity);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public InputStream getStream() throws IOException {
+            InputStream in = super.getStream();
+            return in != null && maxSize > 0L
+                ? new LimitedInputStream(in, maxSize)
+                : in;
+        }
+    } // class LimitedDecodeRepresentation
+
+    /**
+     * Encodes a response entity. A strong entity tag of the
+     * wrapped entity is turned into a weak one because the
+     * encoded bytes differ from the identity ones.
+     */
+    public static class WeakTagEncodeRepresentation
+    extends             EncodeRepresentation
+    {
+        public WeakTagEncodeRepresentation(
+            Encoding       encoding,
+            Representation entity
+        ) {
+            super(encoding, entity);
+        }
+
+        @Override
+        public Tag getTag() {
+            Tag tag = super.getTag();
+            return tag != null && !tag.isWeak()
+                ? new Tag(tag.getName(), true)
+                : tag;
+        }
+    } // class WeakTagEncodeRepresentation
+
+    protected Settings settings;
+
+    public CompressionFilter() {
+    }
+
+    public CompressionFilter(Context context, Settings settings) {
+        super(context);
+        this.settings = settings;
+    }
+
+    @Override
+    protected int beforeHandle(Request request, Response response) {
+        Representation entity = request.getEntity();
+
+        if (entity != null && entity.isAvailable() && isEncoded(entity)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("decompressing request entity: "
+                    + entity.getEncodings());
+            }
+            request.setEntity(new LimitedDecodeRepresentation(
+                entity, settings.getMaxDecodedSize()));
+        }
+
+        return CONTINUE;
+    }
+
+    @Override
+    protected void afterHandle(Request request, Response response) {
+        Representation entity = response.getEntity();
+
+        if (entity == null
+        || !entity.isAvailable()
+        || isEncoded(entity)
+        || Status.REDIRECTION_NOT_MODIFIED.equals(response.getStatus())
+        || !isCompressible(entity.getMediaType())) {
+            return;
+        }
+
+        // The representation depends on the Accept-Encoding header.
+        response.getDimensions().add(Dimension.ENCODING);
+
+        long size = entity.getSize();
+        if (size != Representation.UNKNOWN_SIZE
+        && size < settings.getMinSize()) {
+            return;
+        }
+
+        Encoding encoding = selectEncoding(request);
+        if (encoding == null) {
+            return;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("compressing response entity with " + encoding);
+        }
+
+        response.setEntity(new WeakTagEncodeRepresentation(encoding, entity));
+    }
+
+    protected boolean isCompressible(MediaType mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        for (MediaType allowed: settings.getMediaTypes()) {
+            if (allowed.includes(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Selects the encoding to use from the encodings accepted by
+     * the client. gzip is preferred over deflate.
+     * @param request The request.
+     * @return The encoding or null if the client does not accept
+     * a supported compression.
+     */
+    protected static Encoding selectEncoding(Request request) {
+        boolean gzip    = false;
+        boolean deflate = false;
+
+        for (Preference<Encoding> pref:
+            request.getClientInfo().getAcceptedEncodings()
+        ) {
+            if (pref.getQuality() <= 0f) {
+                continue;
+            }
+            Encoding encoding = pref.getMetadata();
+            if (Encoding.GZIP.equals(encoding)
+            ||  Encoding.ALL.equals(encoding)) {
+                gzip = true;
+            }
+            else if (Encoding.DEFLATE.equals(encoding)) {
+                deflate = true;
+            }
+        }
+
+        return gzip    ? Encoding.GZIP
+            :  deflate ? Encoding.DEFLATE
+            :  null;
+    }
+
+    protected static boolean isEncoded(Representation entity) {
+        for (Encoding encoding: entity.getEncodings()) {
+            if (!Encoding.IDENTITY.equals(encoding)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -69,9 +69,7 @@ extends      BaseResource
     {
         Document inputDocument = null;
         try {
-            DomRepresentation input = new DomRepresentation(requestRepr);
-            input.setNamespaceAware(true);
-            inputDocument = input.getDocument();
+            inputDocument = parseDocument(requestRepr);
         }
         catch (IOException ioe) {
             logger.error(ioe.getMessage());
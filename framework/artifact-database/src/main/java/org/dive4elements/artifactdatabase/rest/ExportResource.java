@@ -11,6 +11,8 @@ package org.dive4elements.artifactdatabase.rest;
 import org.dive4elements.artifacts.ArtifactDatabase;
 import org.dive4elements.artifacts.ArtifactDatabaseException;
 
+import org.dive4elements.artifactdatabase.BinaryExport;
+
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -18,6 +20,7 @@ import org.restlet.Request;
 import org.restlet.Response;
 
 import org.restlet.data.MediaType;
+import org.restlet.data.Preference;
 import org.restlet.data.Status;
 
 import org.restlet.ext.xml.DomRepresentation;
@@ -43,6 +46,19 @@ extends      BaseResource
      */
     public static final String PATH = "/export/{uuid}";
 
+    /**
+     * Query parameter to request the binary export format.
+     */
+    public static final String PARAM_FORMAT = "format";
+
+    public static final String FORMAT_BINARY = "binary";
+
+    /**
+     * Media type of the binary export format.
+     */
+    public static final MediaType BINARY =
+        MediaType.valueOf(BinaryExport.MEDIA_TYPE);
+
     @Override
     protected Representation innerGet()
     throws                   ResourceException
@@ -59,6 +75,12 @@ extends      BaseResource
             .getAttributes().get("database");
 
         try {
+            if (isBinaryRequested()) {
+                return new OutRepresentation(
+                    BINARY,
+                    db.exportArtifactStream(identifier, getCallMeta()));
+            }
+
             return new DomRepresentation(
                 MediaType.APPLICATION_XML,
                 db.exportArtifact(identifier, getCallMeta()));
@@ -71,5 +93,26 @@ extends      BaseResource
             return new EmptyRepresentation();
         }
     }
+
+    /**
+     * The binary format is sent if it is requested with the 'format'
+     * query parameter or if the client explicitly accepts it.
+     */
+    protected boolean isBinaryRequested() {
+        if (FORMAT_BINARY.equals(getQueryValue(PARAM_FORMAT))) {
+            return true;
+        }
+
+        for (Preference<MediaType> pref:
+            getRequest().getClientInfo().getAcceptedMediaTypes()
+        ) {
+            if (pref.getQuality() > 0f
+            && BINARY.equals(pref.getMetadata())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
 // vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.rest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import java.nio.file.Path;
+
+import org.restlet.data.MediaType;
+
+import org.restlet.representation.ChannelRepresentation;
+
+/**
+ * Representation which streams a file to the client with
+ * FileChannel.transferTo(). The content of the file is never
+ * loaded into the heap which allows the operating system to
+ * send it without copying.
+ */
+public class FileChannelRepresentation
+extends      ChannelRepresentation
+{
+    protected File file;
+
+    public FileChannelRepresentation(MediaType mediaType, File file) {
+        super(mediaType);
+        this.file = file;
+        setSize(file.length());
+    }
+
+    public FileChannelRepresentation(MediaType mediaType, Path path) {
+        this(mediaType, path.toFile());
+    }
+
+    @Override
+    public ReadableByteChannel getChannel() throws IOException {
+        return new FileInputStream(file).getChannel();
+    }
+
+    @Override
+    public InputStream getStream() throws IOException {
+        return new FileInputStream(file);
+    }
+
+    @Override
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            transfer(in.getChannel(), writableChannel);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        write(Channels.newChannel(outputStream));
+    }
+
+    /**
+     * Copies the remaining content of a file channel to
+     * a writable channel.
+     * @param source The file channel to read from.
+     * @param target The channel to write to.
+     * @throws IOException Thrown if reading or writing failed.
+     */
+    public static void transfer(FileChannel source, WritableByteChannel target)
+    throws IOException
+    {
+        long pos  = source.position();
+        long size = source.size();
+        while (pos < size) {
+            long n = source.transferTo(pos, size - pos, target);
+            if (n <= 0L) {
+                break;
+            }
+            pos += n;
+        }
+        source.position(pos);
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -46,9 +46,7 @@ extends      BaseResource
         Document input = null;
 
         try {
-            DomRepresentation in = new DomRepresentation(requestRepr);
-            in.setNamespaceAware(true);
-            input = in.getDocument();
+            input = parseDocument(requestRepr);
         }
         catch (IOException ioe) {
             logger.error(ioe.getLocalizedMessage(), ioe);
@@ -12,6 +12,7 @@ import org.dive4elements.artifacts.ArtifactDatabase;
 import org.dive4elements.artifacts.ArtifactDatabaseException;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
@@ -48,11 +49,13 @@ extends      BaseResource
     @Override
     protected Representation innerPost(Representation requestRepr) {
 
+        if (ExportResource.BINARY.equals(requestRepr.getMediaType(), true)) {
+            return importBinary(requestRepr);
+        }
+
         Document inputDocument = null;
         try {
-            DomRepresentation input = new DomRepresentation(requestRepr);
-            input.setNamespaceAware(true);
-            inputDocument = input.getDocument();
+            inputDocument = parseDocument(requestRepr);
         }
         catch (IOException ioe) {
             logger.error(ioe.getMessage());
@@ -79,5 +82,47 @@ extends      BaseResource
             return new EmptyRepresentation();
         }
     }
+
+    /**
+     * Imports an artifact in the binary export format. The artifact
+     * is read directly from the request stream.
+     */
+    protected Representation importBinary(Representation requestRepr) {
+
+        ArtifactDatabase db = (ArtifactDatabase)getContext()
+            .getAttributes().get("database");
+
+        InputStream in;
+        try {
+            in = requestRepr.getStream();
+        }
+        catch (IOException ioe) {
+            logger.error(ioe.getMessage());
+            Response response = getResponse();
+            response.setStatus(Status.CLIENT_ERROR_BAD_REQUEST, ioe);
+            return new EmptyRepresentation();
+        }
+
+        try {
+            return new DomRepresentation(
+                MediaType.APPLICATION_XML,
+                db.importArtifactStream(in, getCallMeta()));
+        }
+        catch (ArtifactDatabaseException adbe) {
+            logger.warn(adbe.getLocalizedMessage(), adbe);
+            Response response = getResponse();
+            response.setStatus(
+                Status.CLIENT_ERROR_NOT_FOUND, adbe.getMessage());
+            return new EmptyRepresentation();
+        }
+        finally {
+            try {
+                in.close();
+            }
+            catch (IOException ioe) {
+                logger.warn(ioe.getLocalizedMessage());
+            }
+        }
+    }
 }
 // vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -1,30 +1,152 @@
 package org.dive4elements.artifactdatabase.rest;
 
+import org.dive4elements.artifacts.common.utils.XMLUtils;
+
 import org.dive4elements.artifacts.ArtifactDatabase;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mortbay.thread.QueuedThreadPool;
+import org.mortbay.thread.ThreadPool;
+
 import org.restlet.Component;
 import org.restlet.Server;
 
+import org.restlet.data.Parameter;
+
 import org.restlet.ext.jetty.HttpServerHelper;
 
+import org.restlet.util.Series;
+
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import org.w3c.dom.Document;
+
+/**
+ * Starts a Jetty based HTTP server bound to a RestApp.
+ * Besides the settings of {@link Standalone} the Jetty connector
+ * is tuned by the elements below /artifact-database/rest-server/jetty
+ * of the global configuration. They are passed as parameters
+ * to the Restlet HttpServerHelper.
+ */
 public class JettyServer
 extends      Standalone
+implements   ThreadPoolStatus
 {
     private static Logger logger = LogManager.getLogger(JettyServer.class);
 
+    /**
+     * XPath prefix of the Jetty tuning parameters.
+     */
+    public static final String JETTY_PARAMETERS =
+        "/artifact-database/rest-server/jetty/";
+
+    /**
+     * Pairs of configuration element names and the names of the
+     * corresponding parameters of the Restlet Jetty connector.
+     */
+    public static final String [][] PARAMETERS = {
+        { "min-threads",                    "minThreads"                },
+        { "max-threads",                    "maxThreads"                },
+        { "acceptor-threads",               "acceptorThreads"           },
+        { "accept-queue-size",              "acceptQueueSize"           },
+        { "thread-max-idle-time-ms",        "threadMaxIdleTimeMs"       },
+        { "low-resources-max-idle-time-ms", "lowResourcesMaxIdleTimeMs" },
+        { "io-max-idle-time-ms",            "ioMaxIdleTimeMs"           },
+        { "request-buffer-size",            "requestBufferSize"         },
+        { "response-buffer-size",           "responseBufferSize"        },
+        { "request-header-size",            "requestHeaderSize"         },
+        { "response-header-size",           "responseHeaderSize"        },
+        { "so-linger-time",                 "soLingerTime"              },
+        { "type",                           "type"                      }
+    };
+
+    /**
+     * Helper which gives access to the thread pool of
+     * the wrapped Jetty server.
+     */
+    protected static class Helper
+    extends                HttpServerHelper
+    {
+        public Helper(Server server) {
+            super(server);
+        }
+
+        public ThreadPool getThreadPool() {
+            org.mortbay.jetty.Server server = getWrappedServer();
+            return server != null ? server.getThreadPool() : null;
+        }
+    } // class Helper
+
+    /**
+     * The configured connector parameters.
+     */
+    protected Map<String, String> parameters;
+
+    protected Helper serverHelper;
+
+    public JettyServer() {
+    }
+
+    @Override
+    public void setup(Document document) {
+        super.setup(document);
+
+        parameters = new LinkedHashMap<String, String>();
+
+        if (maxThreads != null && maxThreads.length() > 0) {
+            parameters.put("maxThreads", maxThreads);
+        }
+
+        for (String [] parameter: PARAMETERS) {
+            String value = XMLUtils.xpathString(
+                document, JETTY_PARAMETERS + parameter[0] + "/text()", null);
+
+            if (value == null || (value = value.trim()).length() == 0) {
+                continue;
+            }
+
+            try {
+                if (Integer.parseInt(value) < 0) {
+                    throw new NumberFormatException();
+                }
+            }
+            catch (NumberFormatException nfe) {
+                logger.error("jetty parameter '" + parameter[0]
+                    + "' is not a positive integer value: " + value);
+                continue;
+            }
+
+            parameters.put(parameter[1], value);
+        }
+
+        if (!parameters.containsKey("maxThreads")) {
+            parameters.put("maxThreads", MAX_THREADS_DEFAULT);
+        }
+    }
+
     @Override
     public void startAsServer(ArtifactDatabase db) {
 
         Component component = new Component();
 
-        RestApp app = new RestApp(db);
+        RestApp app = createApp(db);
+        app.setThreadPoolStatus(this);
 
         Server server = createServer();
 
-        // TODO: Do more sophisticated Jetty server configuration here.
+        Series<Parameter> serverParameters =
+            server.getContext().getParameters();
+
+        for (Map.Entry<String, String> entry: parameters.entrySet()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("jetty parameter "
+                    + entry.getKey() + ": " + entry.getValue());
+            }
+            serverParameters.add(entry.getKey(), entry.getValue());
+        }
 
         component.getServers().add(server);
 
@@ -32,7 +154,7 @@ extends      Standalone
 
         logServerStart();
 
-        HttpServerHelper serverHelper = new HttpServerHelper(server);
+        serverHelper = createHelper(server);
 
         try {
             serverHelper.start();
@@ -40,6 +162,55 @@ extends      Standalone
         catch (Exception e) {
             logger.error(e.getLocalizedMessage(), e);
         }
+
+        registerShutdownHook();
+    }
+
+    /**
+     * Creates the helper which runs the Jetty server.
+     * @param server The Restlet server to be helped.
+     * @return The helper.
+     */
+    protected Helper createHelper(Server server) {
+        return new Helper(server);
+    }
+
+    protected ThreadPool getThreadPool() {
+        return serverHelper != null ? serverHelper.getThreadPool() : null;
+    }
+
+    @Override
+    public int getThreads() {
+        ThreadPool pool = getThreadPool();
+        return pool != null ? pool.getThreads() : 0;
+    }
+
+    @Override
+    public int getIdleThreads() {
+        ThreadPool pool = getThreadPool();
+        return pool != null ? pool.getIdleThreads() : 0;
+    }
+
+    @Override
+    public int getMaxThreads() {
+        ThreadPool pool = getThreadPool();
+        return pool instanceof QueuedThreadPool
+            ? ((QueuedThreadPool)pool).getMaxThreads()
+            : Integer.parseInt(parameters.get("maxThreads"));
+    }
+
+    @Override
+    public int getQueueSize() {
+        ThreadPool pool = getThreadPool();
+        return pool instanceof QueuedThreadPool
+            ? ((QueuedThreadPool)pool).getQueueSize()
+            : 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        ThreadPool pool = getThreadPool();
+        return pool != null && pool.isLowOnThreads();
     }
 }
 // vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -15,7 +15,6 @@ import org.apache.logging.log4j.LogManager;
 
 import org.restlet.data.MediaType;
 import org.restlet.data.Status;
-import org.restlet.ext.xml.DomRepresentation;
 import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.Request;
@@ -53,16 +52,18 @@ extends      BaseResource
         try {
             logger.info("List collections owned by " + ownerId);
 
-            return new DomRepresentation(
+            return new OutRepresentation(
                 MediaType.APPLICATION_XML,
-                db.listCollections(ownerId, getCallMeta()));
+                db.streamCollections(
+                    ownerId, getLimit(), getAfter(), getCallMeta()));
         }
         catch (ArtifactDatabaseException adbe) {
             logger.warn(adbe.getLocalizedMessage(), adbe);
 
             Response response = getResponse();
             response.setStatus(
-                Status.CLIENT_ERROR_NOT_FOUND, adbe.getMessage());
+                listingStatus(adbe, Status.CLIENT_ERROR_NOT_FOUND),
+                adbe.getMessage());
             return new EmptyRepresentation();
         }
     }
@@ -15,7 +15,6 @@ import org.apache.logging.log4j.LogManager;
 
 import org.restlet.data.MediaType;
 import org.restlet.data.Status;
-import org.restlet.ext.xml.DomRepresentation;
 import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.resource.ResourceException;
@@ -45,16 +44,17 @@ extends      BaseResource
         try {
             logger.info(PATH);
 
-            return new DomRepresentation(
+            return new OutRepresentation(
                 MediaType.APPLICATION_XML,
-                db.listUsers(getCallMeta()));
+                db.streamUsers(getLimit(), getAfter(), getCallMeta()));
         }
         catch (ArtifactDatabaseException adbe) {
             logger.warn(adbe.getLocalizedMessage(), adbe);
 
             Response response = getResponse();
             response.setStatus(
-                Status.CLIENT_ERROR_NOT_FOUND, adbe.getMessage());
+                listingStatus(adbe, Status.CLIENT_ERROR_NOT_FOUND),
+                adbe.getMessage());
             return new EmptyRepresentation();
         }
     }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.rest;
+
+import org.dive4elements.artifactdatabase.metrics.PrometheusFormat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+
+import org.restlet.representation.EmptyRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+
+import org.restlet.resource.ResourceException;
+
+/**
+ * Resource to be scraped by Prometheus. It reports the request
+ * timings, the latencies of the database executions, the states
+ * of the connection pool, the database cleaner, the background
+ * jobs, the serializers and the caches.
+ */
+public class MetricsResource
+extends      BaseResource
+{
+    private static Logger logger = LogManager.getLogger(MetricsResource.class);
+
+    /**
+     * server URL where to reach the resource.
+     */
+    public static final String PATH = "/metrics";
+
+    public static final MediaType MEDIA_TYPE =
+        MediaType.valueOf(PrometheusFormat.CONTENT_TYPE);
+
+    @Override
+    protected Representation innerGet()
+    throws                   ResourceException
+    {
+        StringWriter out = new StringWriter(16*1024);
+        try {
+            PrometheusFormat.write(out);
+        }
+        catch (IOException ioe) {
+            logger.error(ioe.getLocalizedMessage(), ioe);
+            getResponse().setStatus(Status.SERVER_ERROR_INTERNAL);
+            return new EmptyRepresentation();
+        }
+
+        return new StringRepresentation(out.toString(), MEDIA_TYPE);
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.restlet.data.MediaType;
+
+import org.restlet.representation.ChannelRepresentation;
+
+/**
+ * Representation which streams the content of a readable channel
+ * to the client through a fixed size direct buffer. The channel can
+ * only be consumed once and is closed after it is written.
+ */
+public class ReadableChannelRepresentation
+extends      ChannelRepresentation
+{
+    private static Logger logger =
+        LogManager.getLogger(ReadableChannelRepresentation.class);
+
+    /**
+     * Size of the buffer used to copy the channel: 64KB.
+     */
+    public static final int BUFFER_SIZE = 64*1024;
+
+    protected ReadableByteChannel channel;
+
+    public ReadableChannelRepresentation(
+        MediaType           mediaType,
+        ReadableByteChannel channel
+    ) {
+        super(mediaType);
+        this.channel = channel;
+        setTransient(true);
+        setSize(UNKNOWN_SIZE);
+    }
+
+    @Override
+    public ReadableByteChannel getChannel() throws IOException {
+        return channel;
+    }
+
+    @Override
+    public InputStream getStream() throws IOException {
+        return Channels.newInputStream(channel);
+    }
+
+    @Override
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        try {
+            if (channel instanceof FileChannel) {
+                FileChannelRepresentation.transfer(
+                    (FileChannel)channel, writableChannel);
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            while (channel.read(buffer) >= 0 || buffer.position() > 0) {
+                buffer.flip();
+                writableChannel.write(buffer);
+                buffer.compact();
+            }
+        }
+        finally {
+            release();
+        }
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        write(Channels.newChannel(outputStream));
+    }
+
+    @Override
+    public void release() {
+        if (channel.isOpen()) {
+            try {
+                channel.close();
+            }
+            catch (IOException ioe) {
+                logger.warn(ioe.getLocalizedMessage());
+            }
+        }
+        setAvailable(false);
+        super.release();
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
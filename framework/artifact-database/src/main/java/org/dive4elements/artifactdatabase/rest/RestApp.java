@@ -33,6 +33,23 @@ extends      Application
      */
     protected ArtifactDatabase database;
 
+    /**
+     * The settings of the response compression. If null or disabled
+     * the entities are sent uncompressed.
+     */
+    protected CompressionFilter.Settings compression;
+
+    /**
+     * The settings of the request timings. If null or disabled
+     * no timings are recorded.
+     */
+    protected TimingFilter.Settings timing;
+
+    /**
+     * The status of the thread pool serving the requests. May be null.
+     */
+    protected ThreadPoolStatus threadPoolStatus;
+
     /**
      * Default constructor
      */
@@ -54,6 +71,30 @@ extends      Application
         this.database = database;
     }
 
+    /**
+     * Sets the settings of the response compression.
+     * @param compression The settings to use. null disables compression.
+     */
+    public void setCompression(CompressionFilter.Settings compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Sets the settings of the request timings.
+     * @param timing The settings to use. null disables the timings.
+     */
+    public void setTiming(TimingFilter.Settings timing) {
+        this.timing = timing;
+    }
+
+    /**
+     * Sets the status of the thread pool serving the requests.
+     * @param threadPoolStatus The status.
+     */
+    public void setThreadPoolStatus(ThreadPoolStatus threadPoolStatus) {
+        this.threadPoolStatus = threadPoolStatus;
+    }
+
     /**
      * Overwrites the createRoot() method of Application to
      * build the resource tree to form the exposed server URLs.
@@ -68,6 +109,10 @@ extends      Application
         ConcurrentMap map = context.getAttributes();
         map.put("database", database);
 
+        if (threadPoolStatus != null) {
+            map.put("thread-pool", threadPoolStatus);
+        }
+
         Router router = new Router(context);
 
         router.attach(ServicesResource.PATH,    ServicesResource.class);
@@ -78,6 +123,10 @@ extends      Application
         router.attach(ArtifactOutResource.PATH, ArtifactOutResource.class);
         router.attach(ExportResource.PATH,      ExportResource.class);
         router.attach(ImportResource.PATH,      ImportResource.class);
+        router.attach(
+            BulkExportResource.PATH, BulkExportResource.class);
+        router.attach(
+            BulkImportResource.PATH, BulkImportResource.class);
         router.attach(CreateUserResource.PATH,  CreateUserResource.class);
         router.attach(ListUsersResource.PATH,   ListUsersResource.class);
         router.attach(UserResource.PATH,        UserResource.class);
@@ -90,8 +139,27 @@ extends      Application
             CollectionResource.PATH, CollectionResource.class);
         router.attach(
             CollectionOutResource.PATH, CollectionOutResource.class);
+        router.attach(
+            ServerStatusResource.PATH, ServerStatusResource.class);
+        router.attach(BatchResource.PATH,       BatchResource.class);
+        router.attach(MetricsResource.PATH,     MetricsResource.class);
+
+        Restlet root = router;
+
+        if (compression != null && compression.isEnabled()) {
+            CompressionFilter filter =
+                new CompressionFilter(context, compression);
+            filter.setNext(root);
+            root = filter;
+        }
+
+        if (timing != null && timing.isEnabled()) {
+            TimingFilter filter = new TimingFilter(context, timing);
+            filter.setNext(root);
+            root = filter;
+        }
 
-        return router;
+        return root;
     }
 }
 // vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.rest;
+
+import org.dive4elements.artifacts.common.utils.XMLUtils;
+import org.dive4elements.artifacts.common.utils.XMLUtils.ElementCreator;
+
+import org.dive4elements.artifacts.ArtifactNamespaceContext;
+
+import org.restlet.data.MediaType;
+
+import org.restlet.ext.xml.DomRepresentation;
+
+import org.restlet.representation.Representation;
+
+import org.restlet.resource.ResourceException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Resource to report the saturation of the thread pool which
+ * serves the HTTP requests.
+ */
+public class ServerStatusResource
+extends      BaseResource
+{
+    /**
+     * server URL where to reach the resource.
+     */
+    public static final String PATH = "/server-status";
+
+    @Override
+    protected Representation innerGet()
+    throws                   ResourceException
+    {
+        Document document = XMLUtils.newDocument();
+
+        ElementCreator ec = new ElementCreator(
+            document,
+            ArtifactNamespaceContext.NAMESPACE_URI,
+            ArtifactNamespaceContext.NAMESPACE_PREFIX);
+
+        Element root = ec.create("result");
+        document.appendChild(root);
+
+        ThreadPoolStatus status = (ThreadPoolStatus)getContext()
+            .getAttributes().get("thread-pool");
+
+        if (status != null) {
+            Element threads = ec.create("threads");
+            ec.addAttr(threads, "current", String.valueOf(status.getThreads()));
+            ec.addAttr(threads, "idle", String.valueOf(status.getIdleThreads()));
+            ec.addAttr(threads, "max", String.valueOf(status.getMaxThreads()));
+            ec.addAttr(threads, "queued", String.valueOf(status.getQueueSize()));
+            ec.addAttr(threads, "low", String.valueOf(status.isLowOnThreads()));
+            root.appendChild(threads);
+        }
+
+        return new DomRepresentation(MediaType.APPLICATION_XML, document);
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
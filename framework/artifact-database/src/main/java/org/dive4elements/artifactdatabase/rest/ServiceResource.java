@@ -11,8 +11,13 @@ package org.dive4elements.artifactdatabase.rest;
 import org.dive4elements.artifacts.ArtifactDatabase;
 import org.dive4elements.artifacts.ArtifactDatabaseException;
 
+import java.io.File;
 import java.io.IOException;
 
+import java.nio.channels.ReadableByteChannel;
+
+import java.nio.file.Path;
+
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -56,9 +61,7 @@ extends      BaseResource
 
         Document inputDocument = null;
         try {
-            DomRepresentation input = new DomRepresentation(requestRepr);
-            input.setNamespaceAware(true);
-            inputDocument = input.getDocument();
+            inputDocument = parseDocument(requestRepr);
         }
         catch (IOException ioe) {
             logger.error(ioe.getMessage());
@@ -100,6 +103,23 @@ extends      BaseResource
             return new ByteArrayRepresentation(mediaType, (byte [])data);
         }
 
+        if (data instanceof File) {
+            return new FileChannelRepresentation(mediaType, (File)data);
+        }
+
+        if (data instanceof Path) {
+            return new FileChannelRepresentation(mediaType, (Path)data);
+        }
+
+        if (data instanceof ReadableByteChannel) {
+            return new ReadableChannelRepresentation(
+                mediaType, (ReadableByteChannel)data);
+        }
+
+        if (data != null) {
+            logger.warn("unsupported service output: " + data.getClass());
+        }
+
         return new EmptyRepresentation();
     }
 }
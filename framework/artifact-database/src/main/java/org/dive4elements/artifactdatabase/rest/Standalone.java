@@ -65,6 +65,10 @@ implements   HTTPServer
 
     protected String  maxThreads;
 
+    protected CompressionFilter.Settings compression;
+
+    protected TimingFilter.Settings timing;
+
     public Standalone() {
     }
 
@@ -89,6 +93,21 @@ implements   HTTPServer
 
         listen     = XMLUtils.xpathString(document, LISTEN_INTERFACE, null);
         maxThreads = XMLUtils.xpathString(document, MAX_THREADS, null);
+
+        compression = new CompressionFilter.Settings(document);
+        timing      = new TimingFilter.Settings(document);
+    }
+
+    /**
+     * Creates the REST application bound to the given database.
+     * @param db The artifact database to be exposed.
+     * @return The REST application.
+     */
+    protected RestApp createApp(ArtifactDatabase db) {
+        RestApp app = new RestApp(db);
+        app.setCompression(compression);
+        app.setTiming(timing);
+        return app;
     }
 
     protected Server createServer() {
@@ -116,7 +135,7 @@ implements   HTTPServer
     @Override
     public void startAsServer(ArtifactDatabase db) {
 
-        RestApp app = new RestApp(db);
+        RestApp app = createApp(db);
 
         Component component = new Component();
 
@@ -139,6 +158,28 @@ implements   HTTPServer
         catch (Exception e) {
             logger.error(e.getLocalizedMessage(), e);
         }
+
+        registerShutdownHook();
+    }
+
+    /**
+     * Registers a hook which calls #shutdown() when the JVM exits.
+     */
+    protected void registerShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread("http-shutdown") {
+            @Override
+            public void run() {
+                shutdown();
+            }
+        });
+    }
+
+    /**
+     * Releases the resources of the REST layer which outlive
+     * single requests, e.g. the thread pool of the batches.
+     */
+    protected void shutdown() {
+        BatchResource.shutdown();
     }
 }
 // vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.rest;
+
+/**
+ * Gives insight into the saturation of the thread pool
+ * which serves the HTTP requests.
+ */
+public interface ThreadPoolStatus
+{
+    /**
+     * @return The number of threads currently in the pool.
+     */
+    int getThreads();
+
+    /**
+     * @return The number of threads waiting for work.
+     */
+    int getIdleThreads();
+
+    /**
+     * @return The max. number of threads of the pool.
+     */
+    int getMaxThreads();
+
+    /**
+     * @return The number of requests waiting for a free thread.
+     */
+    int getQueueSize();
+
+    /**
+     * @return true if the pool is running out of threads.
+     */
+    boolean isLowOnThreads();
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
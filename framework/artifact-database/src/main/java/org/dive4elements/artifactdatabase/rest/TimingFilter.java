@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.rest;
+
+import org.dive4elements.artifactdatabase.metrics.RequestTimings;
+
+import org.dive4elements.artifacts.common.utils.XMLUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+
+import org.restlet.data.Form;
+
+import org.restlet.representation.Representation;
+
+import org.restlet.routing.Filter;
+
+import org.restlet.util.WrapperRepresentation;
+
+import org.w3c.dom.Document;
+
+/**
+ * Filter in front of the REST resources which binds a
+ * RequestTimings to each request. When the request is handled the
+ * phase timings are recorded in the histograms and optionally sent
+ * to the client in a 'Server-Timing' header. The time needed to write
+ * the response entity is recorded when the entity is written.
+ */
+public class TimingFilter
+extends      Filter
+{
+    private static Logger logger = LogManager.getLogger(TimingFilter.class);
+
+    /**
+     * XPath to figure out if the timings are recorded. Defaults to true.
+     */
+    public static final String XPATH_ENABLED =
+        "/artifact-database/rest-server/timing/@enabled";
+
+    /**
+     * XPath to figure out if the 'Server-Timing' header is sent.
+     * Defaults to false.
+     */
+    public static final String XPATH_SERVER_TIMING =
+        "/artifact-database/rest-server/timing/@server-timing";
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    public static final String HEADERS = "org.restlet.http.headers";
+
+    /**
+     * The timing settings read from the global configuration.
+     */
+    public static class Settings {
+
+        protected boolean enabled;
+        protected boolean serverTiming;
+
+        public Settings() {
+            enabled = true;
+        }
+
+        public Settings(Document config) {
+            this();
+
+            String enabledString =
+                XMLUtils.xpathString(config, XPATH_ENABLED, null);
+
+            if (enabledString != null && enabledString.length() > 0) {
+                enabled = Boolean.valueOf(enabledString.trim());
+            }
+
+            String serverTimingString =
+                XMLUtils.xpathString(config, XPATH_SERVER_TIMING, null);
+
+            if (serverTimingString != null && serverTimingString.length() > 0) {
+                serverTiming = Boolean.valueOf(serverTimingString.trim());
+            }
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public boolean isServerTiming() {
+            return serverTiming;
+        }
+    } // class Settings
+
+    /**
+     * Records the time needed to write the wrapped entity
+     * as the response phase of the request.
+     */
+    public static class TimedRepresentation
+    extends             WrapperRepresentation
+    {
+        protected RequestTimings timings;
+
+        public TimedRepresentation(
+            Representation entity,
+            RequestTimings timings
+        ) {
+            super(entity);
+            this.timings = timings;
+        }
+
+        protected void done(long start) {
+            timings.recordPhase(
+                RequestTimings.RESPONSE, System.nanoTime() - start);
+        }
+
+        @Override
+        public void write(OutputStream out) throws IOException {
+            long start = System.nanoTime();
+            try {
+                getWrappedRepresentation().write(out);
+            }
+            finally {
+                done(start);
+            }
+        }
+
+        @Override
+        public void write(WritableByteChannel channel) throws IOException {
+            long start = System.nanoTime();
+            try {
+                getWrappedRepresentation().write(channel);
+            }
+            finally {
+                done(start);
+            }
+        }
+
+        @Override
+        public void write(Writer writer) throws IOException {
+            long start = System.nanoTime();
+            try {
+                getWrappedRepresentation().write(writer);
+            }
+            finally {
+                done(start);
+            }
+        }
+    } // class TimedRepresentation
+
+    protected Settings settings;
+
+    public TimingFilter() {
+    }
+
+    public TimingFilter(Context context, Settings settings) {
+        super(context);
+        this.settings = settings;
+    }
+
+    @Override
+    protected int beforeHandle(Request request, Response response) {
+        RequestTimings.begin();
+        return CONTINUE;
+    }
+
+    /**
+     * afterHandle() is only called if the request was handled
+     * without an exception and the filter chain continues. In all
+     * other cases the timings are released here so they do not
+     * stick to the (pooled) thread.
+     */
+    @Override
+    protected int doHandle(Request request, Response response) {
+        int result = STOP;
+        try {
+            result = super.doHandle(request, response);
+            return result;
+        }
+        finally {
+            if (result != CONTINUE) {
+                RequestTimings.end();
+            }
+        }
+    }
+
+    @Override
+    protected void afterHandle(Request request, Response response) {
+        RequestTimings timings = RequestTimings.end();
+        if (timings == null) {
+            return;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug(request.getResourceRef() + ": "
+                + timings.toServerTiming());
+        }
+
+        if (settings.isServerTiming()) {
+            Form headers = (Form)response.getAttributes().get(HEADERS);
+            if (headers == null) {
+                headers = new Form();
+                response.getAttributes().put(HEADERS, headers);
+            }
+            headers.add(SERVER_TIMING, timings.toServerTiming());
+        }
+
+        Representation entity = response.getEntity();
+        if (entity != null && entity.isAvailable()) {
+            response.setEntity(new TimedRepresentation(entity, timings));
+        }
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.rest;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dive4elements.artifactdatabase.DBConfig;
+
+import org.mortbay.component.AbstractLifeCycle;
+
+import org.mortbay.thread.ThreadPool;
+
+import org.restlet.Server;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import org.w3c.dom.Document;
+
+/**
+ * Jetty based HTTP server which handles each request in its own
+ * virtual thread instead of a thread of a bounded pool of platform
+ * threads. Requests blocking on the database or on artifact
+ * computations do not occupy an OS thread this way.
+ * To use it set /artifact-database/rest-server/http-server to
+ * the name of this class.
+ * Virtual threads are available since Java 21. They are looked up
+ * at runtime. On older runtimes the server falls back to the
+ * pooled platform threads of {@link JettyServer}.
+ * <br>
+ * A virtual thread waiting for a pooled database connection pins
+ * its carrier thread (the pool synchronizes on monitors). With
+ * unbounded request threads the carriers could all end up pinned
+ * by waiters. Therefore this server limits the concurrent
+ * database executions (/artifact-database/database/max-concurrency)
+ * to at most the size of the connection pool. The waiting then
+ * happens on the semaphore of the SQLExecutor which does not pin.
+ */
+public class VirtualThreadServer
+extends      JettyServer
+{
+    private static Logger logger =
+        LogManager.getLogger(VirtualThreadServer.class);
+
+    /**
+     * Jetty thread pool which starts a new virtual thread
+     * for each dispatched job.
+     */
+    public static class VirtualThreadPool
+    extends             AbstractLifeCycle
+    implements          ThreadPool
+    {
+        protected ExecutorService executor;
+
+        protected AtomicInteger   active;
+
+        public VirtualThreadPool(ExecutorService executor) {
+            this.executor = executor;
+            active        = new AtomicInteger();
+        }
+
+        @Override
+        public boolean dispatch(final Runnable job) {
+            active.incrementAndGet();
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            job.run();
+                        }
+                        finally {
+                            active.decrementAndGet();
+                        }
+                    }
+                });
+                return true;
+            }
+            catch (RejectedExecutionException ree) {
+                active.decrementAndGet();
+                logger.warn("job rejected: " + ree.getLocalizedMessage());
+                return false;
+            }
+        }
+
+        @Override
+        public void join() throws InterruptedException {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int getThreads() {
+            return active.get();
+        }
+
+        @Override
+        public int getIdleThreads() {
+            return 0;
+        }
+
+        @Override
+        public boolean isLowOnThreads() {
+            return false;
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+            executor.shutdown();
+        }
+    } // class VirtualThreadPool
+
+    /**
+     * Helper which replaces the thread pool of the wrapped
+     * Jetty server before it is started.
+     */
+    protected static class VirtualThreadHelper
+    extends                Helper
+    {
+        public VirtualThreadHelper(Server server) {
+            super(server);
+        }
+
+        @Override
+        public void start() throws Exception {
+            ExecutorService executor = newVirtualThreadExecutor();
+
+            if (executor != null) {
+                logger.info("Handling requests in virtual threads.");
+                getWrappedServer().setThreadPool(
+                    new VirtualThreadPool(executor));
+            }
+            else {
+                logger.warn("Virtual threads are not supported by this "
+                    + "Java runtime. Using pooled threads.");
+            }
+
+            super.start();
+        }
+    } // class VirtualThreadHelper
+
+    public VirtualThreadServer() {
+    }
+
+    @Override
+    public void setup(Document document) {
+        super.setup(document);
+
+        if (isSupported()) {
+            DBConfig.getInstance().getDBConnection().limitConcurrencyToPool();
+        }
+    }
+
+    /**
+     * @return true if the Java runtime supports virtual threads.
+     */
+    public static boolean isSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        }
+        catch (NoSuchMethodException nsme) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates an executor which starts a new virtual thread per task.
+     * @return The executor or null if the Java runtime does not
+     * support virtual threads.
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod(
+                "newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)method.invoke(null);
+        }
+        catch (NoSuchMethodException nsme) {
+            // Java runtime too old.
+        }
+        catch (IllegalAccessException iae) {
+            logger.error(iae.getLocalizedMessage(), iae);
+        }
+        catch (InvocationTargetException ite) {
+            logger.error(ite.getLocalizedMessage(), ite);
+        }
+        return null;
+    }
+
+    @Override
+    protected Helper createHelper(Server server) {
+        return new VirtualThreadHelper(server);
+    }
+
+    @Override
+    public int getMaxThreads() {
+        return getThreadPool() instanceof VirtualThreadPool
+            ? Integer.MAX_VALUE
+            : super.getMaxThreads();
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
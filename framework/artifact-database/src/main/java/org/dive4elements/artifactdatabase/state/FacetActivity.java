@@ -2,9 +2,8 @@ package org.dive4elements.artifactdatabase.state;
 
 import org.dive4elements.artifacts.Artifact;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.apache.logging.log4j.Logger;
@@ -47,7 +46,10 @@ public interface FacetActivity
     Boolean isInitialActive(Artifact artifact, Facet facet, String output);
 
     /** Singleton registry, that maps artifact names to the activities, which
-     * decide whether or not a facet should be (initially) active. */
+     * decide whether or not a facet should be (initially) active.
+     * Registration happens at startup only, so the registry is
+     * copy-on-write: lookups read an immutable snapshot without
+     * locking. */
     public static final class Registry {
 
         /** The logger for this class. */
@@ -56,12 +58,42 @@ public interface FacetActivity
         /** Singleton instance. */
         private static final Registry INSTANCE = new Registry();
 
-        /** Map of keys (artifact names) to the activities. */
-        private Map<String, List<FacetActivity>> activities;
+        /** The activities registered under one key. */
+        private static final class Entry {
+
+            private final FacetActivity [] activities;
+
+            /** The result if it does not depend on the facet
+             * (the first activity is ACTIVE or INACTIVE), else null. */
+            private final Boolean constant;
+
+            private Entry(FacetActivity [] activities) {
+                this.activities = activities;
+
+                FacetActivity first = activities[0];
+                constant = first == ACTIVE
+                    ? Boolean.TRUE
+                    : first == INACTIVE
+                        ? Boolean.FALSE
+                        : null;
+            }
+
+            private Entry add(FacetActivity activity) {
+                FacetActivity [] copy =
+                    new FacetActivity[activities.length + 1];
+                System.arraycopy(activities, 0, copy, 0, activities.length);
+                copy[activities.length] = activity;
+                return new Entry(copy);
+            }
+        } // class Entry
+
+        /** Immutable snapshot of keys (artifact names) to the
+         * activities. Replaced as a whole on registration. */
+        private volatile Map<String, Entry> activities;
 
         /** Private singleton constructor for the Facet-Activity-Registry. */
         private Registry() {
-            activities = new HashMap<String, List<FacetActivity>>();
+            activities = Collections.<String, Entry>emptyMap();
         }
 
         /** Access Singleton instance. */
@@ -70,23 +102,24 @@ public interface FacetActivity
         }
 
         /** Queries whether a given facet should be active or not. */
-        public synchronized boolean isInitialActive(
+        public boolean isInitialActive(
             String   key,
             Artifact artifact,
             Facet    facet,
             String   output
         ) {
-            List<FacetActivity> activityList = activities.get(key);
-            if (activityList == null) {
-                logger.debug("FacetActivity.Registry: No activity " +
-                             "registered for " + key);
+            Entry entry = activities.get(key);
+            if (entry == null) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("FacetActivity.Registry: No activity " +
+                                 "registered for " + key);
+                }
                 return true;
             }
-            if (activityList.size() != 1) {
-                logger.warn("FacetActivity.Registry: More than one " +
-                            "FacetActivity registered for " + key);
+            if (entry.constant != null) {
+                return entry.constant;
             }
-            for (FacetActivity activity: activityList) {
+            for (FacetActivity activity: entry.activities) {
                 Boolean isActive =
                     activity.isInitialActive(artifact, facet, output);
                 // Nice. Only, in practice they never return NULL.
@@ -100,12 +133,20 @@ public interface FacetActivity
 
         /** Add a FacetActivity under given key (usually artifacts name). */
         public synchronized void register(String key, FacetActivity activity) {
-            List<FacetActivity> activityList = activities.get(key);
-            if (activityList == null) {
-                activityList = new ArrayList<FacetActivity>(3);
-                activities.put(key, activityList);
+            Map<String, Entry> copy = new HashMap<String, Entry>(activities);
+
+            Entry entry = copy.get(key);
+            if (entry == null) {
+                entry = new Entry(new FacetActivity [] { activity });
             }
-            activityList.add(activity);
+            else {
+                logger.warn("FacetActivity.Registry: More than one " +
+                            "FacetActivity registered for " + key);
+                entry = entry.add(activity);
+            }
+            copy.put(key, entry);
+
+            activities = Collections.unmodifiableMap(copy);
         }
     }
 }
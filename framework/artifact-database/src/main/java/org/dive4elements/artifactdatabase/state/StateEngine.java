@@ -1,10 +1,15 @@
 package org.dive4elements.artifactdatabase.state;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -37,12 +42,37 @@ public class StateEngine {
     protected Map<String, State> allStates;
 
 
+    /**
+     * Max. number of cached results of getCompatibleFacets().
+     */
+    public static final int MAX_COMPATIBLE_FACETS = 1024;
+
+
+    /**
+     * The facet names per output name of each state, keyed by the
+     * ID of the state. Filled on demand, the values are unmodifiable.
+     */
+    protected ConcurrentMap<String, Map<String, List<String>>> stateFacets;
+
+
+    /**
+     * The results of getCompatibleFacets() keyed by the list of state IDs.
+     */
+    protected ConcurrentMap<List<String>, Map<String, List<String>>>
+        compatibleFacets;
+
+
     /**
      * The default constructor.
      */
     public StateEngine() {
         states    = new HashMap<String, List<State>>();
         allStates = new HashMap<String, State>();
+
+        stateFacets      =
+            new ConcurrentHashMap<String, Map<String, List<String>>>();
+        compatibleFacets =
+            new ConcurrentHashMap<List<String>, Map<String, List<String>>>();
     }
 
 
@@ -53,6 +83,8 @@ public class StateEngine {
      */
     protected void addState(State state) {
         allStates.put(state.getID(), state);
+        stateFacets.clear();
+        compatibleFacets.clear();
     }
 
 
@@ -133,41 +165,119 @@ public class StateEngine {
     }
 
 
+    /**
+     * Returns the facet names per output name of a state.
+     * @param stateId The ID of the state. May be null.
+     * @return An unmodifiable map of unmodifiable lists or null
+     * if there is no such state.
+     */
+    protected Map<String, List<String>> getStateFacets(String stateId) {
+        // The ConcurrentHashMap does not accept null keys.
+        if (stateId == null) {
+            return null;
+        }
+
+        Map<String, List<String>> facets = stateFacets.get(stateId);
+        if (facets != null) {
+            return facets;
+        }
+
+        State state = allStates.get(stateId);
+        if (state == null) {
+            return null;
+        }
+
+        Map<String, List<String>> tmp =
+            new LinkedHashMap<String, List<String>>();
+
+        for (Output output: state.getOutputs()) {
+            List<String> names = tmp.get(output.getName());
+            if (names == null) {
+                names = new ArrayList<String>();
+                tmp.put(output.getName(), names);
+            }
+            for (Facet facet: output.getFacets()) {
+                names.add(facet.getName());
+            }
+        }
+
+        for (Map.Entry<String, List<String>> entry: tmp.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+
+        facets = Collections.unmodifiableMap(tmp);
+
+        Map<String, List<String>> old = stateFacets.putIfAbsent(stateId, facets);
+        return old != null ? old : facets;
+    }
+
+
     /**
      * Return mapping of output to facets for an artifact in its states.
+     * The result only depends on the configuration of the states,
+     * so it is cached per list of state IDs and shared between the
+     * callers.
+     * <br>
+     * Unlike in former versions the returned map and its lists are
+     * unmodifiable. Callers which want to change them have to
+     * copy them first.
+     *
+     * @param aStates The IDs of the states the artifact has seen.
+     * Unknown IDs and null are skipped.
+     * @return An unmodifiable map of the output names to unmodifiable
+     * lists of the facet names.
      */
     public Map<String, List<String>> getCompatibleFacets(List<String> aStates) {
         Map<String, List<String>> compatibilityMatrix =
-            new HashMap<String, List<String>>();
+            compatibleFacets.get(aStates);
+
+        if (compatibilityMatrix != null) {
+            return compatibilityMatrix;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Searching in " + aStates);
+        }
+
+        Map<String, List<String>> tmp = new HashMap<String, List<String>>();
 
         // For all states that the artifact had seen, add outputs facets.
-        logger.debug("Searching in " + aStates);
         for (String stateId: aStates) {
 
-            State state = allStates.get(stateId);
-            if (state == null) {
+            Map<String, List<String>> facets = getStateFacets(stateId);
+            if (facets == null) {
                 logger.debug("No state found for id " + stateId);
                 continue;
             }
 
-            for (Output output: state.getOutputs()) {
-                List<Facet> outFacets = output.getFacets();
-                logger.debug("Facets for output " + output.getName() + " :" + outFacets);
-
-                List<String> oldFacets = compatibilityMatrix.get(output.getName());
+            for (Map.Entry<String, List<String>> entry: facets.entrySet()) {
+                List<String> oldFacets = tmp.get(entry.getKey());
 
                 if (oldFacets == null) {
-                    oldFacets = new ArrayList<String>();
+                    oldFacets = new ArrayList<String>(entry.getValue());
+                    tmp.put(entry.getKey(), oldFacets);
                 }
-
-                for (Facet facet: outFacets) {
-                    oldFacets.add(facet.getName());
+                else {
+                    oldFacets.addAll(entry.getValue());
                 }
-
-                compatibilityMatrix.put(output.getName(), oldFacets);
             }
         }
-        return compatibilityMatrix;
+
+        for (Map.Entry<String, List<String>> entry: tmp.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+
+        compatibilityMatrix = Collections.unmodifiableMap(tmp);
+
+        if (compatibleFacets.size() >= MAX_COMPATIBLE_FACETS) {
+            compatibleFacets.clear();
+        }
+
+        Map<String, List<String>> old = compatibleFacets.putIfAbsent(
+            Collections.unmodifiableList(new ArrayList<String>(aStates)),
+            compatibilityMatrix);
+
+        return old != null ? old : compatibilityMatrix;
     }
 }
 // vim:set ts=4 sw=4 et sta sts=4 fenc=utf8 :
@@ -1,8 +1,7 @@
 package org.dive4elements.artifactdatabase.transition;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,14 +33,20 @@ public class TransitionEngine {
      * A map that contains the transitions of the artifacts. The key is the name
      * of the artifact, its value is a list of all transitions of this artifact.
      */
-    protected Map<String, List> transitions;
+    protected Map<String, List<Transition>> transitions;
+
+    /**
+     * The transitions compiled into graphs per key. Built on first
+     * use after the transitions were changed.
+     */
+    protected volatile Map<String, TransitionGraph> graphs;
 
 
     /**
      * The default constructor.
      */
     public TransitionEngine() {
-        transitions = new HashMap<String, List>();
+        transitions = new HashMap<String, List<Transition>>();
     }
 
 
@@ -53,8 +58,11 @@ public class TransitionEngine {
      *
      * @return true, if the transitions were added, otherwise false.
      */
-    public boolean addTransition(String stateId, Transition transition) {
-        List tmp = transitions.get(stateId);
+    public synchronized boolean addTransition(
+        String     stateId,
+        Transition transition
+    ) {
+        List<Transition> tmp = transitions.get(stateId);
 
         if (tmp == null) {
             tmp = new ArrayList<Transition>();
@@ -64,10 +72,46 @@ public class TransitionEngine {
 
         logger.debug("Add new transitions for state '" + stateId + "'");
 
+        graphs = null;
+
         return transitions.put(stateId, tmp) != null;
     }
 
 
+    /**
+     * Compiles the transitions into graphs if not already done.
+     */
+    protected Map<String, TransitionGraph> getGraphs() {
+        Map<String, TransitionGraph> g = graphs;
+        if (g == null) {
+            synchronized (this) {
+                if ((g = graphs) == null) {
+                    g = new HashMap<String, TransitionGraph>();
+                    for (Map.Entry<String, List<Transition>> entry:
+                        transitions.entrySet()
+                    ) {
+                        g.put(entry.getKey(),
+                            new TransitionGraph(entry.getValue()));
+                    }
+                    graphs = g = Collections.unmodifiableMap(g);
+                    logger.debug("compiled transitions of "
+                        + g.size() + " keys");
+                }
+            }
+        }
+        return g;
+    }
+
+
+    /**
+     * @param key The key the transitions were added with.
+     * @return The compiled transitions or null if there are none.
+     */
+    public TransitionGraph getGraph(String key) {
+        return getGraphs().get(key);
+    }
+
+
     /**
      * This method returns all existing transitions of a state.
      *
@@ -92,18 +136,20 @@ public class TransitionEngine {
         Artifact    artifact,
         State       state,
         StateEngine engine) {
-        List<Transition> transitions = getTransitions(state);
-        List<State>      reachable   = new ArrayList<State>();
+        TransitionGraph graph = getGraph(state.getID());
 
-        if (transitions == null) {
-            return reachable;
+        if (graph == null) {
+            return new ArrayList<State>();
         }
 
-        for (Transition t: transitions) {
-            State target = engine.getState(t.getTo());
+        Transition [] ts      = graph.transitions();
+        State []      targets = graph.getTargets(engine);
 
-            if (t.isValid(artifact, state, target)) {
-                reachable.add(target);
+        List<State> reachable = new ArrayList<State>(ts.length);
+
+        for (int i = 0; i < ts.length; ++i) {
+            if (ts[i].isValid(artifact, state, targets[i])) {
+                reachable.add(targets[i]);
             }
         }
 
@@ -117,47 +163,11 @@ public class TransitionEngine {
         String artifactIdentifier,
         String stateId
     ) {
-        HashSet<String> result = new HashSet<String>();
-
-        List<Transition> trans = transitions.get(artifactIdentifier);
-
-        if (trans == null) {
-            return result;
-        }
-
-        Map<String, Set<String>> succs = new HashMap<String, Set<String>>();
-
-        for (Transition t: trans) {
-            String from = t.getFrom();
-            String to   = t.getTo();
-
-            Set<String> s = succs.get(from);
-            if (s == null) {
-                s = new HashSet<String>();
-                succs.put(from, s);
-            }
-            s.add(to);
-        }
+        TransitionGraph graph = getGraph(artifactIdentifier);
 
-        Set<String> start = succs.get(stateId);
-
-        if (start == null) {
-            return result;
-        }
-
-        Deque<String> open = new ArrayDeque<String>(start);
-
-        while (!open.isEmpty()) {
-            String cand = open.pop();
-            if (result.add(cand)) {
-                Set<String> s = succs.get(cand);
-                if (s != null) {
-                    open.addAll(s);
-                }
-            }
-        }
-
-        return result;
+        return graph != null
+            ? graph.allRecursiveSuccessorStateIds(stateId)
+            : new HashSet<String>();
     }
 
 
@@ -178,14 +188,19 @@ public class TransitionEngine {
         State       state,
         StateEngine stateEngine)
     {
-        List<State> reachable = getReachableStates(artifact, state,stateEngine);
+        TransitionGraph graph = getGraph(state.getID());
 
-        if (reachable == null || reachable.size() == 0) {
+        if (graph == null) {
             return false;
         }
 
-        for (State s: reachable) {
-            if (targetId.equals(s.getID())) {
+        Transition [] ts      = graph.transitions();
+        State []      targets = graph.getTargets(stateEngine);
+
+        for (int i = 0; i < ts.length; ++i) {
+            if (targets[i] != null
+            && targetId.equals(targets[i].getID())
+            && ts[i].isValid(artifact, state, targets[i])) {
                 return true;
             }
         }
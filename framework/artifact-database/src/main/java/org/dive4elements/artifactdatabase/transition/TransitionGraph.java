@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2026 by Intevation GmbH
+ *
+ * This program is free software under the LGPL (>=v2.1)
+ * Read the file LGPL.txt coming with the software for details
+ * or visit http://www.gnu.org/licenses/ if it does not exist.
+ */
+package org.dive4elements.artifactdatabase.transition;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.dive4elements.artifactdatabase.state.State;
+import org.dive4elements.artifactdatabase.state.StateEngine;
+
+/**
+ * Immutable, indexed form of the transitions registered under one
+ * key of the TransitionEngine. The state ids are interned to ints,
+ * the successors are stored as adjacency arrays and the transitive
+ * closure of every state is precomputed as a bit set.
+ */
+public final class TransitionGraph
+{
+    /** The transitions in the order they were added. */
+    private final Transition [] transitions;
+
+    /** The interned state ids. */
+    private final String [] ids;
+
+    /** State id to its index in ids. */
+    private final Map<String, Integer> index;
+
+    /** The indices of the direct successors per state. */
+    private final int [][] successors;
+
+    /** The indices of all recursive successors per state. */
+    private final BitSet [] closure;
+
+    /** The target states of the transitions as resolved by
+     *  the last used state engine. */
+    private volatile Targets targets;
+
+    private static final class Targets {
+
+        private final StateEngine engine;
+        private final State []    states;
+
+        private Targets(StateEngine engine, State [] states) {
+            this.engine = engine;
+            this.states = states;
+        }
+    } // class Targets
+
+    public TransitionGraph(List<Transition> list) {
+        transitions = list.toArray(new Transition[list.size()]);
+
+        index = new HashMap<String, Integer>();
+
+        int [] from = new int[transitions.length];
+        int [] to   = new int[transitions.length];
+
+        for (int i = 0; i < transitions.length; ++i) {
+            from[i] = intern(transitions[i].getFrom());
+            to[i]   = intern(transitions[i].getTo());
+        }
+
+        ids = new String[index.size()];
+        for (Map.Entry<String, Integer> entry: index.entrySet()) {
+            ids[entry.getValue()] = entry.getKey();
+        }
+
+        // Adjacency arrays without duplicate edges.
+        BitSet [] direct = new BitSet[ids.length];
+        for (int i = 0; i < direct.length; ++i) {
+            direct[i] = new BitSet(ids.length);
+        }
+        for (int i = 0; i < from.length; ++i) {
+            direct[from[i]].set(to[i]);
+        }
+
+        successors = new int[ids.length][];
+        for (int i = 0; i < ids.length; ++i) {
+            BitSet d = direct[i];
+            int [] s = new int[d.cardinality()];
+            for (int j = d.nextSetBit(0), k = 0; j >= 0; j = d.nextSetBit(j+1)) {
+                s[k++] = j;
+            }
+            successors[i] = s;
+        }
+
+        closure = new BitSet[ids.length];
+        int [] stack = new int[ids.length];
+        for (int i = 0; i < ids.length; ++i) {
+            BitSet reached = new BitSet(ids.length);
+            int top = 0;
+            for (int s: successors[i]) {
+                if (!reached.get(s)) {
+                    reached.set(s);
+                    stack[top++] = s;
+                }
+            }
+            while (top > 0) {
+                for (int s: successors[stack[--top]]) {
+                    if (!reached.get(s)) {
+                        reached.set(s);
+                        stack[top++] = s;
+                    }
+                }
+            }
+            closure[i] = reached;
+        }
+    }
+
+    private int intern(String id) {
+        Integer idx = index.get(id);
+        if (idx == null) {
+            index.put(id, idx = Integer.valueOf(index.size()));
+        }
+        return idx.intValue();
+    }
+
+    public Transition [] getTransitions() {
+        return transitions.clone();
+    }
+
+    /**
+     * Returns the target states of the transitions resolved by
+     * the given engine. The resolution is cached as long as the
+     * same engine is used and all targets are known to it.
+     * @param engine The state engine.
+     * @return The targets in the order of the transitions.
+     */
+    State [] getTargets(StateEngine engine) {
+        Targets t = targets;
+        if (t != null && t.engine == engine) {
+            return t.states;
+        }
+
+        State [] states   = new State[transitions.length];
+        boolean  complete = true;
+        for (int i = 0; i < states.length; ++i) {
+            if ((states[i] = engine.getState(transitions[i].getTo())) == null) {
+                complete = false;
+            }
+        }
+
+        if (complete) {
+            targets = new Targets(engine, states);
+        }
+        return states;
+    }
+
+    Transition [] transitions() {
+        return transitions;
+    }
+
+    /**
+     * @param stateId The id of a state.
+     * @return The ids of all states recursively reachable
+     * from the given one.
+     */
+    public Set<String> allRecursiveSuccessorStateIds(String stateId) {
+        Integer idx = index.get(stateId);
+        if (idx == null) {
+            return new HashSet<String>();
+        }
+
+        BitSet reached = closure[idx.intValue()];
+
+        Set<String> result = new HashSet<String>(
+            Math.max(16, reached.cardinality()*2));
+
+        for (int i = reached.nextSetBit(0); i >= 0; i = reached.nextSetBit(i+1)) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return true if state 'to' is recursively reachable
+     * from state 'from'.
+     */
+    public boolean isSuccessor(String from, String to) {
+        Integer f = index.get(from);
+        Integer t = index.get(to);
+        return f != null && t != null && closure[f.intValue()].get(t.intValue());
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
@@ -0,0 +1,140 @@
+package org.dive4elements.artifactdatabase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dive4elements.artifactdatabase.db.DBConnection;
+import org.dive4elements.artifactdatabase.db.SQL;
+import org.dive4elements.artifactdatabase.db.SQLExecutor;
+
+import org.dive4elements.artifacts.CollectionItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BackendPageTest {
+
+    private static final String URL =
+        "jdbc:h2:mem:backend-page-test;DB_CLOSE_DELAY=-1";
+
+    private static final String COLLECTION =
+        "00000000-0000-0000-0000-000000000001";
+
+    /** Ordered by (creation, gid). All created in the same millisecond. */
+    private static final String [][] ITEMS = {
+        { "10000000-0000-0000-0000-000000000001", "2011-01-01 12:00:00.123001" },
+        { "10000000-0000-0000-0000-000000000002", "2011-01-01 12:00:00.123001" },
+        { "20000000-0000-0000-0000-000000000001", "2011-01-01 12:00:00.123002" },
+        { "00000000-0000-0000-0000-000000000009", "2011-01-01 12:00:00.123003" },
+        { "30000000-0000-0000-0000-000000000001", "2011-01-01 12:00:00.123003" }
+    };
+
+    private Connection connection;
+    private Backend    backend;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(URL, "", "");
+        Statement stmnt = connection.createStatement();
+        stmnt.execute("CREATE TABLE users (id INT PRIMARY KEY, "
+            + "gid UUID NOT NULL UNIQUE)");
+        stmnt.execute("CREATE TABLE artifacts (id INT PRIMARY KEY, "
+            + "gid UUID NOT NULL UNIQUE)");
+        stmnt.execute("CREATE TABLE collections (id INT PRIMARY KEY, "
+            + "gid UUID NOT NULL UNIQUE)");
+        stmnt.execute("CREATE TABLE collection_items (id INT PRIMARY KEY, "
+            + "collection_id INT NOT NULL, artifact_id INT NOT NULL, "
+            + "attribute BINARY, creation TIMESTAMP(9) NOT NULL)");
+        stmnt.execute("INSERT INTO collections VALUES (1, '"
+            + COLLECTION + "')");
+        for (int i = 0; i < ITEMS.length; ++i) {
+            stmnt.execute("INSERT INTO artifacts VALUES ("
+                + (i + 1) + ", '" + ITEMS[i][0] + "')");
+            stmnt.execute("INSERT INTO collection_items VALUES ("
+                + (i + 1) + ", 1, " + (i + 1) + ", NULL, TIMESTAMP '"
+                + ITEMS[i][1] + "')");
+        }
+        stmnt.close();
+
+        backend = new Backend();
+        backend.sqlExecutor = new SQLExecutor(
+            new DBConnection("org.h2.Driver", URL, "", ""));
+        backend.setupSQL(new SQL("org.h2.Driver"));
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        Statement stmnt = connection.createStatement();
+        stmnt.execute("DROP ALL OBJECTS");
+        stmnt.close();
+        connection.close();
+    }
+
+    @Test
+    public void cursorRoundTrip() {
+        Timestamp creation = Timestamp.valueOf("2011-01-01 12:00:00.123456789");
+        String identifier = ITEMS[0][0];
+
+        String cursor = Backend.Page.cursor(creation, identifier);
+        Backend.Page page = new Backend.Page(1, cursor);
+
+        assertTrue(page.isValid(true));
+        assertEquals(creation, page.getAfterCreation());
+        assertEquals(123456789, page.getAfterCreation().getNanos());
+        assertEquals(identifier, page.getAfterIdentifier());
+    }
+
+    @Test
+    public void cursorWithoutNanos() {
+        Backend.Page page = new Backend.Page(1, "1293883200123:" + ITEMS[0][0]);
+
+        assertTrue(page.isValid(true));
+        assertEquals(1293883200123L, page.getAfterCreation().getTime());
+    }
+
+    @Test
+    public void invalidCursor() {
+        assertFalse(new Backend.Page(1, "x.1:" + ITEMS[0][0]).isValid(true));
+        assertFalse(new Backend.Page(1, "1.-1:" + ITEMS[0][0]).isValid(true));
+        assertFalse(new Backend.Page(1, "1.1:not-a-uuid").isValid(true));
+    }
+
+    @Test
+    public void pageThroughSameMillisecond() {
+        List<String> seen = new ArrayList<String>();
+
+        String after = null;
+        for (int i = 0; i <= ITEMS.length; ++i) {
+            Backend.Page page = new Backend.Page(1, after);
+            CollectionItem [] items =
+                backend.listCollectionArtifacts(COLLECTION, page);
+            assertNotNull(items);
+            for (CollectionItem item: items) {
+                seen.add(item.getArtifactIdentifier());
+            }
+            after = page.getNext();
+            if (after == null) {
+                break;
+            }
+        }
+        assertNull(after);
+
+        assertEquals(ITEMS.length, seen.size());
+        for (int i = 0; i < ITEMS.length; ++i) {
+            assertEquals(ITEMS[i][0], seen.get(i));
+        }
+    }
+}
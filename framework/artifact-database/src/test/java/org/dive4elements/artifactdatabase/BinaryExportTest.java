@@ -0,0 +1,100 @@
+package org.dive4elements.artifactdatabase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.util.Random;
+
+import org.dive4elements.artifacts.ArtifactDatabaseException;
+
+import org.junit.Test;
+
+public class BinaryExportTest {
+
+    private static final byte [] SECRET = { 's', 'e', 'c', 'r', 'e', 't' };
+
+    private static byte [] write(String factoryName, byte [] data)
+    throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryExport.write(
+            new DataOutputStream(bos), factoryName, data, SECRET);
+        return bos.toByteArray();
+    }
+
+    private static BinaryExport.Entry read(byte [] bytes, byte [] secret)
+    throws IOException, ArtifactDatabaseException {
+        return BinaryExport.read(
+            new DataInputStream(new ByteArrayInputStream(bytes)), secret);
+    }
+
+    private static void assertRejected(
+        byte [] bytes,
+        byte [] secret,
+        String  expected
+    ) throws IOException {
+        try {
+            read(bytes, secret);
+            fail("tampered export accepted");
+        }
+        catch (ArtifactDatabaseException ade) {
+            assertEquals(expected, ade.getMessage());
+        }
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        // Larger than a chunk to let the read buffer grow.
+        byte [] data = new byte[3*BinaryExport.CHUNK_SIZE + 17];
+        new Random(4711L).nextBytes(data);
+
+        byte [] bytes = write("winfo", data);
+
+        BinaryExport.Entry entry = read(bytes, SECRET);
+        assertEquals("winfo", entry.getFactoryName());
+        assertArrayEquals(data, entry.getData());
+
+        // Entries can follow each other in one stream.
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(bytes);
+        bos.write(write("map", new byte [] { 1, 2, 3 }));
+
+        DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream(bos.toByteArray()));
+        assertArrayEquals(data, BinaryExport.read(in, SECRET).getData());
+        assertArrayEquals(new byte [] { 1, 2, 3 },
+            BinaryExport.read(in, SECRET).getData());
+    }
+
+    @Test
+    public void tamperedChecksum() throws Exception {
+        byte [] bytes = write("winfo", new byte [] { 1, 2, 3, 4 });
+
+        byte [] checksum = bytes.clone();
+        checksum[checksum.length-1] ^= 1;
+        assertRejected(checksum, SECRET, ArtifactDatabaseImpl.CHECKSUM_MISMATCH);
+
+        // Changed data does not match the checksum either. The data
+        // is followed by the length and the 20 bytes of the SHA-1.
+        byte [] data = bytes.clone();
+        data[data.length-2-20-1] ^= 1;
+        assertRejected(data, SECRET, ArtifactDatabaseImpl.CHECKSUM_MISMATCH);
+
+        assertRejected(bytes, new byte [] { 'o', 't', 'h', 'e', 'r' },
+            ArtifactDatabaseImpl.CHECKSUM_MISMATCH);
+    }
+
+    @Test
+    public void invalidHeader() throws Exception {
+        byte [] bytes = write("winfo", new byte [] { 1, 2, 3, 4 });
+        bytes[0] = 'X';
+        assertRejected(bytes, SECRET, ArtifactDatabaseImpl.INVALID_ARTIFACT);
+        assertRejected(new byte[0], SECRET, ArtifactDatabaseImpl.NO_DATA);
+    }
+}
@@ -0,0 +1,195 @@
+package org.dive4elements.artifactdatabase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OutputCacheTest {
+
+    private File        directory;
+    private OutputCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("output-cache", "");
+        assertTrue(directory.delete() && directory.mkdir());
+
+        cache = new OutputCache();
+        cache.enabled         = true;
+        cache.memoryThreshold = 10L;
+        cache.maxMemory       = 25L;
+        cache.maxDisk         = 70L;
+        cache.directory       = directory;
+    }
+
+    @After
+    public void tearDown() {
+        cache.clear();
+        directory.delete();
+    }
+
+    private static Set<String> set(String... ids) {
+        return new HashSet<String>(Arrays.asList(ids));
+    }
+
+    private static byte [] bytes(int size, int value) {
+        byte [] data = new byte[size];
+        Arrays.fill(data, (byte)value);
+        return data;
+    }
+
+    private byte [] produce(String key, byte [] data, Set<String> deps)
+    throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputCache.Recorder recorder = cache.record(key, out);
+        recorder.write(data, 0, data.length);
+        recorder.commit(deps);
+        return out.toByteArray();
+    }
+
+    private byte [] serve(String key) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        return cache.serve(key, out) ? out.toByteArray() : null;
+    }
+
+    private int spilledFiles() {
+        return directory.list().length;
+    }
+
+    @Test
+    public void commitAfterInvalidation() throws IOException {
+        byte [] data = bytes(5, 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputCache.Recorder recorder = cache.record("k", out);
+        recorder.write(data, 0, data.length);
+
+        cache.invalidate("b");
+        recorder.commit(set("a", "b"));
+
+        // The client got the output but it is not cached.
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals(null, serve("k"));
+        assertEquals(0L, cache.getMemoryBytes());
+
+        // Invalidations of other identifiers do not matter.
+        out = new ByteArrayOutputStream();
+        recorder = cache.record("k", out);
+        recorder.write(data, 0, data.length);
+        cache.invalidate("c");
+        recorder.commit(set("a", "b"));
+
+        assertArrayEquals(data, serve("k"));
+    }
+
+    @Test
+    public void spilledCommitAfterInvalidation() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputCache.Recorder recorder = cache.record("k", out);
+        byte [] data = bytes(30, 2);
+        recorder.write(data, 0, data.length);
+        assertEquals(1, spilledFiles());
+
+        cache.invalidate("a");
+        recorder.commit(set("a"));
+
+        assertEquals(null, serve("k"));
+        assertEquals(0L, cache.getDiskBytes());
+        assertEquals(0, spilledFiles());
+    }
+
+    @Test
+    public void commitAfterLogOverflow() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputCache.Recorder recorder = cache.record("k", out);
+        recorder.write(1);
+
+        // Too many invalidations to tell if "a" was among them.
+        for (int i = 0; i <= OutputCache.INVALIDATION_LOG; ++i) {
+            cache.invalidate("x" + i);
+        }
+        recorder.commit(set("a"));
+
+        assertEquals(null, serve("k"));
+    }
+
+    @Test
+    public void memoryEviction() throws IOException {
+        produce("k1", bytes(10, 1), set("a"));
+        produce("k2", bytes(10, 2), set("b"));
+        assertEquals(20L, cache.getMemoryBytes());
+
+        // k1 is used more recently than k2.
+        assertArrayEquals(bytes(10, 1), serve("k1"));
+
+        produce("k3", bytes(10, 3), set("c"));
+
+        assertEquals(1L, cache.getEvictions());
+        assertEquals(20L, cache.getMemoryBytes());
+        assertEquals(null, serve("k2"));
+        assertArrayEquals(bytes(10, 1), serve("k1"));
+        assertArrayEquals(bytes(10, 3), serve("k3"));
+
+        // Replacing a result does not count twice.
+        produce("k3", bytes(5, 4), set("c"));
+        assertEquals(15L, cache.getMemoryBytes());
+        assertEquals(1L, cache.getEvictions());
+
+        cache.invalidate("a");
+        assertEquals(5L, cache.getMemoryBytes());
+        assertEquals(1L, cache.getInvalidations());
+
+        assertEquals(3L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+    }
+
+    @Test
+    public void diskEviction() throws IOException {
+        produce("m", bytes(10, 9), set("a"));
+        produce("d1", bytes(30, 1), set("a"));
+        produce("d2", bytes(30, 2), set("b"));
+
+        assertEquals(10L, cache.getMemoryBytes());
+        assertEquals(60L, cache.getDiskBytes());
+        assertEquals(2, spilledFiles());
+
+        // Evicts only from the disk which exceeds its limit.
+        produce("d3", bytes(30, 3), set("c"));
+
+        assertEquals(1L, cache.getEvictions());
+        assertEquals(10L, cache.getMemoryBytes());
+        assertEquals(60L, cache.getDiskBytes());
+        assertEquals(2, spilledFiles());
+        assertEquals(null, serve("d1"));
+        assertArrayEquals(bytes(30, 3), serve("d3"));
+        assertArrayEquals(bytes(10, 9), serve("m"));
+
+        // Results larger than the disk are not cached at all.
+        produce("big", bytes(71, 4), set("d"));
+        assertEquals(null, serve("big"));
+        assertEquals(2, spilledFiles());
+
+        cache.invalidate("b");
+        assertEquals(30L, cache.getDiskBytes());
+        assertEquals(1, spilledFiles());
+
+        cache.clear();
+        assertEquals(0L, cache.getMemoryBytes());
+        assertEquals(0L, cache.getDiskBytes());
+        assertEquals(0, spilledFiles());
+        assertFalse(cache.serve("m", new ByteArrayOutputStream()));
+    }
+}
@@ -0,0 +1,97 @@
+package org.dive4elements.artifactdatabase.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    private static final double [] QUANTILES = {
+        0d, 0.1d, 0.5d, 0.9d, 0.95d, 0.99d, 0.999d, 1d
+    };
+
+    /** The exact quantile with the rank definition of the histogram. */
+    private static long exact(long [] sorted, double quantile) {
+        long rank = (long)Math.ceil(quantile*sorted.length);
+        return sorted[(int)Math.max(1L, rank) - 1];
+    }
+
+    @Test
+    public void empty() {
+        Histogram histogram = new Histogram();
+        assertEquals(0L, histogram.getQuantile(0.5d));
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0d, histogram.getMean(), 0d);
+    }
+
+    @Test
+    public void bucketBounds() {
+        for (int i = 0; i < Histogram.BUCKETS; ++i) {
+            long upper = Histogram.upperBound(i);
+            assertEquals(i, Histogram.index(upper));
+            if (i + 1 < Histogram.BUCKETS) {
+                assertEquals(i + 1, Histogram.index(upper + 1L));
+            }
+        }
+        assertEquals(Histogram.BUCKETS - 1, Histogram.index(Long.MAX_VALUE));
+        assertEquals(0, Histogram.index(-1L));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (long v = 0L; v < Histogram.SUB_BUCKETS; ++v) {
+            histogram.record(v);
+        }
+        assertEquals(0L, histogram.getQuantile(0d));
+        assertEquals(3L, histogram.getQuantile(0.5d));
+        assertEquals(Histogram.SUB_BUCKETS - 1L, histogram.getQuantile(1d));
+    }
+
+    @Test
+    public void percentilesWithinRelativeError() {
+        Random random = new Random(4711L);
+        long [] values = new long[100000];
+
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < values.length; ++i) {
+            // log-normal like spread from microseconds to seconds
+            values[i] = (long)Math.exp(7d + random.nextGaussian()*3d);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+
+        for (double q: QUANTILES) {
+            long expected = exact(values, q);
+            long actual   = histogram.getQuantile(q);
+            assertTrue("q=" + q + ": " + actual + " < " + expected,
+                actual >= expected);
+            assertTrue("q=" + q + ": " + actual + " too far from " + expected,
+                actual - expected <= expected/Histogram.SUB_BUCKETS);
+        }
+    }
+
+    @Test
+    public void quantileNotAboveMax() {
+        Histogram histogram = new Histogram();
+        histogram.record(1000L);
+        histogram.record(1001L);
+        assertEquals(1001L, histogram.getQuantile(1d));
+        assertEquals(1001L, histogram.getQuantile(0.99d));
+    }
+
+    @Test
+    public void largeValuesInLastBucket() {
+        Histogram histogram = new Histogram();
+        histogram.record(Histogram.MAX_VALUE * 4L);
+        assertEquals(1L, histogram.getBucketCount(Histogram.BUCKETS - 1));
+        assertEquals(Histogram.MAX_VALUE * 4L, histogram.getMax());
+    }
+}
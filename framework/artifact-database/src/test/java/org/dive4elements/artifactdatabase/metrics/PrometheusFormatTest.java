@@ -0,0 +1,65 @@
+package org.dive4elements.artifactdatabase.metrics;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class PrometheusFormatTest {
+
+    private static String write() throws IOException {
+        StringWriter out = new StringWriter();
+        PrometheusFormat.write(out);
+        return out.toString();
+    }
+
+    @Test
+    public void inclusiveBuckets() throws IOException {
+        Histogram histogram = Metrics.histogram("test_inclusive", null);
+        histogram.record(4L);
+        histogram.record(5L);
+        histogram.record(16L);
+
+        String text = write();
+
+        assertTrue(text, text.contains("test_inclusive_bucket{le=\"1\"} 0\n"));
+        assertTrue(text, text.contains("test_inclusive_bucket{le=\"4\"} 1\n"));
+        assertTrue(text, text.contains("test_inclusive_bucket{le=\"16\"} 3\n"));
+        assertTrue(text, text.contains("test_inclusive_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(text, text.contains("test_inclusive_count 3\n"));
+    }
+
+    @Test
+    public void inclusiveSecondsBuckets() throws IOException {
+        Histogram histogram = Metrics.histogram("test_inclusive_seconds", null);
+        histogram.record(1L << 20);
+
+        String text = write();
+
+        assertTrue(text, text.contains(
+            "test_inclusive_seconds_bucket{le=\"2.62144E-4\"} 0\n"));
+        assertTrue(text, text.contains(
+            "test_inclusive_seconds_bucket{le=\"0.001048576\"} 1\n"));
+    }
+
+    @Test
+    public void help() throws IOException {
+        Metrics.help("test_help_total", "Counted\\things\nfor tests.");
+        Metrics.counter("test_help_total", Metrics.labels("a", "1"));
+        Metrics.counter("test_help_total", Metrics.labels("a", "2"));
+        Metrics.counter("test_nohelp_total", null);
+
+        String text = write();
+
+        assertTrue(text, text.contains(
+            "# HELP test_help_total Counted\\\\things\\nfor tests.\n"
+            + "# TYPE test_help_total counter\n"
+            + "test_help_total{a=\"1\"} 0\n"
+            + "test_help_total{a=\"2\"} 0\n"));
+        assertTrue(text, text.contains(
+            "# HELP test_nohelp_total test_nohelp_total\n"
+            + "# TYPE test_nohelp_total counter\n"));
+    }
+}
@@ -0,0 +1,183 @@
+package org.dive4elements.artifactdatabase.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.dive4elements.artifacts.Artifact;
+import org.dive4elements.artifacts.CallContext;
+
+import org.junit.Test;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+public class StateEngineTest {
+
+    private static class TestState extends AbstractState {
+
+        TestState(String id) {
+            // AbstractState(id, description) leaves outputs null.
+            this.id = id;
+        }
+
+        TestState output(String name, String... facets) {
+            DefaultOutput output = new DefaultOutput(name, name, "text/xml");
+            for (String facet: facets) {
+                output.addFacet(new DefaultFacet(facet, facet));
+            }
+            addOutput(output);
+            return this;
+        }
+
+        @Override
+        public Element describe(
+            Artifact    artifact,
+            Document    document,
+            Node        rootNode,
+            CallContext context,
+            String      uuid
+        ) {
+            return null;
+        }
+    }
+
+    /** getCompatibleFacets() as it was before the caching. */
+    private static Map<String, List<String>> reference(
+        StateEngine  engine,
+        List<String> aStates
+    ) {
+        Map<String, List<String>> compatibilityMatrix =
+            new HashMap<String, List<String>>();
+
+        for (String stateId: aStates) {
+            State state = engine.getState(stateId);
+            if (state == null) {
+                continue;
+            }
+
+            for (Output output: state.getOutputs()) {
+                List<String> oldFacets =
+                    compatibilityMatrix.get(output.getName());
+
+                if (oldFacets == null) {
+                    oldFacets = new ArrayList<String>();
+                }
+
+                for (Facet facet: output.getFacets()) {
+                    oldFacets.add(facet.getName());
+                }
+
+                compatibilityMatrix.put(output.getName(), oldFacets);
+            }
+        }
+        return compatibilityMatrix;
+    }
+
+    private static StateEngine engine() {
+        StateEngine engine = new StateEngine();
+        List<State> states = new ArrayList<State>();
+        states.add(new TestState("a")
+            .output("chart", "w", "q")
+            .output("table", "w"));
+        states.add(new TestState("b")
+            .output("chart", "q", "km"));
+        states.add(new TestState("c"));
+        states.add(new TestState("d")
+            .output("map", "river")
+            .output("chart", "d"));
+        engine.addStates("test", states);
+        return engine;
+    }
+
+    @Test
+    public void matchesReference() {
+        StateEngine engine = engine();
+
+        List<List<String>> cases = Arrays.asList(
+            Arrays.asList("a"),
+            Arrays.asList("a", "b"),
+            Arrays.asList("b", "a"),
+            Arrays.asList("a", "a"),
+            Arrays.asList("a", "c", "d"),
+            Arrays.asList("x", "d", "y"),
+            Arrays.asList("a", null, "b"),
+            Arrays.<String>asList(null, null),
+            new ArrayList<String>());
+
+        for (List<String> ids: cases) {
+            // twice: computed and cached
+            assertEquals(ids.toString(), reference(engine, ids),
+                engine.getCompatibleFacets(ids));
+            assertEquals(ids.toString(), reference(engine, ids),
+                engine.getCompatibleFacets(new ArrayList<String>(ids)));
+        }
+    }
+
+    @Test
+    public void randomListsMatchReference() {
+        StateEngine engine = engine();
+        String []   ids    = { "a", "b", "c", "d", "x", null };
+        Random      random = new Random(4711L);
+
+        for (int round = 0; round < 500; ++round) {
+            List<String> list = new ArrayList<String>();
+            for (int i = random.nextInt(6); i > 0; --i) {
+                list.add(ids[random.nextInt(ids.length)]);
+            }
+            assertEquals(list.toString(), reference(engine, list),
+                engine.getCompatibleFacets(list));
+        }
+    }
+
+    @Test
+    public void resultIsSharedAndUnmodifiable() {
+        StateEngine engine = engine();
+
+        List<String> ids = new ArrayList<String>(Arrays.asList("a", "b"));
+        Map<String, List<String>> first = engine.getCompatibleFacets(ids);
+
+        // Changing the list of the caller does not touch the cache.
+        ids.add("d");
+        assertSame(first, engine.getCompatibleFacets(Arrays.asList("a", "b")));
+
+        try {
+            first.put("other", new ArrayList<String>());
+            fail("map is modifiable");
+        }
+        catch (UnsupportedOperationException uoe) {
+        }
+
+        try {
+            first.get("chart").add("other");
+            fail("list is modifiable");
+        }
+        catch (UnsupportedOperationException uoe) {
+        }
+    }
+
+    @Test
+    public void addingStatesClearsCache() {
+        StateEngine engine = engine();
+
+        List<String> ids = Arrays.asList("a", "e");
+        Map<String, List<String>> before = engine.getCompatibleFacets(ids);
+        assertEquals(reference(engine, ids), before);
+
+        List<State> states = new ArrayList<State>();
+        states.add(new TestState("e").output("chart", "e"));
+        engine.addStates("other", states);
+
+        Map<String, List<String>> after = engine.getCompatibleFacets(ids);
+        assertEquals(reference(engine, ids), after);
+        assertEquals(Arrays.asList("w", "q", "e"), after.get("chart"));
+    }
+}
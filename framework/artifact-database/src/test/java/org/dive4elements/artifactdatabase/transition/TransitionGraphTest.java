@@ -0,0 +1,205 @@
+package org.dive4elements.artifactdatabase.transition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.dive4elements.artifactdatabase.state.State;
+
+import org.dive4elements.artifacts.Artifact;
+
+import org.junit.Test;
+
+import org.w3c.dom.Node;
+
+public class TransitionGraphTest {
+
+    private static class Edge implements Transition {
+
+        private String from;
+        private String to;
+
+        Edge(String from, String to) {
+            this.from = from;
+            this.to   = to;
+        }
+
+        public void init(Node config) {
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public void setFrom(String from) {
+            this.from = from;
+        }
+
+        public void setTo(String to) {
+            this.to = to;
+        }
+
+        public boolean isValid(Artifact artifact, State a, State b) {
+            return true;
+        }
+    }
+
+    private static List<Transition> edges(String... pairs) {
+        List<Transition> list = new ArrayList<Transition>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            list.add(new Edge(pairs[i], pairs[i+1]));
+        }
+        return list;
+    }
+
+    private static Set<String> set(String... ids) {
+        return new HashSet<String>(Arrays.asList(ids));
+    }
+
+    /** Breadth first search as done before the graphs were compiled. */
+    private static Set<String> reference(
+        List<Transition> transitions,
+        String           stateId
+    ) {
+        Map<String, Set<String>> succs = new HashMap<String, Set<String>>();
+        for (Transition t: transitions) {
+            Set<String> s = succs.get(t.getFrom());
+            if (s == null) {
+                succs.put(t.getFrom(), s = new HashSet<String>());
+            }
+            s.add(t.getTo());
+        }
+
+        Set<String> result = new HashSet<String>();
+        Set<String> start  = succs.get(stateId);
+        if (start == null) {
+            return result;
+        }
+
+        Deque<String> open = new ArrayDeque<String>(start);
+        while (!open.isEmpty()) {
+            String cand = open.poll();
+            if (result.add(cand)) {
+                Set<String> s = succs.get(cand);
+                if (s != null) {
+                    open.addAll(s);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void assertMatchesReference(
+        List<Transition> transitions,
+        Set<String>      ids
+    ) {
+        TransitionGraph graph = new TransitionGraph(transitions);
+        for (String from: ids) {
+            Set<String> expected = reference(transitions, from);
+            assertEquals(from, expected,
+                graph.allRecursiveSuccessorStateIds(from));
+            for (String to: ids) {
+                assertEquals(from + " -> " + to,
+                    expected.contains(to), graph.isSuccessor(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void chain() {
+        TransitionGraph graph = new TransitionGraph(
+            edges("a", "b", "b", "c", "c", "d"));
+
+        assertEquals(set("b", "c", "d"),
+            graph.allRecursiveSuccessorStateIds("a"));
+        assertEquals(set(), graph.allRecursiveSuccessorStateIds("d"));
+        assertTrue(graph.isSuccessor("a", "d"));
+        assertFalse(graph.isSuccessor("d", "a"));
+        assertFalse(graph.isSuccessor("a", "a"));
+    }
+
+    @Test
+    public void cyclesReachTheStart() {
+        TransitionGraph graph = new TransitionGraph(
+            edges("a", "b", "b", "a", "c", "c", "b", "d"));
+
+        assertEquals(set("a", "b", "d"),
+            graph.allRecursiveSuccessorStateIds("a"));
+        assertEquals(set("c"), graph.allRecursiveSuccessorStateIds("c"));
+        assertTrue(graph.isSuccessor("a", "a"));
+        assertTrue(graph.isSuccessor("c", "c"));
+        assertFalse(graph.isSuccessor("d", "d"));
+    }
+
+    @Test
+    public void unknownStates() {
+        TransitionGraph graph = new TransitionGraph(edges("a", "b"));
+
+        assertEquals(set(), graph.allRecursiveSuccessorStateIds("x"));
+        assertEquals(set(), graph.allRecursiveSuccessorStateIds(null));
+        assertFalse(graph.isSuccessor("x", "b"));
+        assertFalse(graph.isSuccessor("a", "x"));
+        assertFalse(graph.isSuccessor(null, null));
+    }
+
+    @Test
+    public void duplicateTransitionsAreKept() {
+        List<Transition> list = edges("a", "b", "a", "b", "b", "c");
+        TransitionGraph graph = new TransitionGraph(list);
+
+        assertEquals(3, graph.getTransitions().length);
+        assertEquals(set("b", "c"), graph.allRecursiveSuccessorStateIds("a"));
+    }
+
+    @Test
+    public void randomGraphsMatchReference() {
+        Random random = new Random(4711L);
+        for (int round = 0; round < 200; ++round) {
+            int states = 1 + random.nextInt(30);
+            int count  = random.nextInt(states*3 + 1);
+
+            List<Transition> list = new ArrayList<Transition>(count);
+            Set<String>      ids  = new HashSet<String>();
+            for (int i = 0; i < count; ++i) {
+                String from = "s" + random.nextInt(states);
+                String to   = "s" + random.nextInt(states);
+                list.add(new Edge(from, to));
+                ids.add(from);
+                ids.add(to);
+            }
+            ids.add("unknown");
+
+            assertMatchesReference(list, ids);
+        }
+    }
+
+    @Test
+    public void engineRecompilesAfterAdd() {
+        TransitionEngine engine = new TransitionEngine();
+        engine.addTransition("art", new Edge("a", "b"));
+
+        assertEquals(set("b"), engine.allRecursiveSuccessorStateIds("art", "a"));
+
+        engine.addTransition("art", new Edge("b", "c"));
+
+        assertEquals(set("b", "c"),
+            engine.allRecursiveSuccessorStateIds("art", "a"));
+        assertEquals(set(),
+            engine.allRecursiveSuccessorStateIds("other", "a"));
+    }
+}
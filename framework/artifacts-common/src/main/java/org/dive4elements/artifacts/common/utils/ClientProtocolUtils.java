@@ -683,6 +683,77 @@ public class ClientProtocolUtils {
     }
 
 
+    /**
+     * This function creates a document that is used to list a page of the
+     * artifacts stored in a collection.
+     *
+     * @param limit The max. number of items. Values <= 0 mean no limit.
+     * @param after The cursor taken from the 'next' element of the
+     * previous page or null to start at the beginning.
+     *
+     * @return the document that is used to list the artifacts.
+     */
+    public static Document newListCollectionArtifactsDocument(
+        int    limit,
+        String after
+    ) {
+        Document doc = XMLUtils.newDocument();
+
+        XMLUtils.ElementCreator ec = new XMLUtils.ElementCreator(
+            doc,
+            ArtifactNamespaceContext.NAMESPACE_URI,
+            ArtifactNamespaceContext.NAMESPACE_PREFIX);
+
+        Element action = ec.create("action");
+        Element type   = ec.create("type");
+
+        ec.addAttr(type, "name", "listartifacts");
+
+        if (limit > 0) {
+            ec.addAttr(type, "limit", String.valueOf(limit));
+        }
+
+        if (after != null) {
+            ec.addAttr(type, "after", after);
+        }
+
+        doc.appendChild(action);
+        action.appendChild(type);
+
+        return doc;
+    }
+
+
+    /**
+     * This function creates a document that is used to perform several
+     * describe, feed or advance actions with a single request.
+     *
+     * @param actions The action documents (e.g. created by
+     * newDescribeDocument(), newFeedDocument() or newAdvanceDocument()).
+     *
+     * @return the document that is used to perform the batch.
+     */
+    public static Document newBatchDocument(Document... actions) {
+        Document doc = XMLUtils.newDocument();
+
+        XMLUtils.ElementCreator ec = new XMLUtils.ElementCreator(
+            doc,
+            ArtifactNamespaceContext.NAMESPACE_URI,
+            ArtifactNamespaceContext.NAMESPACE_PREFIX);
+
+        Element batch = ec.create("batch");
+
+        for (Document action: actions) {
+            batch.appendChild(
+                doc.importNode(action.getDocumentElement(), true));
+        }
+
+        doc.appendChild(batch);
+
+        return doc;
+    }
+
+
     /**
      * Returns string value found by {@link XPATH_LABEL} relative to
      * <i>node</i>.
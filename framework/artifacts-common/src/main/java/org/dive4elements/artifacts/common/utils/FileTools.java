@@ -384,22 +384,61 @@ public class FileTools
 
 
     public static void extractArchive(File archive, File destDir)
+    throws IOException {
+        extractArchive(archive, destDir, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Extracts a zip archive into a directory.
+     * @param archive The zip archive.
+     * @param destDir The destination directory.
+     * @param maxEntries Max. number of entries the archive may have.
+     * @param maxSize Max. number of bytes the extracted entries
+     * may have all together.
+     * @throws IOException Thrown if the extraction failed or
+     * one of the limits is exceeded.
+     */
+    public static void extractArchive(
+        File archive,
+        File destDir,
+        int  maxEntries,
+        long maxSize
+    )
     throws IOException {
         if (!destDir.exists()) {
             destDir.mkdir();
         }
 
+        String destPath = destDir.getCanonicalPath() + File.separator;
+
         ZipFile zipFile = new ZipFile(archive);
         try {
             Enumeration<? extends ZipEntry> entries = zipFile.entries();
 
             byte [] buffer = new byte[16384];
 
+            int  count = 0;
+            long size  = 0L;
+
             while (entries.hasMoreElements()) {
                 ZipEntry entry = entries.nextElement();
 
+                if (++count > maxEntries) {
+                    throw new IOException(
+                        "Zip archive has more than " + maxEntries
+                        + " entries");
+                }
+
                 String entryFileName = entry.getName();
 
+                // Do not write outside of the destination directory.
+                String path = new File(destDir, entryFileName)
+                    .getCanonicalPath() + File.separator;
+                if (!path.startsWith(destPath)) {
+                    throw new IOException(
+                        "Zip entry outside of destination: " + entryFileName);
+                }
+
                 File dir = buildDirectoryHierarchyFor(entryFileName, destDir);
                 if (!dir.exists()) {
                     dir.mkdirs();
@@ -415,6 +454,12 @@ public class FileTools
                         try {
                             int len;
                             while ((len = bis.read(buffer)) > 0) {
+                                // Do not trust the sizes in the entries.
+                                if ((size += len) > maxSize) {
+                                    throw new IOException(
+                                        "Zip archive is larger than "
+                                        + maxSize + " bytes");
+                                }
                                 bos.write(buffer, 0, len);
                             }
                             bos.flush();
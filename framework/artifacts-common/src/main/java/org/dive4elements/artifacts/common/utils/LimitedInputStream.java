@@ -0,0 +1,57 @@
+package org.dive4elements.artifacts.common.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails with an IOException if more than a given number of
+ * bytes are read from the wrapped stream.
+ */
+public class LimitedInputStream
+extends      FilterInputStream
+{
+    protected long remaining;
+    protected long limit;
+
+    public LimitedInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit     = limit;
+        this.remaining = limit;
+    }
+
+    protected void consumed(long n) throws IOException {
+        if (n > 0L && (remaining -= n) < 0L) {
+            throw new IOException("stream exceeds " + limit + " bytes");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            consumed(1L);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte [] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        consumed(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        consumed(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
+// vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
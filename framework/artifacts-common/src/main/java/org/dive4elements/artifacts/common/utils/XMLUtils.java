@@ -33,6 +33,9 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -55,6 +58,7 @@ import org.apache.logging.log4j.LogManager;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 
 import org.xml.sax.SAXException;
@@ -449,6 +453,99 @@ public final class XMLUtils
         return false;
     }
 
+    /**
+     * Writes a DOM node and its descendants to a StAX stream writer.
+     * This is used to embed DOM fragments into documents which are
+     * streamed out without building a DOM tree for the whole document.
+     * The writer should be in namespace repairing mode.
+     * @param node   The node to be written.
+     * @param writer The StAX writer to write to.
+     * @throws XMLStreamException Thrown if writing failed.
+     */
+    public static void toStream(Node node, XMLStreamWriter writer)
+    throws XMLStreamException
+    {
+        switch (node.getNodeType()) {
+            case Node.DOCUMENT_NODE:
+            case Node.DOCUMENT_FRAGMENT_NODE:
+            case Node.ENTITY_REFERENCE_NODE:
+                for (Node child = node.getFirstChild();
+                    child != null;
+                    child = child.getNextSibling()
+                ) {
+                    toStream(child, writer);
+                }
+                break;
+
+            case Node.ELEMENT_NODE:
+                String ns     = node.getNamespaceURI();
+                String local  = node.getLocalName();
+                String prefix = node.getPrefix();
+
+                if (local == null) {
+                    writer.writeStartElement(node.getNodeName());
+                }
+                else if (ns == null) {
+                    writer.writeStartElement(local);
+                }
+                else {
+                    writer.writeStartElement(
+                        prefix != null ? prefix : "", local, ns);
+                }
+
+                NamedNodeMap attrs = node.getAttributes();
+                for (int i = 0, N = attrs.getLength(); i < N; ++i) {
+                    Node   attr   = attrs.item(i);
+                    String aName  = attr.getNodeName();
+
+                    if (aName.equals("xmlns") || aName.startsWith("xmlns:")) {
+                        // Declarations are handled by the writer.
+                        continue;
+                    }
+
+                    String aNs    = attr.getNamespaceURI();
+                    String aLocal = attr.getLocalName();
+
+                    if (aNs == null || aLocal == null) {
+                        writer.writeAttribute(aName, attr.getNodeValue());
+                    }
+                    else {
+                        String aPrefix = attr.getPrefix();
+                        writer.writeAttribute(
+                            aPrefix != null ? aPrefix : "",
+                            aNs, aLocal, attr.getNodeValue());
+                    }
+                }
+
+                for (Node child = node.getFirstChild();
+                    child != null;
+                    child = child.getNextSibling()
+                ) {
+                    toStream(child, writer);
+                }
+
+                writer.writeEndElement();
+                break;
+
+            case Node.TEXT_NODE:
+                writer.writeCharacters(node.getNodeValue());
+                break;
+
+            case Node.CDATA_SECTION_NODE:
+                writer.writeCData(node.getNodeValue());
+                break;
+
+            case Node.COMMENT_NODE:
+                writer.writeComment(node.getNodeValue());
+                break;
+
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                writer.writeProcessingInstruction(
+                    node.getNodeName(), node.getNodeValue());
+                break;
+        }
+    }
+
     public static String toString(Document document) {
         try {
             Transformer transformer =
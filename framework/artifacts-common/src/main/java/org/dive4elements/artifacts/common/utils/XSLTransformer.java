@@ -1,12 +1,21 @@
 package org.dive4elements.artifacts.common.utils;
 
+import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -26,6 +35,39 @@ public class XSLTransformer {
 
     private static Logger log = LogManager.getLogger(XSLTransformer.class);
 
+    /**
+     * Max. number of compiled stylesheets kept in the templates cache.
+     */
+    public static final int MAX_CACHED_TEMPLATES = 100;
+
+    /**
+     * Compiled stylesheets keyed by their external URL form.
+     */
+    private static final Map<String, CachedTemplates> TEMPLATES =
+        Collections.synchronizedMap(
+            new LRUCache<String, CachedTemplates>(MAX_CACHED_TEMPLATES));
+
+    /**
+     * Shared factory used to compile the cached templates.
+     * TransformerFactory is not thread-safe so access is synchronized.
+     */
+    private static TransformerFactory templatesFactory;
+
+    /**
+     * A compiled stylesheet together with the modification time
+     * of its source when it was compiled.
+     */
+    private static final class CachedTemplates {
+
+        private final Templates templates;
+        private final long      lastModified;
+
+        CachedTemplates(Templates templates, long lastModified) {
+            this.templates    = templates;
+            this.lastModified = lastModified;
+        }
+    } // class CachedTemplates
+
     protected Map<String, Object> parameters;
 
     public XSLTransformer() {
@@ -40,19 +82,43 @@ public class XSLTransformer {
             Transformer transformer =
                 xformFactory.newTransformer(templateSource);
 
-            if (parameters != null) {
-                for (Map.Entry<String, Object> entry: parameters.entrySet()) {
-                    transformer.setParameter(entry.getKey(), entry.getValue());
-                }
-            }
+            return transformToString(transformer, source);
+        }
+        catch (TransformerConfigurationException tce) {
+            log.error(tce, tce);
+        }
+        catch (TransformerException te) {
+            log.error(te, te);
+        }
 
-            StringWriter result = new StringWriter();
+        return null;
+    }
 
-            DOMSource    src = new DOMSource(source);
-            StreamResult dst = new StreamResult(result);
-            transformer.transform(src, dst);
+    /**
+     * Transforms the source with the stylesheet stored in the given file.
+     * The compiled stylesheet is cached and recompiled only if the
+     * modification time of the file changes.
+     * @param source The node to transform.
+     * @param transform The stylesheet file.
+     * @return The result of the transformation or null if it failed.
+     */
+    public String transform(Node source, File transform) {
+        URL url = toURL(transform);
+        return url != null ? transform(source, url) : null;
+    }
 
-            return result.toString();
+    /**
+     * Transforms the source with the stylesheet found at the given URL.
+     * The compiled stylesheet is cached and recompiled only if the
+     * modification time of the stylesheet file changes.
+     * @param source The node to transform.
+     * @param transform The URL of the stylesheet.
+     * @return The result of the transformation or null if it failed.
+     */
+    public String transform(Node source, URL transform) {
+        try {
+            Transformer transformer = getTemplates(transform).newTransformer();
+            return transformToString(transformer, source);
         }
         catch (TransformerConfigurationException tce) {
             log.error(tce, tce);
@@ -64,11 +130,148 @@ public class XSLTransformer {
         return null;
     }
 
+    /**
+     * Transforms the source with the cached stylesheet stored in the
+     * given file and writes the result directly to an output stream.
+     * @param source The node to transform.
+     * @param transform The stylesheet file.
+     * @param out The stream to write the result to.
+     * @return true if the transformation succeeded else false.
+     */
+    public boolean transform(Node source, File transform, OutputStream out) {
+        URL url = toURL(transform);
+        return url != null && transform(source, url, out);
+    }
+
+    /**
+     * Transforms the source with the cached stylesheet found at the
+     * given URL and writes the result directly to an output stream
+     * without building an intermediate string.
+     * @param source The node to transform.
+     * @param transform The URL of the stylesheet.
+     * @param out The stream to write the result to.
+     * @return true if the transformation succeeded else false.
+     */
+    public boolean transform(Node source, URL transform, OutputStream out) {
+        try {
+            Transformer transformer = getTemplates(transform).newTransformer();
+            applyParameters(transformer);
+            transformer.transform(new DOMSource(source), new StreamResult(out));
+            return true;
+        }
+        catch (TransformerConfigurationException tce) {
+            log.error(tce, tce);
+        }
+        catch (TransformerException te) {
+            log.error(te, te);
+        }
+
+        return false;
+    }
+
     public void addParameter(String key, Object value) {
         if (parameters == null) {
             parameters = new HashMap<String, Object>();
         }
         parameters.put(key, value);
     }
+
+    protected void applyParameters(Transformer transformer) {
+        if (parameters != null) {
+            for (Map.Entry<String, Object> entry: parameters.entrySet()) {
+                transformer.setParameter(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    protected String transformToString(Transformer transformer, Node source)
+    throws TransformerException
+    {
+        applyParameters(transformer);
+
+        StringWriter result = new StringWriter();
+
+        DOMSource    src = new DOMSource(source);
+        Result       dst = new StreamResult(result);
+        transformer.transform(src, dst);
+
+        return result.toString();
+    }
+
+    /**
+     * Returns the compiled stylesheet for the given URL. If there is
+     * no cached version or the resource was modified since it was
+     * compiled the stylesheet is (re-)compiled and cached.
+     * @param url The URL of the stylesheet.
+     * @return The compiled stylesheet.
+     * @throws TransformerConfigurationException If compilation failed.
+     */
+    public static Templates getTemplates(URL url)
+    throws TransformerConfigurationException
+    {
+        String key          = url.toExternalForm();
+        long   lastModified = lastModified(url);
+
+        CachedTemplates cached = TEMPLATES.get(key);
+
+        if (cached != null && cached.lastModified == lastModified) {
+            return cached.templates;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Compiling stylesheet '" + key + "'");
+        }
+
+        Templates templates;
+        synchronized (XSLTransformer.class) {
+            if (templatesFactory == null) {
+                templatesFactory = TransformerFactory.newInstance();
+            }
+            templates = templatesFactory.newTemplates(
+                new StreamSource(key));
+        }
+
+        TEMPLATES.put(key, new CachedTemplates(templates, lastModified));
+
+        return templates;
+    }
+
+    /**
+     * Removes all compiled stylesheets from the cache.
+     */
+    public static void clearTemplatesCache() {
+        TEMPLATES.clear();
+    }
+
+    /**
+     * Returns the modification time of a stylesheet. Only stylesheets
+     * in the file system are checked. Other resources (e.g. in jars)
+     * are treated as immutable so that no connection has to be opened
+     * for every transformation.
+     */
+    private static long lastModified(URL url) {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return new File(url.toURI()).lastModified();
+            }
+            catch (URISyntaxException use) {
+                log.warn(use.getLocalizedMessage(), use);
+            }
+            catch (IllegalArgumentException iae) {
+                log.warn(iae.getLocalizedMessage(), iae);
+            }
+        }
+        return 0L;
+    }
+
+    private static URL toURL(File file) {
+        try {
+            return file.toURI().toURL();
+        }
+        catch (MalformedURLException mue) {
+            log.error(mue, mue);
+        }
+        return null;
+    }
 }
 // vim:set ts=4 sw=4 si et sta sts=4 fenc=utf8 :
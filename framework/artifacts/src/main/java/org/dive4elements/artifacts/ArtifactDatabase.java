@@ -9,11 +9,23 @@
 package org.dive4elements.artifacts;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+
+import javax.xml.transform.dom.DOMSource;
+
+import javax.xml.transform.stream.StreamResult;
+
 import org.w3c.dom.Document;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Interface of an artifact managing database.
@@ -38,6 +50,52 @@ public interface ArtifactDatabase
 
     } // interface DeferredOut
 
+    /**
+     * Deferred output writing an already built document. Used by
+     * the default implementations of the streaming listings.
+     */
+    public static class DocumentOutput
+    implements          DeferredOutput
+    {
+        protected Document document;
+
+        public DocumentOutput(Document document) {
+            this.document = document;
+        }
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            try {
+                Transformer transformer =
+                    TransformerFactory.newInstance().newTransformer();
+                transformer.transform(
+                    new DOMSource(document), new StreamResult(output));
+            }
+            catch (TransformerException te) {
+                throw new IOException(te.getMessage());
+            }
+        }
+    } // class DocumentOutput
+
+    /**
+     * Implementations of this class are used to make the creation
+     * of documents conditional. Before an expensive document is built
+     * its entity tag is computed from the hash of the underlying object
+     * and passed to the validator. If the requesting client already
+     * has a valid copy the document is not built at all.
+     */
+    public interface Validator {
+
+        /**
+         * Checks the entity tag of the document to be created.
+         * @param tag The entity tag of the document.
+         * @return true if the client has a valid copy of the
+         * document and it must not be created. false otherwise.
+         */
+        boolean isValid(String tag);
+
+    } // interface Validator
+
     /**
      * List of artifact factories names accessible through the database.
      * @return pairs of names and descriptions of the factories.
@@ -81,6 +139,52 @@ public interface ArtifactDatabase
     Artifact getRawArtifact(String identifier)
     throws ArtifactDatabaseException;
 
+    /**
+     * Used to retrieve several artifacts at once. The artifacts are
+     * loaded with a single database query instead of one query per
+     * artifact. <b>NOTE: artifact modifications are not persisted
+     * to database!</b>
+     * @param identifiers The identifiers of the artifacts.
+     * @return The found artifacts keyed by their identifiers in the
+     * order of the given identifiers. Unknown artifacts are missing.
+     * The default implementation fetches the artifacts one by one
+     * with #getRawArtifact(String).
+     * @throws ArtifactDatabaseException Thrown if something went wrong.
+     */
+    default Map<String, Artifact> getRawArtifacts(
+        Collection<String> identifiers
+    )
+    throws ArtifactDatabaseException
+    {
+        Map<String, Artifact> artifacts =
+            new LinkedHashMap<String, Artifact>();
+        for (String identifier: identifiers) {
+            if (artifacts.containsKey(identifier)) {
+                continue;
+            }
+            try {
+                artifacts.put(identifier, getRawArtifact(identifier));
+            }
+            catch (ArtifactDatabaseException adbe) {
+                // Unknown artifacts are left out.
+            }
+        }
+        return artifacts;
+    }
+
+    /**
+     * Used to retrieve all artifacts of a collection at once with
+     * a constant number of database queries. <b>NOTE: artifact
+     * modifications are not persisted to database!</b>
+     * @param collectionId The identifier of the collection.
+     * @return The artifacts keyed by their identifiers in the
+     * order of the collection.
+     * @throws ArtifactDatabaseException Thrown if the collection
+     * does not exist.
+     */
+    Map<String, Artifact> getRawCollectionArtifacts(String collectionId)
+        throws ArtifactDatabaseException;
+
     /**
      * Returns the describe document of artifact identified
      * with the string 'artifact'.
@@ -95,6 +199,31 @@ public interface ArtifactDatabase
     Document describe(String artifact, Document data, CallMeta callMeta)
         throws ArtifactDatabaseException;
 
+    /**
+     * Conditional version of describe(). The entity tag of the
+     * describe document is computed from the hash of the artifact
+     * and the languages of the call meta and passed to the validator.
+     * @param artifact The identifier of the artifact.
+     * @param data Optional input data to parameterize the description.
+     * @param callMeta the meta information (language et. al.) of
+     * the description.
+     * @param validator The validator to check the entity tag. May be null.
+     * @return The describe document of the artifact or null if the
+     * validator accepted the entity tag. The default implementation
+     * ignores the validator and always builds the document.
+     * @throws ArtifactDatabaseException Thrown id something went wrong
+     * during the creation of the describe document.
+     */
+    default Document describe(
+        String    artifact,
+        Document  data,
+        CallMeta  callMeta,
+        Validator validator)
+        throws ArtifactDatabaseException
+    {
+        return describe(artifact, data, callMeta);
+    }
+
     /**
      * Advances the artifact identified by 'artifact' to the state
      * 'target'. The result of the attempt is returned.
@@ -189,6 +318,79 @@ public interface ArtifactDatabase
     Document importArtifact(Document data, CallMeta callMeta)
         throws ArtifactDatabaseException;
 
+    /**
+     * Streamed variant of #exportArtifact(String, CallMeta). The
+     * artifact is written in a binary format with an incrementally
+     * computed checksum instead of being Base64 encoded into an
+     * XML document.
+     * @param artifact The identifier of the artifact.
+     * @param callMeta The meta information (language et. al.) of the export.
+     * @return The deferred output which writes the exported artifact.
+     * @throws ArtifactDatabaseException Thrown if the artifact
+     * does not exist.
+     */
+    DeferredOutput exportArtifactStream(String artifact, CallMeta callMeta)
+        throws ArtifactDatabaseException;
+
+    /**
+     * The symmetrical counter part of
+     * #exportArtifactStream(String, CallMeta).
+     * @param input The stream of the exported artifact.
+     * @param callMeta The meta information (language et. al.) of the
+     * import.
+     * @return The describe document of the imported artifact.
+     * @throws ArtifactDatabaseException Thrown if something went wrong during
+     * the import attempt.
+     */
+    Document importArtifactStream(InputStream input, CallMeta callMeta)
+        throws ArtifactDatabaseException;
+
+    /**
+     * Exports all collections of a user as a zip archive. The archive
+     * contains a manifest with the collections, their attributes and
+     * the attributes of their items and each artifact in the format
+     * of #exportArtifactStream(String, CallMeta).
+     * @param user The identifier of the user.
+     * @param callMeta The meta information (language et. al.) of the export.
+     * @return The deferred output which writes the archive.
+     * @throws ArtifactDatabaseException Thrown if the user does not exist.
+     */
+    DeferredOutput exportUserCollections(String user, CallMeta callMeta)
+        throws ArtifactDatabaseException;
+
+    /**
+     * Exports a single collection as a zip archive in the format of
+     * #exportUserCollections(String, CallMeta).
+     * @param collection The identifier of the collection.
+     * @param callMeta The meta information (language et. al.) of the export.
+     * @return The deferred output which writes the archive.
+     * @throws ArtifactDatabaseException Thrown if the collection
+     * does not exist.
+     */
+    DeferredOutput exportCollection(String collection, CallMeta callMeta)
+        throws ArtifactDatabaseException;
+
+    /**
+     * Imports the collections of an archive written by
+     * #exportUserCollections(String, CallMeta) or
+     * #exportCollection(String, CallMeta) for a user in a single
+     * transaction. The collections and artifacts keep their identifiers.
+     * @param user The identifier of the user owning the imported
+     * collections.
+     * @param input The stream of the archive.
+     * @param callMeta The meta information (language et. al.) of the
+     * import.
+     * @return A document listing the imported collections.
+     * @throws ArtifactDatabaseException Thrown if something went wrong
+     * during the import attempt.
+     */
+    Document importCollections(
+        String      user,
+        InputStream input,
+        CallMeta    callMeta
+    )
+    throws ArtifactDatabaseException;
+
     /**
      * Returns a list of services offered by this artifact database.
      * @return The array returned contains tuples of (name, description)
@@ -215,6 +417,33 @@ public interface ArtifactDatabase
     Document listUsers(CallMeta callMeta)
         throws ArtifactDatabaseException;
 
+    /**
+     * Returns a page of the users ordered by their identifiers.
+     * If there may be more users a 'next' element carries the
+     * cursor to be passed as 'after' to fetch the following page.
+     * @param limit Max. number of users. Values <= 0 mean no limit.
+     * @param after The cursor of the previous page or null.
+     */
+    Document listUsers(int limit, String after, CallMeta callMeta)
+        throws ArtifactDatabaseException;
+
+    /**
+     * Streaming variant of #listUsers(int, String, CallMeta).
+     * The listing is written when the write() method of the returned
+     * DeferredOutput is called without building the whole document
+     * in memory. The default implementation writes the document
+     * of #listUsers(int, String, CallMeta).
+     */
+    default DeferredOutput streamUsers(
+        int      limit,
+        String   after,
+        CallMeta callMeta
+    )
+    throws ArtifactDatabaseException
+    {
+        return new DocumentOutput(listUsers(limit, after, callMeta));
+    }
+
     Document findUser(Document data, CallMeta callMeta)
         throws ArtifactDatabaseException;
 
@@ -232,6 +461,37 @@ public interface ArtifactDatabase
     Document listCollections(String userId, CallMeta callMeta)
         throws ArtifactDatabaseException;
 
+    /**
+     * Returns a page of the collections of a user ordered by
+     * (creation, identifier). If there may be more collections a
+     * 'next' element carries the cursor to be passed as 'after' to
+     * fetch the following page.
+     * @param limit Max. number of collections. Values <= 0 mean no limit.
+     * @param after The cursor of the previous page or null.
+     */
+    Document listCollections(
+        String   userId,
+        int      limit,
+        String   after,
+        CallMeta callMeta)
+        throws ArtifactDatabaseException;
+
+    /**
+     * Streaming variant of #listCollections(String, int, String, CallMeta).
+     * The default implementation writes the document of the
+     * non-streaming variant.
+     */
+    default DeferredOutput streamCollections(
+        String   userId,
+        int      limit,
+        String   after,
+        CallMeta callMeta)
+        throws ArtifactDatabaseException
+    {
+        return new DocumentOutput(
+            listCollections(userId, limit, after, callMeta));
+    }
+
     Document createCollection(String ownerId, Document data,
         CallMeta callMeta)
         throws ArtifactDatabaseException;
@@ -242,6 +502,27 @@ public interface ArtifactDatabase
     Document describeCollection(String collectionId, CallMeta callMeta)
         throws ArtifactDatabaseException;
 
+    /**
+     * Conditional version of describeCollection(). The entity tag
+     * is computed from the hash of the collection and the languages
+     * of the call meta.
+     * @param collectionId The identifier of the collection.
+     * @param callMeta The meta information of the call.
+     * @param validator The validator to check the entity tag. May be null.
+     * @return The describe document of the collection or null if the
+     * validator accepted the entity tag. The default implementation
+     * ignores the validator and always builds the document.
+     * @throws ArtifactDatabaseException Thrown if something went wrong.
+     */
+    default Document describeCollection(
+        String    collectionId,
+        CallMeta  callMeta,
+        Validator validator)
+        throws ArtifactDatabaseException
+    {
+        return describeCollection(collectionId, callMeta);
+    }
+
     Document getCollectionAttribute(String collectionId, CallMeta callMeta)
     throws ArtifactDatabaseException;
 
@@ -267,6 +548,29 @@ public interface ArtifactDatabase
     Document listCollectionArtifacts(String collectionId,
         CallMeta callMeta) throws ArtifactDatabaseException;
 
+    /**
+     * Returns a page of the items of a collection ordered by
+     * (creation, identifier). Paging works like in
+     * #listCollections(String, int, String, CallMeta).
+     */
+    Document listCollectionArtifacts(String collectionId,
+        int limit, String after, CallMeta callMeta)
+        throws ArtifactDatabaseException;
+
+    /**
+     * Streaming variant of
+     * #listCollectionArtifacts(String, int, String, CallMeta).
+     * The default implementation writes the document of the
+     * non-streaming variant.
+     */
+    default DeferredOutput streamCollectionArtifacts(String collectionId,
+        int limit, String after, CallMeta callMeta)
+        throws ArtifactDatabaseException
+    {
+        return new DocumentOutput(
+            listCollectionArtifacts(collectionId, limit, after, callMeta));
+    }
+
     DeferredOutput outCollection(String collectionId,
         Document format, CallMeta callMeta)
         throws ArtifactDatabaseException;
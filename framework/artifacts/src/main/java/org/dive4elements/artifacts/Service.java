@@ -21,6 +21,15 @@ public interface Service
 extends          Serializable
 {
     interface Output {
+        /**
+         * The result of the service. Supported are a
+         * org.w3c.dom.Document, a byte array, a java.io.File,
+         * a java.nio.file.Path and a java.nio.channels.ReadableByteChannel.
+         * Files and channels are streamed to the client without
+         * loading them into memory. Channels are closed after
+         * they are written.
+         * @return The result data.
+         */
         Object getData();
 
         String getMIMEType();
@@ -39,6 +39,14 @@ public interface HttpClient {
         ResponseHandler handler)
     throws ConnectionException;
 
+    /**
+     * Fetches the describe document of an artifact. Repeated calls
+     * are revalidated by the server with the entity tag of the
+     * former response.
+     */
+    Document describe(Artifact artifact)
+    throws ConnectionException;
+
     Object feed(Artifact artifact, Document feedDocument, ResponseHandler handler)
     throws ConnectionException;
 
@@ -48,6 +56,13 @@ public interface HttpClient {
         ResponseHandler handler)
     throws ConnectionException;
 
+    /**
+     * Performs several describe, feed or advance actions wrapped
+     * in a batch document with a single request.
+     */
+    Document batch(Document batchDocument)
+    throws ConnectionException;
+
     void out(
         Artifact     artifact,
         Document     outDocument,
@@ -108,9 +123,24 @@ public interface HttpClient {
     Document listUsers()
     throws ConnectionException;
 
+    /**
+     * Lists a page of users. The 'next' element of the result
+     * carries the cursor to be passed as 'after' for the next page.
+     */
+    Document listUsers(int limit, String after)
+    throws ConnectionException;
+
     Document listUserCollections(String userid)
     throws ConnectionException;
 
+    /**
+     * Lists a page of the collections of a user. The 'next' element of
+     * the result carries the cursor to be passed as 'after' for the
+     * next page.
+     */
+    Document listUserCollections(String userid, int limit, String after)
+    throws ConnectionException;
+
     Document createUser(Document doc)
     throws ConnectionException;
 
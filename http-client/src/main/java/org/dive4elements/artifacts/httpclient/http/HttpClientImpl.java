@@ -7,12 +7,20 @@
  */
 package org.dive4elements.artifacts.httpclient.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+import java.net.URLEncoder;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
@@ -21,13 +29,17 @@ import org.restlet.Client;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.ClientInfo;
+import org.restlet.data.Encoding;
 import org.restlet.data.Language;
 import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Preference;
 import org.restlet.data.Protocol;
 import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.application.DecodeRepresentation;
 import org.restlet.ext.xml.DomRepresentation;
+import org.restlet.representation.InputRepresentation;
 import org.restlet.representation.Representation;
 
 import org.w3c.dom.Document;
@@ -40,6 +52,7 @@ import org.dive4elements.artifacts.httpclient.objects.Artifact;
 import org.dive4elements.artifacts.httpclient.objects.ArtifactFactory;
 import org.dive4elements.artifacts.httpclient.utils.ArtifactProtocolUtils;
 import org.dive4elements.artifacts.httpclient.utils.ArtifactCreator;
+import org.dive4elements.artifacts.httpclient.utils.XMLUtils;
 
 /**
  * Client to artifact-server.
@@ -74,6 +87,54 @@ public class HttpClientImpl implements HttpClient {
     /** The URL path of the resource to work with an artifact collections.*/
     public static final String PATH_OUT_COLLECTION = "/collection";
 
+    /** The URL path of the resource to perform batches of actions.*/
+    public static final String PATH_BATCH = "/batch";
+
+    /** Max. number of responses kept to be revalidated by the server.*/
+    public static final int MAX_VALIDATED_RESPONSES = 256;
+
+    /**
+     * A response body together with the entity tag the server
+     * has sent for it.
+     */
+    private static final class Validated {
+
+        private final Tag       tag;
+        private final MediaType mediaType;
+        private final byte []   data;
+
+        Validated(Tag tag, MediaType mediaType, byte [] data) {
+            this.tag       = tag;
+            this.mediaType = mediaType;
+            this.data      = data;
+        }
+
+        Representation toRepresentation() {
+            return new InputRepresentation(
+                new ByteArrayInputStream(data), mediaType, data.length);
+        }
+    } // class Validated
+
+    /**
+     * Responses which carried an entity tag (e.g. describe documents)
+     * keyed by the request they answer. The tags are sent as
+     * 'If-None-Match' validators on repeated requests so the server
+     * may answer with '304 Not Modified' instead of building the
+     * document again.
+     * The responses are kept per client instance because they may
+     * depend on the credentials and the locale the client uses.
+     */
+    private final Map<String, Validated> validatedResponses =
+        Collections.synchronizedMap(
+            new LinkedHashMap<String, Validated>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                    Map.Entry<String, Validated> eldest
+                ) {
+                    return size() > MAX_VALIDATED_RESPONSES;
+                }
+            });
+
     private String serverUrl;
 
     private String localeString;
@@ -178,6 +239,23 @@ public class HttpClientImpl implements HttpClient {
     }
 
 
+    @Override
+    public Document describe(Artifact artifact)
+    throws ConnectionException
+    {
+        ResponseHandler handler = new DocumentResponseHandler();
+
+        try {
+            String url = serverUrl + "/artifact/" + artifact.getUuid();
+            return (Document) handler.handle(doGet(url));
+        }
+        catch (IOException ioe) {
+            throw new ConnectionException(
+                "Connection to server failed: " + ioe.getMessage());
+        }
+    }
+
+
     @Override
     public Object feed(Artifact artifact, Document doc, ResponseHandler handler)
     throws ConnectionException
@@ -212,6 +290,23 @@ public class HttpClientImpl implements HttpClient {
     }
 
 
+    @Override
+    public Document batch(Document doc)
+    throws ConnectionException
+    {
+        ResponseHandler handler = new DocumentResponseHandler();
+
+        try {
+            String url = serverUrl + PATH_BATCH;
+            return (Document) handler.handle(doPost(url, doc));
+        }
+        catch (IOException ioe) {
+            throw new ConnectionException(
+                "Connection to server failed: " + ioe.getMessage());
+        }
+    }
+
+
     @Override
     public void out(
         Artifact     artifact,
@@ -253,6 +348,23 @@ public class HttpClientImpl implements HttpClient {
     //==============================
 
     private Response doPost(String url, Document body) throws IOException {
+        return doPost(url, body, false);
+    }
+
+
+    /**
+     * Sends a document via HTTP-POST.
+     *
+     * @param url The URL used for the request.
+     * @param body The document to send.
+     * @param conditional If true the entity tags of former responses
+     * to the same request are sent to the server to be revalidated.
+     *
+     * @return the response.
+     */
+    private Response doPost(String url, Document body, boolean conditional)
+    throws IOException
+    {
         if (logger.isDebugEnabled()) {
             logger.debug("Start HTTP-POST request to: " + url);
         }
@@ -265,7 +377,11 @@ public class HttpClientImpl implements HttpClient {
             body);
 
         request.setEntity(representation);
-        Response response = client.handle(request);
+
+        Response response = conditional
+            ? handleConditional(
+                client, request, url + '\n' + XMLUtils.toString(body))
+            : decode(client.handle(request));
 
         logger.debug("RESPONSE: " + response);
 
@@ -292,7 +408,7 @@ public class HttpClientImpl implements HttpClient {
         Client client   = getClient();
         Request request = prepareRequest(Method.GET, url);
 
-        Response response = client.handle(request);
+        Response response = handleConditional(client, request, url);
 
         Status status = response.getStatus();
         if (status.getCode() != 200) {
@@ -318,6 +434,7 @@ public class HttpClientImpl implements HttpClient {
         ClientInfo info = request.getClientInfo();
 
         setLocale(info);
+        setAcceptedEncodings(info);
 
         request.setClientInfo(info);
 
@@ -325,6 +442,124 @@ public class HttpClientImpl implements HttpClient {
     }
 
 
+    /**
+     * Announces that compressed responses are accepted.
+     *
+     * @param info The ClientInfo that is used to provide request information.
+     */
+    private static void setAcceptedEncodings(ClientInfo info) {
+        List<Preference<Encoding>> accepted =
+            new ArrayList<Preference<Encoding>>(3);
+
+        accepted.add(new Preference<Encoding>(Encoding.GZIP));
+        accepted.add(new Preference<Encoding>(Encoding.DEFLATE));
+        accepted.add(new Preference<Encoding>(Encoding.IDENTITY));
+
+        info.setAcceptedEncodings(accepted);
+    }
+
+
+    /**
+     * Sends a request with the entity tag of an earlier response
+     * to the same request as 'If-None-Match' condition. If the server
+     * answers with '304 Not Modified' the earlier response body is
+     * used. New responses with an entity tag are remembered.
+     *
+     * @param client The client to send the request with.
+     * @param request The request.
+     * @param key The key identifying the request.
+     *
+     * @return the response.
+     */
+    private Response handleConditional(
+        Client  client,
+        Request request,
+        String  key
+    )
+    throws IOException
+    {
+        if (localeString != null) {
+            key = localeString + '\n' + key;
+        }
+
+        Validated validated = validatedResponses.get(key);
+
+        if (validated != null) {
+            request.getConditions().getNoneMatch().add(validated.tag);
+        }
+
+        Response response = decode(client.handle(request));
+        Status   status   = response.getStatus();
+
+        if (validated != null
+        && Status.REDIRECTION_NOT_MODIFIED.equals(status)) {
+            logger.debug("Response not modified.");
+            response.setStatus(Status.SUCCESS_OK);
+            response.setEntity(validated.toRepresentation());
+            return response;
+        }
+
+        Representation entity = response.getEntity();
+
+        if (status.getCode() == 200
+        && entity != null
+        && entity.getTag() != null
+        && !entity.getTag().isWeak()) {
+            validated = new Validated(
+                entity.getTag(),
+                entity.getMediaType(),
+                toBytes(entity.getStream()));
+            validatedResponses.put(key, validated);
+            response.setEntity(validated.toRepresentation());
+        }
+        else if (validated != null) {
+            validatedResponses.remove(key);
+        }
+
+        return response;
+    }
+
+
+    private static byte [] toBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            byte [] buf = new byte[4096];
+            int r;
+            while ((r = in.read(buf)) >= 0) {
+                out.write(buf, 0, r);
+            }
+        }
+        finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Replaces a compressed entity of the response by a representation
+     * which decompresses it on the fly.
+     *
+     * @param response The response of the server.
+     *
+     * @return the response.
+     */
+    private static Response decode(Response response) {
+        Representation entity = response.getEntity();
+
+        if (entity != null) {
+            for (Encoding encoding: entity.getEncodings()) {
+                if (!Encoding.IDENTITY.equals(encoding)) {
+                    response.setEntity(new DecodeRepresentation(entity));
+                    break;
+                }
+            }
+        }
+
+        return response;
+    }
+
+
     /**
      * This method is called to set the request's locale.
      *
@@ -405,7 +640,7 @@ public class HttpClientImpl implements HttpClient {
         String url = serverUrl + PATH_ACTION_COLLECTION + "/" + uuid;
 
         try {
-            return handler.handle(doPost(url, actionDoc));
+            return handler.handle(doPost(url, actionDoc, true));
         }
         catch (IOException ioe) {
             throw new ConnectionException(ioe.getMessage(), ioe);
@@ -516,9 +751,17 @@ public class HttpClientImpl implements HttpClient {
 
     public Document listUsers()
     throws ConnectionException
+    {
+        return listUsers(0, null);
+    }
+
+
+    public Document listUsers(int limit, String after)
+    throws ConnectionException
     {
         ResponseHandler handler = new DocumentResponseHandler();
-        String    url           = serverUrl + PATH_LIST_USERS;
+        String    url           =
+            serverUrl + PATH_LIST_USERS + pageQuery(limit, after);
 
         try {
             return (Document) handler.handle(doGet(url));
@@ -531,10 +774,18 @@ public class HttpClientImpl implements HttpClient {
 
     public Document listUserCollections(String userid)
     throws ConnectionException
+    {
+        return listUserCollections(userid, 0, null);
+    }
+
+
+    public Document listUserCollections(String userid, int limit, String after)
+    throws ConnectionException
     {
         ResponseHandler handler = new DocumentResponseHandler();
 
-        String url = serverUrl + PATH_USER_COLLECTIONS + "/" + userid;
+        String url = serverUrl + PATH_USER_COLLECTIONS + "/" + userid
+            + pageQuery(limit, after);
 
         try {
             return (Document) handler.handle(doGet(url));
@@ -544,6 +795,36 @@ public class HttpClientImpl implements HttpClient {
         }
     }
 
+    /**
+     * Builds the query string to request a page of a listing.
+     *
+     * @param limit The max. number of elements. Values <= 0 mean no limit.
+     * @param after The cursor of the previous page or null.
+     *
+     * @return the query string including the leading '?' or an empty
+     * string if the whole listing is requested.
+     */
+    private static String pageQuery(int limit, String after) {
+        StringBuilder sb = new StringBuilder();
+
+        if (limit > 0) {
+            sb.append("?limit=").append(limit);
+        }
+
+        if (after != null) {
+            try {
+                sb.append(sb.length() == 0 ? '?' : '&')
+                  .append("after=")
+                  .append(URLEncoder.encode(after, "UTF-8"));
+            }
+            catch (UnsupportedEncodingException uee) {
+                logger.error(uee.getLocalizedMessage(), uee);
+            }
+        }
+
+        return sb.toString();
+    }
+
     @Override
     public Document createUser(Document doc)
     throws ConnectionException {